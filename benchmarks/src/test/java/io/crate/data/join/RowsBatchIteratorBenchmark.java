@@ -33,7 +33,9 @@ import io.crate.data.Row1;
 import io.crate.data.RowN;
 import io.crate.data.SkippingBatchIterator;
 import io.crate.execution.engine.join.HashInnerJoinBatchIterator;
+import io.crate.execution.engine.join.HashJoinBatchIterator;
 import io.crate.execution.engine.join.RamAccountingBatchIterator;
+import io.crate.planner.node.dql.join.JoinType;
 import io.crate.testing.RowGenerator;
 import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
@@ -155,6 +157,69 @@ public class RowsBatchIteratorBenchmark {
         }
     }
 
+    @Benchmark
+    public void measureConsumeHashLeftJoin(Blackhole blackhole) {
+        BatchIterator<Row> leftJoin = hashJoin(JoinType.LEFT);
+        while (leftJoin.moveNext()) {
+            blackhole.consume(leftJoin.currentElement().get(0));
+        }
+    }
+
+    @Benchmark
+    public void measureConsumeNestedLoopFullJoin(Blackhole blackhole) {
+        BatchIterator<Row> fullJoin = JoinBatchIterators.fullOuterJoin(
+            InMemoryBatchIterator.of(oneThousandRows, SENTINEL),
+            InMemoryBatchIterator.of(tenThousandRows, SENTINEL),
+            new CombinedRow(1, 1),
+            row -> Objects.equals(row.get(0), row.get(1))
+        );
+        while (fullJoin.moveNext()) {
+            blackhole.consume(fullJoin.currentElement().get(0));
+        }
+    }
+
+    @Benchmark
+    public void measureConsumeHashFullJoin(Blackhole blackhole) {
+        BatchIterator<Row> fullJoin = hashJoin(JoinType.FULL);
+        while (fullJoin.moveNext()) {
+            blackhole.consume(fullJoin.currentElement().get(0));
+        }
+    }
+
+    @Benchmark
+    public void measureConsumeNestedLoopSemiJoin(Blackhole blackhole) {
+        BatchIterator<Row> semiJoin = JoinBatchIterators.semiJoin(
+            InMemoryBatchIterator.of(oneThousandRows, SENTINEL),
+            InMemoryBatchIterator.of(tenThousandRows, SENTINEL),
+            new CombinedRow(1, 1),
+            row -> Objects.equals(row.get(0), row.get(1))
+        );
+        while (semiJoin.moveNext()) {
+            blackhole.consume(semiJoin.currentElement().get(0));
+        }
+    }
+
+    @Benchmark
+    public void measureConsumeHashSemiJoin(Blackhole blackhole) {
+        BatchIterator<Row> semiJoin = hashJoin(JoinType.SEMI);
+        while (semiJoin.moveNext()) {
+            blackhole.consume(semiJoin.currentElement().get(0));
+        }
+    }
+
+    private BatchIterator<Row> hashJoin(JoinType joinType) {
+        return new HashJoinBatchIterator<>(
+            new RamAccountingBatchIterator<>(InMemoryBatchIterator.of(oneThousandRows, SENTINEL), rowAccounting),
+            InMemoryBatchIterator.of(tenThousandRows, SENTINEL),
+            new CombinedRow(1, 1),
+            joinType,
+            row -> Objects.equals(row.get(0), row.get(1)),
+            row -> Objects.hash(row.get(0)),
+            row -> Objects.hash(row.get(0)),
+            () -> 1000
+        );
+    }
+
     @Benchmark
     public void measureConsumeHashInnerJoin(Blackhole blackhole) {
         BatchIterator<Row> leftJoin = new HashInnerJoinBatchIterator<>(
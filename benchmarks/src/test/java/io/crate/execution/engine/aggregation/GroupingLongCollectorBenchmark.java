@@ -29,6 +29,7 @@ import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.Row1;
+import io.crate.data.RowN;
 import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
 import io.crate.execution.engine.aggregation.impl.SumAggregation;
 import io.crate.execution.engine.collect.CollectExpression;
@@ -70,6 +71,9 @@ public class GroupingLongCollectorBenchmark {
     private BatchIterator<Row> rowsIterator;
     private List<Row> rows;
     private GroupBySingleNumberCollector groupBySumSingleLongCollector;
+    private GroupingCollector groupBySumTwoLongsCollector;
+    private GroupByFixedWidthKeysCollector groupBySumTwoLongsFixedWidthCollector;
+    private List<Row> twoKeyRows;
 
     @Setup
     public void createGroupingCollector() {
@@ -79,11 +83,17 @@ public class GroupingLongCollectorBenchmark {
             new FunctionIdent(SumAggregation.NAME, Arrays.asList(DataTypes.INTEGER)));
         groupBySumCollector = createGroupBySumCollector(sumAgg);
         groupBySumSingleLongCollector = createOptimizedCollector(sumAgg);
+        groupBySumTwoLongsCollector = createGroupBySumTwoLongsCollector(sumAgg);
+        groupBySumTwoLongsFixedWidthCollector = createFixedWidthTwoLongsCollector(sumAgg);
 
         rows = new ArrayList<>(20_000_000);
         for (int i = 0; i < 20_000_000; i++) {
             rows.add(new Row1((long) i % 200));
         }
+        twoKeyRows = new ArrayList<>(20_000_000);
+        for (int i = 0; i < 20_000_000; i++) {
+            twoKeyRows.add(new RowN(new Object[] { (long) i % 200, (long) i % 7 }));
+        }
     }
 
     private GroupBySingleNumberCollector createOptimizedCollector(AggregationFunction sumAgg) {
@@ -119,6 +129,38 @@ public class GroupingLongCollectorBenchmark {
         );
     }
 
+    private static GroupingCollector createGroupBySumTwoLongsCollector(AggregationFunction sumAgg) {
+        InputCollectExpression firstKey = new InputCollectExpression(0);
+        InputCollectExpression secondKey = new InputCollectExpression(1);
+        return GroupingCollector.manyKeys(
+            new CollectExpression[] { firstKey, secondKey },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { firstKey }},
+            RAM_ACCOUNTING_CONTEXT,
+            Arrays.asList(firstKey, secondKey),
+            Arrays.asList(DataTypes.LONG, DataTypes.LONG),
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
+    private static GroupByFixedWidthKeysCollector createFixedWidthTwoLongsCollector(AggregationFunction sumAgg) {
+        InputCollectExpression firstKey = new InputCollectExpression(0);
+        InputCollectExpression secondKey = new InputCollectExpression(1);
+        return new GroupByFixedWidthKeysCollector(
+            Arrays.asList(DataTypes.LONG, DataTypes.LONG),
+            new CollectExpression[] { firstKey, secondKey },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { firstKey }},
+            RAM_ACCOUNTING_CONTEXT,
+            Arrays.asList(firstKey, secondKey),
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
     @Benchmark
     public void measureGroupBySumLong(Blackhole blackhole) throws Exception {
         rowsIterator = InMemoryBatchIterator.of(rows, SENTINEL);
@@ -130,4 +172,16 @@ public class GroupingLongCollectorBenchmark {
         rowsIterator = InMemoryBatchIterator.of(rows, SENTINEL);
         blackhole.consume(BatchIterators.collect(rowsIterator, groupBySumSingleLongCollector).get());
     }
+
+    @Benchmark
+    public void measureGroupBySumTwoLongs(Blackhole blackhole) throws Exception {
+        rowsIterator = InMemoryBatchIterator.of(twoKeyRows, SENTINEL);
+        blackhole.consume(BatchIterators.collect(rowsIterator, groupBySumTwoLongsCollector).get());
+    }
+
+    @Benchmark
+    public void measureGroupBySumTwoLongsFixedWidth(Blackhole blackhole) throws Exception {
+        rowsIterator = InMemoryBatchIterator.of(twoKeyRows, SENTINEL);
+        blackhole.consume(BatchIterators.collect(rowsIterator, groupBySumTwoLongsFixedWidthCollector).get());
+    }
 }
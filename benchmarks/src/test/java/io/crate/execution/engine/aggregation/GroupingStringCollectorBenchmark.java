@@ -69,6 +69,7 @@ public class GroupingStringCollectorBenchmark {
         new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
 
     private GroupingCollector groupByMinCollector;
+    private GroupBySingleStringCollector groupByMinSingleStringCollector;
     private BatchIterator<Row> rowsIterator;
     private List<Row> rows;
 
@@ -78,6 +79,7 @@ public class GroupingStringCollectorBenchmark {
             .createInjector().getInstance(Functions.class);
 
         groupByMinCollector = createGroupByMinBytesRefCollector(functions);
+        groupByMinSingleStringCollector = createOptimizedCollector(functions);
 
         List<String> keys = new ArrayList<>(Locale.getISOCountries().length);
         keys.addAll(Arrays.asList(Locale.getISOCountries()));
@@ -109,9 +111,32 @@ public class GroupingStringCollectorBenchmark {
         );
     }
 
+    private GroupBySingleStringCollector createOptimizedCollector(Functions functions) {
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        AggregationFunction minAgg = (AggregationFunction) functions.getQualified(
+                new FunctionIdent(MinimumAggregation.NAME, Collections.singletonList(DataTypes.STRING)));
+
+        return new GroupBySingleStringCollector(
+            new CollectExpression[] { keyInput },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { minAgg },
+            new Input[][] { new Input[] { keyInput }},
+            RAM_ACCOUNTING_CONTEXT,
+            keyInput,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
     @Benchmark
     public void measureGroupByMinString(Blackhole blackhole) throws Exception {
         rowsIterator = InMemoryBatchIterator.of(rows, SENTINEL);
         blackhole.consume(BatchIterators.collect(rowsIterator, groupByMinCollector).get());
     }
+
+    @Benchmark
+    public void measureGroupByMinStringOptimized(Blackhole blackhole) throws Exception {
+        rowsIterator = InMemoryBatchIterator.of(rows, SENTINEL);
+        blackhole.consume(BatchIterators.collect(rowsIterator, groupByMinSingleStringCollector).get());
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.expression.reference.Doc;
+import io.crate.expression.reference.doc.lucene.SourceFieldVisitor;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.VersionFieldMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.xcontent.XContentHelper.convertToMap;
+
+/**
+ * Compares resolving a set of primary keys one by one, like a get on the engine does
+ * after the version map has been consulted, against {@link PKLookupOperation#lookupDocs(String, org.apache.lucene.index.IndexReader, Term[], String[])}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PKLookupOperationBenchmark {
+
+    private static final int NUM_DOCS = 500_000;
+    private static final int NUM_LOOKUPS = 5_000;
+
+    private DirectoryReader reader;
+    private String[] ids;
+    private Term[] uidTerms;
+
+    @Setup
+    public void createIndex() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        // several segments, like a shard which is continuously written to
+        config.setMaxBufferedDocs(50_000);
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), config);
+        String[] allIds = new String[NUM_DOCS];
+        for (int i = 0; i < NUM_DOCS; i++) {
+            String id = UUID.randomUUID().toString();
+            allIds[i] = id;
+            Document doc = new Document();
+            doc.add(new Field(IdFieldMapper.NAME, Uid.encodeId(id), IdFieldMapper.Defaults.FIELD_TYPE));
+            doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, 1L));
+            doc.add(new StoredField(SourceFieldMapper.NAME, new BytesRef("{\"x\":" + i + ",\"name\":\"" + id + "\"}")));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        reader = DirectoryReader.open(iw);
+
+        Random random = new Random(42);
+        ids = new String[NUM_LOOKUPS];
+        uidTerms = new Term[NUM_LOOKUPS];
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            ids[i] = allIds[random.nextInt(NUM_DOCS)];
+            uidTerms[i] = new Term(IdFieldMapper.NAME, Uid.encodeId(ids[i]));
+        }
+    }
+
+    @TearDown
+    public void closeReader() throws Exception {
+        reader.close();
+    }
+
+    @Benchmark
+    public void measurePerKeyLookup(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < uidTerms.length; i++) {
+            VersionsAndSeqNoResolver.DocIdAndVersion docIdAndVersion =
+                VersionsAndSeqNoResolver.loadDocIdAndVersion(reader, uidTerms[i]);
+            SourceFieldVisitor visitor = new SourceFieldVisitor();
+            docIdAndVersion.reader.document(docIdAndVersion.docId, visitor);
+            Doc doc = new Doc(
+                "t",
+                ids[i],
+                docIdAndVersion.version,
+                convertToMap(visitor.source(), false, XContentType.JSON).v2(),
+                () -> visitor.source().utf8ToString()
+            );
+            blackhole.consume(doc.getVersion());
+            blackhole.consume(doc.getRaw());
+        }
+    }
+
+    @Benchmark
+    public void measureBatchedLookup(Blackhole blackhole) throws Exception {
+        for (Doc doc : PKLookupOperation.lookupDocs("t", reader, uidTerms, ids)) {
+            blackhole.consume(doc.getVersion());
+            blackhole.consume(doc.getRaw());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the serialization of a {@link StreamBucket} with a row wise serialization, which writes each cell using
+ * the {@link Streamer} of its column.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StreamBucketBenchmark {
+
+    private static final int NUM_ROWS = 100_000;
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"));
+    private final Streamer<?>[] streamers = new Streamer[] {
+        DataTypes.LONG.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.DOUBLE.streamer(),
+        DataTypes.INTEGER.streamer()
+    };
+    private final List<Row> rows = new ArrayList<>(NUM_ROWS);
+
+    @Setup
+    public void createRows() {
+        Random random = new Random(42);
+        String[] countries = new String[] { "Austria", "Germany", "Greece", "Italy", "Spain", "Switzerland" };
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(new RowN(new Object[] {
+                (long) i,
+                countries[random.nextInt(countries.length)],
+                random.nextDouble(),
+                i % 10 == 0 ? null : random.nextInt(1000)
+            }));
+        }
+    }
+
+    @Benchmark
+    public void measureStreamBucketRoundTrip(Blackhole blackhole) throws IOException {
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        for (Row row : rows) {
+            builder.add(row);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        builder.build().writeTo(out);
+        blackhole.consume(out.size());
+
+        StreamBucket bucket = new StreamBucket(out.bytes().streamInput(), streamers);
+        for (Row row : bucket) {
+            blackhole.consume(row.get(0));
+            blackhole.consume(row.get(1));
+            blackhole.consume(row.get(2));
+            blackhole.consume(row.get(3));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void measureRowWiseRoundTrip(Blackhole blackhole) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(rows.size());
+        for (Row row : rows) {
+            for (int i = 0; i < streamers.length; i++) {
+                ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+            }
+        }
+        blackhole.consume(out.size());
+
+        StreamInput in = out.bytes().streamInput();
+        int numRows = in.readVInt();
+        Object[] cells = new Object[streamers.length];
+        for (int r = 0; r < numRows; r++) {
+            for (int i = 0; i < streamers.length; i++) {
+                cells[i] = streamers[i].readValueFrom(in);
+            }
+            blackhole.consume(cells[0]);
+            blackhole.consume(cells[1]);
+            blackhole.consume(cells[2]);
+            blackhole.consume(cells[3]);
+        }
+    }
+}
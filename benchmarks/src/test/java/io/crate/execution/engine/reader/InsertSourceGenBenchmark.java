@@ -0,0 +1,133 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.reader;
+
+import io.crate.execution.dml.upsert.GeneratedColumns;
+import io.crate.execution.dml.upsert.InsertSourceGen;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.doc.DocSysColumns;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.testing.SQLExecutor;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static io.crate.testing.DiscoveryNodes.newNode;
+import static org.elasticsearch.test.ClusterServiceUtils.createClusterService;
+
+/**
+ * Measures the generation of the source of inserted documents,
+ * from the values of the target columns and from the raw JSON lines of COPY FROM.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class InsertSourceGenBenchmark {
+
+    private TestThreadPool threadPool;
+    private InsertSourceGen fromCells;
+    private InsertSourceGen fromRaw;
+    private InsertSourceGen fromRawWithGeneratedColumns;
+    private Object[] cells;
+    private Object[] rawLine;
+
+    @Setup
+    public void setup() throws Exception {
+        threadPool = new TestThreadPool("testing");
+        DiscoveryNode localNode = newNode("benchmarkNode", "n1");
+        ClusterService clusterService = createClusterService(threadPool, localNode);
+        SQLExecutor e = SQLExecutor.builder(clusterService, 1, new Random(10))
+            .addTable("create table users (id int primary key, name string, details object as (age int, city string))")
+            .addTable("create table users_gen (id int primary key, name string, details object as (age int, city string), " +
+                      "name_upper as upper(name))")
+            .build();
+        CoordinatorTxnCtx txnCtx = CoordinatorTxnCtx.systemTransactionContext();
+        DocTableInfo users = e.schemas().getTableInfo(new RelationName("doc", "users"));
+        DocTableInfo usersGen = e.schemas().getTableInfo(new RelationName("doc", "users_gen"));
+        fromCells = InsertSourceGen.of(
+            txnCtx,
+            e.functions(),
+            users,
+            GeneratedColumns.Validation.VALUE_MATCH,
+            Arrays.asList(
+                users.getReference(new ColumnIdent("id")),
+                users.getReference(new ColumnIdent("name")),
+                users.getReference(new ColumnIdent("details", "age")),
+                users.getReference(new ColumnIdent("details", "city"))
+            )
+        );
+        fromRaw = InsertSourceGen.of(
+            txnCtx,
+            e.functions(),
+            users,
+            GeneratedColumns.Validation.NONE,
+            Collections.singletonList(users.getReference(DocSysColumns.RAW))
+        );
+        fromRawWithGeneratedColumns = InsertSourceGen.of(
+            txnCtx,
+            e.functions(),
+            usersGen,
+            GeneratedColumns.Validation.NONE,
+            Collections.singletonList(usersGen.getReference(DocSysColumns.RAW))
+        );
+        cells = new Object[] { 1, "Arthur", 42, "Cottington" };
+        rawLine = new Object[] { "{\"id\": 1, \"name\": \"Arthur\", \"details\": {\"age\": 42, \"city\": \"Cottington\"}}" };
+    }
+
+    @TearDown
+    public void cleanup() throws InterruptedException {
+        threadPool.shutdown();
+        threadPool.awaitTermination(20, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public BytesReference measureGenerateSourceFromCells() throws Exception {
+        return fromCells.generateSource(cells);
+    }
+
+    @Benchmark
+    public BytesReference measureGenerateSourceFromRawLine() throws Exception {
+        return fromRaw.generateSource(rawLine);
+    }
+
+    @Benchmark
+    public BytesReference measureGenerateSourceFromRawLineWithGeneratedColumns() throws Exception {
+        return fromRawWithGeneratedColumns.generateSource(rawLine);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import com.google.common.collect.ImmutableMap;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.types.ArrayType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DataRowBenchmark {
+
+    private static final int NUM_ROWS = 1000;
+
+    @Param({"TEXT", "BINARY"})
+    public FormatCodes.FormatCode formatCode;
+
+    private EmbeddedChannel channel;
+    private PGType[] columnTypes;
+    private FormatCodes.FormatCode[] formatCodes;
+    private Row row;
+
+    @Setup
+    public void setupChannelAndRow() {
+        channel = new EmbeddedChannel();
+        DataType[] types = new DataType[] {
+            DataTypes.INTEGER,
+            DataTypes.LONG,
+            DataTypes.DOUBLE,
+            DataTypes.TIMESTAMP,
+            DataTypes.STRING,
+            new ArrayType(DataTypes.LONG),
+            DataTypes.OBJECT
+        };
+        columnTypes = new PGType[types.length];
+        for (int i = 0; i < types.length; i++) {
+            columnTypes[i] = PGTypes.get(types[i]);
+        }
+        formatCodes = new FormatCodes.FormatCode[] { formatCode };
+        row = new RowN(new Object[] {
+            42,
+            1234567890123L,
+            3.14159,
+            1467072000000L,
+            "Arkintoofle Minor",
+            new Long[] { 1L, 2L, 3L, 4L },
+            ImmutableMap.of("x", 10, "name", "Trillian")
+        });
+    }
+
+    @TearDown
+    public void closeChannel() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void measureSendDataRows(Blackhole blackhole) {
+        int sizeHint = 0;
+        for (int i = 0; i < NUM_ROWS; i++) {
+            sizeHint = Messages.sendDataRow(channel, row, columnTypes, formatCodes, sizeHint);
+        }
+        channel.flush();
+        channel.releaseOutbound();
+        blackhole.consume(sizeHint);
+    }
+}
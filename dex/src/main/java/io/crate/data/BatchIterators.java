@@ -22,6 +22,8 @@
 
 package io.crate.data;
 
+import io.crate.concurrent.CompletableFutures;
+
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -42,7 +44,14 @@ public class BatchIterators {
      * @return future containing the result
      */
     public static <T, A, R> CompletableFuture<R> collect(BatchIterator<T> it, Collector<T, A, R> collector) {
-        return collect(it, collector.supplier().get(), collector, new CompletableFuture<>());
+        A state;
+        try {
+            // creating the state may already account memory and trip a circuit breaker
+            state = collector.supplier().get();
+        } catch (Throwable t) {
+            return CompletableFutures.failedFuture(t);
+        }
+        return collect(it, state, collector, new CompletableFuture<>());
     }
 
     /**
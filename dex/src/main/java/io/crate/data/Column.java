@@ -0,0 +1,71 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import javax.annotation.Nullable;
+
+/**
+ * The values of a single column for consecutive rows.
+ *
+ * Implementations store the values in primitive arrays; {@link #get(int)} boxes the value
+ * and should only be used by row based fallbacks.
+ */
+public interface Column {
+
+    /**
+     * @return the number of values this column can hold
+     */
+    int capacity();
+
+    boolean isNull(int position);
+
+    /**
+     * @return true if any of the first {@code size} values is null
+     */
+    boolean hasNulls(int size);
+
+    /**
+     * @return the boxed value at the given position or null
+     */
+    @Nullable
+    Object get(int position);
+
+    /**
+     * Sets the value at the given position; {@code value} must be null or a {@link Number}
+     */
+    void set(int position, @Nullable Object value);
+
+    void setNull(int position);
+
+    /**
+     * Sets the value at the given position without boxing it; the value is converted if the column doesn't
+     * store longs.
+     */
+    void setLong(int position, long value);
+
+    /**
+     * Sets the value at the given position without boxing it; the value is converted if the column doesn't
+     * store doubles.
+     */
+    void setDouble(int position, double value);
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+/**
+ * An {@link Input} which can write its current value into a {@link Column} without boxing it.
+ */
+public interface ColumnInput<T> extends Input<T> {
+
+    /**
+     * Writes the current value into {@code column} at {@code position}.
+     */
+    void writeTo(Column column, int position);
+
+    /**
+     * Writes the current value of {@code input} into {@code column} at {@code position};
+     * falls back to {@link Column#set(int, Object)} if the input isn't a {@link ColumnInput}.
+     */
+    static void writeTo(Input<?> input, Column column, int position) {
+        if (input instanceof ColumnInput) {
+            ((ColumnInput<?>) input).writeTo(column, position);
+        } else {
+            column.set(position, input.value());
+        }
+    }
+}
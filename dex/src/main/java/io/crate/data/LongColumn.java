@@ -0,0 +1,98 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import javax.annotation.Nullable;
+
+/**
+ * Column backed by a {@code long[]}.
+ * Used for all integral types and for timestamps.
+ */
+public final class LongColumn implements Column {
+
+    private final long[] values;
+    private final NullBits nulls;
+
+    public LongColumn(int capacity) {
+        values = new long[capacity];
+        nulls = new NullBits(capacity);
+    }
+
+    public long getLong(int position) {
+        return values[position];
+    }
+
+    @Override
+    public void setLong(int position, long value) {
+        values[position] = value;
+        nulls.clear(position);
+    }
+
+    @Override
+    public void setDouble(int position, double value) {
+        setLong(position, (long) value);
+    }
+
+    @Override
+    public void setNull(int position) {
+        values[position] = 0L;
+        nulls.set(position);
+    }
+
+    /**
+     * @return the backing array; only the values at positions which are not null are valid.
+     */
+    public long[] values() {
+        return values;
+    }
+
+    @Override
+    public int capacity() {
+        return values.length;
+    }
+
+    @Override
+    public boolean isNull(int position) {
+        return nulls.get(position);
+    }
+
+    @Override
+    public boolean hasNulls(int size) {
+        return nulls.any(size);
+    }
+
+    @Nullable
+    @Override
+    public Long get(int position) {
+        return nulls.get(position) ? null : values[position];
+    }
+
+    @Override
+    public void set(int position, @Nullable Object value) {
+        if (value == null) {
+            setNull(position);
+        } else {
+            setLong(position, ((Number) value).longValue());
+        }
+    }
+}
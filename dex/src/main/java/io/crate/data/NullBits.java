@@ -0,0 +1,72 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+/**
+ * Bitmap which marks the null positions of a {@link Column}.
+ */
+final class NullBits {
+
+    private final long[] words;
+    private int numNulls = 0;
+
+    NullBits(int capacity) {
+        words = new long[(capacity + 63) >>> 6];
+    }
+
+    boolean get(int position) {
+        return (words[position >>> 6] & (1L << position)) != 0;
+    }
+
+    void set(int position) {
+        long word = words[position >>> 6];
+        long mask = 1L << position;
+        if ((word & mask) == 0) {
+            words[position >>> 6] = word | mask;
+            numNulls++;
+        }
+    }
+
+    void clear(int position) {
+        long word = words[position >>> 6];
+        long mask = 1L << position;
+        if ((word & mask) != 0) {
+            words[position >>> 6] = word & ~mask;
+            numNulls--;
+        }
+    }
+
+    boolean any(int size) {
+        if (numNulls == 0) {
+            return false;
+        }
+        int fullWords = size >>> 6;
+        for (int i = 0; i < fullWords; i++) {
+            if (words[i] != 0) {
+                return true;
+            }
+        }
+        int remainingBits = size & 63;
+        return remainingBits != 0 && (words[fullWords] & ((1L << remainingBits) - 1)) != 0;
+    }
+}
@@ -67,6 +67,14 @@ public interface Row {
      */
     Object get(int index);
 
+    /**
+     * Writes the value of the specified column into {@code column} at {@code position}.
+     * Rows backed by {@link ColumnInput}s override this to write primitive values without boxing them.
+     */
+    default void writeTo(int index, Column column, int position) {
+        column.set(position, get(index));
+    }
+
     /**
      * Returns a materialized view of this row.
      */
@@ -34,11 +34,11 @@ import org.apache.lucene.util.LongBitSet;
  * order to further optimize performance by growing the capacity of the backing array
  * by double each time size is reached.
  */
-class LuceneLongBitSetWrapper {
+public class LuceneLongBitSetWrapper {
     private long size = 1024;
     private LongBitSet bitSet = new LongBitSet(size);
 
-    void set(long idx) {
+    public void set(long idx) {
         if (idx >= size) {
             size *= 2;
             bitSet = LongBitSet.ensureCapacity(bitSet, size);
@@ -46,7 +46,7 @@ class LuceneLongBitSetWrapper {
         bitSet.set(idx);
     }
 
-    boolean get(long idx) {
+    public boolean get(long idx) {
         return bitSet.get(idx);
     }
 }
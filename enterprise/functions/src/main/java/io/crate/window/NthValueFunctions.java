@@ -44,6 +44,7 @@ public class NthValueFunctions implements WindowFunction {
 
     private final FunctionInfo info;
     private final BiFunction<WindowFrameState, Input[], Integer> frameIndexSupplier;
+    private int seenFrameLowerBound = -1;
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame = null;
 
@@ -62,7 +63,8 @@ public class NthValueFunctions implements WindowFunction {
                           WindowFrameState currentFrame,
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
-        if (isNewFrame(seenFrameUpperBound, currentFrame)) {
+        if (isNewFrame(rowIdx, seenFrameLowerBound, seenFrameUpperBound, currentFrame)) {
+            seenFrameLowerBound = currentFrame.lowerBound();
             seenFrameUpperBound = currentFrame.upperBoundExclusive();
             Object[] nthRowCells = currentFrame.getRowAtIndexOrNull(frameIndexSupplier.apply(currentFrame, args));
             if (nthRowCells == null) {
@@ -20,6 +20,7 @@ package io.crate.beans;
 
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
+import io.crate.action.sql.ParseCache;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.expression.reference.sys.job.JobContextLog;
 import io.crate.planner.Plan.StatementType;
@@ -83,10 +84,12 @@ public class QueryStats implements QueryStatsMBean {
     };
 
     private final Supplier<Map<StatementType, Metric>> metricByStmtType;
+    private final JobsLogs jobsLogs;
+    private final ParseCache parseCache;
 
     private volatile long lastUpdateTsInMillis = System.currentTimeMillis();
 
-    public QueryStats(JobsLogs jobsLogs) {
+    public QueryStats(JobsLogs jobsLogs, ParseCache parseCache) {
         metricByStmtType = Suppliers.memoizeWithExpiration(
             () -> {
                 long currentTs = System.currentTimeMillis();
@@ -97,6 +100,8 @@ public class QueryStats implements QueryStatsMBean {
             1,
             TimeUnit.SECONDS
         );
+        this.jobsLogs = jobsLogs;
+        this.parseCache = parseCache;
     }
 
     static Map<StatementType, Metric> createMetricsMap(Iterable<JobContextLog> logEntries, long currentTs, long lastUpdateTs) {
@@ -178,4 +183,24 @@ public class QueryStats implements QueryStatsMBean {
     public double getOverallQueryAverageDuration() {
         return metricByStmtType.get().getOrDefault(StatementType.ALL, DEFAULT_METRIC).avgDurationInMs();
     }
+
+    @Override
+    public long getParseCacheHitCount() {
+        return parseCache.stats().hitCount();
+    }
+
+    @Override
+    public long getParseCacheMissCount() {
+        return parseCache.stats().missCount();
+    }
+
+    @Override
+    public long getJobsLogEvictedCount() {
+        return jobsLogs.jobsLogNumEvicted();
+    }
+
+    @Override
+    public long getOperationsLogEvictedCount() {
+        return jobsLogs.operationsLogNumEvicted();
+    }
 }
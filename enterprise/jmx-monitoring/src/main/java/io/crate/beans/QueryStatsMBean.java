@@ -48,4 +48,12 @@ public interface QueryStatsMBean {
     double getDeleteQueryAverageDuration();
 
     double getOverallQueryAverageDuration();
+
+    long getParseCacheHitCount();
+
+    long getParseCacheMissCount();
+
+    long getJobsLogEvictedCount();
+
+    long getOperationsLogEvictedCount();
 }
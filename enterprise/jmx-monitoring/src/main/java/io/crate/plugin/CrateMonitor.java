@@ -61,7 +61,7 @@ public class CrateMonitor {
                         ThreadPool threadPool,
                         CrateCircuitBreakerService breakerService) {
         logger = LogManager.getLogger(CrateMonitor.class);
-        registerMBean(QueryStats.NAME, new QueryStats(jobsLogs));
+        registerMBean(QueryStats.NAME, new QueryStats(jobsLogs, sqlOperations.parseCache()));
         registerMBean(NodeStatus.NAME, new NodeStatus(sqlOperations::isEnabled));
         registerMBean(NodeInfo.NAME, new NodeInfo(clusterService::localNode, () -> clusterService.state().version()));
         registerMBean(Connections.NAME, new Connections(
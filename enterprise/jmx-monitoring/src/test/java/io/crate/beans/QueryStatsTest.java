@@ -19,6 +19,7 @@
 package io.crate.beans;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.action.sql.ParseCache;
 import io.crate.auth.user.User;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.expression.reference.sys.job.JobContext;
@@ -78,8 +79,23 @@ public class QueryStatsTest {
 
     @Test
     public void testDefaultValue() {
-        QueryStats queryStats = new QueryStats(new JobsLogs(() -> true));
+        QueryStats queryStats = new QueryStats(new JobsLogs(() -> true), new ParseCache(10));
         assertThat(queryStats.getSelectQueryFrequency(), is(0.0));
         assertThat(queryStats.getSelectQueryAverageDuration(), is(0.0));
+        assertThat(queryStats.getParseCacheHitCount(), is(0L));
+        assertThat(queryStats.getParseCacheMissCount(), is(0L));
+        assertThat(queryStats.getJobsLogEvictedCount(), is(0L));
+        assertThat(queryStats.getOperationsLogEvictedCount(), is(0L));
+    }
+
+    @Test
+    public void testParseCacheHitAndMissCount() {
+        ParseCache parseCache = new ParseCache(10);
+        QueryStats queryStats = new QueryStats(new JobsLogs(() -> true), parseCache);
+        parseCache.parse("select name from sys.nodes");
+        parseCache.parse("select name from sys.nodes");
+        parseCache.parse("select id from sys.nodes");
+        assertThat(queryStats.getParseCacheHitCount(), is(1L));
+        assertThat(queryStats.getParseCacheMissCount(), is(2L));
     }
 }
@@ -20,6 +20,7 @@ package io.crate.mqtt;
 
 import com.google.common.collect.ImmutableList;
 import io.crate.ingestion.IngestionModules;
+import io.crate.mqtt.operations.MqttIngestService;
 import io.crate.mqtt.netty.Netty4MqttServerTransport;
 import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.inject.AbstractModule;
@@ -56,6 +57,8 @@ public class MqttModule extends AbstractModule implements IngestionModules {
         return ImmutableList.of(MQTT_ENABLED_SETTING.setting(),
             SSL_MQTT_ENABLED.setting(),
             MQTT_PORT_SETTING.setting(),
-            MQTT_TIMEOUT_SETTING.setting());
+            MQTT_TIMEOUT_SETTING.setting(),
+            MqttIngestService.MQTT_BATCH_SIZE_SETTING.setting(),
+            MqttIngestService.MQTT_FLUSH_INTERVAL_SETTING.setting());
     }
 }
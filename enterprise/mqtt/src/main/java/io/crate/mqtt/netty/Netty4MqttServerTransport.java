@@ -58,6 +58,7 @@ import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BindTransportException;
 
 import java.io.IOException;
@@ -118,7 +119,8 @@ public class Netty4MqttServerTransport extends AbstractLifecycleComponent {
                                      SQLOperations sqlOperations,
                                      UserManager userManager,
                                      IngestionService ingestionService,
-                                     SslContextProvider sslContextProvider) {
+                                     SslContextProvider sslContextProvider,
+                                     ThreadPool threadPool) {
         super(settings);
         this.networkService = networkService;
         logger = LogManager.getLogger("mqtt");
@@ -135,7 +137,8 @@ public class Netty4MqttServerTransport extends AbstractLifecycleComponent {
                 "MQTT endpoint has been deprecated and will be removed in the future. " +
                 "It is recommended to use a dedicated broker and an external connector service.");
         }
-        mqttIngestService = new MqttIngestService(functions, sqlOperations, userManager, ingestionService);
+        mqttIngestService = new MqttIngestService(
+            functions, sqlOperations, userManager, ingestionService, threadPool, settings);
         this.sslContextProvider = sslContextProvider;
     }
 
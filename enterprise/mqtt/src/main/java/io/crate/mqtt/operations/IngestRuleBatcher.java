@@ -0,0 +1,263 @@
+/*
+ * This file is part of a module with proprietary Enterprise Features.
+ *
+ * Licensed to Crate.io Inc. ("Crate.io") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * To use this file, Crate.io must have given you permission to enable and
+ * use such Enterprise Features and you must have a valid Enterprise or
+ * Subscription Agreement with Crate.io.  If you enable or use the Enterprise
+ * Features, you represent and warrant that you have a valid Enterprise or
+ * Subscription Agreement with Crate.io.  Your use of the Enterprise Features
+ * if governed by the terms and conditions of your Enterprise or Subscription
+ * Agreement with Crate.io.
+ */
+
+package io.crate.mqtt.operations;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.Session;
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.exceptions.SQLExceptions;
+import io.crate.types.DataType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Inserts the messages matched by an ingest rule into the rule's target table in batches.
+ * <p>
+ * Messages are buffered until either {@code batchSize} messages have been added or the flush interval has passed
+ * since the first message of the batch has been added. A batch is then executed as a single bulk operation of the
+ * insert statement, which is prepared once per rule.
+ * The future returned by {@link #add(List, boolean)} completes once the row of the message has been written, so
+ * that a message is only acknowledged after it has been persisted.
+ * <p>
+ * A bulk operation only reports that a row failed, not why. Failed rows are therefore inserted one by one, which
+ * results in the actual error, e.g. to tolerate duplicate key errors of redelivered messages.
+ */
+class IngestRuleBatcher {
+
+    private static final Logger LOGGER = LogManager.getLogger(IngestRuleBatcher.class);
+
+    private final String ruleName;
+    private final String insertStatement;
+    private final List<DataType> paramTypes;
+    private final Supplier<Session> sessionSupplier;
+    private final ThreadPool threadPool;
+    private final int batchSize;
+    private final TimeValue flushInterval;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    private List<Message> pending;
+    @Nullable
+    private Session session;
+    private boolean closed = false;
+
+    IngestRuleBatcher(String ruleName,
+                      String insertStatement,
+                      List<DataType> paramTypes,
+                      Supplier<Session> sessionSupplier,
+                      ThreadPool threadPool,
+                      int batchSize,
+                      TimeValue flushInterval) {
+        this.ruleName = ruleName;
+        this.insertStatement = insertStatement;
+        this.paramTypes = paramTypes;
+        this.sessionSupplier = sessionSupplier;
+        this.threadPool = threadPool;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.pending = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Adds a message to the current batch.
+     *
+     * @param args the parameters of the insert statement
+     * @param isDup true if the message is a redelivery, in which case a duplicate key error is not a failure
+     * @return a future which completes once the message has been inserted
+     */
+    synchronized CompletableFuture<Void> add(List<Object> args, boolean isDup) {
+        Message message = new Message(args, isDup);
+        if (closed) {
+            message.result.completeExceptionally(
+                new IllegalStateException("Ingest rule " + ruleName + " has been dropped or changed"));
+            return message.result;
+        }
+        pending.add(message);
+        if (pending.size() >= batchSize || flushInterval.millis() == 0) {
+            flush();
+        } else if (pending.size() == 1) {
+            List<Message> batch = pending;
+            threadPool.schedule(flushInterval, ThreadPool.Names.GENERIC, () -> flushIfPending(batch));
+        }
+        return message.result;
+    }
+
+    /**
+     * Inserts the messages which are pending and rejects any further messages.
+     */
+    synchronized void close() {
+        closed = true;
+        flush();
+        closeSessionIfDone();
+    }
+
+    /**
+     * @return the number of messages which have been added but not yet been flushed
+     */
+    synchronized int pendingMessages() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of messages which have been flushed but whose insert hasn't completed yet
+     */
+    int inFlightMessages() {
+        return inFlight.get();
+    }
+
+    private synchronized void flushIfPending(List<Message> batch) {
+        if (pending == batch) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        assert Thread.holdsLock(this) : "flush must be called while holding the lock";
+        List<Message> batch = pending;
+        if (batch.isEmpty()) {
+            return;
+        }
+        pending = new ArrayList<>(batchSize);
+        inFlight.addAndGet(batch.size());
+        long startNanos = System.nanoTime();
+        List<RowCountReceiver> receivers = new ArrayList<>(batch.size());
+        try {
+            Session session = session();
+            for (Message message : batch) {
+                session.bind(Session.UNNAMED, ruleName, message.args, null);
+                RowCountReceiver receiver = new RowCountReceiver();
+                session.execute(Session.UNNAMED, 0, receiver);
+                receivers.add(receiver);
+            }
+            session.sync();
+        } catch (Throwable t) {
+            resetSession();
+            for (Message message : batch) {
+                complete(message, t);
+            }
+            return;
+        }
+        CompletableFuture<?>[] results = new CompletableFuture[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Message message = batch.get(i);
+            RowCountReceiver receiver = receivers.get(i);
+            receiver.completionFuture().whenComplete((r, t) -> {
+                if (t == null && receiver.rowCount == Row1.ERROR) {
+                    insertSingle(message);
+                } else {
+                    complete(message, t);
+                }
+            });
+            results[i] = message.result;
+        }
+        CompletableFuture.allOf(results).whenComplete((r, t) -> {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Inserted batch of {} messages of ingest rule {} in {}ms, messages pending={} in-flight={}",
+                    batch.size(),
+                    ruleName,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    pendingMessages(),
+                    inFlight.get());
+            }
+        });
+    }
+
+    private synchronized void insertSingle(Message message) {
+        RowCountReceiver receiver = new RowCountReceiver();
+        try {
+            Session session = session();
+            session.bind(Session.UNNAMED, ruleName, message.args, null);
+            session.execute(Session.UNNAMED, 0, receiver);
+            session.sync();
+        } catch (Throwable t) {
+            resetSession();
+            complete(message, t);
+            return;
+        }
+        receiver.completionFuture().whenComplete((r, t) -> complete(message, t));
+    }
+
+    private void complete(Message message, @Nullable Throwable t) {
+        if (t == null || (message.isDup && SQLExceptions.isDocumentAlreadyExistsException(t))) {
+            // we are dealing with QoS1, so redeliveries and duplicate insert exceptions are
+            // normal in case of a duplicate message - indicated by the isDup flag
+            message.result.complete(null);
+        } else {
+            message.result.completeExceptionally(t);
+        }
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (this) {
+                closeSessionIfDone();
+            }
+        }
+    }
+
+    private Session session() {
+        if (session == null) {
+            session = sessionSupplier.get();
+            session.parse(ruleName, insertStatement, paramTypes);
+        }
+        return session;
+    }
+
+    private void resetSession() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+
+    private void closeSessionIfDone() {
+        if (closed && inFlight.get() == 0) {
+            resetSession();
+        }
+    }
+
+    private static class Message {
+
+        private final List<Object> args;
+        private final boolean isDup;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Message(List<Object> args, boolean isDup) {
+            this.args = args;
+            this.isDup = isDup;
+        }
+    }
+
+    private static class RowCountReceiver extends BaseResultReceiver {
+
+        private long rowCount;
+
+        @Override
+        public void setNextRow(Row row) {
+            rowCount = ((Number) row.get(0)).longValue();
+        }
+    }
+}
@@ -19,11 +19,8 @@
 package io.crate.mqtt.operations;
 
 import com.google.common.collect.ImmutableMap;
-import io.crate.action.sql.BaseResultReceiver;
 import io.crate.action.sql.Option;
-import io.crate.action.sql.SQLActionException;
 import io.crate.action.sql.SQLOperations;
-import io.crate.action.sql.Session;
 import io.crate.analyze.expressions.ExpressionAnalysisContext;
 import io.crate.analyze.expressions.ExpressionAnalyzer;
 import io.crate.analyze.relations.FieldProvider;
@@ -31,8 +28,6 @@ import io.crate.auth.user.User;
 import io.crate.auth.user.UserLookup;
 import io.crate.data.Row;
 import io.crate.data.RowN;
-import io.crate.exceptions.Exceptions;
-import io.crate.exceptions.SQLExceptions;
 import io.crate.expression.InputFactory;
 import io.crate.expression.RowFilter;
 import io.crate.expression.symbol.InputColumn;
@@ -46,26 +41,32 @@ import io.crate.metadata.RelationName;
 import io.crate.metadata.Schemas;
 import io.crate.metadata.rule.ingest.IngestRule;
 import io.crate.metadata.table.Operation;
+import io.crate.settings.CrateSetting;
 import io.crate.sql.parser.SqlParser;
 import io.crate.sql.tree.QualifiedName;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.DeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
-import org.elasticsearch.transport.netty4.Netty4Utils;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -80,9 +81,17 @@ import java.util.function.Predicate;
  * fields, matching the existing {@link IngestRule}s against the fields and ultimately executing the rule command
  * against the configured target table. The target table structure needs to contain the {@link MqttIngestService#MQTT_FIELDS_ORDER}
  * fields with the appropriate data types (see {@link MqttIngestService#FIELD_TYPES}.
+ * The inserts of each rule are executed in batches, see {@link IngestRuleBatcher}.
  */
 public class MqttIngestService implements IngestRuleListener {
 
+    public static final CrateSetting<Integer> MQTT_BATCH_SIZE_SETTING = CrateSetting.of(Setting.intSetting(
+        "ingestion.mqtt.batch_size", 100, 1, Setting.Property.NodeScope), DataTypes.INTEGER);
+
+    public static final CrateSetting<TimeValue> MQTT_FLUSH_INTERVAL_SETTING = CrateSetting.of(Setting.timeSetting(
+        "ingestion.mqtt.flush_interval", TimeValue.timeValueMillis(10L), TimeValue.timeValueMillis(0L),
+        Setting.Property.NodeScope), DataTypes.STRING);
+
     private static final Logger LOGGER = LogManager.getLogger(MqttIngestService.class);
     public static final String SOURCE_IDENT = "mqtt";
     private static final Map<QualifiedName, Integer> MQTT_FIELDS_ORDER = ImmutableMap.of(new QualifiedName("client_id"), 0,
@@ -98,8 +107,12 @@ public class MqttIngestService implements IngestRuleListener {
     private final SQLOperations sqlOperations;
     private final IngestionService ingestionService;
     private final User crateUser;
-    private final AtomicReference<Set<Tuple<Predicate<Row>, IngestRule>>> predicateAndIngestRulesReference =
+    private final ThreadPool threadPool;
+    private final int batchSize;
+    private final TimeValue flushInterval;
+    private final AtomicReference<Set<Tuple<Predicate<Row>, IngestRuleBatcher>>> predicateAndBatchersReference =
         new AtomicReference<>(new HashSet<>());
+    private Map<IngestRule, IngestRuleBatcher> batchers = new HashMap<>();
     private final ExpressionAnalysisContext expressionAnalysisContext;
     private final TransactionContext txnCtx;
     private boolean isInitialized;
@@ -107,8 +120,13 @@ public class MqttIngestService implements IngestRuleListener {
     public MqttIngestService(Functions functions,
                              SQLOperations sqlOperations,
                              UserLookup userLookup,
-                             IngestionService ingestionService) {
+                             IngestionService ingestionService,
+                             ThreadPool threadPool,
+                             Settings settings) {
         this.sqlOperations = sqlOperations;
+        this.threadPool = threadPool;
+        this.batchSize = MQTT_BATCH_SIZE_SETTING.setting().get(settings);
+        this.flushInterval = MQTT_FLUSH_INTERVAL_SETTING.setting().get(settings);
         this.inputFactory = new InputFactory(functions);
         this.expressionAnalysisContext = new ExpressionAnalysisContext();
         FieldProvider<Symbol> mqttSourceFieldsProvider = new FieldProvider<Symbol>() {
@@ -142,13 +160,11 @@ public class MqttIngestService implements IngestRuleListener {
 
     @Nullable
     private static Map<String, Object> parsePayloadToMap(ByteBuf payload) {
-        try {
-            BytesReference content = Netty4Utils.toBytesReference(payload);
-            return JsonXContent.jsonXContent.createParser(
-                NamedXContentRegistry.EMPTY,
-                DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
-                content.utf8ToString()
-            ).map();
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(
+            NamedXContentRegistry.EMPTY,
+            DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+            new ByteBufInputStream(payload))) {
+            return parser.map();
         } catch (IOException e) {
             LOGGER.warn("Failed to parse payload to JSON: {}", e.getMessage());
         }
@@ -158,10 +174,10 @@ public class MqttIngestService implements IngestRuleListener {
 
     /**
      * Parse the payload of the provided mqtt message and find which {@link IngestRule}s match the message properties.
-     * For every matched rule, execute the insert into the rule's target table.
-     * If we encounter exceptions whilst executing the rules we try to send the ackCallback that failure that's not a
-     * "row already exists" (because, in case of messages with the isDup flag set to true, we will send the PUBACK reply
-     * to the message).
+     * For every matched rule, the message is added to the batch of inserts into the rule's target table.
+     * If we encounter exceptions whilst executing the inserts we try to send the ackCallback that failure that's not
+     * a "row already exists" (because, in case of messages with the isDup flag set to true, we will send the PUBACK
+     * reply to the message).
      * We do not want to acknowledge the message until all message rules are successfully applied (if
      * the only detected failure(s) is "row already exists", namely {@link VersionConflictEngineException}, we trigger
      * the ackCallback, as for QoS 1 (at least once) we expect message redeliveries)
@@ -177,53 +193,27 @@ public class MqttIngestService implements IngestRuleListener {
             return;
         }
 
-        Set<Tuple<Predicate<Row>, IngestRule>> predicateAndIngestRules = predicateAndIngestRulesReference.get();
+        Set<Tuple<Predicate<Row>, IngestRuleBatcher>> predicateAndBatchers = predicateAndBatchersReference.get();
         int packetId = msg.variableHeader().packetId();
+        boolean isDup = msg.fixedHeader().isDup();
         Object[] args = new Object[]{clientId,
             packetId,
             msg.variableHeader().topicName(),
             payload};
         List<Object> argsAsList = Arrays.asList(args);
+        Row row = new RowN(args);
 
-        boolean messageMatchedRule = false;
-        boolean callbackNotified = false;
-        Session session = sqlOperations.createSession(Schemas.DOC_SCHEMA_NAME, crateUser, Option.NONE, 1);
-        List<CompletableFuture<?>> insertOperationsFuture = new ArrayList<>(predicateAndIngestRules.size());
-        for (Tuple<Predicate<Row>, IngestRule> entry : predicateAndIngestRules) {
-            if (entry.v1().test(new RowN(args))) {
-                messageMatchedRule = true;
-                IngestRule ingestRule = entry.v2();
-
-                try {
-                    session.parse(ingestRule.getName(), "insert into " + RelationName.fromIndexName(ingestRule.getTargetTable()).fqn() +
-                                                        " (\"client_id\", \"packet_id\", \"topic\", \"ts\", \"payload\") " +
-                                                        "values (?, ?, ?, CURRENT_TIMESTAMP, ?)", FIELD_TYPES);
-                    session.bind(Session.UNNAMED, ingestRule.getName(), argsAsList, null);
-                    BaseResultReceiver resultReceiver = new BaseResultReceiver();
-                    insertOperationsFuture.add(resultReceiver.completionFuture().exceptionally(t -> {
-                        if (SQLExceptions.isDocumentAlreadyExistsException(t)) {
-                            if (msg.fixedHeader().isDup()) {
-                                // we are dealing with QoS1, so redeliveries and duplicate insert exceptions are
-                                // normal in case of a duplicate message - indicated by the isDup flag
-                                return null;
-                            }
-                        }
-
-                        Exceptions.rethrowUnchecked(t);
-                        return null;
-                    }));
-                    session.execute(Session.UNNAMED, 0, resultReceiver);
-                    session.sync();
-                } catch (SQLActionException e) {
-                    ackCallback.accept(null, e);
-                    callbackNotified = true;
-                    break;
-                }
+        List<CompletableFuture<?>> insertOperationsFuture = new ArrayList<>(predicateAndBatchers.size());
+        for (Tuple<Predicate<Row>, IngestRuleBatcher> entry : predicateAndBatchers) {
+            if (entry.v1().test(row)) {
+                insertOperationsFuture.add(entry.v2().add(argsAsList, isDup));
             }
         }
-        session.close();
 
-        if (callbackNotified == false) {
+        if (insertOperationsFuture.isEmpty()) {
+            LOGGER.warn("Message with client_id {} and packet_id {} did not match any rule. The message will not be " +
+                        "acknowledged", clientId, packetId);
+        } else {
             CompletableFuture<Void> allResultsComplete =
                 CompletableFuture.allOf(insertOperationsFuture.toArray(new CompletableFuture[0]));
 
@@ -236,29 +226,51 @@ public class MqttIngestService implements IngestRuleListener {
                 }
             });
         }
-
-        if (messageMatchedRule == false) {
-            LOGGER.warn("Message with client_id {} and packet_id {} did not match any rule. The message will not be " +
-                        "acknowledged", clientId, packetId);
-        }
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Parsed MQTT message into arguments: {}", argsAsList);
         }
     }
 
+    /**
+     * Applies the given rules. The batchers of unchanged rules are kept, the batchers of rules which have been
+     * dropped or changed are flushed and closed.
+     */
     @Override
-    public void applyRules(Set<IngestRule> rules) {
-        Set<Tuple<Predicate<Row>, IngestRule>> newRules = new HashSet<>(rules.size());
+    public synchronized void applyRules(Set<IngestRule> rules) {
+        Map<IngestRule, IngestRuleBatcher> newBatchers = new HashMap<>(rules.size());
+        Set<Tuple<Predicate<Row>, IngestRuleBatcher>> newRules = new HashSet<>(rules.size());
         for (IngestRule rule : rules) {
+            IngestRuleBatcher batcher = batchers.remove(rule);
+            if (batcher == null) {
+                batcher = new IngestRuleBatcher(
+                    rule.getName(),
+                    insertStatement(rule),
+                    FIELD_TYPES,
+                    () -> sqlOperations.createSession(Schemas.DOC_SCHEMA_NAME, crateUser, Option.NONE, 1),
+                    threadPool,
+                    batchSize,
+                    flushInterval);
+            }
+            newBatchers.put(rule, batcher);
             if (rule.getCondition().trim().isEmpty() == false) {
                 Symbol conditionSymbol = expressionAnalyzer.convert(SqlParser.createExpression(rule.getCondition()),
                     expressionAnalysisContext);
                 Predicate<Row> conditionPredicate = RowFilter.create(txnCtx, inputFactory, conditionSymbol);
-                newRules.add(new Tuple<>(conditionPredicate, rule));
+                newRules.add(new Tuple<>(conditionPredicate, batcher));
             } else {
-                newRules.add(new Tuple<>(ALWAYS_TRUE, rule));
+                newRules.add(new Tuple<>(ALWAYS_TRUE, batcher));
             }
         }
-        predicateAndIngestRulesReference.set(newRules);
+        predicateAndBatchersReference.set(newRules);
+        for (IngestRuleBatcher removedBatcher : batchers.values()) {
+            removedBatcher.close();
+        }
+        batchers = newBatchers;
+    }
+
+    private static String insertStatement(IngestRule rule) {
+        return "insert into " + RelationName.fromIndexName(rule.getTargetTable()).fqn() +
+               " (\"client_id\", \"packet_id\", \"topic\", \"ts\", \"payload\") " +
+               "values (?, ?, ?, CURRENT_TIMESTAMP, ?)";
     }
 }
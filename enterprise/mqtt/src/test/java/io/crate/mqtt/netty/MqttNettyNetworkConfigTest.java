@@ -30,6 +30,7 @@ import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BindTransportException;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -90,7 +91,8 @@ public class MqttNettyNetworkConfigTest extends CrateUnitTest {
         NetworkService networkService = new NetworkService(Collections.emptyList());
         Netty4MqttServerTransport mqtt = new Netty4MqttServerTransport(createBaseSettings().build(), networkService,
             Mockito.mock(Functions.class), Mockito.mock(SQLOperations.class), new StubUserManager(),
-            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class));
+            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class),
+            Mockito.mock(ThreadPool.class));
         try {
             mqtt.doStart();
         } finally {
@@ -105,7 +107,8 @@ public class MqttNettyNetworkConfigTest extends CrateUnitTest {
         NetworkService networkService = new NetworkService(Collections.emptyList());
         Netty4MqttServerTransport mqtt = new Netty4MqttServerTransport(settingsWithCustomHost, networkService,
             Mockito.mock(Functions.class), Mockito.mock(SQLOperations.class), new StubUserManager(),
-            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class));
+            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class),
+            Mockito.mock(ThreadPool.class));
         try {
             mqtt.doStart();
             fail("Should have failed due to custom hostname");
@@ -124,7 +127,8 @@ public class MqttNettyNetworkConfigTest extends CrateUnitTest {
         NetworkService networkService = new NetworkService(Collections.emptyList());
         Netty4MqttServerTransport mqtt = new Netty4MqttServerTransport(settingsWithCustomBind, networkService,
             Mockito.mock(Functions.class), Mockito.mock(SQLOperations.class), new StubUserManager(),
-            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class));
+            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class),
+            Mockito.mock(ThreadPool.class));
         try {
             mqtt.doStart();
             fail("Should have failed due to custom hostname");
@@ -143,7 +147,8 @@ public class MqttNettyNetworkConfigTest extends CrateUnitTest {
         NetworkService networkService = new NetworkService(Collections.emptyList());
         Netty4MqttServerTransport mqtt = new Netty4MqttServerTransport(settingsWithCustomPublish, networkService,
             Mockito.mock(Functions.class), Mockito.mock(SQLOperations.class), new StubUserManager(),
-            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class));
+            Mockito.mock(IngestionService.class), Mockito.mock(SslContextProvider.class),
+            Mockito.mock(ThreadPool.class));
         try {
             mqtt.doStart();
             fail("Should have failed due to custom hostname");
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.mqtt.operations;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.action.sql.Session;
+import io.crate.data.Row1;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IngestRuleBatcherTest extends CrateUnitTest {
+
+    private static final String INSERT = "insert into t (x) values (?)";
+    private static final List<DataType> PARAM_TYPES = Collections.singletonList(DataTypes.INTEGER);
+
+    private Session session;
+    private ThreadPool threadPool;
+    private List<ResultReceiver> receivers;
+
+    @Before
+    public void setupSession() {
+        session = mock(Session.class);
+        threadPool = mock(ThreadPool.class);
+        receivers = new ArrayList<>();
+        doAnswer(invocation -> {
+            receivers.add(invocation.getArgument(2));
+            return null;
+        }).when(session).execute(anyString(), anyInt(), any(ResultReceiver.class));
+    }
+
+    private IngestRuleBatcher newBatcher(int batchSize) {
+        return new IngestRuleBatcher(
+            "rule", INSERT, PARAM_TYPES, () -> session, threadPool, batchSize, TimeValue.timeValueHours(1));
+    }
+
+    private static void setRowCount(ResultReceiver receiver, long rowCount) {
+        receiver.setNextRow(new Row1(rowCount));
+        receiver.allFinished(false);
+    }
+
+    @Test
+    public void testMessagesAreInsertedInBulkOnceBatchIsFull() throws Exception {
+        IngestRuleBatcher batcher = newBatcher(3);
+        CompletableFuture<Void> first = batcher.add(Collections.singletonList(1), false);
+        CompletableFuture<Void> second = batcher.add(Collections.singletonList(2), false);
+        verify(session, never()).bind(anyString(), anyString(), anyList(), any());
+        assertThat(batcher.pendingMessages(), is(2));
+
+        CompletableFuture<Void> third = batcher.add(Collections.singletonList(3), false);
+        verify(session, times(1)).parse("rule", INSERT, PARAM_TYPES);
+        verify(session, times(3)).bind(eq(Session.UNNAMED), eq("rule"), anyList(), any());
+        verify(session, times(1)).sync();
+        assertThat(batcher.pendingMessages(), is(0));
+        assertThat(batcher.inFlightMessages(), is(3));
+
+        for (ResultReceiver receiver : receivers) {
+            setRowCount(receiver, 1L);
+        }
+        CompletableFuture.allOf(first, second, third).get();
+        assertThat(batcher.inFlightMessages(), is(0));
+
+        // the prepared statement is re-used for the next batch
+        batcher.add(Collections.singletonList(4), false);
+        batcher.add(Collections.singletonList(5), false);
+        batcher.add(Collections.singletonList(6), false);
+        verify(session, times(1)).parse(anyString(), anyString(), anyList());
+        verify(session, times(2)).sync();
+    }
+
+    @Test
+    public void testPendingMessagesAreInsertedOnceFlushIntervalHasPassed() throws Exception {
+        IngestRuleBatcher batcher = newBatcher(100);
+        CompletableFuture<Void> result = batcher.add(Collections.singletonList(1), false);
+        batcher.add(Collections.singletonList(2), false);
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(threadPool, times(1)).schedule(eq(TimeValue.timeValueHours(1)), eq(ThreadPool.Names.GENERIC), flush.capture());
+        verify(session, never()).sync();
+
+        flush.getValue().run();
+        verify(session, times(2)).bind(eq(Session.UNNAMED), eq("rule"), anyList(), any());
+        verify(session, times(1)).sync();
+        setRowCount(receivers.get(0), 1L);
+        result.get();
+    }
+
+    @Test
+    public void testFailedRowsOfBulkAreInsertedSeparatelyToGetTheError() throws Exception {
+        IngestRuleBatcher batcher = newBatcher(3);
+        CompletableFuture<Void> redelivered = batcher.add(Collections.singletonList(1), true);
+        CompletableFuture<Void> duplicate = batcher.add(Collections.singletonList(2), false);
+        CompletableFuture<Void> inserted = batcher.add(Collections.singletonList(3), false);
+
+        setRowCount(receivers.get(0), Row1.ERROR);
+        setRowCount(receivers.get(1), Row1.ERROR);
+        setRowCount(receivers.get(2), 1L);
+        inserted.get();
+
+        verify(session, times(5)).bind(eq(Session.UNNAMED), eq("rule"), anyList(), any());
+        verify(session, times(3)).sync();
+        assertThat(receivers.size(), is(5));
+        receivers.get(3).fail(documentAlreadyExists());
+        receivers.get(4).fail(documentAlreadyExists());
+
+        // a duplicate of a redelivered message is expected and doesn't fail the insert
+        redelivered.get();
+        try {
+            duplicate.get();
+            fail("insert of duplicate must fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(VersionConflictEngineException.class));
+        }
+        assertThat(batcher.inFlightMessages(), is(0));
+    }
+
+    @Test
+    public void testCloseInsertsPendingMessagesAndRejectsNewMessages() throws Exception {
+        IngestRuleBatcher batcher = newBatcher(100);
+        CompletableFuture<Void> result = batcher.add(Arrays.asList(1), false);
+        batcher.close();
+        verify(session, times(1)).sync();
+        setRowCount(receivers.get(0), 1L);
+        result.get();
+        verify(session, times(1)).close();
+
+        expectedException.expectMessage("Ingest rule rule has been dropped or changed");
+        try {
+            batcher.add(Collections.singletonList(2), false).get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static VersionConflictEngineException documentAlreadyExists() {
+        return new VersionConflictEngineException(new ShardId("t", "_na_", 0), "default", "1", "document already exists");
+    }
+}
@@ -69,7 +69,9 @@ statement
     | INSERT INTO table ('(' ident (',' ident)* ')')? insertSource
         (onDuplicate | onConflict)?                                                  #insert
     | RESTORE SNAPSHOT qname (ALL | TABLE tableWithPartitions) withProperties?       #restore
+    | COPY tableWithPartition columns? FROM STDIN withProperties?                    #copyFromStdin
     | COPY tableWithPartition FROM path=expr withProperties? (RETURN SUMMARY)?       #copyFrom
+    | COPY tableWithPartition columns? where? TO STDOUT withProperties?              #copyToStdout
     | COPY tableWithPartition columns? where?
         TO DIRECTORY? path=expr withProperties?                                      #copyTo
     | DROP BLOB TABLE (IF EXISTS)? table                                             #dropBlobTable
@@ -658,7 +660,7 @@ nonReserved
     | DO | NOTHING | CONFLICT | TRANSACTION_ISOLATION | RETURN | SUMMARY
     | WORK | SERIALIZABLE | REPEATABLE | COMMITTED | UNCOMMITTED | READ | WRITE | DEFERRABLE
     | STRING_TYPE | IP | DOUBLE | FLOAT | TIMESTAMP | LONG | INT | INTEGER | SHORT | BYTE | BOOLEAN
-    | REPLACE | SWAP | GC | DANGLING | ARTIFACTS
+    | REPLACE | SWAP | GC | DANGLING | ARTIFACTS | STDIN | STDOUT
     ;
 
 SELECT: 'SELECT';
@@ -670,6 +672,8 @@ ANY: 'ANY';
 SOME: 'SOME';
 DEALLOCATE: 'DEALLOCATE';
 DIRECTORY: 'DIRECTORY';
+STDIN: 'STDIN';
+STDOUT: 'STDOUT';
 DISTINCT: 'DISTINCT';
 WHERE: 'WHERE';
 GROUP: 'GROUP';
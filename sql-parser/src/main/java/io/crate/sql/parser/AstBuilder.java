@@ -60,7 +60,9 @@ import io.crate.sql.tree.ColumnType;
 import io.crate.sql.tree.CommitStatement;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
 import io.crate.sql.tree.CopyTo;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CrateTableOption;
 import io.crate.sql.tree.CreateAnalyzer;
 import io.crate.sql.tree.CreateBlobTable;
@@ -462,6 +464,14 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
         return new DropSnapshot(getQualifiedName(context.qname()));
     }
 
+    @Override
+    public Node visitCopyFromStdin(SqlBaseParser.CopyFromStdinContext context) {
+        return new CopyFromStdin(
+            (Table) visit(context.tableWithPartition()),
+            context.columns() == null ? emptyList() : visitCollection(context.columns().primaryExpression(), Expression.class),
+            extractGenericProperties(context.withProperties()));
+    }
+
     @Override
     public Node visitCopyFrom(SqlBaseParser.CopyFromContext context) {
         boolean returnSummary = context.SUMMARY() != null;
@@ -483,6 +493,15 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
             extractGenericProperties(context.withProperties()));
     }
 
+    @Override
+    public Node visitCopyToStdout(SqlBaseParser.CopyToStdoutContext context) {
+        return new CopyToStdout(
+            (Table) visit(context.tableWithPartition()),
+            context.columns() == null ? emptyList() : visitCollection(context.columns().primaryExpression(), Expression.class),
+            visitIfPresent(context.where(), Expression.class),
+            extractGenericProperties(context.withProperties()));
+    }
+
     @Override
     public Node visitInsert(SqlBaseParser.InsertContext context) {
         List<String> columns = identsToStrings(context.ident());
@@ -285,6 +285,10 @@ public abstract class AstVisitor<R, C> {
         return visitNode(node, context);
     }
 
+    public R visitCopyFromStdin(CopyFromStdin node, C context) {
+        return visitStatement(node, context);
+    }
+
     public R visitCreateTable(CreateTable node, C context) {
         return visitStatement(node, context);
     }
@@ -453,6 +457,10 @@ public abstract class AstVisitor<R, C> {
         return visitStatement(node, context);
     }
 
+    public R visitCopyToStdout(CopyToStdout node, C context) {
+        return visitStatement(node, context);
+    }
+
     public R visitPartitionedBy(PartitionedBy node, C context) {
         return visitNode(node, context);
     }
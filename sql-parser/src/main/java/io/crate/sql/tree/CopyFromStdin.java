@@ -0,0 +1,87 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.sql.tree;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@code COPY table [(column, ...)] FROM STDIN [WITH (...)]}
+ * <p>
+ * The rows are streamed by the client using the COPY sub-protocol of the PostgreSQL wire protocol.
+ */
+public class CopyFromStdin extends Statement {
+
+    private final Table table;
+    private final List<Expression> columns;
+    private final GenericProperties genericProperties;
+
+    public CopyFromStdin(Table table, List<Expression> columns, GenericProperties genericProperties) {
+        this.table = table;
+        this.columns = columns;
+        this.genericProperties = genericProperties;
+    }
+
+    public Table table() {
+        return table;
+    }
+
+    public List<Expression> columns() {
+        return columns;
+    }
+
+    public GenericProperties genericProperties() {
+        return genericProperties;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CopyFromStdin that = (CopyFromStdin) o;
+        return Objects.equals(table, that.table) &&
+               Objects.equals(columns, that.columns) &&
+               Objects.equals(genericProperties, that.genericProperties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, columns, genericProperties);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("table", table)
+            .add("columns", columns)
+            .add("properties", genericProperties)
+            .toString();
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context) {
+        return visitor.visitCopyFromStdin(this, context);
+    }
+}
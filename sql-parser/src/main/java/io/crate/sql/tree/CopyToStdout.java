@@ -0,0 +1,99 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.sql.tree;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * {@code COPY table [(column, ...)] [WHERE ...] TO STDOUT [WITH (...)]}
+ * <p>
+ * The rows are streamed to the client using the COPY sub-protocol of the PostgreSQL wire protocol.
+ */
+public class CopyToStdout extends Statement {
+
+    private final Table table;
+    private final List<Expression> columns;
+    private final Optional<Expression> whereClause;
+    private final GenericProperties genericProperties;
+
+    public CopyToStdout(Table table,
+                        List<Expression> columns,
+                        Optional<Expression> whereClause,
+                        GenericProperties genericProperties) {
+        this.table = table;
+        this.columns = columns;
+        this.whereClause = whereClause;
+        this.genericProperties = genericProperties;
+    }
+
+    public Table table() {
+        return table;
+    }
+
+    public List<Expression> columns() {
+        return columns;
+    }
+
+    public Optional<Expression> whereClause() {
+        return whereClause;
+    }
+
+    public GenericProperties genericProperties() {
+        return genericProperties;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CopyToStdout that = (CopyToStdout) o;
+        return Objects.equals(table, that.table) &&
+               Objects.equals(columns, that.columns) &&
+               Objects.equals(whereClause, that.whereClause) &&
+               Objects.equals(genericProperties, that.genericProperties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, columns, whereClause, genericProperties);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("table", table)
+            .add("columns", columns)
+            .add("whereClause", whereClause)
+            .add("properties", genericProperties)
+            .toString();
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context) {
+        return visitor.visitCopyToStdout(this, context);
+    }
+}
@@ -316,12 +316,24 @@ public abstract class DefaultTraversalVisitor<R, C>
         return null;
     }
 
+    @Override
+    public R visitCopyFromStdin(CopyFromStdin node, C context) {
+        process(node.table(), context);
+        return null;
+    }
+
     @Override
     public R visitCopyTo(CopyTo node, C context) {
         process(node.table(), context);
         return null;
     }
 
+    @Override
+    public R visitCopyToStdout(CopyToStdout node, C context) {
+        process(node.table(), context);
+        return null;
+    }
+
     @Override
     public R visitAlterTable(AlterTable node, C context) {
         process(node.table(), context);
@@ -24,6 +24,7 @@ package io.crate.sql.parser;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
+import io.crate.sql.ExpressionFormatter;
 import io.crate.sql.Literals;
 import io.crate.sql.SqlFormatter;
 import io.crate.sql.tree.ArrayComparisonExpression;
@@ -32,6 +33,8 @@ import io.crate.sql.tree.ArrayLiteral;
 import io.crate.sql.tree.Assignment;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateFunction;
 import io.crate.sql.tree.CreateIngestRule;
 import io.crate.sql.tree.CreateTable;
@@ -917,6 +920,27 @@ public class TestStatementBuilder {
         printStatement("copy foo where a = 'x' to DIRECTORY '/folder'");
     }
 
+    @Test
+    public void testCopyFromStdinAndToStdout() {
+        printStatement("copy foo from stdin");
+        printStatement("copy foo (a, b) from stdin with (format='csv', header=true)");
+        printStatement("copy foo partition (a='x') from stdin");
+        printStatement("copy foo (o['a'], b) from stdin");
+        printStatement("copy foo to stdout");
+        printStatement("copy foo (a, b) where a = 'x' to stdout with (format='csv')");
+
+        CopyFromStdin copyFrom = (CopyFromStdin) SqlParser.createStatement("copy foo (a, \"B\", o['a']) from stdin");
+        assertThat(copyFrom.columns().size(), is(3));
+        assertThat(ExpressionFormatter.formatStandaloneExpression(copyFrom.columns().get(2)), is("\"o\"['a']"));
+
+        CopyToStdout copyTo = (CopyToStdout) SqlParser.createStatement("copy foo (a) where a = 1 to stdout");
+        assertThat(copyTo.columns().size(), is(1));
+        assertTrue(copyTo.whereClause().isPresent());
+
+        // stdin and stdout are not reserved
+        assertThat(SqlParser.createStatement("copy foo from stdin.path"), instanceOf(CopyFrom.class));
+    }
+
     @Test
     public void testInsertStmtBuilder() throws Exception {
         // insert from values
@@ -0,0 +1,87 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.Statement;
+import org.elasticsearch.common.settings.Setting;
+
+/**
+ * Node wide cache of parsed statements, keyed by the statement text.
+ * Only parsing is skipped, the statements are still analyzed and planned on every execution.
+ *
+ * <p>
+ * Parsing doesn't depend on the schemas, the session or the parameters,
+ * so a parsed statement can be shared by all sessions and doesn't have to be invalidated on schema changes.
+ * Clients using parameterized statements usually send the same statement text again and again,
+ * which makes the cache effective even if the sessions are short-lived.
+ * </p>
+ *
+ * <p>
+ * Statements longer than {@link #MAX_QUERY_LENGTH} characters are parsed but not cached, so that the memory used
+ * by the cache stays bounded. Such statements are usually bulk inserts with their values inlined which are
+ * rarely sent again with the same text.
+ * </p>
+ */
+public final class ParseCache {
+
+    public static final Setting<Integer> SIZE_SETTING = Setting.intSetting(
+        "node.sql.parse_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    static final int MAX_QUERY_LENGTH = 8192;
+
+    private final Cache<String, Statement> statements;
+
+    public ParseCache(int maxSize) {
+        this.statements = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the cached statement for the given query or parses it and adds it to the cache.
+     *
+     * @throws io.crate.sql.parser.ParsingException if the query can't be parsed; failures are not cached.
+     */
+    public Statement parse(String query) {
+        Statement statement = statements.getIfPresent(query);
+        if (statement == null) {
+            statement = SqlParser.createStatement(query);
+            if (query.length() <= MAX_QUERY_LENGTH) {
+                statements.put(query, statement);
+            }
+        }
+        return statement;
+    }
+
+    public CacheStats stats() {
+        return statements.stats();
+    }
+}
@@ -52,6 +52,7 @@ public class SQLOperations {
 
     private final Analyzer analyzer;
     private final Planner planner;
+    private final ParseCache parseCache;
     private final Provider<DependencyCarrier> executorProvider;
     private final JobsLogs jobsLogs;
     private final ClusterService clusterService;
@@ -69,6 +70,7 @@ public class SQLOperations {
                          Provider<UserManager> userManagerProvider) {
         this.analyzer = analyzer;
         this.planner = planner;
+        this.parseCache = new ParseCache(ParseCache.SIZE_SETTING.get(settings));
         this.executorProvider = executorProvider;
         this.jobsLogs = jobsLogs;
         this.clusterService = clusterService;
@@ -83,6 +85,7 @@ public class SQLOperations {
         return new Session(
             analyzer,
             planner,
+            parseCache,
             jobsLogs,
             isReadOnly,
             executorProvider.get(),
@@ -130,4 +133,8 @@ public class SQLOperations {
     public boolean isEnabled() {
         return !disabled;
     }
+
+    public ParseCache parseCache() {
+        return parseCache;
+    }
 }
@@ -126,18 +126,21 @@ public class Session implements AutoCloseable {
 
     private final Analyzer analyzer;
     private final Planner planner;
+    private final ParseCache parseCache;
     private final JobsLogs jobsLogs;
     private final boolean isReadOnly;
     private final ParameterTypeExtractor parameterTypeExtractor;
 
     public Session(Analyzer analyzer,
                    Planner planner,
+                   ParseCache parseCache,
                    JobsLogs jobsLogs,
                    boolean isReadOnly,
                    DependencyCarrier executor,
                    SessionContext sessionContext) {
         this.analyzer = analyzer;
         this.planner = planner;
+        this.parseCache = parseCache;
         this.jobsLogs = jobsLogs;
         this.isReadOnly = isReadOnly;
         this.executor = executor;
@@ -149,7 +152,7 @@ public class Session implements AutoCloseable {
      * See {@link #quickExec(String, Function, ResultReceiver, Row)}
      */
     public void quickExec(String statement, ResultReceiver resultReceiver, Row params) {
-        quickExec(statement, SqlParser::createStatement, resultReceiver, params);
+        quickExec(statement, parseCache::parse, resultReceiver, params);
     }
 
     /**
@@ -159,7 +162,7 @@ public class Session implements AutoCloseable {
      * This only works for statements that support unbound analyze
      *
      * @param parse A function to parse the statement; This can be used to cache the parsed statement.
-     *              Use {@link #quickExec(String, ResultReceiver, Row)} to use the regular parser
+     *              Use {@link #quickExec(String, ResultReceiver, Row)} to use the node wide {@link ParseCache}
      */
     public void quickExec(String statement, Function<String, Statement> parse, ResultReceiver resultReceiver, Row params) {
         CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
@@ -267,7 +270,7 @@ public class Session implements AutoCloseable {
 
         Statement statement;
         try {
-            statement = SqlParser.createStatement(query);
+            statement = parseCache.parse(query);
         } catch (Throwable t) {
             if ("".equals(query)) {
                 statement = EMPTY_STMT;
@@ -435,6 +438,13 @@ public class Session implements AutoCloseable {
         return getSafePortal(portalName).getLastQuery();
     }
 
+    /**
+     * @return the parsed statement of the prepared statement with the given name
+     */
+    public Statement getStatement(String statementName) {
+        return getSafeStmt(statementName).statement();
+    }
+
     public DataType getParamType(String statementName, int idx) {
         PreparedStmt stmt = getSafeStmt(statementName);
         return stmt.getEffectiveParameterType(idx);
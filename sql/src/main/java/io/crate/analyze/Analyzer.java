@@ -45,7 +45,9 @@ import io.crate.sql.tree.AstVisitor;
 import io.crate.sql.tree.BeginStatement;
 import io.crate.sql.tree.CommitStatement;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
 import io.crate.sql.tree.CopyTo;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateAnalyzer;
 import io.crate.sql.tree.CreateBlobTable;
 import io.crate.sql.tree.CreateFunction;
@@ -95,6 +97,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.analysis.AnalysisRegistry;
 
 import java.util.ArrayList;
@@ -201,7 +204,7 @@ public class Analyzer {
         this.alterTableAddColumnAnalyzer = new AlterTableAddColumnAnalyzer(schemas, fulltextAnalyzerResolver, functions);
         this.alterTableOpenCloseAnalyzer = new AlterTableOpenCloseAnalyzer(schemas);
         this.alterTableRerouteAnalyzer = new AlterTableRerouteAnalyzer(schemas);
-        this.copyAnalyzer = new CopyAnalyzer(schemas, functions);
+        this.copyAnalyzer = new CopyAnalyzer(schemas, functions, EsExecutors.numberOfProcessors(settings));
         this.dropRepositoryAnalyzer = new DropRepositoryAnalyzer(repositoryService);
         this.createRepositoryAnalyzer = new CreateRepositoryAnalyzer(repositoryService, repositoryParamValidator);
         this.dropSnapshotAnalyzer = new DropSnapshotAnalyzer(repositoryService);
@@ -275,6 +278,18 @@ public class Analyzer {
             return copyAnalyzer.convertCopyTo(node, context);
         }
 
+        @Override
+        public AnalyzedStatement visitCopyFromStdin(CopyFromStdin node, Analysis context) {
+            throw new UnsupportedOperationException(
+                "COPY FROM STDIN is only supported using the simple query flow of the PostgreSQL wire protocol");
+        }
+
+        @Override
+        public AnalyzedStatement visitCopyToStdout(CopyToStdout node, Analysis context) {
+            throw new UnsupportedOperationException(
+                "COPY TO STDOUT is only supported using the simple query flow of the PostgreSQL wire protocol");
+        }
+
         @Override
         public AnalyzedStatement visitDropTable(DropTable node, Analysis context) {
             return dropTableAnalyzer.analyze(node, context.sessionContext());
@@ -86,6 +86,8 @@ class CopyAnalyzer {
     private static final Setting<String> INPUT_FORMAT_SETTING =
         new Setting<>("format", "json", (s) -> s, Validators.stringValidator("format","json", "csv"), Setting.Property.Dynamic);
 
+    private static final String READERS_SETTING = "readers";
+
     private static final ImmutableMap<String, Setting> OUTPUT_SETTINGS = ImmutableMap.<String, Setting>builder()
         .put(COMPRESSION_SETTING.getKey(), COMPRESSION_SETTING)
         .put(OUTPUT_FORMAT_SETTING.getKey(), OUTPUT_FORMAT_SETTING)
@@ -93,10 +95,12 @@ class CopyAnalyzer {
 
     private final Schemas schemas;
     private final Functions functions;
+    private final int maxReaders;
 
-    CopyAnalyzer(Schemas schemas, Functions functions) {
+    CopyAnalyzer(Schemas schemas, Functions functions, int maxReaders) {
         this.schemas = schemas;
         this.functions = functions;
+        this.maxReaders = maxReaders;
     }
 
     CopyFromAnalyzedStatement convertCopyFrom(CopyFrom node, Analysis analysis) {
@@ -140,6 +144,17 @@ class CopyAnalyzer {
         FileUriCollectPhase.InputFormat inputFormat =
             settingAsEnum(FileUriCollectPhase.InputFormat.class, settings.get(INPUT_FORMAT_SETTING.getKey(), INPUT_FORMAT_SETTING.getDefault(Settings.EMPTY)));
 
+        int readers = settings.getAsInt(READERS_SETTING, 1);
+        if (readers < 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                "Invalid value for %s: %d. The number of readers must be greater than 0", READERS_SETTING, readers));
+        }
+        if (readers > maxReaders) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                "Invalid value for %s: %d. The number of readers must not exceed the number of processors (%d)",
+                READERS_SETTING, readers, maxReaders));
+        }
+
         if (node.isReturnSummary()) {
             return new CopyFromReturnSummaryAnalyzedStatement(tableInfo, settings, uri, partitionIdent, nodeFilters, inputFormat);
         }
@@ -288,11 +288,44 @@ public class ExpressionAnalyzer {
             }
 
             windowFrameDefinition = new WindowFrameDefinition(windowFrame.getType(), startBound, endBound);
+            validateWindowFrame(windowFrameDefinition, orderBy);
         }
 
         return new WindowDefinition(partitionSymbols, orderBy, windowFrameDefinition);
     }
 
+    private static void validateWindowFrame(WindowFrameDefinition frameDefinition, @Nullable OrderBy orderBy) {
+        FrameBound.Type start = frameDefinition.start().type();
+        FrameBound.Type end = frameDefinition.end() == null ? FrameBound.Type.CURRENT_ROW : frameDefinition.end().type();
+        if (start == FrameBound.Type.UNBOUNDED_FOLLOWING) {
+            throw new IllegalArgumentException("Frame start cannot be UNBOUNDED FOLLOWING");
+        }
+        if (end == FrameBound.Type.UNBOUNDED_PRECEDING) {
+            throw new IllegalArgumentException("Frame end cannot be UNBOUNDED PRECEDING");
+        }
+        if (start == FrameBound.Type.CURRENT_ROW && end == FrameBound.Type.PRECEDING) {
+            throw new IllegalArgumentException("Frame starting from current row cannot have preceding rows");
+        }
+        if (start == FrameBound.Type.FOLLOWING &&
+            (end == FrameBound.Type.PRECEDING || end == FrameBound.Type.CURRENT_ROW)) {
+            throw new IllegalArgumentException("Frame starting from following row cannot have preceding rows");
+        }
+        boolean hasOffset = frameDefinition.start().value() != null ||
+                            (frameDefinition.end() != null && frameDefinition.end().value() != null);
+        if (frameDefinition.type() == WindowFrame.Type.RANGE && hasOffset) {
+            if (orderBy == null || orderBy.orderBySymbols().size() != 1) {
+                throw new IllegalArgumentException(
+                    "RANGE with offset PRECEDING/FOLLOWING requires exactly one ORDER BY column");
+            }
+            DataType orderByType = orderBy.orderBySymbols().get(0).valueType();
+            if (!DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(orderByType) && !orderByType.equals(DataTypes.TIMESTAMP)) {
+                throw new IllegalArgumentException(
+                    "RANGE with offset PRECEDING/FOLLOWING requires a numeric or timestamp ORDER BY column, got: " +
+                    orderByType.getName());
+            }
+        }
+    }
+
     private FrameBoundDefinition convertToAnalyzedFrameBound(ExpressionAnalysisContext context, FrameBound frameBound) {
         Symbol startBoundValue = null;
         if (frameBound.getValue() != null) {
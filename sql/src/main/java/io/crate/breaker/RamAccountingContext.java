@@ -182,6 +182,17 @@ public class RamAccountingContext implements RamAccounting {
         flushBuffer.getAndSet(0);
     }
 
+    /**
+     * Creates a context which accounts its bytes through this context but keeps its own count of them.
+     * <p>
+     * Releasing or closing the child releases only the bytes accounted through it; bytes accounted by other
+     * users of this context, e.g. concurrent operations of the same phase, are not affected.
+     * Closing this context still adjusts the breaker for all bytes, including those of its children.
+     */
+    public RamAccountingContext newChildContext() {
+        return new ChildContext(this);
+    }
+
     /**
      * Returns true if the limit of the breaker was already reached
      */
@@ -225,4 +236,48 @@ public class RamAccountingContext implements RamAccounting {
     public static long roundUp(long n) {
         return roundUp(n, 8);
     }
+
+    private static final class ChildContext extends RamAccountingContext {
+
+        private final RamAccountingContext parent;
+        private final AtomicLong bytes = new AtomicLong(0);
+
+        private ChildContext(RamAccountingContext parent) {
+            super(parent.contextId, parent.breaker);
+            this.parent = parent;
+        }
+
+        @Override
+        public void addBytes(long bytes) throws CircuitBreakingException {
+            // the parent keeps the bytes accounted even if the breaker trips
+            this.bytes.addAndGet(bytes);
+            parent.addBytes(bytes);
+        }
+
+        @Override
+        public void addBytesWithoutBreaking(long bytes) {
+            this.bytes.addAndGet(bytes);
+            parent.addBytesWithoutBreaking(bytes);
+        }
+
+        @Override
+        public long totalBytes() {
+            return bytes.get();
+        }
+
+        @Override
+        public void release() {
+            parent.addBytesWithoutBreaking(-bytes.getAndSet(0));
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+
+        @Override
+        public boolean trippedBreaker() {
+            return parent.trippedBreaker();
+        }
+    }
 }
@@ -31,6 +31,7 @@ import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.execution.jobs.PageBucketReceiver;
 import io.crate.execution.jobs.PageResultListener;
+import org.elasticsearch.common.lease.Releasable;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
@@ -69,7 +70,12 @@ public class IncrementalPageBucketReceiver<T> implements PageBucketReceiver {
         this.streamers = streamers;
         this.remainingUpstreams = new AtomicInteger(upstreamsCount);
         lazyBatchIterator = CollectingBatchIterator.newInstance(
-            () -> {},
+            () -> {
+                if (state instanceof Releasable) {
+                    // e.g. the state of a SpillingGroupingCollector which holds temporary files
+                    ((Releasable) state).close();
+                }
+            },
             t -> {},
             () -> processingFuture);
         rowConsumer.accept(lazyBatchIterator, null);
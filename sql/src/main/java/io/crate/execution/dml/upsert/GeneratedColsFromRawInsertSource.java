@@ -63,13 +63,25 @@ public final class GeneratedColsFromRawInsertSource implements InsertSourceGen {
 
     @Override
     public BytesReference generateSource(Object[] values) throws IOException {
-        String rawSource = (String) values[0];
-        Map<String, Object> source = XContentHelper.convertToMap(new BytesArray(rawSource), false, XContentType.JSON).v2();
+        BytesReference rawSource = new BytesArray((String) values[0]);
+        Map<String, Object> source = XContentHelper.convertToMap(rawSource, false, XContentType.JSON).v2();
         for (int i = 0; i < expressions.size(); i++) {
             expressions.get(i).setNextRow(source);
         }
+        // the missing generated values are appended to the raw source instead of serializing the whole map again
+        SourcePatcher patcher = new SourcePatcher();
         for (Map.Entry<ColumnIdent, Input<?>> entry : generatedCols.entrySet()) {
-            source.putIfAbsent(entry.getKey().fqn(), entry.getValue().value());
+            String key = entry.getKey().fqn();
+            // same semantics as Map.putIfAbsent: a missing key and an explicit null are both replaced
+            if (source.get(key) == null) {
+                Object value = entry.getValue().value();
+                source.put(key, value);
+                patcher.set(new ColumnIdent(key), value);
+            }
+        }
+        BytesReference patchedSource = patcher.apply(rawSource);
+        if (patchedSource != null) {
+            return patchedSource;
         }
         return BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
     }
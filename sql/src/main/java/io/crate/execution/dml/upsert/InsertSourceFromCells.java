@@ -23,9 +23,7 @@
 package io.crate.execution.dml.upsert;
 
 import io.crate.collections.Lists2;
-import io.crate.common.collections.Maps;
 import io.crate.data.ArrayRow;
-import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.InputCollectExpression;
@@ -40,12 +38,9 @@ import io.crate.metadata.Reference;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.doc.DocTableInfo;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.xcontent.XContentFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public final class InsertSourceFromCells implements InsertSourceGen {
 
@@ -53,6 +48,7 @@ public final class InsertSourceFromCells implements InsertSourceGen {
     private final ArrayRow row = new ArrayRow();
     private final CheckConstraints<Row, CollectExpression<Row, ?>> checks;
     private final GeneratedColumns<Row> generatedColumns;
+    private final SourceWriter sourceWriter;
 
     InsertSourceFromCells(TransactionContext txnCtx,
                           Functions functions,
@@ -75,6 +71,7 @@ public final class InsertSourceFromCells implements InsertSourceGen {
             );
         }
         checks = new CheckConstraints<>(txnCtx, inputFactory, referenceResolver, table);
+        sourceWriter = new SourceWriter(targets, generatedColumns.toInject());
     }
 
     public void checkConstraints(Object[] values) {
@@ -83,27 +80,16 @@ public final class InsertSourceFromCells implements InsertSourceGen {
     }
 
     public BytesReference generateSource(Object[] values) throws IOException {
-        HashMap<String, Object> source = new HashMap<>();
-
         row.cells(values);
         generatedColumns.setNextRow(row);
         for (int i = 0; i < targets.size(); i++) {
             Reference target = targets.get(i);
-            Object value = values[i];
-
             // partitioned columns must not be included in the source
             if (target.granularity() == RowGranularity.DOC) {
-                ColumnIdent column = target.column();
-                Maps.mergeInto(source, column.name(), column.path(), value);
-                generatedColumns.validateValue(target, value);
+                generatedColumns.validateValue(target, values[i]);
             }
         }
-        for (Map.Entry<Reference, Input<?>> entry : generatedColumns.toInject()) {
-            ColumnIdent column = entry.getKey().column();
-            Maps.mergeInto(source, column.name(), column.path(), entry.getValue().value());
-        }
-
-        return BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
+        return sourceWriter.write(values);
     }
 
     private static class ReferencesFromInputRow implements ReferenceResolver<CollectExpression<Row, ?>> {
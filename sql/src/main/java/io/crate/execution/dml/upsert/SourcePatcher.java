@@ -0,0 +1,233 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.dml.upsert;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.crate.metadata.ColumnIdent;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies values of columns to a serialized JSON source without parsing it into a map and serializing it again.
+ *
+ * The source is walked token by token. Only the fields which are part of the patch are written,
+ * all other fields, including whole sub-trees, are copied as raw byte ranges.
+ *
+ * <pre>
+ * {@code
+ *  source:  {"x": 1, "o": {"a": [1, 2], "b": 2}, "y": "foo"}
+ *  patch:   x = 2, o.b = 3, z = 4
+ *
+ *  result:  {"x":2,"o": {"a": [1, 2],"b":3},"y": "foo","z":4}
+ * }
+ * </pre>
+ */
+final class SourcePatcher {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Node root = new Node();
+    private boolean conflict = false;
+
+    /**
+     * Adds the value of a column to the patch.
+     * Values of parent and child columns can't be combined; {@link #apply(BytesReference)} returns null in that case.
+     */
+    void set(ColumnIdent column, Object value) {
+        Node node = root;
+        String key = column.name();
+        for (String childKey : column.path()) {
+            Object child = node.children.get(key);
+            if (child instanceof Node) {
+                node = (Node) child;
+            } else if (child == null && !node.children.containsKey(key)) {
+                Node childNode = new Node();
+                node.children.put(key, childNode);
+                node = childNode;
+            } else {
+                conflict = true;
+                return;
+            }
+            key = childKey;
+        }
+        if (node.children.get(key) instanceof Node) {
+            conflict = true;
+        } else {
+            node.children.put(key, value);
+        }
+    }
+
+    /**
+     * @return the patched source or null if the source can't be patched in place.
+     *         This is the case if it isn't a JSON object or if a parent of a patched column isn't an object.
+     */
+    @Nullable
+    BytesReference apply(BytesReference source) throws IOException {
+        if (conflict || source.length() == 0) {
+            return null;
+        }
+        BytesRef bytes = source.toBytesRef();
+        if (!startsWithObject(bytes)) {
+            return null;
+        }
+        BytesStreamOutput out = new BytesStreamOutput(bytes.length + 16 * root.children.size());
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes.bytes, bytes.offset, bytes.length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || !writeObject(parser, bytes, root, out)) {
+                return null;
+            }
+        }
+        return out.bytes();
+    }
+
+    /**
+     * Writes the object the parser is positioned on, with the values of {@code node} applied.
+     * The parser is positioned on the END_OBJECT token afterwards.
+     */
+    private static boolean writeObject(JsonParser parser,
+                                       BytesRef bytes,
+                                       Node node,
+                                       BytesStreamOutput out) throws IOException {
+        out.writeByte((byte) '{');
+        HashSet<String> written = new HashSet<>();
+        boolean first = true;
+        JsonToken token = parser.nextToken();
+        while (token == JsonToken.FIELD_NAME) {
+            int fieldStart = tokenStart(parser);
+            String name = parser.getCurrentName();
+            Object patch = node.children.get(name);
+            token = parser.nextToken();
+            if (first) {
+                first = false;
+            } else {
+                out.writeByte((byte) ',');
+            }
+            if (patch == null && !node.children.containsKey(name)) {
+                parser.skipChildren();
+                token = parser.nextToken();
+                int fieldEnd = trimSeparator(bytes, tokenStart(parser));
+                out.writeBytes(bytes.bytes, bytes.offset + fieldStart, fieldEnd - fieldStart);
+                continue;
+            }
+            written.add(name);
+            if (patch instanceof Node) {
+                if (token != JsonToken.START_OBJECT) {
+                    return false;
+                }
+                out.writeBytes(bytes.bytes, bytes.offset + fieldStart, tokenStart(parser) - fieldStart);
+                if (!writeObject(parser, bytes, (Node) patch, out)) {
+                    return false;
+                }
+            } else {
+                parser.skipChildren();
+                writeField(name, patch, out);
+            }
+            token = parser.nextToken();
+        }
+        for (Map.Entry<String, Object> entry : node.children.entrySet()) {
+            String name = entry.getKey();
+            if (written.contains(name)) {
+                continue;
+            }
+            if (first) {
+                first = false;
+            } else {
+                out.writeByte((byte) ',');
+            }
+            Object value = entry.getValue();
+            writeField(name, value instanceof Node ? ((Node) value).toMap() : value, out);
+        }
+        out.writeByte((byte) '}');
+        return true;
+    }
+
+    /**
+     * Sources are stored as JSON, other content types like SMILE start with a binary header instead of a brace.
+     */
+    private static boolean startsWithObject(BytesRef bytes) {
+        int end = bytes.offset + bytes.length;
+        for (int i = bytes.offset; i < end; i++) {
+            if (!Character.isWhitespace(bytes.bytes[i])) {
+                return bytes.bytes[i] == '{';
+            }
+        }
+        return false;
+    }
+
+    private static int tokenStart(JsonParser parser) {
+        return (int) parser.getTokenLocation().getByteOffset();
+    }
+
+    /**
+     * Moves {@code end} backwards over whitespace and the comma which separates a field from the next one.
+     */
+    private static int trimSeparator(BytesRef bytes, int end) {
+        int i = end;
+        boolean comma = false;
+        while (i > 0) {
+            byte b = bytes.bytes[bytes.offset + i - 1];
+            if (b == ',' && !comma) {
+                comma = true;
+            } else if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            i--;
+        }
+        return i;
+    }
+
+    private static void writeField(String name, Object value, BytesStreamOutput out) throws IOException {
+        XContentBuilder builder = JsonXContent.contentBuilder()
+            .startObject()
+            .field(name, value)
+            .endObject();
+        BytesReference field = BytesReference.bytes(builder);
+        // strip the curly braces of the wrapping object
+        field.slice(1, field.length() - 2).writeTo(out);
+    }
+
+    private static class Node {
+
+        private final LinkedHashMap<String, Object> children = new LinkedHashMap<>();
+
+        Map<String, Object> toMap() {
+            HashMap<String, Object> map = new HashMap<>(children.size());
+            for (Map.Entry<String, Object> entry : children.entrySet()) {
+                Object value = entry.getValue();
+                map.put(entry.getKey(), value instanceof Node ? ((Node) value).toMap() : value);
+            }
+            return map;
+        }
+    }
+}
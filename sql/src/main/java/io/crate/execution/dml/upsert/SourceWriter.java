@@ -0,0 +1,169 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.dml.upsert;
+
+import io.crate.common.collections.Maps;
+import io.crate.data.Input;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RowGranularity;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the JSON source of a document from the values of the target columns and the generated columns
+ * which need to be injected.
+ *
+ * The structure of the source is resolved once per table and set of target columns, so values are written
+ * directly into a reusable buffer instead of being merged into a map which is serialized afterwards:
+ *
+ * <pre>
+ * {@code
+ *  targets:    [x, obj['a']]
+ *  generated:  obj['c'] as obj['a'] + 3
+ *
+ *  columns:    x -> values[0]
+ *              obj
+ *                a -> values[1]
+ *                c -> generated input
+ * }
+ * </pre>
+ *
+ * Partitioned columns are not part of the source.
+ */
+final class SourceWriter {
+
+    private final Column root = new Column(null);
+    private final BytesStreamOutput out = new BytesStreamOutput();
+
+    SourceWriter(List<Reference> targets, Iterable<? extends Map.Entry<Reference, Input<?>>> toInject) {
+        for (int i = 0; i < targets.size(); i++) {
+            Reference target = targets.get(i);
+            if (target.granularity() == RowGranularity.DOC) {
+                root.add(target.column()).valueIdx(i);
+            }
+        }
+        for (Map.Entry<Reference, Input<?>> entry : toInject) {
+            root.add(entry.getKey().column()).generated(entry.getValue());
+        }
+    }
+
+    /**
+     * Generates the source; generated columns must have been evaluated for the row of {@code values} already.
+     */
+    BytesReference write(Object[] values) throws IOException {
+        out.reset();
+        try (XContentBuilder builder = new XContentBuilder(JsonXContent.jsonXContent, out)) {
+            builder.startObject();
+            for (Column column : root.children.values()) {
+                column.write(builder, values);
+            }
+            builder.endObject();
+        }
+        return new BytesArray(BytesReference.toBytes(out.bytes()));
+    }
+
+    private static class Column {
+
+        @Nullable
+        private final String name;
+        private final LinkedHashMap<String, Column> children = new LinkedHashMap<>();
+        private int valueIdx = -1;
+        @Nullable
+        private Input<?> generated;
+
+        Column(@Nullable String name) {
+            this.name = name;
+        }
+
+        Column add(ColumnIdent ident) {
+            Column column = child(ident.name());
+            for (String childName : ident.path()) {
+                column = column.child(childName);
+            }
+            return column;
+        }
+
+        private Column child(String childName) {
+            return children.computeIfAbsent(childName, Column::new);
+        }
+
+        void valueIdx(int valueIdx) {
+            this.valueIdx = valueIdx;
+            this.generated = null;
+        }
+
+        void generated(Input<?> generated) {
+            this.generated = generated;
+            this.valueIdx = -1;
+        }
+
+        private boolean hasValue() {
+            return valueIdx >= 0 || generated != null;
+        }
+
+        private Object value(Object[] values) {
+            return generated == null ? values[valueIdx] : generated.value();
+        }
+
+        void write(XContentBuilder builder, Object[] values) throws IOException {
+            if (!hasValue()) {
+                builder.startObject(name);
+                for (Column child : children.values()) {
+                    child.write(builder, values);
+                }
+                builder.endObject();
+            } else if (children.isEmpty()) {
+                builder.field(name, value(values));
+            } else {
+                // values of child columns need to be merged into the object value, e.g. generated columns of an object
+                HashMap<String, Object> source = new HashMap<>(1);
+                source.put(name, value(values));
+                mergeChildren(name, source, new ArrayList<>(), values);
+                builder.field(name, source.get(name));
+            }
+        }
+
+        private void mergeChildren(String rootName, Map<String, Object> source, List<String> path, Object[] values) {
+            for (Column child : children.values()) {
+                path.add(child.name);
+                if (child.hasValue()) {
+                    Maps.mergeInto(source, rootName, path, child.value(values));
+                }
+                child.mergeChildren(rootName, source, path, values);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+}
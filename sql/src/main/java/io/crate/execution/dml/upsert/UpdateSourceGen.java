@@ -120,24 +120,38 @@ final class UpdateSourceGen {
         Values values = new Values(result, insertValues);
         HashMap<String, Object> updatedSource = new HashMap<>(result.getSource());
         Doc updatedDoc = result.withUpdatedSource(updatedSource);
+        SourcePatcher patcher = new SourcePatcher();
         for (int i = 0; i < updateColumns.size(); i++) {
             Reference ref = updateColumns.get(i);
             Object value = eval.process(updateAssignments[i], values).value();
             ColumnIdent column = ref.column();
             Maps.mergeInto(updatedSource, column.name(), column.path(), value);
+            patcher.set(column, value);
             generatedColumns.setNextRow(updatedDoc);
             generatedColumns.validateValue(ref, value);
         }
-        injectGeneratedColumns(updatedSource);
+        injectGeneratedColumns(updatedSource, patcher);
         checks.validate(updatedDoc);
+
+        /* The map is used to evaluate generated columns and constraints, but to create the new source
+         * only the changed columns are written into the existing source; all other values are copied as is.
+         */
+        BytesReference sourceRef = result.getSourceRef();
+        if (sourceRef != null) {
+            BytesReference patchedSource = patcher.apply(sourceRef);
+            if (patchedSource != null) {
+                return patchedSource;
+            }
+        }
         return BytesReference.bytes(XContentFactory.jsonBuilder().map(updatedSource));
     }
 
-    private void injectGeneratedColumns(HashMap<String, Object> updatedSource) {
+    private void injectGeneratedColumns(HashMap<String, Object> updatedSource, SourcePatcher patcher) {
         for (Map.Entry<Reference, Input<?>> entry : generatedColumns.toInject()) {
             ColumnIdent column = entry.getKey().column();
             Object value = entry.getValue().value();
             Maps.mergeInto(updatedSource, column.name(), column.path(), value);
+            patcher.set(column, value);
         }
     }
 
@@ -46,6 +46,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
     private final Boolean sharedStorage;
     private DistributionInfo distributionInfo = DistributionInfo.DEFAULT_BROADCAST;
     private InputFormat inputFormat;
+    private final int readers;
 
     public FileUriCollectPhase(UUID jobId,
                                int phaseId,
@@ -56,7 +57,8 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
                                List<Projection> projections,
                                String compression,
                                Boolean sharedStorage,
-                               InputFormat inputFormat) {
+                               InputFormat inputFormat,
+                               int readers) {
         super(jobId, phaseId, name, projections);
         this.executionNodes = executionNodes;
         this.targetUri = targetUri;
@@ -64,6 +66,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         this.compression = compression;
         this.sharedStorage = sharedStorage;
         this.inputFormat = inputFormat;
+        this.readers = readers;
         outputTypes = extractOutputTypes(toCollect, projections);
     }
 
@@ -104,6 +107,13 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         return inputFormat;
     }
 
+    /**
+     * The number of threads each node uses to read the files
+     */
+    public int readers() {
+        return readers;
+    }
+
     public FileUriCollectPhase(StreamInput in) throws IOException {
         super(in);
         compression = in.readOptionalString();
@@ -118,6 +128,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         this.executionNodes = nodes;
         toCollect = Symbols.listFromStream(in);
         inputFormat = InputFormat.values()[in.readVInt()];
+        readers = in.readVInt();
     }
 
     @Override
@@ -132,6 +143,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         }
         Symbols.toStream(toCollect, out);
         out.writeVInt(inputFormat.ordinal());
+        out.writeVInt(readers);
     }
 
     @Override
@@ -144,6 +156,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
             .add("compression", compression)
             .add("sharedStorageDefault", sharedStorage)
             .add("inputFormat", inputFormat)
+            .add("readers", readers)
             .toString();
     }
 
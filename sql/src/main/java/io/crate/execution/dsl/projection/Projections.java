@@ -23,6 +23,7 @@
 package io.crate.execution.dsl.projection;
 
 import com.google.common.collect.Collections2;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.metadata.RowGranularity;
 
 import java.util.Collection;
@@ -45,4 +46,29 @@ public class Projections {
         }
         return false;
     }
+
+    /**
+     * @return true if there are shard projections and all of them are partial aggregations.
+     *         The results of such projections can be merged with the results of other shards or subsets of a shard.
+     */
+    public static boolean shardProjectionsArePartialAggregations(Collection<? extends Projection> projections) {
+        Collection<? extends Projection> shardProjections = shardProjections(projections);
+        if (shardProjections.isEmpty()) {
+            return false;
+        }
+        for (Projection projection : shardProjections) {
+            AggregateMode mode;
+            if (projection instanceof GroupProjection) {
+                mode = ((GroupProjection) projection).mode();
+            } else if (projection instanceof AggregationProjection) {
+                mode = ((AggregationProjection) projection).mode();
+            } else {
+                return false;
+            }
+            if (mode != AggregateMode.ITER_PARTIAL) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -46,12 +46,16 @@ public class WindowAggProjection extends Projection {
     private final List<Symbol> standaloneWithInputs;
     private LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs;
     private ArrayList<Symbol> outputs;
+    private int[] partitionByIndexes;
     private int[] orderByIndexes;
 
     public WindowAggProjection(WindowDefinition windowDefinition,
                                LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs,
                                List<Symbol> standaloneWithInputs,
+                               int[] partitionByIndexes,
                                int[] orderByIndexes) {
+        assert partitionByIndexes != null
+            : "Partition by indexes cannot be null. An empty container signals the absence of partition by symbols";
         assert orderByIndexes != null
             : "Order by indexes cannot be null. An empty container signals the absence of order by symbols";
         Set<WindowFunction> windowFunctions = functionsWithInputs.keySet();
@@ -62,6 +66,7 @@ public class WindowAggProjection extends Projection {
         this.windowDefinition = windowDefinition;
         this.functionsWithInputs = functionsWithInputs;
         this.standaloneWithInputs = standaloneWithInputs;
+        this.partitionByIndexes = partitionByIndexes;
         this.orderByIndexes = orderByIndexes;
         outputs = new ArrayList<>(windowFunctions);
         outputs.addAll(standaloneWithInputs);
@@ -77,8 +82,10 @@ public class WindowAggProjection extends Projection {
             List<Symbol> inputs = Symbols.listFromStream(in);
             functionsWithInputs.put(function, inputs);
         }
+        partitionByIndexes = in.readIntArray();
         orderByIndexes = in.readIntArray();
         outputs = new ArrayList<>(functionsWithInputs.keySet());
+        outputs.addAll(standaloneWithInputs);
     }
 
     public WindowDefinition windowDefinition() {
@@ -93,6 +100,10 @@ public class WindowAggProjection extends Projection {
         return standaloneWithInputs;
     }
 
+    public int[] partitionByIndexes() {
+        return partitionByIndexes;
+    }
+
     @Nullable
     public int[] orderByIndexes() {
         return orderByIndexes;
@@ -136,6 +147,7 @@ public class WindowAggProjection extends Projection {
             Symbols.toStream(functionWithInputs.getKey(), out);
             Symbols.toStream(functionWithInputs.getValue(), out);
         }
+        out.writeIntArray(partitionByIndexes);
         out.writeIntArray(orderByIndexes);
     }
 
@@ -0,0 +1,184 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file to which rows are written using the {@link Streamer}s of their columns.
+ *
+ * <p>
+ * The file is created in the temp directory of the node (java.io.tmpdir) on the first write.
+ * Once writing is finished with {@link #rows()} the rows can be read any number of times.
+ * {@link #close()} deletes the file.
+ * </p>
+ */
+public final class SpillFile implements Releasable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Streamer[] streamers;
+    private final List<StreamInput> openInputs = new ArrayList<>();
+
+    private Path path;
+    private StreamOutput out;
+    private long numRows = 0;
+
+    public SpillFile(Streamer[] streamers) {
+        this.streamers = streamers;
+    }
+
+    public void write(Row row) {
+        assert row.numColumns() == streamers.length : "row must have a column for each streamer";
+        try {
+            if (out == null) {
+                path = Files.createTempFile("crate-spill-", ".bin");
+                out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+            }
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                streamers[i].writeValueTo(out, row.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numRows++;
+    }
+
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the size of the file in bytes, 0 if nothing has been written.
+     */
+    public long sizeInBytes() {
+        if (path == null) {
+            return 0L;
+        }
+        try {
+            finishWriting();
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finishes writing and returns the written rows. Each iteration reads the rows from the file.
+     * The returned row instance is re-used.
+     */
+    public Iterable<Row> rows() {
+        try {
+            finishWriting();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return RowsIterator::new;
+    }
+
+    private void finishWriting() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finishWriting();
+            synchronized (openInputs) {
+                for (StreamInput in : openInputs) {
+                    in.close();
+                }
+                openInputs.clear();
+            }
+            if (path != null) {
+                Files.deleteIfExists(path);
+                path = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class RowsIterator implements Iterator<Row> {
+
+        private final Object[] cells = new Object[streamers.length];
+        private final RowN row = new RowN(cells);
+        private StreamInput in;
+        private long remaining = numRows;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Row next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException("All rows of the spill file have been read");
+            }
+            try {
+                if (in == null) {
+                    in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+                    synchronized (openInputs) {
+                        openInputs.add(in);
+                    }
+                }
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+                remaining--;
+                if (remaining == 0) {
+                    in.close();
+                    synchronized (openInputs) {
+                        openInputs.remove(in);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return row;
+        }
+    }
+}
@@ -23,6 +23,7 @@
 package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Column;
 import io.crate.data.Input;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.types.DataType;
@@ -31,6 +32,7 @@ import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.util.BigArrays;
 
 import javax.annotation.Nullable;
+import java.util.List;
 
 /**
  * A special FunctionImplementation that compute a single result from a set of input values
@@ -66,6 +68,55 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
     public abstract TPartial iterate(RamAccountingContext ramAccountingContext, TPartial state, Input... args)
         throws CircuitBreakingException;
 
+    /**
+     * The vectorized variant of {@link #iterate(RamAccountingContext, Object, Input...)} which aggregates
+     * the first {@code size} values of the given columns.
+     * <p>
+     * The default implementation calls {@link #iterate(RamAccountingContext, Object, Input...)} for each position.
+     * Implementations can override this to operate on the primitive values of the columns directly.
+     * </p>
+     *
+     * @param args one column per argument, matching the types of FunctionInfo.argumentTypes.
+     * @return The new/changed state, same as {@link #iterate(RamAccountingContext, Object, Input...)}
+     */
+    public TPartial iterateColumns(RamAccountingContext ramAccountingContext, TPartial state, Column[] args, int size)
+        throws CircuitBreakingException {
+        List<DataType> argumentTypes = info().ident().argumentTypes();
+        ColumnInput[] inputs = new ColumnInput[args.length];
+        for (int i = 0; i < args.length; i++) {
+            inputs[i] = new ColumnInput(args[i], argumentTypes.get(i));
+        }
+        for (int position = 0; position < size; position++) {
+            for (ColumnInput input : inputs) {
+                input.position = position;
+            }
+            state = iterate(ramAccountingContext, state, inputs);
+        }
+        return state;
+    }
+
+    /**
+     * @return true if values can be removed from a state using
+     * {@link #removeFromAggregatedState(RamAccountingContext, Object, Input[])}.
+     * Window functions use this to move a frame over the rows of a partition without re-aggregating all rows of the frame.
+     */
+    public boolean isRemovableCumulative() {
+        return false;
+    }
+
+    /**
+     * The inverse of {@link #iterate(RamAccountingContext, Object, Input...)}: removes a value that has been
+     * aggregated into the state before.
+     * Only supported if {@link #isRemovableCumulative()} returns true.
+     *
+     * @param args arguments / input values of the row that is removed, matching the types of FunctionInfo.argumentTypes.
+     * @return The new/changed state, same as {@link #iterate(RamAccountingContext, Object, Input...)}
+     */
+    public TPartial removeFromAggregatedState(RamAccountingContext ramAccountingContext, TPartial state, Input... args) {
+        throw new UnsupportedOperationException(
+            "Aggregation function " + info().ident().name() + " doesn't support removing values from its state");
+    }
+
     /**
      * This function merges two aggregation states together and returns that merged state.
      * <p>
@@ -82,4 +133,22 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
     public abstract TFinal terminatePartial(RamAccountingContext ramAccountingContext, TPartial state);
 
     public abstract DataType partialType();
+
+    private static class ColumnInput implements Input<Object> {
+
+        private final Column column;
+        private final DataType<?> type;
+        private int position;
+
+        ColumnInput(Column column, DataType<?> type) {
+            this.column = column;
+            this.type = type;
+        }
+
+        @Override
+        public Object value() {
+            // columns box the values as Long or Double, convert them back to the type of the argument
+            return type.value(column.get(position));
+        }
+    }
 }
@@ -34,10 +34,11 @@ import org.elasticsearch.Version;
 import org.elasticsearch.common.util.BigArrays;
 
 import java.util.List;
+import java.util.stream.Collector;
 
 public class AggregationPipe implements Projector {
 
-    private final AggregateCollector collector;
+    private final Collector<Row, ?, Iterable<Row>> collector;
 
     public AggregationPipe(List<CollectExpression<Row, ?>> expressions,
                            AggregateMode aggregateMode,
@@ -52,15 +53,27 @@ public class AggregationPipe implements Projector {
             functions[i] = aggregation.function();
             inputs[i] = aggregation.inputs();
         }
-        collector = new AggregateCollector(
-            expressions,
-            ramAccountingContext,
-            aggregateMode,
-            functions,
-            indexVersionCreated,
-            bigArrays,
-            inputs
-        );
+        if (VectorizedAggregateCollector.supports(aggregateMode, functions)) {
+            collector = new VectorizedAggregateCollector(
+                expressions,
+                ramAccountingContext,
+                aggregateMode,
+                functions,
+                indexVersionCreated,
+                bigArrays,
+                inputs
+            );
+        } else {
+            collector = new AggregateCollector(
+                expressions,
+                ramAccountingContext,
+                aggregateMode,
+                functions,
+                indexVersionCreated,
+                bigArrays,
+                inputs
+            );
+        }
     }
 
     @Override
@@ -68,7 +81,7 @@ public class AggregationPipe implements Projector {
         return CollectingBatchIterator.newInstance(batchIterator, collector);
     }
 
-    public AggregateCollector getCollector() {
+    public Collector<Row, ?, Iterable<Row>> getCollector() {
         return collector;
     }
 
@@ -0,0 +1,434 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector which groups by one or more keys of fixed-width primitive types
+ * (byte, short, integer, long, timestamp, boolean, float and double).
+ *
+ * <p>
+ * Each key is encoded into a single {@code long} word and a group key is stored as
+ * {@code [nullMask, word1, .. wordN]} inside a flat {@code long[]} slab of an open-addressing
+ * hash table. Keys of incoming rows are encoded into a re-used scratch array, so looking up
+ * an existing group doesn't allocate.
+ * </p>
+ *
+ * <p>
+ * Memory is accounted per slab when the table grows, not per entry.
+ * </p>
+ */
+public final class GroupByFixedWidthKeysCollector implements Collector<Row, GroupByFixedWidthKeysCollector.Groups, Iterable<Row>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int[] keyTypeIds;
+    private final CollectExpression<Row, ?>[] expressions;
+    private final AggregateMode mode;
+    private final AggregationFunction[] aggregations;
+    private final Input[][] inputs;
+    private final RamAccountingContext ramAccounting;
+    private final List<Input<?>> keyInputs;
+    private final Version indexVersionCreated;
+    private final BigArrays bigArrays;
+    private final BiConsumer<Groups, Row> accumulator;
+    private final int keyWidth;
+
+    GroupByFixedWidthKeysCollector(List<? extends DataType> keyTypes,
+                                   CollectExpression<Row, ?>[] expressions,
+                                   AggregateMode mode,
+                                   AggregationFunction[] aggregations,
+                                   Input[][] inputs,
+                                   RamAccountingContext ramAccounting,
+                                   List<Input<?>> keyInputs,
+                                   Version indexVersionCreated,
+                                   BigArrays bigArrays) {
+        assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
+        if (!supportsKeyTypes(keyTypes)) {
+            throw new IllegalArgumentException(
+                "Fixed width keys collector is only supported for up to 63 keys of fixed width types, " +
+                "but received " + keyTypes);
+        }
+        this.keyTypeIds = new int[keyTypes.size()];
+        for (int i = 0; i < keyTypeIds.length; i++) {
+            keyTypeIds[i] = keyTypes.get(i).id();
+        }
+        this.expressions = expressions;
+        this.mode = mode;
+        this.aggregations = aggregations;
+        this.inputs = inputs;
+        this.ramAccounting = ramAccounting;
+        this.keyInputs = keyInputs;
+        this.indexVersionCreated = indexVersionCreated;
+        this.bigArrays = bigArrays;
+        // first word is the null mask
+        this.keyWidth = keyTypeIds.length + 1;
+        this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
+    }
+
+    /**
+     * @return true if all keys can be encoded into a single long word each
+     *         and the null mask of all keys fits into a long.
+     */
+    static boolean supportsKeyTypes(List<? extends DataType> keyTypes) {
+        if (keyTypes.isEmpty() || keyTypes.size() >= Long.SIZE) {
+            return false;
+        }
+        for (DataType keyType : keyTypes) {
+            switch (keyType.id()) {
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID:
+                case BooleanType.ID:
+                case FloatType.ID:
+                case DoubleType.ID:
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open-addressing hash table with linear probing.
+     * Group keys are stored in {@code keys} with a stride of {@code keyWidth}, the states of
+     * a group are stored at the same slot in {@code states}. A slot is free if its states are null.
+     */
+    static class Groups {
+
+        final long[] scratch;
+        long[] keys;
+        Object[][] states;
+        int mask;
+        int size = 0;
+        int resizeThreshold;
+
+        Groups(int keyWidth, int capacity) {
+            this.scratch = new long[keyWidth];
+            allocate(keyWidth, capacity);
+        }
+
+        private void allocate(int keyWidth, int capacity) {
+            keys = new long[capacity * keyWidth];
+            states = new Object[capacity][];
+            mask = capacity - 1;
+            resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    /**
+     * Size of the slabs for the given capacity: the key words and the reference to the states of each slot
+     */
+    private long slabBytes(int capacity) {
+        return capacity * (keyWidth * 8L + 8L);
+    }
+
+    @Override
+    public Supplier<Groups> supplier() {
+        return () -> {
+            ramAccounting.addBytes(slabBytes(INITIAL_CAPACITY));
+            return new Groups(keyWidth, INITIAL_CAPACITY);
+        };
+    }
+
+    @Override
+    public BiConsumer<Groups, Row> accumulator() {
+        return accumulator;
+    }
+
+    @Override
+    public BinaryOperator<Groups> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("Combine not supported");
+        };
+    }
+
+    @Override
+    public Function<Groups, Iterable<Row>> finisher() {
+        return this::groupsToRows;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void reduce(Groups groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        encodeKeys(groups.scratch);
+        int slot = findSlot(groups, groups.scratch);
+        Object[] states = groups.states[slot];
+        if (states == null) {
+            states = new Object[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                states[i] = inputs[i][0].value();
+            }
+            ramAccounting.addBytes(RamAccountingContext.roundUp(16L + 4L * aggregations.length));
+            insert(groups, slot, states);
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                states[i] = aggregations[i].reduce(ramAccounting, states[i], inputs[i][0].value());
+            }
+        }
+    }
+
+    private void iter(Groups groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        encodeKeys(groups.scratch);
+        int slot = findSlot(groups, groups.scratch);
+        Object[] states = groups.states[slot];
+        if (states == null) {
+            insert(groups, slot, createNewStates());
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                states[i] = aggregations[i].iterate(ramAccounting, states[i], inputs[i]);
+            }
+        }
+    }
+
+    private Object[] createNewStates() {
+        Object[] states = new Object[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            AggregationFunction aggregation = aggregations[i];
+            //noinspection unchecked
+            states[i] = aggregation.iterate(
+                ramAccounting,
+                aggregation.newState(ramAccounting, indexVersionCreated, bigArrays),
+                inputs[i]
+            );
+        }
+        // account for the states object array
+        ramAccounting.addBytes(RamAccountingContext.roundUp(16L + 4L * aggregations.length));
+        return states;
+    }
+
+    private void encodeKeys(long[] dst) {
+        long nullMask = 0L;
+        for (int i = 0; i < keyTypeIds.length; i++) {
+            Object value = keyInputs.get(i).value();
+            if (value == null) {
+                nullMask |= 1L << i;
+                dst[i + 1] = 0L;
+            } else {
+                dst[i + 1] = encode(keyTypeIds[i], value);
+            }
+        }
+        dst[0] = nullMask;
+    }
+
+    private static long encode(int typeId, Object value) {
+        switch (typeId) {
+            case BooleanType.ID:
+                return ((Boolean) value) ? 1L : 0L;
+
+            case FloatType.ID:
+                // same equality semantics as Float.equals
+                return Float.floatToIntBits(((Number) value).floatValue());
+
+            case DoubleType.ID:
+                // same equality semantics as Double.equals
+                return Double.doubleToLongBits(((Number) value).doubleValue());
+
+            default:
+                return ((Number) value).longValue();
+        }
+    }
+
+    private static Object decode(int typeId, long word) {
+        switch (typeId) {
+            case ByteType.ID:
+                return (byte) word;
+
+            case ShortType.ID:
+                return (short) word;
+
+            case IntegerType.ID:
+                return (int) word;
+
+            case BooleanType.ID:
+                return word == 1L;
+
+            case FloatType.ID:
+                return Float.intBitsToFloat((int) word);
+
+            case DoubleType.ID:
+                return Double.longBitsToDouble(word);
+
+            default:
+                return word;
+        }
+    }
+
+    private static int hash(long[] key) {
+        long h = 0L;
+        for (long word : key) {
+            h = h * 31 + word;
+        }
+        return (int) BitMixer.mix64(h);
+    }
+
+    /**
+     * @return the slot which either contains the given key or the free slot where it should be inserted.
+     */
+    private int findSlot(Groups groups, long[] key) {
+        long[] keys = groups.keys;
+        Object[][] states = groups.states;
+        int mask = groups.mask;
+        int slot = hash(key) & mask;
+        while (states[slot] != null) {
+            if (keyEquals(keys, slot * keyWidth, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean keyEquals(long[] keys, int offset, long[] key) {
+        for (int i = 0; i < keyWidth; i++) {
+            if (keys[offset + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(Groups groups, int slot, Object[] newStates) {
+        System.arraycopy(groups.scratch, 0, groups.keys, slot * keyWidth, keyWidth);
+        groups.states[slot] = newStates;
+        groups.size++;
+        if (groups.size > groups.resizeThreshold) {
+            grow(groups);
+        }
+    }
+
+    private void grow(Groups groups) {
+        long[] oldKeys = groups.keys;
+        Object[][] oldStates = groups.states;
+        int newCapacity = oldStates.length << 1;
+        if (newCapacity <= 0) {
+            throw new IllegalStateException("Cannot grow groups beyond " + oldStates.length + " entries");
+        }
+        ramAccounting.addBytes(slabBytes(newCapacity) - slabBytes(oldStates.length));
+        groups.allocate(keyWidth, newCapacity);
+
+        long[] key = new long[keyWidth];
+        for (int oldSlot = 0; oldSlot < oldStates.length; oldSlot++) {
+            Object[] states = oldStates[oldSlot];
+            if (states == null) {
+                continue;
+            }
+            System.arraycopy(oldKeys, oldSlot * keyWidth, key, 0, keyWidth);
+            int slot = findSlot(groups, key);
+            System.arraycopy(key, 0, groups.keys, slot * keyWidth, keyWidth);
+            groups.states[slot] = states;
+        }
+    }
+
+    private Iterable<Row> groupsToRows(Groups groups) {
+        final int numKeys = keyTypeIds.length;
+        final Object[] cells = new Object[numKeys + aggregations.length];
+        final Row row = new RowN(cells);
+        return () -> new Iterator<Row>() {
+
+            int slot = nextUsedSlot(0);
+
+            private int nextUsedSlot(int from) {
+                Object[][] states = groups.states;
+                for (int i = from; i < states.length; i++) {
+                    if (states[i] != null) {
+                        return i;
+                    }
+                }
+                return states.length;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < groups.states.length;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Iterator is exhausted");
+                }
+                int offset = slot * keyWidth;
+                long nullMask = groups.keys[offset];
+                for (int i = 0; i < numKeys; i++) {
+                    if ((nullMask & (1L << i)) == 0) {
+                        cells[i] = decode(keyTypeIds[i], groups.keys[offset + i + 1]);
+                    } else {
+                        cells[i] = null;
+                    }
+                }
+                Object[] states = groups.states[slot];
+                for (int i = 0; i < states.length; i++) {
+                    //noinspection unchecked
+                    cells[numKeys + i] = mode.finishCollect(ramAccounting, aggregations[i], states[i]);
+                }
+                slot = nextUsedSlot(slot + 1);
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.ObjectArray;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector which groups by a single string key.
+ *
+ * <p>
+ * The UTF-8 bytes of the keys are stored in a {@link BytesRefHash} which assigns consecutive ids to the keys.
+ * The states of a group are stored under the same id in an {@link ObjectArray}.
+ * Incoming keys are encoded into a re-used buffer, so looking up an existing group doesn't allocate.
+ * </p>
+ *
+ * <p>
+ * The hash table and key bytes are allocated using {@link BigArrays#NON_RECYCLING_INSTANCE} and
+ * accounted on the {@link RamAccountingContext} in page sized slabs.
+ * </p>
+ */
+public final class GroupBySingleStringCollector implements Collector<Row, GroupBySingleStringCollector.Groups, Iterable<Row>> {
+
+    private static final long INITIAL_CAPACITY = 16L;
+
+    private final CollectExpression<Row, ?>[] expressions;
+    private final AggregateMode mode;
+    private final AggregationFunction[] aggregations;
+    private final Input[][] inputs;
+    private final RamAccountingContext ramAccounting;
+    private final Input<String> keyInput;
+    private final Version indexVersionCreated;
+    private final BigArrays bigArrays;
+    private final BiConsumer<Groups, Row> accumulator;
+
+    GroupBySingleStringCollector(CollectExpression<Row, ?>[] expressions,
+                                 AggregateMode mode,
+                                 AggregationFunction[] aggregations,
+                                 Input[][] inputs,
+                                 RamAccountingContext ramAccounting,
+                                 Input keyInput,
+                                 Version indexVersionCreated,
+                                 BigArrays bigArrays) {
+        this.expressions = expressions;
+        this.mode = mode;
+        this.aggregations = aggregations;
+        this.inputs = inputs;
+        this.ramAccounting = ramAccounting;
+        //noinspection unchecked
+        this.keyInput = keyInput;
+        this.indexVersionCreated = indexVersionCreated;
+        this.bigArrays = bigArrays;
+        this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
+    }
+
+    static class Groups {
+
+        final BytesRefHash keys;
+        final BytesRefBuilder scratch = new BytesRefBuilder();
+        ObjectArray<Object[]> statesById;
+        Object[] statesByNullValue = null;
+
+        long keyBytes = 0L;
+        long accountedBytes = 0L;
+
+        Groups(BytesRefHash keys, ObjectArray<Object[]> statesById) {
+            this.keys = keys;
+            this.statesById = statesById;
+        }
+
+        /**
+         * Best effort estimate of the memory used by the hash: the ids per slot, the start offset and
+         * the hash of each key and the key bytes.
+         */
+        long estimatedBytes() {
+            return keys.capacity() * 8L + keys.size() * 12L + keyBytes + statesById.size() * 8L;
+        }
+    }
+
+    @Override
+    public Supplier<Groups> supplier() {
+        return () -> {
+            Groups groups = new Groups(
+                new BytesRefHash(INITIAL_CAPACITY, BigArrays.NON_RECYCLING_INSTANCE),
+                BigArrays.NON_RECYCLING_INSTANCE.newObjectArray(INITIAL_CAPACITY)
+            );
+            accountSlabs(groups);
+            return groups;
+        };
+    }
+
+    @Override
+    public BiConsumer<Groups, Row> accumulator() {
+        return accumulator;
+    }
+
+    @Override
+    public BinaryOperator<Groups> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("Combine not supported");
+        };
+    }
+
+    @Override
+    public Function<Groups, Iterable<Row>> finisher() {
+        return this::groupsToRows;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private void reduce(Groups groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        String key = keyInput.value();
+        if (key == null) {
+            if (groups.statesByNullValue == null) {
+                groups.statesByNullValue = statesFromInputRow();
+            } else {
+                mergeStatesWithInputRowInPlace(groups.statesByNullValue);
+            }
+        } else {
+            long id = addKey(groups, key);
+            if (id >= 0) {
+                addStates(groups, id, statesFromInputRow());
+            } else {
+                mergeStatesWithInputRowInPlace(groups.statesById.get(-1 - id));
+            }
+        }
+    }
+
+    private void mergeStatesWithInputRowInPlace(Object[] states) {
+        for (int i = 0; i < aggregations.length; i++) {
+            states[i] = aggregations[i].reduce(ramAccounting, states[i], inputs[i][0].value());
+        }
+    }
+
+    private Object[] statesFromInputRow() {
+        Object[] states = new Object[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            states[i] = inputs[i][0].value();
+        }
+        return states;
+    }
+
+    private void iter(Groups groups, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        String key = keyInput.value();
+        if (key == null) {
+            if (groups.statesByNullValue == null) {
+                groups.statesByNullValue = createNewStates();
+            } else {
+                iterateStatesInPlace(groups.statesByNullValue);
+            }
+        } else {
+            long id = addKey(groups, key);
+            if (id >= 0) {
+                addStates(groups, id, createNewStates());
+            } else {
+                iterateStatesInPlace(groups.statesById.get(-1 - id));
+            }
+        }
+    }
+
+    private void iterateStatesInPlace(Object[] states) {
+        for (int i = 0; i < aggregations.length; i++) {
+            //noinspection unchecked
+            states[i] = aggregations[i].iterate(ramAccounting, states[i], inputs[i]);
+        }
+    }
+
+    /**
+     * @return the id of the key if it was added or {@code -1 - id} if the key already existed.
+     */
+    private static long addKey(Groups groups, String key) {
+        groups.scratch.copyChars(key);
+        BytesRef bytes = groups.scratch.get();
+        long id = groups.keys.add(bytes);
+        if (id >= 0) {
+            groups.keyBytes += bytes.length;
+        }
+        return id;
+    }
+
+    private void addStates(Groups groups, long id, Object[] states) {
+        groups.statesById = BigArrays.NON_RECYCLING_INSTANCE.grow(groups.statesById, id + 1);
+        groups.statesById.set(id, states);
+        accountSlabs(groups);
+    }
+
+    /**
+     * Accounts the memory of the hash in chunks of {@link BigArrays#BYTE_PAGE_SIZE}
+     * to avoid calling the breaker for each new key.
+     */
+    private void accountSlabs(Groups groups) {
+        long estimatedBytes = groups.estimatedBytes();
+        if (estimatedBytes > groups.accountedBytes) {
+            long newAccountedBytes = RamAccountingContext.roundUp(estimatedBytes, BigArrays.BYTE_PAGE_SIZE);
+            ramAccounting.addBytes(newAccountedBytes - groups.accountedBytes);
+            groups.accountedBytes = newAccountedBytes;
+        }
+    }
+
+    private Object[] createNewStates() {
+        Object[] states = new Object[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            AggregationFunction aggregation = aggregations[i];
+            //noinspection unchecked
+            states[i] = aggregation.iterate(
+                ramAccounting,
+                aggregation.newState(ramAccounting, indexVersionCreated, bigArrays),
+                inputs[i]
+            );
+        }
+
+        // account for the states object array
+        ramAccounting.addBytes(24L);
+        return states;
+    }
+
+    private Iterable<Row> groupsToRows(Groups groups) {
+        final Object[] cells = new Object[1 + aggregations.length];
+        final Row row = new RowN(cells);
+        final BytesRef spare = new BytesRef();
+        return () -> new Iterator<Row>() {
+
+            final long numGroups = groups.keys.size();
+            long id = 0;
+            boolean nullGroupPending = groups.statesByNullValue != null;
+
+            @Override
+            public boolean hasNext() {
+                return id < numGroups || nullGroupPending;
+            }
+
+            @Override
+            public Row next() {
+                Object[] states;
+                if (id < numGroups) {
+                    cells[0] = groups.keys.get(id, spare).utf8ToString();
+                    states = groups.statesById.get(id);
+                    id++;
+                } else if (nullGroupPending) {
+                    cells[0] = null;
+                    states = groups.statesByNullValue;
+                    nullGroupPending = false;
+                } else {
+                    throw new NoSuchElementException("Iterator is exhausted");
+                }
+                for (int i = 0; i < states.length; i++) {
+                    //noinspection unchecked
+                    cells[i + 1] = mode.finishCollect(ramAccounting, aggregations[i], states[i]);
+                }
+                return row;
+            }
+        };
+    }
+}
@@ -23,7 +23,9 @@
 package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccountingContext;
+import io.crate.concurrent.CompletableFutures;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
@@ -35,15 +37,29 @@ import io.crate.types.CollectionType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collector;
 
 import static io.crate.expression.symbol.Symbols.typeView;
 
 public class GroupingProjector implements Projector {
 
+    /**
+     * The memory the groups of a GROUP BY operation may use before they are written to temporary files.
+     * Spilling is disabled with a value of 0.
+     */
+    public static final Setting<ByteSizeValue> SPILL_THRESHOLD_SETTING = Setting.memorySizeSetting(
+        "node.sql.group_by.spill_threshold",
+        "0b",
+        Setting.Property.NodeScope);
+
     private final Collector<Row, ?, Iterable<Row>> collector;
 
 
@@ -54,7 +70,8 @@ public class GroupingProjector implements Projector {
                              AggregationContext[] aggregations,
                              RamAccountingContext ramAccountingContext,
                              Version indexVersionCreated,
-                             BigArrays bigArrays) {
+                             BigArrays bigArrays,
+                             long spillThreshold) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -66,13 +83,62 @@ public class GroupingProjector implements Projector {
             functions[i] = aggregation.function();
             inputs[i] = aggregation.inputs();
         }
-        if (keys.size() == 1) {
-            Symbol key = keys.get(0);
-            if (DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(key.valueType()) &&
-                !key.valueType().equals(DataTypes.FLOAT) &&
-                !key.valueType().equals(DataTypes.DOUBLE)) {
-                collector = new GroupBySingleNumberCollector(
-                    key.valueType(),
+        List<DataType> keyTypes = typeView(keys);
+        if (spillThreshold > 0) {
+            collector = SpillingGroupingCollector.create(
+                keyTypes,
+                keyInputs,
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                indexVersionCreated,
+                bigArrays,
+                spillThreshold
+            );
+        } else {
+            collector = createCollector(
+                keyTypes,
+                keyInputs,
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                indexVersionCreated,
+                bigArrays
+            );
+        }
+    }
+
+    static Collector<Row, ?, Iterable<Row>> createCollector(List<DataType> keyTypes,
+                                                            List<Input<?>> keyInputs,
+                                                            CollectExpression<Row, ?>[] collectExpressions,
+                                                            AggregateMode mode,
+                                                            AggregationFunction[] functions,
+                                                            Input[][] inputs,
+                                                            RamAccountingContext ramAccountingContext,
+                                                            Version indexVersionCreated,
+                                                            BigArrays bigArrays) {
+        if (keyTypes.size() == 1) {
+            DataType keyType = keyTypes.get(0);
+            if (DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(keyType) &&
+                !keyType.equals(DataTypes.FLOAT) &&
+                !keyType.equals(DataTypes.DOUBLE)) {
+                return new GroupBySingleNumberCollector(
+                    keyType,
+                    collectExpressions,
+                    mode,
+                    functions,
+                    inputs,
+                    ramAccountingContext,
+                    keyInputs.get(0),
+                    indexVersionCreated,
+                    bigArrays
+                );
+            } else if (keyType.equals(DataTypes.STRING)) {
+                return new GroupBySingleStringCollector(
                     collectExpressions,
                     mode,
                     functions,
@@ -82,29 +148,52 @@ public class GroupingProjector implements Projector {
                     indexVersionCreated,
                     bigArrays
                 );
+            } else if (GroupByFixedWidthKeysCollector.supportsKeyTypes(keyTypes)) {
+                return new GroupByFixedWidthKeysCollector(
+                    keyTypes,
+                    collectExpressions,
+                    mode,
+                    functions,
+                    inputs,
+                    ramAccountingContext,
+                    keyInputs,
+                    indexVersionCreated,
+                    bigArrays
+                );
             } else {
-                collector = GroupingCollector.singleKey(
+                return GroupingCollector.singleKey(
                     collectExpressions,
                     mode,
                     functions,
                     inputs,
                     ramAccountingContext,
                     keyInputs.get(0),
-                    key.valueType(),
+                    keyType,
                     indexVersionCreated,
                     bigArrays
                 );
             }
+        } else if (GroupByFixedWidthKeysCollector.supportsKeyTypes(keyTypes)) {
+            return new GroupByFixedWidthKeysCollector(
+                keyTypes,
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                ramAccountingContext,
+                keyInputs,
+                indexVersionCreated,
+                bigArrays
+            );
         } else {
-            //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+            return GroupingCollector.manyKeys(
                 collectExpressions,
                 mode,
                 functions,
                 inputs,
                 ramAccountingContext,
                 keyInputs,
-                typeView(keys),
+                keyTypes,
                 indexVersionCreated,
                 bigArrays
             );
@@ -122,6 +211,26 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (collector instanceof SpillingGroupingCollector) {
+            // the state holds the spill files, which must be deleted once the result has been consumed
+            SpillingGroupingCollector spillingCollector = (SpillingGroupingCollector) collector;
+            AtomicReference<SpillingGroupingCollector.State> state = new AtomicReference<>();
+            return CollectingBatchIterator.newInstance(
+                () -> {
+                    batchIterator.close();
+                    Releasables.close(state.get());
+                },
+                batchIterator::kill,
+                () -> {
+                    try {
+                        state.set(spillingCollector.supplier().get());
+                    } catch (Throwable t) {
+                        return CompletableFutures.failedFuture(t);
+                    }
+                    return BatchIterators.collect(batchIterator, state.get(), spillingCollector, new CompletableFuture<>());
+                }
+            );
+        }
         return CollectingBatchIterator.newInstance(batchIterator, collector);
     }
 
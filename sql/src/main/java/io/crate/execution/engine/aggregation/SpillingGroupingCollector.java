@@ -0,0 +1,422 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.carrotsearch.hppc.BitMixer;
+import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.SpillFile;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionInfo;
+import io.crate.types.DataType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * A grouping collector which writes its groups to temporary files if they use more memory than {@code spillThreshold}.
+ *
+ * <p>
+ * The rows are grouped by one of the in-memory grouping collectors, which is created with aggregations that
+ * output their partial state. If the memory accounted since the last spill exceeds the threshold, the
+ * partial states of the groups are written to disk and the in-memory groups are cleared:
+ * </p>
+ *
+ * <pre>
+ *  ITER_PARTIAL:
+ *      The partial states don't have to be unique per key, the spilled rows are emitted as they are,
+ *      followed by the groups which are still in memory.
+ *
+ *  ITER_FINAL / PARTIAL_FINAL (grace hash aggregation):
+ *      The partial states are written into one of {@link #NUM_PARTITIONS} files depending on the hash of the key.
+ *      All groups of a key end up in the same partition, so the partitions can be merged one after the other,
+ *      using a PARTIAL_FINAL collector per partition which only needs memory for the groups of that partition.
+ * </pre>
+ *
+ * If the threshold is never reached the groups are finished in memory, without writing anything to disk.
+ */
+public final class SpillingGroupingCollector implements Collector<Row, SpillingGroupingCollector.State, Iterable<Row>> {
+
+    private static final Logger LOGGER = LogManager.getLogger(SpillingGroupingCollector.class);
+
+    static final int NUM_PARTITIONS = 16;
+
+    private final Collector<Row, Object, Iterable<Row>> partialCollector;
+    @Nullable
+    private final Supplier<Collector<Row, Object, Iterable<Row>>> finalCollectorFactory;
+    private final AggregationFunction[] aggregations;
+    private final int numKeyColumns;
+    private final Streamer[] streamers;
+    private final RamAccountingContext ramAccounting;
+    /**
+     * Accounts the memory of the in-memory groups. The parent context may be shared with other operations,
+     * so only the bytes accounted through this child are released once the groups are spilled or merged.
+     */
+    private final RamAccountingContext groupsRamAccounting;
+    private final long spillThreshold;
+
+    static SpillingGroupingCollector create(List<DataType> keyTypes,
+                                            List<Input<?>> keyInputs,
+                                            CollectExpression<Row, ?>[] expressions,
+                                            AggregateMode mode,
+                                            AggregationFunction[] aggregations,
+                                            Input[][] inputs,
+                                            RamAccountingContext ramAccounting,
+                                            Version indexVersionCreated,
+                                            BigArrays bigArrays,
+                                            long spillThreshold) {
+        RamAccountingContext groupsRamAccounting = ramAccounting.newChildContext();
+        Collector<Row, ?, Iterable<Row>> partialCollector;
+        Supplier<Collector<Row, ?, Iterable<Row>>> finalCollectorFactory;
+        if (mode == AggregateMode.ITER_PARTIAL) {
+            partialCollector = GroupingProjector.createCollector(
+                keyTypes, keyInputs, expressions, mode, aggregations, inputs, groupsRamAccounting, indexVersionCreated, bigArrays);
+            finalCollectorFactory = null;
+        } else {
+            AggregationFunction[] partialAggregations = new AggregationFunction[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                partialAggregations[i] = new PartialStateAggregation<>(aggregations[i]);
+            }
+            partialCollector = GroupingProjector.createCollector(
+                keyTypes, keyInputs, expressions, mode, partialAggregations, inputs, groupsRamAccounting, indexVersionCreated, bigArrays);
+            finalCollectorFactory = () -> createMergingCollector(
+                keyTypes, aggregations, groupsRamAccounting, indexVersionCreated, bigArrays);
+        }
+        List<DataType> spilledTypes = new ArrayList<>(keyTypes.size() + aggregations.length);
+        spilledTypes.addAll(keyTypes);
+        for (AggregationFunction aggregation : aggregations) {
+            spilledTypes.add(aggregation.partialType());
+        }
+        //noinspection unchecked
+        return new SpillingGroupingCollector(
+            (Collector<Row, Object, Iterable<Row>>) partialCollector,
+            (Supplier<Collector<Row, Object, Iterable<Row>>>) (Supplier) finalCollectorFactory,
+            aggregations,
+            keyTypes.size(),
+            getStreamers(spilledTypes),
+            ramAccounting,
+            groupsRamAccounting,
+            spillThreshold
+        );
+    }
+
+    /**
+     * Creates a PARTIAL_FINAL collector which merges spilled rows: [key1, ..., keyN, partialState1, ..., partialStateN]
+     */
+    private static Collector<Row, ?, Iterable<Row>> createMergingCollector(List<DataType> keyTypes,
+                                                                           AggregationFunction[] aggregations,
+                                                                           RamAccountingContext ramAccounting,
+                                                                           Version indexVersionCreated,
+                                                                           BigArrays bigArrays) {
+        int numKeys = keyTypes.size();
+        CollectExpression<Row, ?>[] expressions = new CollectExpression[numKeys + aggregations.length];
+        List<Input<?>> keyInputs = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            InputCollectExpression keyInput = new InputCollectExpression(i);
+            keyInputs.add(keyInput);
+            expressions[i] = keyInput;
+        }
+        Input[][] inputs = new Input[aggregations.length][];
+        for (int i = 0; i < aggregations.length; i++) {
+            InputCollectExpression stateInput = new InputCollectExpression(numKeys + i);
+            inputs[i] = new Input[] { stateInput };
+            expressions[numKeys + i] = stateInput;
+        }
+        return GroupingProjector.createCollector(
+            keyTypes,
+            keyInputs,
+            expressions,
+            AggregateMode.PARTIAL_FINAL,
+            aggregations,
+            inputs,
+            ramAccounting,
+            indexVersionCreated,
+            bigArrays
+        );
+    }
+
+    private static Streamer[] getStreamers(List<DataType> types) {
+        Streamer[] streamers = new Streamer[types.size()];
+        for (int i = 0; i < streamers.length; i++) {
+            streamers[i] = types.get(i).streamer();
+        }
+        return streamers;
+    }
+
+    private SpillingGroupingCollector(Collector<Row, Object, Iterable<Row>> partialCollector,
+                                      @Nullable Supplier<Collector<Row, Object, Iterable<Row>>> finalCollectorFactory,
+                                      AggregationFunction[] aggregations,
+                                      int numKeyColumns,
+                                      Streamer[] streamers,
+                                      RamAccountingContext ramAccounting,
+                                      RamAccountingContext groupsRamAccounting,
+                                      long spillThreshold) {
+        assert spillThreshold > 0 : "spillThreshold must be greater than 0";
+        this.partialCollector = partialCollector;
+        this.finalCollectorFactory = finalCollectorFactory;
+        this.aggregations = aggregations;
+        this.numKeyColumns = numKeyColumns;
+        this.streamers = streamers;
+        this.ramAccounting = ramAccounting;
+        this.groupsRamAccounting = groupsRamAccounting;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * The state of the collector, must be closed to delete the spill files.
+     */
+    public final class State implements Releasable {
+
+        private Object groups;
+        private int numSpills = 0;
+        private long bytesSpilled = 0L;
+        @Nullable
+        private SpillFile[] partitions;
+
+        private State() {
+            groups = partialCollector.supplier().get();
+        }
+
+        private void spill() {
+            if (partitions == null) {
+                int numPartitions = finalCollectorFactory == null ? 1 : NUM_PARTITIONS;
+                partitions = new SpillFile[numPartitions];
+                for (int i = 0; i < numPartitions; i++) {
+                    partitions[i] = new SpillFile(streamers);
+                }
+            }
+            for (Row row : partialCollector.finisher().apply(groups)) {
+                partitions[partition(row)].write(row);
+            }
+            long bytesUsed = groupsRamAccounting.totalBytes();
+            // The groups are garbage now, the breaker is adjusted once new bytes are accounted
+            groupsRamAccounting.release();
+            numSpills++;
+            bytesSpilled += bytesUsed;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Spilled groups using {} bytes to disk", bytesUsed);
+            }
+            groups = partialCollector.supplier().get();
+        }
+
+        private int partition(Row row) {
+            if (partitions.length == 1) {
+                return 0;
+            }
+            int hash = 1;
+            for (int i = 0; i < numKeyColumns; i++) {
+                hash = 31 * hash + Objects.hashCode(row.get(i));
+            }
+            // mix the hash, the partitions must not use the same bits as the hash maps of the merging collectors
+            return Math.floorMod(BitMixer.mix32(hash), partitions.length);
+        }
+
+        @Override
+        public void close() {
+            if (partitions != null) {
+                for (SpillFile partition : partitions) {
+                    partition.close();
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Spilled groups {} times, using {} bytes in total", numSpills, bytesSpilled);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Supplier<State> supplier() {
+        return State::new;
+    }
+
+    @Override
+    public BiConsumer<State, Row> accumulator() {
+        BiConsumer<Object, Row> accumulator = partialCollector.accumulator();
+        return (state, row) -> {
+            accumulator.accept(state.groups, row);
+            if (groupsRamAccounting.totalBytes() >= spillThreshold) {
+                state.spill();
+            }
+        };
+    }
+
+    @Override
+    public BinaryOperator<State> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<State, Iterable<Row>> finisher() {
+        return this::finish;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private Iterable<Row> finish(State state) {
+        if (state.partitions == null) {
+            Iterable<Row> groups = partialCollector.finisher().apply(state.groups);
+            return finalCollectorFactory == null ? groups : terminatePartialStates(groups);
+        }
+        if (finalCollectorFactory == null) {
+            return Iterables.concat(state.partitions[0].rows(), partialCollector.finisher().apply(state.groups));
+        }
+        state.spill();
+        List<Iterable<Row>> partitions = new ArrayList<>(state.partitions.length);
+        for (SpillFile partition : state.partitions) {
+            if (partition.numRows() > 0) {
+                partitions.add(partition.rows());
+            }
+        }
+        return () -> new MergingPartitionsIterator(partitions.iterator());
+    }
+
+    private Iterable<Row> terminatePartialStates(Iterable<Row> groups) {
+        Object[] cells = new Object[numKeyColumns + aggregations.length];
+        RowN row = new RowN(cells);
+        return Iterables.transform(groups, group -> {
+            assert group != null : "group must not be null";
+            for (int i = 0; i < numKeyColumns; i++) {
+                cells[i] = group.get(i);
+            }
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                cells[numKeyColumns + i] = aggregations[i].terminatePartial(ramAccounting, group.get(numKeyColumns + i));
+            }
+            return row;
+        });
+    }
+
+    /**
+     * Merges the spilled partitions one after the other.
+     * The memory used to merge a partition is released once all rows of the partition have been consumed.
+     */
+    private class MergingPartitionsIterator implements Iterator<Row> {
+
+        private final Iterator<Iterable<Row>> partitions;
+        private Iterator<Row> currentGroups = Collections.emptyIterator();
+
+        MergingPartitionsIterator(Iterator<Iterable<Row>> partitions) {
+            this.partitions = partitions;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentGroups.hasNext() && partitions.hasNext()) {
+                groupsRamAccounting.release();
+                currentGroups = merge(partitions.next()).iterator();
+            }
+            return currentGroups.hasNext();
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("All partitions have been merged");
+            }
+            return currentGroups.next();
+        }
+
+        private Iterable<Row> merge(Iterable<Row> partition) {
+            assert finalCollectorFactory != null : "finalCollectorFactory must not be null to merge partitions";
+            Collector<Row, Object, Iterable<Row>> collector = finalCollectorFactory.get();
+            Object groups = collector.supplier().get();
+            BiConsumer<Object, Row> accumulator = collector.accumulator();
+            for (Row row : partition) {
+                accumulator.accept(groups, row);
+            }
+            return collector.finisher().apply(groups);
+        }
+    }
+
+    /**
+     * Wraps an aggregation so that {@link #terminatePartial(RamAccountingContext, Object)} returns the partial state.
+     * Used to let the grouping collectors output the partial states in the ITER_FINAL and PARTIAL_FINAL modes.
+     */
+    private static final class PartialStateAggregation<T> extends AggregationFunction<T, T> {
+
+        private final AggregationFunction<T, ?> aggregation;
+
+        PartialStateAggregation(AggregationFunction<T, ?> aggregation) {
+            this.aggregation = aggregation;
+        }
+
+        @Nullable
+        @Override
+        public T newState(RamAccountingContext ramAccountingContext, Version indexVersionCreated, BigArrays bigArrays) {
+            return aggregation.newState(ramAccountingContext, indexVersionCreated, bigArrays);
+        }
+
+        @Override
+        public T iterate(RamAccountingContext ramAccountingContext, T state, Input... args) {
+            return aggregation.iterate(ramAccountingContext, state, args);
+        }
+
+        @Override
+        public T reduce(RamAccountingContext ramAccountingContext, T state1, T state2) {
+            return aggregation.reduce(ramAccountingContext, state1, state2);
+        }
+
+        @Override
+        public T terminatePartial(RamAccountingContext ramAccountingContext, T state) {
+            return state;
+        }
+
+        @Override
+        public DataType partialType() {
+            return aggregation.partialType();
+        }
+
+        @Override
+        public FunctionInfo info() {
+            return aggregation.info();
+        }
+    }
+}
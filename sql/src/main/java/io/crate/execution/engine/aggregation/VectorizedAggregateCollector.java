@@ -0,0 +1,280 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.google.common.collect.ImmutableSet;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
+import io.crate.data.DoubleColumn;
+import io.crate.data.Input;
+import io.crate.data.LongColumn;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.AverageAggregation;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.aggregation.impl.MaximumAggregation;
+import io.crate.execution.engine.aggregation.impl.MinimumAggregation;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.util.BigArrays;
+
+import javax.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Collector implementation like {@link AggregateCollector}, but instead of calling
+ * {@link AggregationFunction#iterate(RamAccountingContext, Object, Input...)} for each row, the argument values
+ * are buffered column-wise in primitive arrays and aggregated a batch at a time using
+ * {@link AggregationFunction#iterateColumns(RamAccountingContext, Object, Column[], int)}.
+ *
+ * <p>
+ * This avoids the per-row virtual calls and the per-row boxing of the states of aggregations like sum.
+ * If all arguments are input columns, the values are written into the columns via
+ * {@link Row#writeTo(int, Column, int)}, so that rows backed by {@link ColumnInput}s, like the rows of
+ * the Lucene collector, don't box the numeric doc values either.
+ * It is only used for aggregations with a vectorized implementation on numeric arguments, see
+ * {@link #supports(AggregateMode, AggregationFunction[])}.
+ * </p>
+ */
+public final class VectorizedAggregateCollector implements Collector<Row, VectorizedAggregateCollector.State, Iterable<Row>> {
+
+    static final int BATCH_SIZE = 1024;
+
+    private static final Set<String> VECTORIZED_FUNCTIONS = ImmutableSet.<String>builder()
+        .add(CountAggregation.NAME)
+        .add(SumAggregation.NAME)
+        .add(MinimumAggregation.NAME)
+        .add(MaximumAggregation.NAME)
+        .add(AverageAggregation.NAMES)
+        .build();
+
+    private final List<? extends CollectExpression<Row, ?>> expressions;
+    private final RamAccountingContext ramAccounting;
+    private final AggregationFunction[] aggregations;
+    private final Version indexVersionCreated;
+    private final BigArrays bigArrays;
+    private final Input[][] inputs;
+    @Nullable
+    private final int[][] argPositions;
+    private final Function<State, Iterable<Row>> finisher;
+
+    /**
+     * @return true if all aggregations have a vectorized implementation and only have numeric or timestamp
+     *         arguments which can be stored in a {@link LongColumn} or {@link DoubleColumn}.
+     *         Merging partial states ({@link AggregateMode#PARTIAL_FINAL}) isn't supported.
+     */
+    public static boolean supports(AggregateMode mode, AggregationFunction[] aggregations) {
+        if (mode == AggregateMode.PARTIAL_FINAL) {
+            return false;
+        }
+        for (AggregationFunction aggregation : aggregations) {
+            if (!VECTORIZED_FUNCTIONS.contains(aggregation.info().ident().name())) {
+                return false;
+            }
+            List<DataType> argumentTypes = aggregation.info().ident().argumentTypes();
+            if (argumentTypes.size() > 1) {
+                return false;
+            }
+            for (DataType argumentType : argumentTypes) {
+                if (!DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(argumentType) && !argumentType.equals(DataTypes.TIMESTAMP)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public VectorizedAggregateCollector(List<? extends CollectExpression<Row, ?>> expressions,
+                                        RamAccountingContext ramAccounting,
+                                        AggregateMode mode,
+                                        AggregationFunction[] aggregations,
+                                        Version indexVersionCreated,
+                                        BigArrays bigArrays,
+                                        Input[]... inputs) {
+        assert supports(mode, aggregations) : "VectorizedAggregateCollector doesn't support the aggregations";
+        this.expressions = expressions;
+        this.ramAccounting = ramAccounting;
+        this.aggregations = aggregations;
+        this.indexVersionCreated = indexVersionCreated;
+        this.bigArrays = bigArrays;
+        this.inputs = inputs;
+        this.argPositions = argPositions(inputs);
+        switch (mode) {
+            case ITER_PARTIAL:
+                finisher = s -> {
+                    flush(s);
+                    return Collections.singletonList(new RowN(s.states));
+                };
+                break;
+
+            case ITER_FINAL:
+                finisher = this::finishCollect;
+                break;
+
+            default:
+                throw new AssertionError("Invalid mode: " + mode.name());
+        }
+    }
+
+    /**
+     * @return the row positions of the arguments if all of them are input columns, otherwise null
+     */
+    @Nullable
+    private static int[][] argPositions(Input[][] inputs) {
+        int[][] positions = new int[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            positions[i] = new int[inputs[i].length];
+            for (int j = 0; j < inputs[i].length; j++) {
+                if (!(inputs[i][j] instanceof InputCollectExpression)) {
+                    return null;
+                }
+                positions[i][j] = ((InputCollectExpression) inputs[i][j]).position();
+            }
+        }
+        return positions;
+    }
+
+    static class State {
+
+        final Object[] states;
+        final Column[][] args;
+        int size = 0;
+
+        State(Object[] states, Column[][] args) {
+            this.states = states;
+            this.args = args;
+        }
+    }
+
+    @Override
+    public Supplier<State> supplier() {
+        return this::prepareState;
+    }
+
+    @Override
+    public BiConsumer<State, Row> accumulator() {
+        return this::iterate;
+    }
+
+    @Override
+    public BinaryOperator<State> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<State, Iterable<Row>> finisher() {
+        return finisher;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private State prepareState() {
+        Object[] states = new Object[aggregations.length];
+        Column[][] args = new Column[aggregations.length][];
+        long columnBytes = 0L;
+        for (int i = 0; i < aggregations.length; i++) {
+            AggregationFunction aggregation = aggregations[i];
+            states[i] = aggregation.newState(ramAccounting, indexVersionCreated, bigArrays);
+            List<DataType> argumentTypes = aggregation.info().ident().argumentTypes();
+            args[i] = new Column[argumentTypes.size()];
+            for (int j = 0; j < argumentTypes.size(); j++) {
+                DataType argumentType = argumentTypes.get(j);
+                if (argumentType.equals(DataTypes.DOUBLE) || argumentType.equals(DataTypes.FLOAT)) {
+                    args[i][j] = new DoubleColumn(BATCH_SIZE);
+                } else {
+                    args[i][j] = new LongColumn(BATCH_SIZE);
+                }
+                // 8 bytes per value + 1 bit per value for the null bitmap
+                columnBytes += BATCH_SIZE * 8L + BATCH_SIZE / 8L;
+            }
+        }
+        ramAccounting.addBytes(columnBytes);
+        return new State(states, args);
+    }
+
+    private void iterate(State state, Row row) {
+        int position = state.size;
+        if (argPositions == null) {
+            for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                expressions.get(i).setNextRow(row);
+            }
+            for (int i = 0; i < aggregations.length; i++) {
+                Column[] args = state.args[i];
+                for (int j = 0; j < args.length; j++) {
+                    ColumnInput.writeTo(inputs[i][j], args[j], position);
+                }
+            }
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                Column[] args = state.args[i];
+                for (int j = 0; j < args.length; j++) {
+                    row.writeTo(argPositions[i][j], args[j], position);
+                }
+            }
+        }
+        state.size = position + 1;
+        if (state.size == BATCH_SIZE) {
+            flush(state);
+        }
+    }
+
+    private void flush(State state) {
+        if (state.size == 0) {
+            return;
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            //noinspection unchecked
+            state.states[i] = aggregations[i].iterateColumns(ramAccounting, state.states[i], state.args[i], state.size);
+        }
+        state.size = 0;
+    }
+
+    private Iterable<Row> finishCollect(State state) {
+        flush(state);
+        Object[] states = state.states;
+        for (int i = 0; i < aggregations.length; i++) {
+            //noinspection unchecked
+            states[i] = aggregations[i].terminatePartial(ramAccounting, states[i]);
+        }
+        return Collections.singletonList(new RowN(states));
+    }
+}
@@ -24,7 +24,10 @@ package io.crate.execution.engine.aggregation.impl;
 import com.google.common.collect.ImmutableList;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Column;
+import io.crate.data.DoubleColumn;
 import io.crate.data.Input;
+import io.crate.data.LongColumn;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionInfo;
@@ -170,6 +173,63 @@ public class AverageAggregation extends AggregationFunction<AverageAggregation.A
         return state;
     }
 
+    /**
+     * Only the sums of integral values can be updated by removing values without losing precision.
+     */
+    @Override
+    public boolean isRemovableCumulative() {
+        DataType<?> argumentType = info.ident().argumentTypes().get(0);
+        return !argumentType.equals(DataTypes.DOUBLE) && !argumentType.equals(DataTypes.FLOAT);
+    }
+
+    @Override
+    public AverageState removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                                  AverageState state,
+                                                  Input... args) {
+        if (state != null) {
+            Number value = (Number) args[0].value();
+            if (value != null) {
+                state.count--;
+                state.sum -= value.doubleValue();
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public AverageState iterateColumns(RamAccountingContext ramAccountingContext,
+                                       AverageState state,
+                                       Column[] args,
+                                       int size) {
+        if (state == null) {
+            return null;
+        }
+        Column column = args[0];
+        boolean hasNulls = column.hasNulls(size);
+        if (column instanceof LongColumn) {
+            long[] values = ((LongColumn) column).values();
+            for (int i = 0; i < size; i++) {
+                if (hasNulls && column.isNull(i)) {
+                    continue;
+                }
+                state.count++;
+                state.sum += values[i];
+            }
+        } else if (column instanceof DoubleColumn) {
+            double[] values = ((DoubleColumn) column).values();
+            for (int i = 0; i < size; i++) {
+                if (hasNulls && column.isNull(i)) {
+                    continue;
+                }
+                state.count++;
+                state.sum += values[i];
+            }
+        } else {
+            return super.iterateColumns(ramAccountingContext, state, args, size);
+        }
+        return state;
+    }
+
     @Override
     public AverageState reduce(RamAccountingContext ramAccountingContext, AverageState state1, AverageState state2) {
         if (state1 == null) {
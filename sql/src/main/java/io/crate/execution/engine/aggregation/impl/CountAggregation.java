@@ -24,6 +24,7 @@ package io.crate.execution.engine.aggregation.impl;
 import com.google.common.collect.ImmutableList;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Column;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.expression.symbol.Function;
@@ -117,6 +118,39 @@ public class CountAggregation extends AggregationFunction<CountAggregation.LongS
         return state;
     }
 
+    @Override
+    public LongState iterateColumns(RamAccountingContext ramAccountingContext, LongState state, Column[] args, int size) {
+        if (!hasArgs) {
+            return state.add(size);
+        }
+        Column column = args[0];
+        if (!column.hasNulls(size)) {
+            return state.add(size);
+        }
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!column.isNull(i)) {
+                count++;
+            }
+        }
+        return state.add(count);
+    }
+
+    @Override
+    public boolean isRemovableCumulative() {
+        return true;
+    }
+
+    @Override
+    public LongState removeFromAggregatedState(RamAccountingContext ramAccountingContext,
+                                               LongState state,
+                                               Input... args) {
+        if (!hasArgs || args[0].value() != null) {
+            return state.add(-1L);
+        }
+        return state;
+    }
+
     @Nullable
     @Override
     public LongState newState(RamAccountingContext ramAccountingContext,
@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableList;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.Column;
 import io.crate.data.Input;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionInfo;
@@ -75,6 +76,22 @@ public abstract class MaximumAggregation extends AggregationFunction<Comparable,
             return null;
         }
 
+        @Override
+        public Comparable iterateColumns(RamAccountingContext ramAccountingContext,
+                                         Comparable state,
+                                         Column[] args,
+                                         int size) {
+            Column column = args[0];
+            if (!NumericColumns.isNumeric(column)) {
+                return super.iterateColumns(ramAccountingContext, state, args, size);
+            }
+            Number max = NumericColumns.max(column, size);
+            if (max == null) {
+                return state;
+            }
+            return reduce(ramAccountingContext, state, (Comparable) partialType().value(max));
+        }
+
         @Override
         public Comparable reduce(RamAccountingContext ramAccountingContext, Comparable state1, Comparable state2) {
             if (state1 == null) {
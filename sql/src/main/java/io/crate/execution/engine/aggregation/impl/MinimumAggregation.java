@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableList;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.Column;
 import io.crate.data.Input;
 import io.crate.exceptions.CircuitBreakingException;
 import io.crate.metadata.FunctionIdent;
@@ -111,6 +112,22 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
             return null;
         }
 
+        @Override
+        public Comparable iterateColumns(RamAccountingContext ramAccountingContext,
+                                         Comparable state,
+                                         Column[] args,
+                                         int size) {
+            Column column = args[0];
+            if (!NumericColumns.isNumeric(column)) {
+                return super.iterateColumns(ramAccountingContext, state, args, size);
+            }
+            Number min = NumericColumns.min(column, size);
+            if (min == null) {
+                return state;
+            }
+            return reduce(ramAccountingContext, state, (Comparable) partialType().value(min));
+        }
+
         @Override
         public Comparable reduce(RamAccountingContext ramAccountingContext, Comparable state1, Comparable state2) {
             if (state1 == null) {
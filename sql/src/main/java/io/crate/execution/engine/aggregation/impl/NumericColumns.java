@@ -0,0 +1,118 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation.impl;
+
+import io.crate.data.Column;
+import io.crate.data.DoubleColumn;
+import io.crate.data.LongColumn;
+
+import javax.annotation.Nullable;
+
+/**
+ * Min/max kernels on the primitive values of {@link LongColumn} and {@link DoubleColumn}.
+ * Doubles are compared using {@link Double#compare(double, double)} so that the result matches
+ * the ordering of the boxed values used by the row based aggregations.
+ */
+final class NumericColumns {
+
+    private NumericColumns() {
+    }
+
+    static boolean isNumeric(Column column) {
+        return column instanceof LongColumn || column instanceof DoubleColumn;
+    }
+
+    /**
+     * @return the smallest non-null value of the first {@code size} values or null if all values are null
+     */
+    @Nullable
+    static Number min(Column column, int size) {
+        if (column instanceof LongColumn) {
+            LongColumn longColumn = (LongColumn) column;
+            long[] values = longColumn.values();
+            boolean hasNulls = longColumn.hasNulls(size);
+            boolean found = false;
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                if (hasNulls && longColumn.isNull(i)) {
+                    continue;
+                }
+                min = Math.min(min, values[i]);
+                found = true;
+            }
+            return found ? min : null;
+        }
+        DoubleColumn doubleColumn = (DoubleColumn) column;
+        double[] values = doubleColumn.values();
+        boolean hasNulls = doubleColumn.hasNulls(size);
+        boolean found = false;
+        double min = 0.0d;
+        for (int i = 0; i < size; i++) {
+            if (hasNulls && doubleColumn.isNull(i)) {
+                continue;
+            }
+            if (!found || Double.compare(values[i], min) < 0) {
+                min = values[i];
+                found = true;
+            }
+        }
+        return found ? min : null;
+    }
+
+    /**
+     * @return the largest non-null value of the first {@code size} values or null if all values are null
+     */
+    @Nullable
+    static Number max(Column column, int size) {
+        if (column instanceof LongColumn) {
+            LongColumn longColumn = (LongColumn) column;
+            long[] values = longColumn.values();
+            boolean hasNulls = longColumn.hasNulls(size);
+            boolean found = false;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                if (hasNulls && longColumn.isNull(i)) {
+                    continue;
+                }
+                max = Math.max(max, values[i]);
+                found = true;
+            }
+            return found ? max : null;
+        }
+        DoubleColumn doubleColumn = (DoubleColumn) column;
+        double[] values = doubleColumn.values();
+        boolean hasNulls = doubleColumn.hasNulls(size);
+        boolean found = false;
+        double max = 0.0d;
+        for (int i = 0; i < size; i++) {
+            if (hasNulls && doubleColumn.isNull(i)) {
+                continue;
+            }
+            if (!found || Double.compare(values[i], max) > 0) {
+                max = values[i];
+                found = true;
+            }
+        }
+        return found ? max : null;
+    }
+}
@@ -23,7 +23,10 @@ package io.crate.execution.engine.aggregation.impl;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Column;
+import io.crate.data.DoubleColumn;
 import io.crate.data.Input;
+import io.crate.data.LongColumn;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionInfo;
@@ -52,26 +55,37 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
             return r;
         };
 
-        mod.register(new SumAggregation<Float>(DataTypes.FLOAT, (n1, n2) -> n1 + n2));
-        mod.register(new SumAggregation<Double>(DataTypes.DOUBLE, (n1, n2) -> n1 + n2));
-        mod.register(new SumAggregation<>(DataTypes.BYTE, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.SHORT, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.INTEGER, DataTypes.LONG, longAddImpl));
-        mod.register(new SumAggregation<>(DataTypes.LONG, longAddImpl));
+        final BinaryOperator<Long> longSubtractImpl = Math::subtractExact;
+
+        // floating point sums cannot be updated by subtracting values without losing precision
+        mod.register(new SumAggregation<Float>(DataTypes.FLOAT, (n1, n2) -> n1 + n2, null));
+        mod.register(new SumAggregation<Double>(DataTypes.DOUBLE, (n1, n2) -> n1 + n2, null));
+        mod.register(new SumAggregation<>(DataTypes.BYTE, DataTypes.LONG, longAddImpl, longSubtractImpl));
+        mod.register(new SumAggregation<>(DataTypes.SHORT, DataTypes.LONG, longAddImpl, longSubtractImpl));
+        mod.register(new SumAggregation<>(DataTypes.INTEGER, DataTypes.LONG, longAddImpl, longSubtractImpl));
+        mod.register(new SumAggregation<>(DataTypes.LONG, longAddImpl, longSubtractImpl));
     }
 
     private final FunctionInfo info;
     private final BinaryOperator<T> addition;
+    @Nullable
+    private final BinaryOperator<T> subtraction;
     private final DataType<T> returnType;
     private final int bytesSize;
 
     @VisibleForTesting
-    private SumAggregation(final DataType returnType, final BinaryOperator<T> addition) {
-        this(returnType, returnType, addition);
+    private SumAggregation(final DataType returnType,
+                           final BinaryOperator<T> addition,
+                           @Nullable final BinaryOperator<T> subtraction) {
+        this(returnType, returnType, addition, subtraction);
     }
 
-    private SumAggregation(final DataType inputType, final DataType returnType, final BinaryOperator<T> addition) {
+    private SumAggregation(final DataType inputType,
+                           final DataType returnType,
+                           final BinaryOperator<T> addition,
+                           @Nullable final BinaryOperator<T> subtraction) {
         this.addition = addition;
+        this.subtraction = subtraction;
         this.returnType = returnType;
 
         if (returnType == DataTypes.FLOAT) {
@@ -101,6 +115,90 @@ public class SumAggregation<T extends Number> extends AggregationFunction<T, T>
         return reduce(ramAccountingContext, state, returnType.value(args[0].value()));
     }
 
+    @Override
+    public boolean isRemovableCumulative() {
+        return subtraction != null;
+    }
+
+    @Override
+    public T removeFromAggregatedState(RamAccountingContext ramAccountingContext, T state, Input... args) {
+        assert subtraction != null : "removeFromAggregatedState must only be called if isRemovableCumulative is true";
+        T value = returnType.value(args[0].value());
+        if (value == null || state == null) {
+            return state;
+        }
+        return subtraction.apply(state, value);
+    }
+
+    @Override
+    public T iterateColumns(RamAccountingContext ramAccountingContext, T state, Column[] args, int size) {
+        Column column = args[0];
+        if (returnType == DataTypes.LONG && column instanceof LongColumn) {
+            //noinspection unchecked
+            return (T) sumLongs((Long) state, (LongColumn) column, size);
+        }
+        if (returnType == DataTypes.DOUBLE && column instanceof DoubleColumn) {
+            //noinspection unchecked
+            return (T) sumDoubles((Double) state, (DoubleColumn) column, size);
+        }
+        if (returnType == DataTypes.FLOAT && column instanceof DoubleColumn) {
+            //noinspection unchecked
+            return (T) sumFloats((Float) state, (DoubleColumn) column, size);
+        }
+        return super.iterateColumns(ramAccountingContext, state, args, size);
+    }
+
+    @Nullable
+    private static Long sumLongs(@Nullable Long state, LongColumn column, int size) {
+        long[] values = column.values();
+        boolean hasNulls = column.hasNulls(size);
+        boolean hasValue = state != null;
+        long sum = hasValue ? state : 0L;
+        for (int i = 0; i < size; i++) {
+            if (hasNulls && column.isNull(i)) {
+                continue;
+            }
+            sum = Math.addExact(sum, values[i]);
+            hasValue = true;
+        }
+        return hasValue ? sum : null;
+    }
+
+    /**
+     * Adds the values in the same order as the row based aggregation would, so the result is the same.
+     */
+    @Nullable
+    private static Double sumDoubles(@Nullable Double state, DoubleColumn column, int size) {
+        double[] values = column.values();
+        boolean hasNulls = column.hasNulls(size);
+        boolean hasValue = state != null;
+        double sum = hasValue ? state : 0.0d;
+        for (int i = 0; i < size; i++) {
+            if (hasNulls && column.isNull(i)) {
+                continue;
+            }
+            sum = hasValue ? sum + values[i] : values[i];
+            hasValue = true;
+        }
+        return hasValue ? sum : null;
+    }
+
+    @Nullable
+    private static Float sumFloats(@Nullable Float state, DoubleColumn column, int size) {
+        double[] values = column.values();
+        boolean hasNulls = column.hasNulls(size);
+        boolean hasValue = state != null;
+        float sum = hasValue ? state : 0.0f;
+        for (int i = 0; i < size; i++) {
+            if (hasNulls && column.isNull(i)) {
+                continue;
+            }
+            sum = hasValue ? sum + (float) values[i] : (float) values[i];
+            hasValue = true;
+        }
+        return hasValue ? sum : null;
+    }
+
     @Override
     public T reduce(RamAccountingContext ramAccountingContext, T state1, T state2) {
         if (state1 == null) {
@@ -32,6 +32,10 @@ public class InputCollectExpression implements CollectExpression<Row, Object> {
         this.position = position;
     }
 
+    public int position() {
+        return position;
+    }
+
     @Override
     public void setNextRow(Row row) {
         assert row.numColumns() > position : "row smaller than input position " + row.numColumns() + "<=" + position;
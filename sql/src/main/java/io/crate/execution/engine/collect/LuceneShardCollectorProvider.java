@@ -21,12 +21,14 @@
 
 package io.crate.execution.engine.collect;
 
+import io.crate.analyze.QueryClause;
 import io.crate.data.BatchIterator;
 import io.crate.data.Row;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
 import io.crate.execution.engine.collect.collectors.CollectorFieldsVisitor;
 import io.crate.execution.engine.collect.collectors.LuceneBatchIterator;
+import io.crate.execution.engine.collect.collectors.LuceneLeafSlices;
 import io.crate.execution.engine.collect.collectors.LuceneOrderedDocCollector;
 import io.crate.execution.engine.collect.collectors.OptimizeQueryForSearchAfter;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
@@ -46,6 +48,7 @@ import io.crate.metadata.Schemas;
 import io.crate.metadata.doc.DocSysColumns;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
@@ -59,6 +62,9 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -73,6 +79,7 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     private final DocInputFactory docInputFactory;
     private final BigArrays bigArrays;
     private final FieldTypeLookup fieldTypeLookup;
+    private final ShardResultCache resultCache;
 
     public LuceneShardCollectorProvider(Schemas schemas,
                                         LuceneQueryBuilder luceneQueryBuilder,
@@ -83,7 +90,8 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                                         Settings settings,
                                         TransportActionProvider transportActionProvider,
                                         IndexShard indexShard,
-                                        BigArrays bigArrays) {
+                                        BigArrays bigArrays,
+                                        ShardResultCache resultCache) {
         super(clusterService, schemas, nodeJobsCounter, functions, threadPool, settings, transportActionProvider, indexShard,
             new ShardRowContext(indexShard, clusterService), bigArrays);
         this.luceneQueryBuilder = luceneQueryBuilder;
@@ -97,46 +105,113 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
             new LuceneReferenceResolver(fieldTypeLookup, indexShard.indexSettings())
         );
         this.bigArrays = bigArrays;
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public List<BatchIterator<Row>> getIterators(RoutedCollectPhase collectPhase,
+                                                 boolean requiresScroll,
+                                                 CollectTask collectTask,
+                                                 int maxSlices) throws Exception {
+        if (!resultCache.isEnabled()) {
+            return super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices);
+        }
+        RoutedCollectPhase normalizedPhase = collectPhase.normalize(shardNormalizer, null);
+        // If the query can match, the iterators acquire the searcher of the sharedShardContext
+        // and keep it until the collectTask is closed; the searcher acquired here only has to outlive that
+        if (!ShardResultCache.canCache(normalizedPhase) || !QueryClause.canMatch(normalizedPhase.where())) {
+            return super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices);
+        }
+        SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(indexShard.shardId());
+        Engine.Searcher searcher = sharedShardContext.acquireSearcher();
+        try {
+            ShardResultCache.Key key = resultCache.key(normalizedPhase, searcher.reader());
+            if (key == null) {
+                return super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices);
+            }
+            BatchIterator<Row> cachedResult = resultCache.get(key);
+            if (cachedResult != null) {
+                shardRowContext().resultCacheHits().inc();
+                collectTask.addSearcher(sharedShardContext.readerId(), searcher);
+                searcher = null;
+                return Collections.singletonList(cachedResult);
+            }
+            shardRowContext().resultCacheMisses().inc();
+            return resultCache.recordResult(key, super.getIterators(collectPhase, requiresScroll, collectTask, maxSlices));
+        } finally {
+            if (searcher != null) {
+                searcher.close();
+            }
+        }
     }
 
     @Override
     protected BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                       boolean requiresScroll,
                                                       CollectTask collectTask) {
+        return getUnorderedIterators(collectPhase, requiresScroll, collectTask, 1).get(0);
+    }
+
+    @Override
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
         ShardId shardId = indexShard.shardId();
         SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
         Engine.Searcher searcher = sharedShardContext.acquireSearcher();
-        IndexShard indexShard = sharedShardContext.indexShard();
         try {
-            QueryShardContext queryShardContext = sharedShardContext.indexService().newQueryShardContext(
-                shardId.getId(), searcher.reader(), System::currentTimeMillis, null);
-            LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
-                collectPhase.where(),
-                collectTask.txnCtx(),
-                indexShard.mapperService(),
-                queryShardContext,
-                sharedShardContext.indexService().cache()
-            );
+            List<List<LeafReaderContext>> slices = maxSlices > 1
+                ? LuceneLeafSlices.slice(searcher.reader().leaves(), maxSlices)
+                : Collections.singletonList(searcher.reader().leaves());
+            if (LOGGER.isTraceEnabled() && slices.size() > 1) {
+                LOGGER.trace("[{}] collecting {} segments in {} slices", shardId, searcher.reader().leaves().size(), slices.size());
+            }
+
+            // The query and the collector expressions are stateful, so each slice gets its own instances
+            List<BatchIterator<Row>> iterators = new ArrayList<>(slices.size());
+            for (List<LeafReaderContext> leaves : slices) {
+                iterators.add(createLuceneBatchIterator(collectPhase, collectTask, sharedShardContext, searcher, leaves));
+            }
             collectTask.addSearcher(sharedShardContext.readerId(), searcher);
-            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
-
-            return new LuceneBatchIterator(
-                searcher.searcher(),
-                queryContext.query(),
-                queryContext.minScore(),
-                Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-                getCollectorContext(sharedShardContext.readerId(), docCtx, queryShardContext::getForField),
-                collectTask.queryPhaseRamAccountingContext(),
-                docCtx.topLevelInputs(),
-                docCtx.expressions()
-            );
+            return iterators;
         } catch (Throwable t) {
             searcher.close();
             throw t;
         }
     }
 
+    private LuceneBatchIterator createLuceneBatchIterator(RoutedCollectPhase collectPhase,
+                                                          CollectTask collectTask,
+                                                          SharedShardContext sharedShardContext,
+                                                          Engine.Searcher searcher,
+                                                          List<LeafReaderContext> leaves) {
+        IndexShard indexShard = sharedShardContext.indexShard();
+        QueryShardContext queryShardContext = sharedShardContext.indexService().newQueryShardContext(
+            indexShard.shardId().getId(), searcher.reader(), System::currentTimeMillis, null);
+        LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
+            collectPhase.where(),
+            collectTask.txnCtx(),
+            indexShard.mapperService(),
+            queryShardContext,
+            sharedShardContext.indexService().cache()
+        );
+        InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+            docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+
+        return new LuceneBatchIterator(
+            searcher.searcher(),
+            leaves,
+            queryContext.query(),
+            queryContext.minScore(),
+            Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
+            getCollectorContext(sharedShardContext.readerId(), docCtx, queryShardContext::getForField),
+            collectTask.queryPhaseRamAccountingContext(),
+            docCtx.topLevelInputs(),
+            docCtx.expressions()
+        );
+    }
+
     @Nullable
     @Override
     protected BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase, CollectTask collectTask) {
@@ -39,13 +39,26 @@ import io.crate.expression.reference.Doc;
 import io.crate.expression.reference.doc.lucene.SourceFieldVisitor;
 import io.crate.metadata.TransactionContext;
 import io.crate.planner.operators.PKAndVersion;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.VersionFieldMapper;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
@@ -53,7 +66,9 @@ import org.elasticsearch.indices.IndicesService;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -95,8 +110,7 @@ public final class PKLookupOperation {
                     }
                     throw new ShardNotFoundException(shardId);
                 }
-                return entry.getValue().stream()
-                    .map(pkAndVersion -> lookupDoc(shard, pkAndVersion.id(), pkAndVersion.version()))
+                return lookupDocs(shard, entry.getValue()).stream()
                     .filter(Objects::nonNull);
             });
         final Iterable<Doc> getResultIterable;
@@ -124,18 +138,12 @@ public final class PKLookupOperation {
         if (getResult.exists()) {
             try {
                 VersionsAndSeqNoResolver.DocIdAndVersion docIdAndVersion = getResult.docIdAndVersion();
-                SourceFieldVisitor visitor = new SourceFieldVisitor();
-                try {
-                    docIdAndVersion.reader.document(docIdAndVersion.docId, visitor);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                return new Doc(
+                return loadDoc(
                     shard.shardId().getIndexName(),
                     id,
                     docIdAndVersion.version,
-                    convertToMap(visitor.source(), false, XContentType.JSON).v2(),
-                    () -> visitor.source().utf8ToString()
+                    docIdAndVersion.reader,
+                    docIdAndVersion.docId
                 );
             } finally {
                 getResult.release();
@@ -145,6 +153,175 @@ public final class PKLookupOperation {
         }
     }
 
+    /**
+     * Looks up the documents of a shard with realtime semantics.
+     *
+     * If the reader of the acquired searcher contains all changes of the shard, all ids are resolved using that
+     * searcher with {@link #lookupDocs(String, IndexReader, Term[], String[])}. Otherwise, or if a specific version
+     * is requested, each id goes through the engine which consults the version map for documents which are not yet
+     * refreshed.
+     *
+     * @return the documents in the order of {@code pkAndVersions}; null for ids which don't exist.
+     */
+    static List<Doc> lookupDocs(IndexShard shard, List<PKAndVersion> pkAndVersions) {
+        if (pkAndVersions.size() > 1 && allMatchAnyVersion(pkAndVersions)) {
+            try (Engine.Searcher searcher = shard.acquireSearcher("pk_lookup")) {
+                // the reader is current if no changes have been written since it was opened
+                if (searcher.getDirectoryReader().isCurrent()) {
+                    String[] ids = new String[pkAndVersions.size()];
+                    Term[] uidTerms = new Term[ids.length];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = pkAndVersions.get(i).id();
+                        uidTerms[i] = shard.mapperService().createUidTerm(Constants.DEFAULT_MAPPING_TYPE, ids[i]);
+                    }
+                    return Arrays.asList(lookupDocs(shard.shardId().getIndexName(), searcher.reader(), uidTerms, ids));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        ArrayList<Doc> docs = new ArrayList<>(pkAndVersions.size());
+        for (PKAndVersion pkAndVersion : pkAndVersions) {
+            docs.add(lookupDoc(shard, pkAndVersion.id(), pkAndVersion.version()));
+        }
+        return docs;
+    }
+
+    private static boolean allMatchAnyVersion(List<PKAndVersion> pkAndVersions) {
+        for (PKAndVersion pkAndVersion : pkAndVersions) {
+            if (pkAndVersion.version() != Versions.MATCH_ANY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves all {@code uidTerms} in one pass over the segments of {@code reader}.
+     * Within a segment the terms are looked up in sorted order so that the terms dictionary is traversed
+     * forward only, versions and sources are loaded afterwards in docId order.
+     *
+     * @param uidTerms the terms of the ids, all of the same field
+     * @param ids the ids corresponding to {@code uidTerms}
+     * @return the documents in the order of {@code ids}; null for ids which don't exist.
+     */
+    public static Doc[] lookupDocs(String indexName, IndexReader reader, Term[] uidTerms, String[] ids) throws IOException {
+        assert uidTerms.length == ids.length : "there must be a term for each id";
+        int[] docIds = new int[uidTerms.length];
+        Arrays.fill(docIds, -1);
+        if (uidTerms.length == 0) {
+            return new Doc[0];
+        }
+        int[] termOrder = sortedOrder(uidTerms);
+        String field = uidTerms[0].field();
+        List<LeafReaderContext> leaves = reader.leaves();
+        int numMissing = uidTerms.length;
+        PostingsEnum postings = null;
+        // newest segments first, like the lookups of the engine
+        for (int leafIdx = leaves.size() - 1; leafIdx >= 0 && numMissing > 0; leafIdx--) {
+            LeafReaderContext leaf = leaves.get(leafIdx);
+            Terms terms = leaf.reader().terms(field);
+            if (terms == null) {
+                continue;
+            }
+            TermsEnum termsEnum = terms.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            for (int termIdx : termOrder) {
+                if (docIds[termIdx] != -1 || !termsEnum.seekExact(uidTerms[termIdx].bytes())) {
+                    continue;
+                }
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                int docId = -1;
+                // there may be more than one matching docId in case of nested docs, the root doc is the last one
+                for (int d = postings.nextDoc(); d != DocIdSetIterator.NO_MORE_DOCS; d = postings.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(d)) {
+                        docId = d;
+                    }
+                }
+                if (docId != -1) {
+                    docIds[termIdx] = leaf.docBase + docId;
+                    numMissing--;
+                }
+            }
+        }
+        return loadDocs(indexName, leaves, ids, docIds);
+    }
+
+    private static int[] sortedOrder(Term[] terms) {
+        int[] order = new int[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        new IntroSorter() {
+
+            private BytesRef pivot;
+
+            @Override
+            protected void swap(int i, int j) {
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                pivot = terms[order[i]].bytes();
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return pivot.compareTo(terms[order[j]].bytes());
+            }
+        }.sort(0, order.length);
+        return order;
+    }
+
+    private static Doc[] loadDocs(String indexName, List<LeafReaderContext> leaves, String[] ids, int[] docIds) throws IOException {
+        Doc[] docs = new Doc[ids.length];
+        // (docId << 32 | position) sorts the found documents by docId
+        long[] docAndPos = new long[ids.length];
+        int numFound = 0;
+        for (int i = 0; i < docIds.length; i++) {
+            if (docIds[i] != -1) {
+                docAndPos[numFound++] = ((long) docIds[i] << 32) | i;
+            }
+        }
+        Arrays.sort(docAndPos, 0, numFound);
+        LeafReaderContext leaf = null;
+        NumericDocValues versions = null;
+        for (int i = 0; i < numFound; i++) {
+            int docId = (int) (docAndPos[i] >>> 32);
+            int pos = (int) docAndPos[i];
+            if (leaf == null || docId >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                versions = leaf.reader().getNumericDocValues(VersionFieldMapper.NAME);
+            }
+            int segmentDocId = docId - leaf.docBase;
+            if (versions == null || !versions.advanceExact(segmentDocId)) {
+                throw new IllegalArgumentException("reader misses the [" + VersionFieldMapper.NAME + "] field");
+            }
+            docs[pos] = loadDoc(indexName, ids[pos], versions.longValue(), leaf.reader(), segmentDocId);
+        }
+        return docs;
+    }
+
+    private static Doc loadDoc(String indexName, String id, long version, IndexReader reader, int docId) {
+        SourceFieldVisitor visitor = new SourceFieldVisitor();
+        try {
+            reader.document(docId, visitor);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new Doc(
+            indexName,
+            id,
+            version,
+            convertToMap(visitor.source(), false, XContentType.JSON).v2(),
+            () -> visitor.source().utf8ToString(),
+            visitor.source()
+        );
+    }
+
     public void runWithShardProjections(UUID jobId,
                                         TransactionContext txnCtx,
                                         RamAccountingContext ramAccountingContext,
@@ -187,8 +364,7 @@ public final class PKLookupOperation {
         }
         ArrayList<BatchIterator<Row>> iterators = new ArrayList<>(shardAndIdsList.size());
         for (ShardAndIds shardAndIds : shardAndIdsList) {
-            Stream<Row> rowStream = shardAndIds.value.stream()
-                .map(pkAndVersion -> lookupDoc(shardAndIds.shard, pkAndVersion.id(), pkAndVersion.version()))
+            Stream<Row> rowStream = lookupDocs(shardAndIds.shard, shardAndIds.value).stream()
                 .map(resultToRow);
 
             Projectors projectors = new Projectors(
@@ -23,12 +23,14 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.analyze.QueryClause;
+import io.crate.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.SentinelRow;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
@@ -50,6 +52,9 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class ShardCollectorProvider {
 
@@ -98,30 +103,55 @@ public abstract class ShardCollectorProvider {
     public BatchIterator<Row> getIterator(RoutedCollectPhase collectPhase,
                                           boolean requiresScroll,
                                           CollectTask collectTask) throws Exception {
+        List<BatchIterator<Row>> iterators = getIterators(collectPhase, requiresScroll, collectTask, 1);
+        assert iterators.size() == 1 : "Must have exactly 1 iterator if maxSlices is 1";
+        return iterators.get(0);
+    }
+
+    /**
+     * Like {@link #getIterator(RoutedCollectPhase, boolean, CollectTask)} but the shard may be split into up to
+     * {@code maxSlices} BatchIterators, each covering a subset of the segments of the shard.
+     * <p>
+     * The shard projections are applied to each slice individually, so this must only be used with
+     * projections which produce a result that can be merged with the results of the other slices.
+     * (E.g. partial aggregations)
+     * </p>
+     */
+    public List<BatchIterator<Row>> getIterators(RoutedCollectPhase collectPhase,
+                                                 boolean requiresScroll,
+                                                 CollectTask collectTask,
+                                                 int maxSlices) throws Exception {
         assert collectPhase.orderBy() == null
             : "getDocCollector shouldn't be called if there is an orderBy on the collectPhase";
         assert collectPhase.maxRowGranularity() == RowGranularity.DOC :
             "granularity must be DOC";
+        assert maxSlices > 0 : "maxSlices must be greater than 0";
 
         RoutedCollectPhase normalizedCollectNode = collectPhase.normalize(shardNormalizer, null);
         BatchIterator<Row> fusedIterator = getProjectionFusedIterator(normalizedCollectNode, collectTask);
         if (fusedIterator != null) {
-            return fusedIterator;
+            return Collections.singletonList(fusedIterator);
         }
-        final BatchIterator<Row> iterator;
+        final List<BatchIterator<Row>> iterators;
         if (QueryClause.canMatch(normalizedCollectNode.where())) {
-            iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            if (maxSlices > 1) {
+                iterators = getUnorderedIterators(normalizedCollectNode, requiresScroll, collectTask, maxSlices);
+            } else {
+                iterators = Collections.singletonList(
+                    getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask));
+            }
         } else {
-            iterator = InMemoryBatchIterator.empty(SentinelRow.SENTINEL);
+            iterators = Collections.singletonList(InMemoryBatchIterator.empty(SentinelRow.SENTINEL));
         }
-        return Projectors.wrap(
-            Projections.shardProjections(collectPhase.projections()),
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        return Lists2.map(iterators, iterator -> Projectors.wrap(
+            shardProjections,
             collectPhase.jobId(),
             collectTask.txnCtx(),
             collectTask.queryPhaseRamAccountingContext(),
             projectorFactory,
             iterator
-        );
+        ));
     }
 
     /**
@@ -133,6 +163,17 @@ public abstract class ShardCollectorProvider {
     protected abstract BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase,
                                                                      CollectTask collectTask);
 
+    /**
+     * Creates up to {@code maxSlices} BatchIterators which together provide the same rows as
+     * {@link #getUnorderedIterator(RoutedCollectPhase, boolean, CollectTask)}.
+     * The iterators must be independent of each other so that they can be consumed concurrently.
+     */
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
+        return Collections.singletonList(getUnorderedIterator(collectPhase, requiresScroll, collectTask));
+    }
     protected abstract BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                                boolean requiresScroll,
                                                                CollectTask collectTask);
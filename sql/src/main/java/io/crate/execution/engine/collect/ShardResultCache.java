@@ -0,0 +1,296 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.data.BatchIterator;
+import io.crate.data.ForwardingBatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.SentinelRow;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.dsl.projection.Projections;
+import io.crate.execution.engine.distribution.StreamBucket;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.expression.symbol.Symbols;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node wide cache of the partial aggregation results of shards.
+ *
+ * <p>
+ * The results are keyed by the collect phase and by the reader of the shard. A refresh which changes
+ * the shard results in a new reader, and the results of the old reader are removed once it is closed.
+ * </p>
+ * <p>
+ * The rows are kept serialized; every hit de-serializes them again, because aggregation states are
+ * mutable and get modified while they are merged.
+ * </p>
+ */
+public final class ShardResultCache {
+
+    public static final Setting<ByteSizeValue> SIZE_SETTING = Setting.memorySizeSetting(
+        "node.sql.result_cache.size",
+        "0b",
+        Setting.Property.NodeScope);
+
+    private final long maxSizeInBytes;
+    private final Cache<Key, CachedResult> results;
+    private final Set<IndexReader.CacheKey> readers = ConcurrentHashMap.newKeySet();
+
+    public ShardResultCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.results = CacheBuilder.newBuilder()
+            .maximumWeight(maxSizeInBytes)
+            .weigher((Key key, CachedResult result) -> (int) Math.min(Integer.MAX_VALUE, key.weight() + result.sizeInBytes))
+            .build();
+    }
+
+    public boolean isEnabled() {
+        return maxSizeInBytes > 0;
+    }
+
+    /**
+     * The result of a phase can be cached if the shard projections are partial aggregations and if the result
+     * only depends on the documents of the shard; the projections only operate on the collected columns.
+     */
+    static boolean canCache(RoutedCollectPhase normalizedPhase) {
+        return normalizedPhase.orderBy() == null
+               && Projections.shardProjectionsArePartialAggregations(normalizedPhase.projections())
+               && !SymbolVisitors.any(ShardResultCache::isVolatile, normalizedPhase.toCollect())
+               && !SymbolVisitors.any(ShardResultCache::isVolatile, normalizedPhase.where());
+    }
+
+    /**
+     * User defined functions have a schema and can be replaced without changing their signature.
+     */
+    private static boolean isVolatile(Symbol symbol) {
+        if (symbol instanceof Function) {
+            Function function = (Function) symbol;
+            return !function.info().isDeterministic() || function.info().ident().schema() != null;
+        }
+        return false;
+    }
+
+    /**
+     * @return the key of the result of {@code normalizedPhase} on {@code reader} or null if it can't be cached.
+     */
+    @Nullable
+    Key key(RoutedCollectPhase normalizedPhase, IndexReader reader) throws IOException {
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(normalizedPhase.projections());
+        BytesStreamOutput out = new BytesStreamOutput();
+        Symbols.toStream(normalizedPhase.toCollect(), out);
+        Symbols.toStream(normalizedPhase.where(), out);
+        out.writeVInt(shardProjections.size());
+        Projection lastProjection = null;
+        for (Projection projection : shardProjections) {
+            Projection.toStream(projection, out);
+            lastProjection = projection;
+        }
+        assert lastProjection != null : "canCache must be checked before creating a key";
+        return new Key(cacheHelper, out.bytes(), Symbols.streamerArray(lastProjection.outputs()));
+    }
+
+    /**
+     * @return an iterator over the cached rows or null if there is no result for the key
+     */
+    @Nullable
+    BatchIterator<Row> get(Key key) {
+        CachedResult result = results.getIfPresent(key);
+        if (result == null) {
+            return null;
+        }
+        return InMemoryBatchIterator.of(Iterables.concat(result.buckets), SentinelRow.SENTINEL);
+    }
+
+    /**
+     * Wraps the iterators which together provide the result of a shard so that the rows are added
+     * to the cache once all iterators are exhausted.
+     */
+    List<BatchIterator<Row>> recordResult(Key key, List<BatchIterator<Row>> iterators) {
+        PendingResult pendingResult = new PendingResult(key, iterators.size());
+        List<BatchIterator<Row>> recordingIterators = new ArrayList<>(iterators.size());
+        for (BatchIterator<Row> iterator : iterators) {
+            recordingIterators.add(new RecordingBatchIterator(iterator, pendingResult, key.streamers));
+        }
+        return recordingIterators;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return results.size();
+    }
+
+    private void put(Key key, CachedResult result) {
+        IndexReader.CacheKey reader = key.cacheHelper.getKey();
+        if (readers.add(reader)) {
+            key.cacheHelper.addClosedListener(this::invalidate);
+        }
+        results.put(key, result);
+    }
+
+    private void invalidate(IndexReader.CacheKey reader) {
+        readers.remove(reader);
+        results.asMap().keySet().removeIf(key -> key.reader == reader);
+    }
+
+    static final class Key {
+
+        private final IndexReader.CacheHelper cacheHelper;
+        private final IndexReader.CacheKey reader;
+        private final BytesReference phase;
+        private final Streamer<?>[] streamers;
+
+        private Key(IndexReader.CacheHelper cacheHelper, BytesReference phase, Streamer<?>[] streamers) {
+            this.cacheHelper = cacheHelper;
+            this.reader = cacheHelper.getKey();
+            this.phase = phase;
+            this.streamers = streamers;
+        }
+
+        private long weight() {
+            return phase.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return reader == key.reader && phase.equals(key.phase);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(reader, phase);
+        }
+    }
+
+    private static final class CachedResult {
+
+        private final List<StreamBucket> buckets;
+        private final long sizeInBytes;
+
+        CachedResult(List<StreamBucket> buckets, long sizeInBytes) {
+            this.buckets = buckets;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    /**
+     * Collects the rows of the iterators of a shard; the iterators can be consumed concurrently.
+     */
+    private final class PendingResult {
+
+        private final Key key;
+        private final List<StreamBucket> buckets;
+        private int remainingIterators;
+        private long sizeInBytes = 0;
+
+        PendingResult(Key key, int numIterators) {
+            this.key = key;
+            this.buckets = new ArrayList<>(numIterators);
+            this.remainingIterators = numIterators;
+        }
+
+        synchronized void onIteratorExhausted(StreamBucket.Builder rows) {
+            buckets.add(rows.build());
+            sizeInBytes += rows.sizeInBytes();
+            remainingIterators--;
+            if (remainingIterators == 0 && key.weight() + sizeInBytes <= maxSizeInBytes) {
+                put(key, new CachedResult(buckets, sizeInBytes));
+            }
+        }
+    }
+
+    private final class RecordingBatchIterator extends ForwardingBatchIterator<Row> {
+
+        private final BatchIterator<Row> delegate;
+        private final PendingResult pendingResult;
+
+        @Nullable
+        private StreamBucket.Builder rows;
+
+        RecordingBatchIterator(BatchIterator<Row> delegate, PendingResult pendingResult, Streamer<?>[] streamers) {
+            this.delegate = delegate;
+            this.pendingResult = pendingResult;
+            this.rows = new StreamBucket.Builder(streamers, null);
+        }
+
+        @Override
+        protected BatchIterator<Row> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void moveToStart() {
+            super.moveToStart();
+            if (rows != null) {
+                rows.reset();
+            }
+        }
+
+        @Override
+        public boolean moveNext() {
+            if (delegate.moveNext()) {
+                // rows are serialized right away, before the consumer can modify the aggregation states
+                if (rows != null) {
+                    rows.add(delegate.currentElement());
+                    if (rows.sizeInBytes() > maxSizeInBytes) {
+                        rows = null;
+                    }
+                }
+                return true;
+            }
+            if (rows != null && delegate.allLoaded()) {
+                pendingResult.onIteratorExhausted(rows);
+                rows = null;
+            }
+            return false;
+        }
+    }
+}
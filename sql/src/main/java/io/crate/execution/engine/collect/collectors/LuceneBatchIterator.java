@@ -85,6 +85,32 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
                                RamAccountingContext ramAccountingContext,
                                List<? extends Input<?>> inputs,
                                Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(
+            indexSearcher,
+            indexSearcher.getTopReaderContext().leaves(),
+            query,
+            minScore,
+            doScores,
+            collectorContext,
+            ramAccountingContext,
+            inputs,
+            expressions
+        );
+    }
+
+    /**
+     * Creates a LuceneBatchIterator which only visits the given {@code leaves} of the {@code indexSearcher}.
+     * This can be used to collect a subset of the segments of a shard, see {@link LuceneLeafSlices}.
+     */
+    public LuceneBatchIterator(IndexSearcher indexSearcher,
+                               List<LeafReaderContext> leaves,
+                               Query query,
+                               @Nullable Float minScore,
+                               boolean doScores,
+                               CollectorContext collectorContext,
+                               RamAccountingContext ramAccountingContext,
+                               List<? extends Input<?>> inputs,
+                               Collection<? extends LuceneCollectorExpression<?>> expressions) {
         this.indexSearcher = indexSearcher;
         this.query = query;
         this.doScores = doScores || minScore != null;
@@ -94,7 +120,7 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
         this.ramAccountingContext = ramAccountingContext;
         this.row = new InputRow(inputs);
         this.expressions = expressions.toArray(new LuceneCollectorExpression[0]);
-        leaves = indexSearcher.getTopReaderContext().leaves();
+        this.leaves = leaves;
         leavesIt = leaves.iterator();
     }
 
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.lucene.index.LeafReaderContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Splits the segments of a shard into slices which can be collected concurrently.
+ */
+public final class LuceneLeafSlices {
+
+    /**
+     * Collecting a slice has some overhead (weight creation, expression setup, a thread hand-off),
+     * so a slice should contain enough documents to make that worthwhile.
+     */
+    private static final int MIN_DOCS_PER_SLICE = 250_000;
+
+    private LuceneLeafSlices() {
+    }
+
+    /**
+     * Splits {@code leaves} into at most {@code maxSlices} slices.
+     * The segments are assigned greedily, largest first, to the slice with the fewest documents
+     * so that the slices contain roughly the same number of documents.
+     *
+     * @return the slices; a single slice containing all leaves if the shard is too small to be split.
+     */
+    public static List<List<LeafReaderContext>> slice(List<LeafReaderContext> leaves, int maxSlices) {
+        return slice(leaves, maxSlices, MIN_DOCS_PER_SLICE);
+    }
+
+    @VisibleForTesting
+    static List<List<LeafReaderContext>> slice(List<LeafReaderContext> leaves, int maxSlices, int minDocsPerSlice) {
+        long numDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            numDocs += leaf.reader().maxDoc();
+        }
+        int numSlices = (int) Math.min(Math.min(maxSlices, leaves.size()), numDocs / Math.max(1, minDocsPerSlice));
+        if (numSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+        PriorityQueue<Slice> slices = new PriorityQueue<>(numSlices, Comparator.comparingLong(s -> s.numDocs));
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new Slice());
+        }
+        for (LeafReaderContext leaf : sortedLeaves) {
+            Slice smallest = slices.poll();
+            smallest.leaves.add(leaf);
+            smallest.numDocs += leaf.reader().maxDoc();
+            slices.add(smallest);
+        }
+        List<List<LeafReaderContext>> result = new ArrayList<>(numSlices);
+        for (Slice slice : slices) {
+            // leaves are visited in index order within a slice, same as a non-sliced collect would do
+            slice.leaves.sort(Comparator.comparingInt(leaf -> leaf.ord));
+            result.add(slice.leaves);
+        }
+        return result;
+    }
+
+    private static class Slice {
+
+        private final List<LeafReaderContext> leaves = new ArrayList<>();
+        private long numDocs = 0;
+    }
+}
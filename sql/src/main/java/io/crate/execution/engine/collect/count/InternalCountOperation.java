@@ -23,11 +23,14 @@ package io.crate.execution.engine.collect.count;
 
 import com.carrotsearch.hppc.IntIndexedContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import io.crate.execution.engine.collect.collectors.LuceneLeafSlices;
+import io.crate.execution.engine.collect.sources.ShardCollectSource;
 import io.crate.execution.support.ThreadPools;
 import io.crate.expression.symbol.Symbol;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.IndexParts;
+import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
@@ -45,11 +48,12 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
 @Singleton
@@ -60,6 +64,8 @@ public class InternalCountOperation implements CountOperation {
     private final ClusterService clusterService;
     private final ThreadPoolExecutor executor;
     private final int numProcessors;
+    private final int maxSegmentSlices;
+    private final SegmentCountCache countCache;
 
     @Inject
     public InternalCountOperation(Settings settings,
@@ -72,11 +78,14 @@ public class InternalCountOperation implements CountOperation {
         executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
         this.indicesService = indicesService;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.maxSegmentSlices = ShardCollectSource.MAX_SEGMENT_SLICES_SETTING.get(settings);
+        this.countCache = new SegmentCountCache(SegmentCountCache.SIZE_SETTING.get(settings));
     }
 
     @Override
     public CompletableFuture<Long> count(TransactionContext txnCtx, Map<String, IntIndexedContainer> indexShardMap, Symbol filter) {
-        List<Supplier<Long>> suppliers = new ArrayList<>();
+        List<Index> indices = new ArrayList<>();
+        List<Integer> shardIds = new ArrayList<>();
         MetaData metaData = clusterService.state().getMetaData();
         for (Map.Entry<String, IntIndexedContainer> entry : indexShardMap.entrySet()) {
             String indexName = entry.getKey();
@@ -87,25 +96,53 @@ public class InternalCountOperation implements CountOperation {
                 }
                 throw new IndexNotFoundException(indexName);
             }
-            final Index index = indexMetaData.getIndex();
             for (IntCursor shardCursor : entry.getValue()) {
-                int shardValue = shardCursor.value;
-                suppliers.add(() -> {
-                    try {
-                        return count(txnCtx, index, shardValue, filter);
-                    } catch (IOException | InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+                indices.add(indexMetaData.getIndex());
+                shardIds.add(shardCursor.value);
             }
         }
-        MergePartialCountFunction mergeFunction = new MergePartialCountFunction();
-        CompletableFuture<List<Long>> futurePartialCounts = ThreadPools.runWithAvailableThreads(
-            executor,
-            ThreadPools.numIdleThreads(executor, numProcessors),
-            suppliers
-        );
-        return futurePartialCounts.thenApply(mergeFunction);
+        IntSupplier availableThreads = ThreadPools.numIdleThreads(executor, numProcessors);
+        int maxSlices = maxSegmentSlices == 1 || indices.isEmpty()
+            ? 1
+            : Math.max(1, Math.min(maxSegmentSlices, availableThreads.getAsInt() / indices.size()));
+
+        // Each shard counts its first slice right away, the other slices are counted in a second round
+        // so that they're spread over the available threads. The searchers are released once all slices are counted.
+        List<Engine.Searcher> searchers = Collections.synchronizedList(new ArrayList<>());
+        List<Supplier<ShardCount>> suppliers = new ArrayList<>(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            Index index = indices.get(i);
+            int shardId = shardIds.get(i);
+            suppliers.add(() -> {
+                try {
+                    return count(txnCtx, index, shardId, filter, maxSlices, searchers);
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        CompletableFuture<Long> futureCount = ThreadPools.runWithAvailableThreads(executor, availableThreads, suppliers)
+            .thenCompose(shardCounts -> {
+                long count = 0L;
+                List<Supplier<Long>> remainingSlices = new ArrayList<>();
+                for (ShardCount shardCount : shardCounts) {
+                    count += shardCount.count;
+                    remainingSlices.addAll(shardCount.remainingSlices);
+                }
+                if (remainingSlices.isEmpty()) {
+                    return CompletableFuture.completedFuture(count);
+                }
+                long firstSlicesCount = count;
+                return ThreadPools.runWithAvailableThreads(executor, availableThreads, remainingSlices)
+                    .thenApply(sliceCounts -> firstSlicesCount + sum(sliceCounts));
+            });
+        return futureCount.whenComplete((result, err) -> {
+            synchronized (searchers) {
+                for (Engine.Searcher searcher : searchers) {
+                    searcher.close();
+                }
+            }
+        });
     }
 
     @Override
@@ -122,28 +159,83 @@ public class InternalCountOperation implements CountOperation {
 
         IndexShard indexShard = indexService.getShard(shardId);
         try (Engine.Searcher searcher = indexShard.acquireSearcher("count-operation")) {
-            LuceneQueryBuilder.Context queryCtx = queryBuilder.convert(
-                filter,
-                txnCtx,
-                indexService.mapperService(),
-                indexService.newQueryShardContext(shardId, searcher.reader(), System::currentTimeMillis, null),
-                indexService.cache());
-            if (Thread.interrupted()) {
-                throw new InterruptedException("thread interrupted during count-operation");
+            return countSlice(txnCtx, indexService, shardId, searcher, searcher.reader().leaves(), filter);
+        }
+    }
+
+    private ShardCount count(TransactionContext txnCtx,
+                             Index index,
+                             int shardId,
+                             Symbol filter,
+                             int maxSlices,
+                             List<Engine.Searcher> searchers) throws IOException, InterruptedException {
+        IndexService indexService;
+        try {
+            indexService = indicesService.indexServiceSafe(index);
+        } catch (IndexNotFoundException e) {
+            if (IndexParts.isPartitioned(index.getName())) {
+                return new ShardCount(0L, Collections.emptyList());
             }
-            return searcher.searcher().count(queryCtx.query());
+            throw e;
+        }
+
+        IndexShard indexShard = indexService.getShard(shardId);
+        Engine.Searcher searcher = indexShard.acquireSearcher("count-operation");
+        searchers.add(searcher);
+        List<List<LeafReaderContext>> slices = maxSlices > 1
+            ? LuceneLeafSlices.slice(searcher.reader().leaves(), maxSlices)
+            : Collections.singletonList(searcher.reader().leaves());
+
+        // The query can be stateful, so each slice builds its own
+        List<Supplier<Long>> remainingSlices = new ArrayList<>(slices.size() - 1);
+        for (int i = 1; i < slices.size(); i++) {
+            List<LeafReaderContext> leaves = slices.get(i);
+            remainingSlices.add(() -> {
+                try {
+                    return countSlice(txnCtx, indexService, shardId, searcher, leaves, filter);
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        long count = countSlice(txnCtx, indexService, shardId, searcher, slices.get(0), filter);
+        return new ShardCount(count, remainingSlices);
+    }
+
+    private long countSlice(TransactionContext txnCtx,
+                            IndexService indexService,
+                            int shardId,
+                            Engine.Searcher searcher,
+                            List<LeafReaderContext> leaves,
+                            Symbol filter) throws IOException, InterruptedException {
+        LuceneQueryBuilder.Context queryCtx = queryBuilder.convert(
+            filter,
+            txnCtx,
+            indexService.mapperService(),
+            indexService.newQueryShardContext(shardId, searcher.reader(), System::currentTimeMillis, null),
+            indexService.cache());
+        if (Thread.interrupted()) {
+            throw new InterruptedException("thread interrupted during count-operation");
         }
+        return countCache.count(searcher.searcher(), queryCtx.query(), leaves);
     }
 
-    private static class MergePartialCountFunction implements Function<List<Long>, Long> {
+    private static long sum(List<Long> partialResults) {
+        long result = 0L;
+        for (Long partialResult : partialResults) {
+            result += partialResult;
+        }
+        return result;
+    }
 
-        @Override
-        public Long apply(List<Long> partialResults) {
-            long result = 0L;
-            for (Long partialResult : partialResults) {
-                result += partialResult;
-            }
-            return result;
+    private static class ShardCount {
+
+        private final long count;
+        private final List<Supplier<Long>> remainingSlices;
+
+        ShardCount(long count, List<Supplier<Long>> remainingSlices) {
+            this.count = count;
+            this.remainingSlices = remainingSlices;
         }
     }
 }
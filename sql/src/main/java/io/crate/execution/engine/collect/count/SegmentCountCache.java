@@ -0,0 +1,178 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.count;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.settings.Setting;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node wide cache of the number of documents matching a query, per segment.
+ *
+ * <p>
+ * A segment reader including its deletions is immutable, so a count stays valid until the segment
+ * is merged away or gets new deletions; both result in a new reader and the entries of the
+ * old reader are removed once it is closed. Repeated count queries on a shard which only
+ * received new documents therefore only have to count the new segments.
+ * </p>
+ * <p>
+ * Queries whose weight isn't cacheable, like queries evaluating functions per document, are never cached.
+ * </p>
+ */
+public final class SegmentCountCache {
+
+    public static final Setting<Integer> SIZE_SETTING = Setting.intSetting(
+        "node.sql.count_cache.size",
+        10_000,
+        0,
+        Setting.Property.NodeScope);
+
+    private final Cache<Key, Long> counts;
+    private final Set<IndexReader.CacheKey> segments = ConcurrentHashMap.newKeySet();
+
+    public SegmentCountCache(int maxSize) {
+        this.counts = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .build();
+    }
+
+    /**
+     * Returns the number of live documents of {@code leaves} which match {@code query}.
+     */
+    public long count(IndexSearcher searcher, Query query, List<LeafReaderContext> leaves) throws IOException {
+        Query rewritten = searcher.rewrite(query);
+        Weight weight = null;
+        long count = 0L;
+        for (LeafReaderContext leaf : leaves) {
+            long leafCount = countWithoutScoring(rewritten, leaf.reader());
+            if (leafCount == -1L) {
+                if (weight == null) {
+                    weight = searcher.createWeight(rewritten, false, 1f);
+                }
+                leafCount = cachedCount(weight, rewritten, leaf);
+            }
+            count += leafCount;
+        }
+        return count;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return counts.size();
+    }
+
+    /**
+     * @return the count if it can be read from the segment statistics, otherwise -1
+     */
+    private static long countWithoutScoring(Query query, LeafReader reader) throws IOException {
+        while (query instanceof ConstantScoreQuery) {
+            query = ((ConstantScoreQuery) query).getQuery();
+        }
+        if (query instanceof MatchAllDocsQuery) {
+            return reader.numDocs();
+        }
+        if (query instanceof MatchNoDocsQuery) {
+            return 0L;
+        }
+        if (query instanceof TermQuery && reader.hasDeletions() == false) {
+            return reader.docFreq(((TermQuery) query).getTerm());
+        }
+        return -1L;
+    }
+
+    private long cachedCount(Weight weight, Query query, LeafReaderContext leaf) throws IOException {
+        IndexReader.CacheHelper cacheHelper = leaf.reader().getReaderCacheHelper();
+        if (cacheHelper == null || weight.isCacheable(leaf) == false) {
+            return countLeaf(weight, leaf);
+        }
+        IndexReader.CacheKey segment = cacheHelper.getKey();
+        Key key = new Key(segment, query);
+        Long count = counts.getIfPresent(key);
+        if (count == null) {
+            count = countLeaf(weight, leaf);
+            if (segments.add(segment)) {
+                cacheHelper.addClosedListener(this::invalidate);
+            }
+            counts.put(key, count);
+        }
+        return count;
+    }
+
+    private void invalidate(IndexReader.CacheKey segment) {
+        segments.remove(segment);
+        counts.asMap().keySet().removeIf(key -> key.segment == segment);
+    }
+
+    private static long countLeaf(Weight weight, LeafReaderContext leaf) throws IOException {
+        BulkScorer scorer = weight.bulkScorer(leaf);
+        if (scorer == null) {
+            return 0L;
+        }
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        scorer.score(collector.getLeafCollector(leaf), leaf.reader().getLiveDocs());
+        return collector.getTotalHits();
+    }
+
+    private static final class Key {
+
+        private final IndexReader.CacheKey segment;
+        private final Query query;
+
+        Key(IndexReader.CacheKey segment, Query query) {
+            this.segment = segment;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return segment == key.segment && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(segment, query);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.expression.InputRow;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.collect.Tuple;
 import org.apache.logging.log4j.LogManager;
@@ -40,18 +41,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -63,11 +67,20 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     private static final Logger LOGGER = LogManager.getLogger(FileReadingIterator.class);
     private static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
+
+    /**
+     * Local files larger than this are split into byte ranges which are read concurrently if {@code readers} > 1
+     */
+    static final long MIN_SPLIT_SIZE_IN_BYTES = 32 * 1024 * 1024;
+
     private final Map<String, FileInputFactory> fileInputFactories;
     private final Boolean shared;
     private final int numReaders;
     private final int readerNumber;
     private final boolean compressed;
+    private final int readers;
+    @Nullable
+    private final Executor executor;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = (URI input) -> true;
@@ -84,6 +97,13 @@ public class FileReadingIterator implements BatchIterator<Row> {
     private final Row row;
     private LineProcessor lineProcessor;
 
+    @Nullable
+    private volatile ParallelLineReader parallelReader;
+    private final ArrayDeque<ParallelLineReader.Batch> loadedBatches = new ArrayDeque<>();
+    @Nullable
+    private List<String> batchLines;
+    private int batchPosition;
+
     private FileReadingIterator(Collection<String> fileUris,
                                 List<? extends Input<?>> inputs,
                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
@@ -92,7 +112,12 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                 Boolean shared,
                                 int numReaders,
                                 int readerNumber,
-                                FileUriCollectPhase.InputFormat inputFormat) {
+                                FileUriCollectPhase.InputFormat inputFormat,
+                                int readers,
+                                @Nullable Executor executor) {
+        assert readers == 1 || executor != null : "executor is required to read with multiple readers";
+        this.readers = readers;
+        this.executor = executor;
         this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
         this.row = new InputRow(inputs);
         this.fileInputFactories = fileInputFactories;
@@ -112,7 +137,11 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     @Override
     public void kill(@Nonnull Throwable throwable) {
-        // handled by CloseAssertingBatchIterator
+        // handled by CloseAssertingBatchIterator, only the readers need to be stopped
+        ParallelLineReader reader = parallelReader;
+        if (reader != null) {
+            reader.close();
+        }
     }
 
     public static BatchIterator<Row> newInstance(Collection<String> fileUris,
@@ -124,11 +153,31 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                                  int numReaders,
                                                  int readerNumber,
                                                  FileUriCollectPhase.InputFormat inputFormat) {
+        return newInstance(fileUris, inputs, collectorExpressions, compression, fileInputFactories, shared, numReaders,
+            readerNumber, inputFormat, 1, null);
+    }
+
+    /**
+     * @param readers the number of threads which read the files concurrently.
+     *                If greater than 1, lines are read ahead on the {@code executor}.
+     */
+    public static BatchIterator<Row> newInstance(Collection<String> fileUris,
+                                                 List<Input<?>> inputs,
+                                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                                 String compression,
+                                                 Map<String, FileInputFactory> fileInputFactories,
+                                                 Boolean shared,
+                                                 int numReaders,
+                                                 int readerNumber,
+                                                 FileUriCollectPhase.InputFormat inputFormat,
+                                                 int readers,
+                                                 @Nullable Executor executor) {
         return new CloseAssertingBatchIterator<>(new FileReadingIterator(fileUris, inputs, collectorExpressions,
-            compression, fileInputFactories, shared, numReaders, readerNumber, inputFormat));
+            compression, fileInputFactories, shared, numReaders, readerNumber, inputFormat, readers, executor));
     }
 
     private void initCollectorState() {
+        closeParallelReader();
         lineProcessor = new LineProcessor();
         lineProcessor.startCollect(collectorExpressions);
 
@@ -148,6 +197,9 @@ public class FileReadingIterator implements BatchIterator<Row> {
     @Override
     public boolean moveNext() {
         try {
+            if (readers > 1) {
+                return moveNextParallel();
+            }
             if (currentReader != null) {
                 String line = getLine(currentReader, currentLineNumber, 0);
                 if (line == null) {
@@ -172,6 +224,109 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
+    private boolean moveNextParallel() throws IOException {
+        if (parallelReader == null) {
+            if (fileInputsIterator == null) {
+                return false;
+            }
+            startParallelReader();
+        }
+        while (true) {
+            if (batchLines != null && batchPosition < batchLines.size()) {
+                lineProcessor.process(batchLines.get(batchPosition++));
+                return true;
+            }
+            batchLines = null;
+            ParallelLineReader.Batch batch = loadedBatches.poll();
+            if (batch == null) {
+                batch = parallelReader.poll();
+            }
+            if (batch == null) {
+                if (parallelReader.finished()) {
+                    releaseBatchIteratorState();
+                }
+                return false;
+            }
+            if (!batch.uri.equals(currentUri)) {
+                currentUri = batch.uri;
+                lineProcessor.readFirstLine(
+                    currentUri,
+                    inputFormat,
+                    new BufferedReader(new StringReader(batch.header == null ? "" : batch.header)));
+            }
+            lineProcessor.startWithBatch(batch.uri, batch.firstLineNumber);
+            if (batch.failure != null) {
+                lineProcessor.setFailure(batch.failure);
+                return true;
+            }
+            batchLines = batch.lines;
+            batchPosition = 0;
+        }
+    }
+
+    private void startParallelReader() {
+        assert executor != null : "executor must not be null if there are multiple readers";
+        boolean lineNumbersRequired = false;
+        for (LineCollectorExpression<?> expression : collectorExpressions) {
+            if (expression instanceof SourceLineNumberExpression) {
+                lineNumbersRequired = true;
+                break;
+            }
+        }
+        ArrayList<ParallelLineReader.Source> sources = new ArrayList<>();
+        while (fileInputsIterator.hasNext()) {
+            Tuple<FileInput, UriWithGlob> input = fileInputsIterator.next();
+            FileInput fileInput = input.v1();
+            UriWithGlob fileUri = input.v2();
+            try {
+                Predicate<URI> uriPredicate = generateUriPredicate(fileInput, fileUri.globPredicate);
+                List<URI> uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
+                if (uris.isEmpty() && fileUri.preGlobUri != null) {
+                    throw new IOException("Cannot find any URI matching: " + fileUri.uri.toString());
+                }
+                for (URI uri : uris) {
+                    addSources(sources, fileInput, uri, lineNumbersRequired);
+                }
+            } catch (IOException e) {
+                sources.add(ParallelLineReader.Source.failed(fileUri.uri, e.getMessage()));
+            }
+        }
+        parallelReader = new ParallelLineReader(sources, readers, executor, compressed);
+    }
+
+    /**
+     * Adds the sources to read {@code uri}.
+     * Large uncompressed local JSON files are split into ranges, unless line numbers are required;
+     * the number of the lines within a range isn't known until all previous ranges have been read.
+     */
+    private void addSources(List<ParallelLineReader.Source> sources,
+                            FileInput fileInput,
+                            URI uri,
+                            boolean lineNumbersRequired) throws IOException {
+        boolean csv = LineParser.isInputCsv(inputFormat, uri);
+        if (!compressed && !csv && !lineNumbersRequired && fileInput instanceof LocalFsFileInput) {
+            long size = Files.size(Paths.get(uri));
+            long splitSize = Math.max(MIN_SPLIT_SIZE_IN_BYTES, (size + readers - 1) / readers);
+            if (size > splitSize) {
+                for (long start = 0; start < size; start += splitSize) {
+                    sources.add(ParallelLineReader.Source.range(fileInput, uri, start, Math.min(size, start + splitSize)));
+                }
+                return;
+            }
+        }
+        sources.add(ParallelLineReader.Source.file(fileInput, uri, csv));
+    }
+
+    private void closeParallelReader() {
+        if (parallelReader != null) {
+            parallelReader.close();
+            parallelReader = null;
+        }
+        loadedBatches.clear();
+        batchLines = null;
+        currentUri = null;
+    }
+
     private void advanceToNextUri(FileInput fileInput) throws IOException {
         currentUri = currentInputIterator.next();
         initCurrentReader(fileInput, currentUri);
@@ -249,6 +404,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
     @Override
     public void close() {
         closeCurrentReader();
+        closeParallelReader();
         releaseBatchIteratorState();
     }
 
@@ -261,11 +417,24 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
     @Override
     public CompletableFuture<?> loadNextBatch() {
+        if (readers > 1 && !allLoaded()) {
+            if (parallelReader == null) {
+                startParallelReader();
+            }
+            return parallelReader.nextBatch().thenAccept(batch -> {
+                if (batch != null) {
+                    loadedBatches.add(batch);
+                }
+            });
+        }
         return CompletableFutures.failedFuture(new IllegalStateException("All batches already loaded"));
     }
 
     @Override
     public boolean allLoaded() {
+        if (readers > 1) {
+            return parallelReader == null ? fileInputsIterator == null : parallelReader.finished();
+        }
         return true;
     }
 
@@ -27,7 +27,6 @@ import io.crate.operation.collect.files.CSVLineParser;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 
 public class LineParser {
 
@@ -50,15 +49,18 @@ public class LineParser {
         }
     }
 
-    public byte[] getByteArray(String line) throws IOException {
+    /**
+     * Returns the line as JSON object. JSON lines are returned as they are.
+     */
+    String getJson(String line) {
         if (inputType == InputType.CSV) {
             return csvLineParser.parse(line);
         } else {
-            return line.getBytes(StandardCharsets.UTF_8);
+            return line;
         }
     }
 
-    private boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
+    static boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
         return (inputFormat == FileUriCollectPhase.InputFormat.CSV) || currentUri.toString().endsWith(".csv");
     }
 }
@@ -44,14 +44,22 @@ public class LineProcessor {
         lineContext.currentUri(currentUri);
     }
 
+    /**
+     * Continues with a batch of lines of {@code uri} which has been read ahead.
+     * The line number is the number of lines of the URI which have been processed before.
+     */
+    void startWithBatch(URI uri, long lineNumber) {
+        lineContext.currentUri(uri);
+        lineContext.currentLineNumber(lineNumber);
+    }
+
     void readFirstLine(URI currentUri, InputFormat inputFormat, BufferedReader currentReader) throws IOException {
         lineParser.readFirstLine(currentUri, inputFormat, currentReader);
     }
 
     public void process(String line) throws IOException {
         lineContext.incrementCurrentLineNumber();
-        byte[] jsonByteArray = lineParser.getByteArray(line);
-        lineContext.rawSource(jsonByteArray);
+        lineContext.rawSource(lineParser.getJson(line));
     }
 
     public void setFailure(String failure) {
@@ -0,0 +1,387 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static io.crate.concurrent.CompletableFutures.failedFuture;
+import static io.crate.exceptions.Exceptions.rethrowUnchecked;
+
+/**
+ * Reads the lines of multiple sources concurrently using {@code readers} threads.
+ *
+ * A source is either a whole file or a byte range of a large local file. Each reader takes the next source
+ * which hasn't been read yet and puts the lines it reads in batches into a bounded queue, so that at most
+ * {@link #PREFETCH_BATCHES_PER_READER} batches per reader are read ahead of the consumer.
+ *
+ * The consumer polls batches which are available with {@link #poll()} and waits for further batches with
+ * {@link #nextBatch()}.
+ */
+final class ParallelLineReader implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ParallelLineReader.class);
+
+    static final int BATCH_SIZE = 1000;
+    private static final int PREFETCH_BATCHES_PER_READER = 2;
+    private static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
+
+    private final ConcurrentLinkedQueue<Source> sources;
+    private final ArrayBlockingQueue<Batch> batches;
+    private final AtomicInteger activeReaders = new AtomicInteger();
+    private final AtomicReference<CompletableFuture<Void>> pendingBatch = new AtomicReference<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final boolean compressed;
+    private volatile boolean closed = false;
+
+    ParallelLineReader(List<Source> sources, int readers, Executor executor, boolean compressed) {
+        this.sources = new ConcurrentLinkedQueue<>(sources);
+        this.batches = new ArrayBlockingQueue<>(readers * PREFETCH_BATCHES_PER_READER);
+        this.compressed = compressed;
+        int numReaders = Math.min(readers, sources.size());
+        activeReaders.set(numReaders);
+        for (int i = 0; i < numReaders; i++) {
+            executor.execute(this::read);
+        }
+    }
+
+    /**
+     * @return the next batch or null if no batch is available at the moment.
+     */
+    @Nullable
+    Batch poll() {
+        Throwable t = failure.get();
+        if (t != null) {
+            rethrowUnchecked(t);
+        }
+        return batches.poll();
+    }
+
+    /**
+     * @return true if all sources have been read and all batches have been consumed.
+     */
+    boolean finished() {
+        return activeReaders.get() == 0 && batches.isEmpty();
+    }
+
+    /**
+     * @return a future which completes with the next batch once it is available,
+     *         or with null if all sources have been read.
+     */
+    CompletableFuture<Batch> nextBatch() {
+        try {
+            Batch batch = poll();
+            if (batch != null) {
+                return CompletableFuture.completedFuture(batch);
+            }
+            if (activeReaders.get() == 0) {
+                return CompletableFuture.completedFuture(poll());
+            }
+        } catch (Throwable t) {
+            return failedFuture(t);
+        }
+        CompletableFuture<Void> signal = new CompletableFuture<>();
+        pendingBatch.set(signal);
+        // a batch might have been added before the signal has been registered
+        if (!batches.isEmpty() || activeReaders.get() == 0) {
+            signal();
+        }
+        return signal.thenCompose(ignored -> nextBatch());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        batches.clear();
+        signal();
+    }
+
+    private void signal() {
+        CompletableFuture<Void> future = pendingBatch.getAndSet(null);
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    private void read() {
+        try {
+            Source source;
+            while (!closed && (source = sources.poll()) != null) {
+                if (source.failure != null) {
+                    put(Batch.failed(source.uri, source.failure));
+                } else {
+                    readSource(source);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            activeReaders.decrementAndGet();
+            signal();
+        }
+    }
+
+    private void readSource(Source source) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long numLines;
+        try {
+            if (source.end < 0) {
+                numLines = readFile(source);
+            } else {
+                numLines = readRange(source);
+            }
+        } catch (IOException e) {
+            LOGGER.info("Error during COPY FROM '{}'", e, source.uri);
+            put(Batch.failed(source.uri, e.getMessage()));
+            return;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("COPY FROM read {} lines from '{}'{} in {}ms",
+                numLines,
+                source.uri,
+                source.end < 0 ? "" : " (bytes " + source.start + " to " + source.end + ")",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    private long readFile(Source source) throws IOException, InterruptedException {
+        BufferedReader reader = openReader(source);
+        try {
+            String header = source.csv ? reader.readLine() : null;
+            long readLines = 0;
+            long numLines = 0;
+            ArrayList<String> lines = new ArrayList<>(BATCH_SIZE);
+            int retry = 0;
+            while (!closed) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (SocketTimeoutException e) {
+                    if (retry >= MAX_SOCKET_TIMEOUT_RETRIES) {
+                        LOGGER.info("Timeout during COPY FROM '{}' after {} retries", e, source.uri, retry);
+                        throw e;
+                    }
+                    retry++;
+                    reader.close();
+                    reader = openReader(source);
+                    // skip the lines which have been read already, including the header
+                    for (long i = source.csv ? -1 : 0; i < readLines; i++) {
+                        reader.readLine();
+                    }
+                    continue;
+                }
+                if (line == null) {
+                    break;
+                }
+                readLines++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == BATCH_SIZE) {
+                    put(new Batch(source.uri, header, numLines, lines, null));
+                    numLines += lines.size();
+                    lines = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!lines.isEmpty()) {
+                put(new Batch(source.uri, header, numLines, lines, null));
+                numLines += lines.size();
+            }
+            return numLines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private BufferedReader openReader(Source source) throws IOException {
+        InputStream stream = source.fileInput.getStream(source.uri);
+        if (compressed) {
+            stream = new GZIPInputStream(stream);
+        }
+        return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the lines which start within the byte range of the source.
+     * A line which starts within the range but ends after it is read completely,
+     * the incomplete line at the beginning of the range belongs to the previous range.
+     */
+    private long readRange(Source source) throws IOException, InterruptedException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(source.uri)), 64 * 1024)) {
+            long position = 0;
+            if (source.start > 0) {
+                position = skipFully(in, source.start - 1);
+                int b;
+                while ((b = in.read()) != -1) {
+                    position++;
+                    if (b == '\n') {
+                        break;
+                    }
+                }
+            }
+            long numLines = 0;
+            byte[] buffer = new byte[1024];
+            ArrayList<String> lines = new ArrayList<>(BATCH_SIZE);
+            while (!closed && position < source.end) {
+                int length = 0;
+                int b;
+                while ((b = in.read()) != -1) {
+                    position++;
+                    if (b == '\n') {
+                        break;
+                    }
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    buffer[length++] = (byte) b;
+                }
+                if (length > 0 && buffer[length - 1] == '\r') {
+                    length--;
+                }
+                if (length > 0) {
+                    lines.add(new String(buffer, 0, length, StandardCharsets.UTF_8));
+                    if (lines.size() == BATCH_SIZE) {
+                        put(new Batch(source.uri, null, numLines, lines, null));
+                        numLines += lines.size();
+                        lines = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (b == -1) {
+                    break;
+                }
+            }
+            if (!lines.isEmpty()) {
+                put(new Batch(source.uri, null, numLines, lines, null));
+                numLines += lines.size();
+            }
+            return numLines;
+        }
+    }
+
+    private static long skipFully(InputStream in, long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            long s = in.skip(n - skipped);
+            if (s <= 0) {
+                break;
+            }
+            skipped += s;
+        }
+        return skipped;
+    }
+
+    private void put(Batch batch) throws InterruptedException {
+        while (!closed) {
+            if (batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                signal();
+                return;
+            }
+        }
+    }
+
+    /**
+     * A file or a byte range of a file which is read by a single reader
+     */
+    static final class Source {
+
+        private final FileInput fileInput;
+        private final URI uri;
+        private final boolean csv;
+        private final long start;
+        private final long end;
+        @Nullable
+        private final String failure;
+
+        private Source(FileInput fileInput, URI uri, boolean csv, long start, long end, @Nullable String failure) {
+            this.fileInput = fileInput;
+            this.uri = uri;
+            this.csv = csv;
+            this.start = start;
+            this.end = end;
+            this.failure = failure;
+        }
+
+        static Source file(FileInput fileInput, URI uri, boolean csv) {
+            return new Source(fileInput, uri, csv, 0, -1, null);
+        }
+
+        static Source range(FileInput fileInput, URI uri, long start, long end) {
+            return new Source(fileInput, uri, false, start, end, null);
+        }
+
+        static Source failed(URI uri, String failure) {
+            return new Source(null, uri, false, 0, -1, failure);
+        }
+    }
+
+    static final class Batch {
+
+        final URI uri;
+        @Nullable
+        final String header;
+        final long firstLineNumber;
+        final List<String> lines;
+        @Nullable
+        final String failure;
+
+        Batch(URI uri, @Nullable String header, long firstLineNumber, List<String> lines, @Nullable String failure) {
+            this.uri = uri;
+            this.header = header;
+            this.firstLineNumber = firstLineNumber;
+            this.lines = lines;
+            this.failure = failure;
+        }
+
+        static Batch failed(URI uri, String failure) {
+            return new Batch(uri, null, 0, Collections.emptyList(), failure);
+        }
+    }
+}
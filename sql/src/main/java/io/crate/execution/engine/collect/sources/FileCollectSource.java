@@ -42,6 +42,7 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -57,10 +58,15 @@ public class FileCollectSource implements CollectSource {
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final InputFactory inputFactory;
     private final Functions functions;
+    private final ThreadPool threadPool;
 
     @Inject
-    public FileCollectSource(Functions functions, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(Functions functions,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
+        this.threadPool = threadPool;
         this.functions = functions;
         this.inputFactory = new InputFactory(functions);
         this.clusterService = clusterService;
@@ -86,7 +92,9 @@ public class FileCollectSource implements CollectSource {
             fileUriCollectPhase.sharedStorage(),
             fileUriCollectPhase.nodeIds().size(),
             getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId()),
-            fileUriCollectPhase.inputFormat()
+            fileUriCollectPhase.inputFormat(),
+            fileUriCollectPhase.readers(),
+            threadPool.executor(ThreadPool.Names.GENERIC)
         );
     }
 
@@ -43,6 +43,7 @@ import io.crate.execution.engine.collect.CollectTask;
 import io.crate.execution.engine.collect.RemoteCollectorFactory;
 import io.crate.execution.engine.collect.RowsTransformer;
 import io.crate.execution.engine.collect.ShardCollectorProvider;
+import io.crate.execution.engine.collect.ShardResultCache;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.collect.collectors.OrderedLuceneBatchIteratorFactory;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
@@ -78,6 +79,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
@@ -135,10 +137,26 @@ import static io.crate.execution.support.ThreadPools.numIdleThreads;
  * </pre>
  *
  * In other cases multiple shards are simply processed sequentially by concatenating the BatchIterators
+ *
+ * <p>
+ *     If the shard projections are partial aggregations, a single shard can additionally be split into slices
+ *     of segments (see {@link #MAX_SEGMENT_SLICES_SETTING}). Each slice gets its own LuceneBatchIterator and
+ *     CollectingBatchIterator and is consumed by the AsyncCompositeBatchIterator as if it were another shard.
+ * </p>
  */
 @Singleton
 public class ShardCollectSource extends AbstractComponent implements CollectSource {
 
+    /**
+     * The maximum number of slices a shard is split into to collect its segments concurrently.
+     * The actual number of slices is also bound by the number of idle search threads at the time a query is started.
+     */
+    public static final Setting<Integer> MAX_SEGMENT_SLICES_SETTING = Setting.intSetting(
+        "node.sql.collect.max_segment_slices",
+        1,
+        1,
+        Setting.Property.NodeScope);
+
     private final IndicesService indicesService;
     private final ClusterService clusterService;
     private final RemoteCollectorFactory remoteCollectorFactory;
@@ -151,6 +169,7 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
     private final StaticTableReferenceResolver<UnassignedShard> unassignedShardReferenceResolver;
     private final StaticTableReferenceResolver<ShardRowContext> shardReferenceResolver;
     private final IntSupplier availableThreads;
+    private final int maxSegmentSlices;
 
     @Inject
     public ShardCollectSource(Settings settings,
@@ -177,6 +196,7 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
         ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
         this.availableThreads = numIdleThreads(executor, EsExecutors.numberOfProcessors(settings));
         this.executor = executor;
+        this.maxSegmentSlices = MAX_SEGMENT_SLICES_SETTING.get(settings);
         this.inputFactory = new InputFactory(functions);
         this.shardCollectorProviderFactory = new ShardCollectorProviderFactory(
             clusterService,
@@ -188,7 +208,8 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
             functions,
             luceneQueryBuilder,
             nodeJobsCounter,
-            bigArrays);
+            bigArrays,
+            new ShardResultCache(ShardResultCache.SIZE_SETTING.get(settings).getBytes()));
         EvaluatingNormalizer nodeNormalizer = new EvaluatingNormalizer(
             functions,
             RowGranularity.DOC,
@@ -290,7 +311,12 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
         Map<String, IntIndexedContainer> indexShards = collectPhase.routing().locations().get(localNodeId);
         List<BatchIterator<Row>> iterators = indexShards == null
             ? Collections.emptyList()
-            : getIterators(collectTask, collectPhase, requireMoveToStartSupport, indexShards);
+            : getIterators(
+                collectTask,
+                collectPhase,
+                requireMoveToStartSupport,
+                indexShards,
+                maxSlicesPerShard(collectPhase, localNodeId));
 
         final BatchIterator<Row> result;
         switch (iterators.size()) {
@@ -376,6 +402,15 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
         );
     }
 
+    private int maxSlicesPerShard(RoutedCollectPhase collectPhase, String localNodeId) {
+        // The partial results of the slices are merged in the same way as the partial results of different shards
+        if (maxSegmentSlices == 1 || !Projections.shardProjectionsArePartialAggregations(collectPhase.projections())) {
+            return 1;
+        }
+        int numShards = Math.max(1, collectPhase.routing().numShards(localNodeId));
+        return Math.max(1, Math.min(maxSegmentSlices, availableThreads.getAsInt() / numShards));
+    }
+
     private ShardCollectorProvider getCollectorProviderSafe(ShardId shardId) {
         Supplier<ShardCollectorProvider> supplier = shards.get(shardId);
         if (supplier == null) {
@@ -391,7 +426,8 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
     private List<BatchIterator<Row>> getIterators(CollectTask collectTask,
                                                   RoutedCollectPhase collectPhase,
                                                   boolean requiresScroll,
-                                                  Map<String, IntIndexedContainer> indexShards) {
+                                                  Map<String, IntIndexedContainer> indexShards,
+                                                  int maxSlicesPerShard) {
 
         MetaData metaData = clusterService.state().metaData();
         List<BatchIterator<Row>> iterators = new ArrayList<>();
@@ -417,12 +453,12 @@ public class ShardCollectSource extends AbstractComponent implements CollectSour
                 ShardId shardId = new ShardId(index, shardCursor.value);
                 try {
                     ShardCollectorProvider shardCollectorProvider = getCollectorProviderSafe(shardId);
-                    BatchIterator<Row> iterator = shardCollectorProvider.getIterator(
+                    iterators.addAll(shardCollectorProvider.getIterators(
                         collectPhase,
                         requiresScroll,
-                        collectTask
-                    );
-                    iterators.add(iterator);
+                        collectTask,
+                        maxSlicesPerShard
+                    ));
                 } catch (ShardNotFoundException | IllegalIndexShardStateException e) {
                     // If toCollect contains a docId it means that this is a QueryThenFetch operation.
                     // In such a case RemoteCollect cannot be used because on that node the FetchTask is missing
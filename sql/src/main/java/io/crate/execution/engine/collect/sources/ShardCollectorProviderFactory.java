@@ -28,6 +28,7 @@ import io.crate.execution.TransportActionProvider;
 import io.crate.execution.engine.collect.BlobShardCollectorProvider;
 import io.crate.execution.engine.collect.LuceneShardCollectorProvider;
 import io.crate.execution.engine.collect.ShardCollectorProvider;
+import io.crate.execution.engine.collect.ShardResultCache;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.Functions;
@@ -53,6 +54,7 @@ public class ShardCollectorProviderFactory {
     private final NodeJobsCounter nodeJobsCounter;
     private final BigArrays bigArrays;
     private final Settings settings;
+    private final ShardResultCache resultCache;
 
     ShardCollectorProviderFactory(ClusterService clusterService,
                                   Settings settings,
@@ -63,7 +65,8 @@ public class ShardCollectorProviderFactory {
                                   Functions functions,
                                   LuceneQueryBuilder luceneQueryBuilder,
                                   NodeJobsCounter nodeJobsCounter,
-                                  BigArrays bigArrays) {
+                                  BigArrays bigArrays,
+                                  ShardResultCache resultCache) {
         this.settings = settings;
         this.schemas = schemas;
         this.clusterService = clusterService;
@@ -74,6 +77,7 @@ public class ShardCollectorProviderFactory {
         this.luceneQueryBuilder = luceneQueryBuilder;
         this.nodeJobsCounter = nodeJobsCounter;
         this.bigArrays = bigArrays;
+        this.resultCache = resultCache;
     }
 
     public ShardCollectorProvider create(IndexShard indexShard) {
@@ -100,7 +104,8 @@ public class ShardCollectorProviderFactory {
                 settings,
                 transportActionProvider,
                 indexShard,
-                bigArrays);
+                bigArrays,
+                resultCache);
         }
     }
 }
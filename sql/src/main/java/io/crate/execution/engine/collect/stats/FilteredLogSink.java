@@ -75,6 +75,11 @@ public final class FilteredLogSink<T> implements LogSink<T> {
         delegate.close();
     }
 
+    @Override
+    public long numEvicted() {
+        return delegate.numEvicted();
+    }
+
     @Override
     @Nonnull
     public Iterator<T> iterator() {
@@ -32,7 +32,6 @@ import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.breaker.JobContextLogSizeEstimator;
 import io.crate.breaker.OperationContextLogSizeEstimator;
 import io.crate.breaker.SizeEstimator;
-import io.crate.common.collections.BlockingEvictingQueue;
 import io.crate.data.Input;
 import io.crate.execution.engine.collect.NestableCollectExpression;
 import io.crate.expression.ExpressionsInput;
@@ -267,32 +266,25 @@ public class JobsLogService extends AbstractLifecycleComponent implements Provid
     }
 
     private <E extends ContextLog> LogSink<E> createSink(int size, TimeValue expiration, SizeEstimator<E> sizeEstimator, String breaker) {
-        Queue<E> q;
         long expirationMillis = expiration.getMillis();
-        final Runnable onClose;
         if (size == 0 && expirationMillis == 0) {
             return NoopLogSink.instance();
-        } else if (expirationMillis > 0) {
-            q = new ConcurrentLinkedDeque<>();
-            long delay = 0L;
-            ScheduledFuture<?> scheduledFuture = TimeBasedQEviction.scheduleTruncate(
-                delay,
-                clearInterval(expiration),
-                q,
-                scheduler,
-                expiration
-            );
-            onClose = () -> scheduledFuture.cancel(false);
-        } else {
-            q = new BlockingEvictingQueue<>(size);
-            onClose = () -> {
-            };
+        } else if (expirationMillis == 0) {
+            return new RingBufferLogSink<>(size, breakerService.getBreaker(breaker), sizeEstimator);
         }
-
+        Queue<E> q = new ConcurrentLinkedDeque<>();
+        long delay = 0L;
+        ScheduledFuture<?> scheduledFuture = TimeBasedQEviction.scheduleTruncate(
+            delay,
+            clearInterval(expiration),
+            q,
+            scheduler,
+            expiration
+        );
         RamAccountingQueue<E> accountingQueue = new RamAccountingQueue<>(q, breakerService.getBreaker(breaker), sizeEstimator);
         return new QueueSink<>(accountingQueue, () -> {
             accountingQueue.close();
-            onClose.run();
+            scheduledFuture.cancel(false);
         });
     }
 
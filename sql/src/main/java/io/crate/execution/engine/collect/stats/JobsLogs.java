@@ -36,9 +36,8 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.LongAdder;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BooleanSupplier;
 
 
@@ -58,6 +57,9 @@ import java.util.function.BooleanSupplier;
  * from the properties may become obsolete.
  * So the Iterable instances shouldn't be hold onto.
  * Instead the Iterable should be re-retrieved each time the data is processed.
+ *
+ * Adding to the logs doesn't lock. A sink which is replaced on a configuration update is only closed once all
+ * threads which are adding to it have finished, so that its entries can be moved to the new sink.
  */
 @ThreadSafe
 public class JobsLogs {
@@ -65,11 +67,8 @@ public class JobsLogs {
     private final Map<UUID, JobContext> jobsTable = new ConcurrentHashMap<>();
     private final Map<Tuple<Integer, UUID>, OperationContext> operationsTable = new ConcurrentHashMap<>();
 
-    private LogSink<JobContextLog> jobsLog = NoopLogSink.instance();
-    private LogSink<OperationContextLog> operationsLog = NoopLogSink.instance();
-
-    private final ReadWriteLock jobsLogRWLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock operationsLogRWLock = new ReentrantReadWriteLock();
+    private volatile ActiveSink<JobContextLog> jobsLog = new ActiveSink<>(NoopLogSink.instance());
+    private volatile ActiveSink<OperationContextLog> operationsLog = new ActiveSink<>(NoopLogSink.instance());
 
     private final LongAdder activeRequests = new LongAdder();
     private final BooleanSupplier enabled;
@@ -121,11 +120,12 @@ public class JobsLogs {
         }
         JobContextLog jobContextLog = new JobContextLog(jobContext, errorMessage);
         addToHistogram(jobContextLog);
-        jobsLogRWLock.readLock().lock();
-        try {
-            jobsLog.add(jobContextLog);
-        } finally {
-            jobsLogRWLock.readLock().unlock();
+        addToJobsLog(jobContextLog);
+    }
+
+    private void addToJobsLog(JobContextLog jobContextLog) {
+        while (jobsLog.tryAdd(jobContextLog) == false) {
+            // the sink has been replaced concurrently, retry with the new sink
         }
     }
 
@@ -145,12 +145,7 @@ public class JobsLogs {
     public void logPreExecutionFailure(UUID jobId, String stmt, String errorMessage, User user) {
         JobContextLog jobContextLog = new JobContextLog(
             new JobContext(jobId, stmt, System.currentTimeMillis(), user, null), errorMessage);
-        jobsLogRWLock.readLock().lock();
-        try {
-            jobsLog.add(jobContextLog);
-        } finally {
-            jobsLogRWLock.readLock().unlock();
-        }
+        addToJobsLog(jobContextLog);
     }
 
     public void operationStarted(int operationId, UUID jobId, String name) {
@@ -177,11 +172,8 @@ public class JobsLogs {
         }
         operationContext.usedBytes = usedBytes;
         OperationContextLog operationContextLog = new OperationContextLog(operationContext, errorMessage);
-        operationsLogRWLock.readLock().lock();
-        try {
-            operationsLog.add(operationContextLog);
-        } finally {
-            operationsLogRWLock.readLock().unlock();
+        while (operationsLog.tryAdd(operationContextLog) == false) {
+            // the sink has been replaced concurrently, retry with the new sink
         }
     }
 
@@ -190,12 +182,14 @@ public class JobsLogs {
     }
 
     public Iterable<JobContextLog> jobsLog() {
-        jobsLogRWLock.readLock().lock();
-        try {
-            return jobsLog;
-        } finally {
-            jobsLogRWLock.readLock().unlock();
-        }
+        return jobsLog.sink;
+    }
+
+    /**
+     * @return the number of entries which have been evicted from the jobs log because it was full.
+     */
+    public long jobsLogNumEvicted() {
+        return jobsLog.sink.numEvicted();
     }
 
     public Iterable<OperationContext> activeOperations() {
@@ -203,38 +197,30 @@ public class JobsLogs {
     }
 
     public Iterable<OperationContextLog> operationsLog() {
-        operationsLogRWLock.readLock().lock();
-        try {
-            return operationsLog;
-        } finally {
-            operationsLogRWLock.readLock().unlock();
-        }
+        return operationsLog.sink;
+    }
+
+    /**
+     * @return the number of entries which have been evicted from the operations log because it was full.
+     */
+    public long operationsLogNumEvicted() {
+        return operationsLog.sink.numEvicted();
     }
 
     public long activeRequests() {
         return activeRequests.longValue();
     }
 
-    void updateOperationsLog(LogSink<OperationContextLog> sink) {
-        operationsLogRWLock.writeLock().lock();
-        try {
-            sink.addAll(operationsLog);
-            operationsLog.close();
-            operationsLog = sink;
-        } finally {
-            operationsLogRWLock.writeLock().unlock();
-        }
+    synchronized void updateOperationsLog(LogSink<OperationContextLog> sink) {
+        ActiveSink<OperationContextLog> previous = operationsLog;
+        operationsLog = new ActiveSink<>(sink);
+        previous.replaceWith(sink);
     }
 
-    void updateJobsLog(LogSink<JobContextLog> sink) {
-        jobsLogRWLock.writeLock().lock();
-        try {
-            sink.addAll(jobsLog);
-            jobsLog.close();
-            jobsLog = sink;
-        } finally {
-            jobsLogRWLock.writeLock().unlock();
-        }
+    synchronized void updateJobsLog(LogSink<JobContextLog> sink) {
+        ActiveSink<JobContextLog> previous = jobsLog;
+        jobsLog = new ActiveSink<>(sink);
+        previous.replaceWith(sink);
     }
 
     void resetMetricHistograms() {
@@ -242,7 +228,58 @@ public class JobsLogs {
     }
 
     public void close() {
-        jobsLog.close();
-        operationsLog.close();
+        jobsLog.sink.close();
+        operationsLog.sink.close();
+    }
+
+    /**
+     * A sink together with the number of threads which are currently adding to it.
+     * The writers are counted per stripe, a stripe is chosen by thread id to avoid contention between threads.
+     */
+    private static final class ActiveSink<T> {
+
+        private static final int NUM_STRIPES = 64;
+        // each stripe uses a separate cache line to avoid false sharing
+        private static final int STRIPE_SIZE = 8;
+
+        private final LogSink<T> sink;
+        private final AtomicLongArray writers = new AtomicLongArray(NUM_STRIPES * STRIPE_SIZE);
+        private volatile boolean replaced = false;
+
+        ActiveSink(LogSink<T> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * @return false if the sink has been replaced and the item wasn't added.
+         */
+        boolean tryAdd(T item) {
+            int stripe = ((int) Thread.currentThread().getId() & (NUM_STRIPES - 1)) * STRIPE_SIZE;
+            writers.incrementAndGet(stripe);
+            try {
+                if (replaced) {
+                    return false;
+                }
+                sink.add(item);
+                return true;
+            } finally {
+                writers.decrementAndGet(stripe);
+            }
+        }
+
+        /**
+         * Waits until all threads adding to this sink are finished, moves the items of this sink to the new sink and
+         * closes this sink.
+         */
+        void replaceWith(LogSink<T> newSink) {
+            replaced = true;
+            for (int i = 0; i < NUM_STRIPES; i++) {
+                while (writers.get(i * STRIPE_SIZE) > 0) {
+                    Thread.yield();
+                }
+            }
+            newSink.addAll(sink);
+            sink.close();
+        }
     }
 }
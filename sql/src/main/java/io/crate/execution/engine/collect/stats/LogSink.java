@@ -30,4 +30,11 @@ public interface LogSink<T> extends Iterable<T> {
 
     void close();
 
+    /**
+     * @return the number of items which have been dropped because the sink reached its capacity.
+     */
+    default long numEvicted() {
+        return 0L;
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.SizeEstimator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link LogSink} which keeps the last {@code capacity} items in a ring buffer.
+ *
+ * <p>
+ * Adding an item doesn't lock: the writer claims the next slot with an atomic increment and overwrites the oldest item
+ * if the buffer is full. The number of overwritten items is available via {@link #numEvicted()}.
+ * Iterating the sink returns a snapshot of the items in the order in which they were added.
+ * </p>
+ *
+ * The memory used by the items is accounted on the given breaker. If the limit of the breaker is exceeded the
+ * buffer is cleared.
+ */
+public final class RingBufferLogSink<T> implements LogSink<T> {
+
+    private static final Logger LOGGER = LogManager.getLogger(RingBufferLogSink.class);
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLong nextSeqNo = new AtomicLong(0L);
+    private final AtomicBoolean clearing = new AtomicBoolean(false);
+    private final SizeEstimator<T> sizeEstimator;
+    private final CircuitBreaker breaker;
+    private final RamAccountingContext context;
+
+    public RingBufferLogSink(int capacity, CircuitBreaker breaker, SizeEstimator<T> sizeEstimator) {
+        assert capacity > 0 : "capacity must be > 0";
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.breaker = breaker;
+        this.sizeEstimator = sizeEstimator;
+        this.context = new RamAccountingContext(
+            String.format(Locale.ENGLISH, "RingBufferLogSink[%s]", UUID.randomUUID().toString()), breaker);
+    }
+
+    @Override
+    public void add(T item) {
+        long seqNo = nextSeqNo.getAndIncrement();
+        T replaced = slots.getAndSet(slot(seqNo), item);
+        context.addBytesWithoutBreaking(sizeEstimator.estimateSize(item) - sizeOf(replaced));
+        if (context.exceededBreaker() && clearing.compareAndSet(false, true)) {
+            try {
+                LOGGER.warn("Memory limit for breaker [{}] was exceeded. Log [{}] is cleared.",
+                    breaker.getName(), context.contextId());
+                clear();
+            } finally {
+                clearing.set(false);
+            }
+        }
+    }
+
+    @Override
+    public void addAll(Iterable<T> iterable) {
+        for (T item : iterable) {
+            add(item);
+        }
+    }
+
+    /**
+     * @return the number of items which have been overwritten by newer items because the buffer was full.
+     */
+    @Override
+    public long numEvicted() {
+        return Math.max(0L, nextSeqNo.get() - slots.length());
+    }
+
+    private int slot(long seqNo) {
+        return (int) (seqNo % slots.length());
+    }
+
+    private long sizeOf(T item) {
+        return item == null ? 0L : sizeEstimator.estimateSize(item);
+    }
+
+    private void clear() {
+        long bytes = 0L;
+        for (int i = 0; i < slots.length(); i++) {
+            bytes += sizeOf(slots.getAndSet(i, null));
+        }
+        context.addBytesWithoutBreaking(-bytes);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        long end = nextSeqNo.get();
+        long start = Math.max(0L, end - slots.length());
+        List<T> items = new ArrayList<>((int) (end - start));
+        for (long seqNo = start; seqNo < end; seqNo++) {
+            T item = slots.get(slot(seqNo));
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items.iterator();
+    }
+
+    @Override
+    public void close() {
+        clear();
+        context.close();
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import io.crate.Streamer;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Column wise encoding of the rows of a {@link StreamBucket}.
+ *
+ * <p>
+ * The values of each column are written into their own section:
+ * </p>
+ * <ul>
+ *     <li>Fixed width types: A null bitmap followed by the non-null values, contiguous and without null markers</li>
+ *     <li>Strings: A dictionary of the distinct values followed by the dictionary index of each value</li>
+ *     <li>All other types: The values written by the {@link Streamer} of the column</li>
+ * </ul>
+ */
+final class ColumnarEncoding {
+
+    private static final byte STREAMER = 0;
+    private static final byte LONG = 1;
+    private static final byte INTEGER = 2;
+    private static final byte SHORT = 3;
+    private static final byte BYTE = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte STRING_DICTIONARY = 8;
+
+    private static final int INITIAL_COLUMN_SIZE = 128;
+
+    private ColumnarEncoding() {
+    }
+
+    private static byte encodingFor(Streamer<?> streamer) {
+        if (streamer instanceof DataType) {
+            switch (((DataType) streamer).id()) {
+                case LongType.ID:
+                case TimestampType.ID:
+                    return LONG;
+                case IntegerType.ID:
+                    return INTEGER;
+                case ShortType.ID:
+                    return SHORT;
+                case ByteType.ID:
+                    return BYTE;
+                case DoubleType.ID:
+                    return DOUBLE;
+                case FloatType.ID:
+                    return FLOAT;
+                case BooleanType.ID:
+                    return BOOLEAN;
+                case StringType.ID:
+                    return STRING_DICTIONARY;
+                default:
+                    return STREAMER;
+            }
+        }
+        return STREAMER;
+    }
+
+    static ColumnWriter newWriter(Streamer<?> streamer) {
+        byte encoding = encodingFor(streamer);
+        switch (encoding) {
+            case STREAMER:
+                return new StreamerColumnWriter(streamer);
+            case STRING_DICTIONARY:
+                return new DictionaryColumnWriter();
+            default:
+                return new FixedWidthColumnWriter(encoding);
+        }
+    }
+
+    static ColumnReader newReader(byte encoding, Streamer<?> streamer, StreamInput in) throws IOException {
+        switch (encoding) {
+            case STREAMER:
+                return new StreamerColumnReader(streamer, in);
+            case STRING_DICTIONARY:
+                return new DictionaryColumnReader(in);
+            default:
+                return new FixedWidthColumnReader(encoding, in);
+        }
+    }
+
+    abstract static class ColumnWriter {
+
+        final BytesStreamOutput out = new BytesStreamOutput(INITIAL_COLUMN_SIZE);
+        private final byte encoding;
+
+        ColumnWriter(byte encoding) {
+            this.encoding = encoding;
+        }
+
+        byte encoding() {
+            return encoding;
+        }
+
+        abstract void add(Object value) throws IOException;
+
+        /**
+         * @return the number of bytes required to encode the values added so far
+         */
+        abstract long sizeInBytes();
+
+        abstract void writeTo(StreamOutput out) throws IOException;
+    }
+
+    interface ColumnReader {
+
+        Object next() throws IOException;
+    }
+
+    private static class StreamerColumnWriter extends ColumnWriter {
+
+        private final Streamer streamer;
+
+        StreamerColumnWriter(Streamer<?> streamer) {
+            super(STREAMER);
+            this.streamer = streamer;
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            //noinspection unchecked
+            streamer.writeValueTo(out, value);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return out.size();
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            this.out.bytes().writeTo(out);
+        }
+    }
+
+    private static class StreamerColumnReader implements ColumnReader {
+
+        private final Streamer<?> streamer;
+        private final StreamInput in;
+
+        StreamerColumnReader(Streamer<?> streamer, StreamInput in) {
+            this.streamer = streamer;
+            this.in = in;
+        }
+
+        @Override
+        public Object next() throws IOException {
+            return streamer.readValueFrom(in);
+        }
+    }
+
+    private static class FixedWidthColumnWriter extends ColumnWriter {
+
+        private long[] nullBits = new long[1];
+        private int numValues = 0;
+        private boolean hasNulls = false;
+
+        FixedWidthColumnWriter(byte encoding) {
+            super(encoding);
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            int idx = numValues++;
+            if (value == null) {
+                int word = idx >>> 6;
+                if (word >= nullBits.length) {
+                    long[] newNullBits = new long[Math.max(word + 1, nullBits.length * 2)];
+                    System.arraycopy(nullBits, 0, newNullBits, 0, nullBits.length);
+                    nullBits = newNullBits;
+                }
+                nullBits[word] |= 1L << idx;
+                hasNulls = true;
+                return;
+            }
+            switch (encoding()) {
+                case LONG:
+                    out.writeLong((Long) value);
+                    break;
+                case INTEGER:
+                    out.writeInt((Integer) value);
+                    break;
+                case SHORT:
+                    out.writeShort((Short) value);
+                    break;
+                case BYTE:
+                    out.writeByte((Byte) value);
+                    break;
+                case DOUBLE:
+                    out.writeDouble((Double) value);
+                    break;
+                case FLOAT:
+                    out.writeFloat((Float) value);
+                    break;
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) value);
+                    break;
+                default:
+                    throw new AssertionError("Unexpected encoding: " + encoding());
+            }
+        }
+
+        private int numNullWords() {
+            return hasNulls ? ((numValues - 1) >>> 6) + 1 : 0;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 5 + numNullWords() * 8L + out.size();
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            int numNullWords = numNullWords();
+            out.writeVInt(numNullWords);
+            for (int i = 0; i < numNullWords; i++) {
+                out.writeLong(nullBits[i]);
+            }
+            this.out.bytes().writeTo(out);
+        }
+    }
+
+    private static class FixedWidthColumnReader implements ColumnReader {
+
+        private final byte encoding;
+        private final StreamInput in;
+        private final long[] nullBits;
+        private int idx = 0;
+
+        FixedWidthColumnReader(byte encoding, StreamInput in) throws IOException {
+            this.encoding = encoding;
+            this.in = in;
+            nullBits = new long[in.readVInt()];
+            for (int i = 0; i < nullBits.length; i++) {
+                nullBits[i] = in.readLong();
+            }
+        }
+
+        @Override
+        public Object next() throws IOException {
+            int word = idx >>> 6;
+            boolean isNull = word < nullBits.length && (nullBits[word] & (1L << idx)) != 0;
+            idx++;
+            if (isNull) {
+                return null;
+            }
+            switch (encoding) {
+                case LONG:
+                    return in.readLong();
+                case INTEGER:
+                    return in.readInt();
+                case SHORT:
+                    return in.readShort();
+                case BYTE:
+                    return in.readByte();
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case BOOLEAN:
+                    return in.readBoolean();
+                default:
+                    throw new AssertionError("Unexpected encoding: " + encoding);
+            }
+        }
+    }
+
+    private static class DictionaryColumnWriter extends ColumnWriter {
+
+        private final ObjectIntHashMap<String> ordinals = new ObjectIntHashMap<>();
+        private final BytesStreamOutput dictionary = new BytesStreamOutput(INITIAL_COLUMN_SIZE);
+
+        DictionaryColumnWriter() {
+            super(STRING_DICTIONARY);
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            if (value == null) {
+                out.writeVInt(0);
+                return;
+            }
+            String str = (String) value;
+            int ordinal = ordinals.getOrDefault(str, -1);
+            if (ordinal == -1) {
+                ordinal = ordinals.size();
+                ordinals.put(str, ordinal);
+                dictionary.writeString(str);
+            }
+            // 0 is used for null values
+            out.writeVInt(ordinal + 1);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 5 + dictionary.size() + out.size();
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(ordinals.size());
+            dictionary.bytes().writeTo(out);
+            this.out.bytes().writeTo(out);
+        }
+    }
+
+    private static class DictionaryColumnReader implements ColumnReader {
+
+        private final StreamInput in;
+        private final String[] dictionary;
+
+        DictionaryColumnReader(StreamInput in) throws IOException {
+            this.in = in;
+            dictionary = new String[in.readVInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.readString();
+            }
+        }
+
+        @Override
+        public Object next() throws IOException {
+            int ordinal = in.readVInt();
+            return ordinal == 0 ? null : dictionary[ordinal - 1];
+        }
+    }
+}
@@ -39,11 +39,32 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 
+/**
+ * A bucket of rows which is serialized using the streamers. The rows are lazily de-serialized on iteration.
+ *
+ * <p>
+ * The rows are serialized one after another, or column wise if {@link #COLUMNAR_ENCODING} is enabled,
+ * see {@link ColumnarEncoding}. The column wise bytes start with a header containing the encoding and the number
+ * of bytes of each column, followed by the encoded columns.
+ * </p>
+ */
 public class StreamBucket implements Bucket, Writeable {
 
+    /**
+     * Whether buckets are serialized column wise.
+     * <p>
+     * Nodes only exchange the Elasticsearch version in the transport handshake, which is the same for CrateDB
+     * versions which can and which can't read the columnar format. Until nodes exchange a CrateDB version or a
+     * feature flag the rows are serialized one after another, the format all nodes can read.
+     * </p>
+     * This must not be final so tests can enable it.
+     */
+    static boolean COLUMNAR_ENCODING = false;
+
     private Streamer<?>[] streamers;
     private int size = -1;
     private BytesReference bytes;
+    private boolean columnar = COLUMNAR_ENCODING;
 
     public static class Builder {
 
@@ -53,14 +74,29 @@ public class StreamBucket implements Bucket, Writeable {
 
         private int size = 0;
         private final Streamer<?>[] streamers;
-        private BytesStreamOutput out;
-        private int prevOutSize = 0;
+        private final boolean columnar;
+        private ColumnarEncoding.ColumnWriter[] columns;
+        private BytesStreamOutput rows;
+        private long prevSizeInBytes = 0;
 
         public Builder(Streamer<?>[] streamers, RamAccountingContext ramAccountingContext) {
             this.ramAccountingContext = ramAccountingContext;
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
-            out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            this.columnar = COLUMNAR_ENCODING;
+            if (columnar) {
+                columns = newColumnWriters(streamers);
+            } else {
+                rows = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            }
+        }
+
+        private static ColumnarEncoding.ColumnWriter[] newColumnWriters(Streamer<?>[] streamers) {
+            ColumnarEncoding.ColumnWriter[] columns = new ColumnarEncoding.ColumnWriter[streamers.length];
+            for (int i = 0; i < streamers.length; i++) {
+                columns[i] = ColumnarEncoding.newWriter(streamers[i]);
+            }
+            return columns;
         }
 
         public void add(Row row) {
@@ -69,33 +105,83 @@ public class StreamBucket implements Bucket, Writeable {
             size++;
             for (int i = 0; i < row.numColumns(); i++) {
                 try {
-                    //noinspection unchecked
-                    ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+                    if (columnar) {
+                        columns[i].add(row.get(i));
+                    } else {
+                        //noinspection unchecked
+                        ((Streamer) streamers[i]).writeValueTo(rows, row.get(i));
+                    }
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
             }
             if (ramAccountingContext != null) {
-                ramAccountingContext.addBytes(out.size() - prevOutSize);
-                prevOutSize = out.size();
+                long sizeInBytes = sizeInBytes();
+                ramAccountingContext.addBytes(sizeInBytes - prevSizeInBytes);
+                prevSizeInBytes = sizeInBytes;
             }
         }
 
         public StreamBucket build() {
             StreamBucket sb = new StreamBucket(streamers);
             sb.size = size;
-            sb.bytes = out.bytes();
+            sb.columnar = columnar;
+            if (columnar) {
+                try {
+                    sb.bytes = encodeColumns();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                sb.bytes = rows.bytes();
+            }
             return sb;
         }
 
+        private BytesReference encodeColumns() throws IOException {
+            BytesStreamOutput[] encodedColumns = new BytesStreamOutput[columns.length];
+            BytesStreamOutput out = new BytesStreamOutput();
+            for (int i = 0; i < columns.length; i++) {
+                ColumnarEncoding.ColumnWriter column = columns[i];
+                BytesStreamOutput encodedColumn = new BytesStreamOutput((int) column.sizeInBytes());
+                column.writeTo(encodedColumn);
+                encodedColumns[i] = encodedColumn;
+                out.writeByte(column.encoding());
+                out.writeVInt(encodedColumn.size());
+            }
+            for (BytesStreamOutput encodedColumn : encodedColumns) {
+                encodedColumn.bytes().writeTo(out);
+            }
+            return out.bytes();
+        }
+
         public void reset() {
-            out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            if (columnar) {
+                columns = newColumnWriters(streamers);
+            } else {
+                rows = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            }
+            prevSizeInBytes = 0;
             size = 0;
         }
 
         public int size() {
             return size;
         }
+
+        /**
+         * @return the number of bytes required to encode the rows added so far
+         */
+        public long sizeInBytes() {
+            if (!columnar) {
+                return rows.size();
+            }
+            long sizeInBytes = 0;
+            for (ColumnarEncoding.ColumnWriter column : columns) {
+                sizeInBytes += column.sizeInBytes();
+            }
+            return sizeInBytes;
+        }
     }
 
     public StreamBucket(@Nullable Streamer<?>[] streamers) {
@@ -125,6 +211,62 @@ public class StreamBucket implements Bucket, Writeable {
         return true;
     }
 
+    private static class ColumnarRowIterator implements Iterator<Row> {
+
+        private final ColumnarEncoding.ColumnReader[] columns;
+        private final int size;
+        private final Object[] current;
+        private final RowN row;
+        private int pos = 0;
+
+        private ColumnarRowIterator(BytesReference bytes, Streamer<?>[] streamers, int size) throws IOException {
+            this.size = size;
+            columns = new ColumnarEncoding.ColumnReader[streamers.length];
+            byte[] encodings = new byte[streamers.length];
+            int[] lengths = new int[streamers.length];
+            int columnsLength = 0;
+            StreamInput header = bytes.streamInput();
+            for (int c = 0; c < streamers.length; c++) {
+                encodings[c] = header.readByte();
+                lengths[c] = header.readVInt();
+                columnsLength += lengths[c];
+            }
+            int offset = bytes.length() - columnsLength;
+            for (int c = 0; c < streamers.length; c++) {
+                StreamInput in = bytes.slice(offset, lengths[c]).streamInput();
+                columns[c] = ColumnarEncoding.newReader(encodings[c], streamers[c], in);
+                offset += lengths[c];
+            }
+            current = new Object[streamers.length];
+            row = new RowN(current);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < size;
+        }
+
+        @Override
+        public Row next() {
+            for (int c = 0; c < columns.length; c++) {
+                try {
+                    current[c] = columns[c].next();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            pos++;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+
+    /**
+     * Iterates over rows which are serialized one after another.
+     */
     private static class RowIterator implements Iterator<Row> {
 
         private final Streamer<?>[] streamers;
@@ -173,6 +315,9 @@ public class StreamBucket implements Bucket, Writeable {
         }
         assert streamers != null : "streamers must not be null";
         try {
+            if (columnar) {
+                return new ColumnarRowIterator(bytes, streamers, size);
+            }
             return new RowIterator(bytes.streamInput(), streamers, size);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -197,6 +342,7 @@ public class StreamBucket implements Bucket, Writeable {
         if (size > 0) {
             bytes = in.readBytesReference();
         }
+        columnar = COLUMNAR_ENCODING;
     }
 
     @Override
@@ -211,6 +357,7 @@ public class StreamBucket implements Bucket, Writeable {
         assert size > -1 : "size must be > -1";
         out.writeVInt(size);
         if (size > 0) {
+            assert columnar == COLUMNAR_ENCODING : "the bucket must be serialized in the format the receiver reads";
             out.writeBytesReference(bytes);
         }
     }
@@ -19,77 +19,133 @@
  * software solely pursuant to the terms of the relevant commercial
  * agreement.
  */
-
 package io.crate.execution.engine.fetch;
 
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
-import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.data.RowN;
 import io.crate.execution.engine.collect.collectors.CollectorFieldsVisitor;
-import io.crate.execution.engine.distribution.StreamBucket;
-import io.crate.expression.InputRow;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.types.DataType;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Fetches the rows of docs of a single reader.
+ * <p>
+ * The docs are read in doc id order instead of the requested order: this way the stored fields are read
+ * sequentially, so that decompressed blocks can be re-used for consecutive docs, and the expressions only need to
+ * switch to the next segment once. Each row is stored at the requested position of its doc, which restores the
+ * requested order.
+ */
 class FetchCollector {
 
     private final CollectorFieldsVisitor fieldsVisitor;
     private final boolean visitorEnabled;
     private final LuceneCollectorExpression[] collectorExpressions;
-    private final InputRow row;
-    private final Streamer<?>[] streamers;
     private final List<LeafReaderContext> readerContexts;
     private final RamAccountingContext ramAccountingContext;
+    private final RowAccountingWithEstimators rowAccounting;
 
     FetchCollector(List<LuceneCollectorExpression<?>> collectorExpressions,
-                   Streamer<?>[] streamers,
+                   List<? extends DataType> columnTypes,
                    Engine.Searcher searcher,
                    IndexFieldDataService indexFieldDataService,
                    RamAccountingContext ramAccountingContext,
                    int readerId) {
+        this.ramAccountingContext = ramAccountingContext;
+        this.rowAccounting = new RowAccountingWithEstimators(columnTypes, ramAccountingContext);
         // use toArray to avoid iterator allocations in docIds loop
         this.collectorExpressions = collectorExpressions.toArray(new LuceneCollectorExpression[0]);
-        this.streamers = streamers;
         this.readerContexts = searcher.searcher().getIndexReader().leaves();
-        this.ramAccountingContext = ramAccountingContext;
         this.fieldsVisitor = new CollectorFieldsVisitor(this.collectorExpressions.length);
         CollectorContext collectorContext = new CollectorContext(indexFieldDataService::getForField, fieldsVisitor, readerId);
         for (LuceneCollectorExpression<?> collectorExpression : this.collectorExpressions) {
             collectorExpression.startCollect(collectorContext);
         }
         visitorEnabled = fieldsVisitor.required();
-        this.row = new InputRow(collectorExpressions);
-
     }
 
-    private void setNextDocId(LeafReaderContext readerContext, int doc) throws IOException {
-        if (visitorEnabled) {
-            fieldsVisitor.reset();
-            readerContext.reader().document(doc, fieldsVisitor);
-        }
-        for (LuceneCollectorExpression e : collectorExpressions) {
-            e.setNextReader(readerContext);
-            e.setNextDocId(doc);
+    /**
+     * Returns the doc ids combined with their position within {@code docIds}, sorted by doc id.
+     * Use {@link #docId(long)} and {@link #position(long)} to access the parts.
+     */
+    static long[] sortByDocId(IntContainer docIds) {
+        long[] sortedDocs = new long[docIds.size()];
+        int position = 0;
+        for (IntCursor cursor : docIds) {
+            sortedDocs[position] = ((long) cursor.value << 32) | position;
+            position++;
         }
+        Arrays.sort(sortedDocs);
+        return sortedDocs;
     }
 
-    public StreamBucket collect(IntContainer docIds) throws IOException {
-        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
-        for (IntCursor cursor : docIds) {
-            int docId = cursor.value;
-            int readerIndex = ReaderUtil.subIndex(docId, readerContexts);
-            LeafReaderContext subReaderContext = readerContexts.get(readerIndex);
-            setNextDocId(subReaderContext, docId - subReaderContext.docBase);
-            builder.add(row);
+    static int docId(long sortedDoc) {
+        return (int) (sortedDoc >>> 32);
+    }
+
+    static int position(long sortedDoc) {
+        return (int) sortedDoc;
+    }
+
+    /**
+     * Fetches the rows of the docs {@code sortedDocs[from, to)} and stores each of them in {@code rows}
+     * at the position of the doc.
+     * The estimated size of each row is accounted on the {@link RamAccountingContext} until the caller releases it.
+     *
+     * @param sortedDocs docs as returned by {@link #sortByDocId(IntContainer)}
+     * @return the number of bytes accounted for the rows
+     */
+    long collect(long[] sortedDocs, int from, int to, Object[][] rows) throws IOException {
+        RowN accountedRow = new RowN(collectorExpressions.length);
+        long accountedBytes = 0L;
+        LeafReaderContext readerContext = null;
+        int readerContextEnd = 0;
+        int prevDocId = -1;
+        Object[] prevRow = null;
+        for (int i = from; i < to; i++) {
+            int docId = docId(sortedDocs[i]);
+            int position = position(sortedDocs[i]);
+            if (docId == prevDocId) {
+                rows[position] = prevRow;
+                continue;
+            }
+            if (readerContext == null || docId >= readerContextEnd) {
+                readerContext = readerContexts.get(ReaderUtil.subIndex(docId, readerContexts));
+                readerContextEnd = readerContext.docBase + readerContext.reader().maxDoc();
+                for (LuceneCollectorExpression e : collectorExpressions) {
+                    e.setNextReader(readerContext);
+                }
+            }
+            int doc = docId - readerContext.docBase;
+            if (visitorEnabled) {
+                fieldsVisitor.reset();
+                readerContext.reader().document(doc, fieldsVisitor);
+            }
+            Object[] row = new Object[collectorExpressions.length];
+            for (int c = 0; c < collectorExpressions.length; c++) {
+                LuceneCollectorExpression e = collectorExpressions[c];
+                e.setNextDocId(doc);
+                row[c] = e.value();
+            }
+            accountedRow.cells(row);
+            long rowBytes = rowAccounting.estimateSize(accountedRow);
+            ramAccountingContext.addBytes(rowBytes);
+            accountedBytes += rowBytes;
+            rows[position] = row;
+            prevDocId = docId;
+            prevRow = row;
         }
-        return builder.build();
+        return accountedBytes;
     }
 }
@@ -27,6 +27,7 @@ import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.RowN;
 import io.crate.exceptions.SQLExceptions;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.execution.engine.distribution.StreamBucket;
@@ -38,6 +39,7 @@ import io.crate.expression.reference.doc.lucene.LuceneReferenceResolver;
 import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
+import io.crate.types.DataType;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.index.IndexService;
 
@@ -45,17 +47,26 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
 public class NodeFetchOperation {
 
+    /**
+     * The minimum number of docs of a reader which are fetched by one thread.
+     * Readers with more docs are split into several parts which are fetched concurrently.
+     */
+    static final int MIN_DOCS_PER_THREAD = 1000;
+
     private final ThreadPoolExecutor executor;
     private final int numProcessors;
     private final JobsLogs jobsLogs;
@@ -66,12 +77,14 @@ public class NodeFetchOperation {
 
         private final Streamer<?>[] streamers;
         private final Collection<Reference> refs;
+        private final List<DataType> types;
         private final FetchTask fetchTask;
 
         TableFetchInfo(Collection<Reference> refs, FetchTask fetchTask) {
             this.refs = refs;
             this.fetchTask = fetchTask;
             this.streamers = Symbols.streamerArray(refs);
+            this.types = Symbols.typeView(new ArrayList<>(refs));
         }
 
         FetchCollector createCollector(int readerId, RamAccountingContext ramAccountingContext) {
@@ -84,7 +97,7 @@ public class NodeFetchOperation {
             }
             return new FetchCollector(
                 exprs,
-                streamers,
+                types,
                 fetchTask.searcher(readerId),
                 indexService.fieldData(),
                 ramAccountingContext,
@@ -170,14 +183,15 @@ public class NodeFetchOperation {
         final IntObjectHashMap<StreamBucket> fetched = new IntObjectHashMap<>(toFetch.size());
         HashMap<RelationName, TableFetchInfo> tableFetchInfos = getTableFetchInfos(fetchTask);
         final AtomicReference<Throwable> lastThrowable = new AtomicReference<>(null);
-        final AtomicInteger threadLatch = new AtomicInteger(toFetch.size());
 
         // RamAccountingContext is per doFetch call instead of per FetchTask/fetchPhase
         // To be able to free up the memory count when the operation is complete
         RamAccountingContext ramAccountingContext = new RamAccountingContext("fetch-" + fetchTask.id(), circuitBreaker);
         resultFuture.whenComplete((r, f) -> ramAccountingContext.close());
 
-        ArrayList<Supplier<Void>> collectors = new ArrayList<>();
+        IntSupplier availableThreads = ThreadPools.numIdleThreads(executor, numProcessors);
+        int maxPartsPerReader = availableThreads.getAsInt();
+        ArrayList<CollectRunnable> collectRunnables = new ArrayList<>(toFetch.size());
         for (IntObjectCursor<? extends IntContainer> toFetchCursor : toFetch) {
             final int readerId = toFetchCursor.key;
             final IntContainer docIds = toFetchCursor.value;
@@ -186,18 +200,28 @@ public class NodeFetchOperation {
             final TableFetchInfo tfi = tableFetchInfos.get(ident);
             assert tfi != null : "tfi must not be null";
 
-            CollectRunnable collectRunnable = new CollectRunnable(
-                tfi.createCollector(readerId, ramAccountingContext),
-                docIds,
-                fetched,
-                readerId,
-                lastThrowable,
-                threadLatch,
-                resultFuture,
-                fetchTask.isKilled()
-            );
+            long[] sortedDocs = FetchCollector.sortByDocId(docIds);
+            int numParts = Math.max(1, Math.min(maxPartsPerReader, sortedDocs.length / MIN_DOCS_PER_THREAD));
+            ReaderFetch readerFetch = new ReaderFetch(readerId, sortedDocs, tfi.streamers, numParts);
+            for (int part = 0; part < numParts; part++) {
+                collectRunnables.add(new CollectRunnable(
+                    tfi.createCollector(readerId, ramAccountingContext),
+                    readerFetch,
+                    (int) ((long) sortedDocs.length * part / numParts),
+                    (int) ((long) sortedDocs.length * (part + 1) / numParts),
+                    fetched,
+                    ramAccountingContext,
+                    lastThrowable,
+                    resultFuture,
+                    fetchTask.isKilled()
+                ));
+            }
+        }
+        AtomicInteger threadLatch = new AtomicInteger(collectRunnables.size());
+        ArrayList<Supplier<Void>> collectors = new ArrayList<>(collectRunnables.size());
+        for (CollectRunnable collectRunnable : collectRunnables) {
             collectors.add(() -> {
-                collectRunnable.run();
+                collectRunnable.run(threadLatch);
                 return null;
             });
         }
@@ -206,7 +230,7 @@ public class NodeFetchOperation {
         // When all collectors complete successfully, the last one will complete the resultFuture with the result.
         ThreadPools.runWithAvailableThreads(
             executor,
-            ThreadPools.numIdleThreads(executor, numProcessors),
+            availableThreads,
             collectors
         ).whenComplete((r, t) -> {
             if (t != null) {
@@ -215,40 +239,83 @@ public class NodeFetchOperation {
         });
     }
 
-    private static class CollectRunnable implements Runnable {
+    /**
+     * The docs of a reader and their rows, which are fetched in one or more parts.
+     */
+    private static class ReaderFetch {
+
+        private final int readerId;
+        private final long[] sortedDocs;
+        private final Object[][] rows;
+        private final Streamer<?>[] streamers;
+        private final AtomicInteger remainingParts;
+        private final AtomicLong accountedBytes = new AtomicLong(0L);
+
+        ReaderFetch(int readerId, long[] sortedDocs, Streamer<?>[] streamers, int numParts) {
+            this.readerId = readerId;
+            this.sortedDocs = sortedDocs;
+            this.rows = new Object[sortedDocs.length][];
+            this.streamers = streamers;
+            this.remainingParts = new AtomicInteger(numParts);
+        }
+
+        /**
+         * Builds the bucket and releases the bytes accounted for the fetched rows, which are garbage afterwards.
+         */
+        StreamBucket toBucket(RamAccountingContext ramAccountingContext) {
+            StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+            RowN row = new RowN(streamers.length);
+            for (Object[] cells : rows) {
+                row.cells(cells);
+                builder.add(row);
+            }
+            StreamBucket bucket = builder.build();
+            ramAccountingContext.addBytesWithoutBreaking(-accountedBytes.get());
+            return bucket;
+        }
+    }
+
+    private static class CollectRunnable {
         private final FetchCollector collector;
-        private final IntContainer docIds;
+        private final ReaderFetch readerFetch;
+        private final int from;
+        private final int to;
         private final IntObjectHashMap<StreamBucket> fetched;
-        private final int readerId;
+        private final RamAccountingContext ramAccountingContext;
         private final AtomicReference<Throwable> lastThrowable;
-        private final AtomicInteger threadLatch;
         private final CompletableFuture<IntObjectMap<StreamBucket>> resultFuture;
         private final AtomicBoolean contextKilledRef;
 
         CollectRunnable(FetchCollector collector,
-                        IntContainer docIds,
+                        ReaderFetch readerFetch,
+                        int from,
+                        int to,
                         IntObjectHashMap<StreamBucket> fetched,
-                        int readerId,
+                        RamAccountingContext ramAccountingContext,
                         AtomicReference<Throwable> lastThrowable,
-                        AtomicInteger threadLatch,
                         CompletableFuture<IntObjectMap<StreamBucket>> resultFuture,
                         AtomicBoolean contextKilledRef) {
             this.collector = collector;
-            this.docIds = docIds;
+            this.readerFetch = readerFetch;
+            this.from = from;
+            this.to = to;
             this.fetched = fetched;
-            this.readerId = readerId;
+            this.ramAccountingContext = ramAccountingContext;
             this.lastThrowable = lastThrowable;
-            this.threadLatch = threadLatch;
             this.resultFuture = resultFuture;
             this.contextKilledRef = contextKilledRef;
         }
 
-        @Override
-        public void run() {
+        public void run(AtomicInteger threadLatch) {
             try {
-                StreamBucket bucket = collector.collect(docIds);
-                synchronized (fetched) {
-                    fetched.put(readerId, bucket);
+                readerFetch.accountedBytes.addAndGet(
+                    collector.collect(readerFetch.sortedDocs, from, to, readerFetch.rows));
+                // the last part of a reader builds the bucket in the requested order
+                if (readerFetch.remainingParts.decrementAndGet() == 0) {
+                    StreamBucket bucket = readerFetch.toBucket(ramAccountingContext);
+                    synchronized (fetched) {
+                        fetched.put(readerFetch.readerId, bucket);
+                    }
                 }
             } catch (Exception e) {
                 lastThrowable.set(e);
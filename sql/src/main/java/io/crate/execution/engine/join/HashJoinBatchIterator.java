@@ -0,0 +1,330 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import io.crate.data.BatchIterator;
+import io.crate.data.Paging;
+import io.crate.data.Row;
+import io.crate.data.UnsafeArrayRow;
+import io.crate.data.join.ElementCombiner;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.data.join.LuceneLongBitSetWrapper;
+import io.crate.planner.node.dql.join.JoinType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Hash join for the {@link JoinType#LEFT}, {@link JoinType#RIGHT}, {@link JoinType#FULL}, {@link JoinType#SEMI}
+ * and {@link JoinType#ANTI} join types.
+ *
+ * <p>
+ * The left side is loaded block-wise into a buffer and the right side is probed against each block, like it is done by
+ * the {@link HashInnerJoinBatchIterator}. In addition the rows which had a match are tracked:
+ * </p>
+ * <pre>
+ *     for (block in left) {
+ *         for (rightRow in right) {
+ *             for (leftRow in block with hash(rightRow)) {
+ *                 if (joinCondition matches) {
+ *                     mark leftRow (bitset over the rows of the block) and rightRow (bitset over the right positions)
+ *                     LEFT, RIGHT, FULL:  emit(combinedRow)
+ *                     SEMI:               emit(leftRow) if it wasn't emitted before
+ *                 }
+ *             }
+ *         }
+ *         LEFT, FULL, ANTI: for (leftRow in block not marked) { emit(leftRow, null) }
+ *     }
+ *     RIGHT, FULL: for (rightRow in right not marked) { emit(null, rightRow) }
+ * </pre>
+ * <p>
+ * The rows of the right side are identified by their position, this requires the right side to return the rows in the
+ * same order after {@link BatchIterator#moveToStart()}.
+ * The output of {@link JoinType#SEMI} and {@link JoinType#ANTI} joins must only be read from the columns of the left
+ * side.
+ * </p>
+ */
+public class HashJoinBatchIterator<L extends Row, R extends Row, C> extends JoinBatchIterator<L, R, C> {
+
+    private enum Phase {
+        BUILD,
+        PROBE,
+        EMIT_UNMATCHED_LEFT,
+        EMIT_UNMATCHED_RIGHT
+    }
+
+    private final JoinType joinType;
+    private final Predicate<C> joinCondition;
+    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
+    private final Function<L, Integer> hashBuilderForLeft;
+    private final Function<R, Integer> hashBuilderForRight;
+    private final IntSupplier blockSizeSupplier;
+
+    /**
+     * hash -> positions of the rows within {@link #rowsInBuffer}
+     */
+    private final IntObjectHashMap<IntArrayList> buffer;
+    private final ArrayList<Object[]> rowsInBuffer = new ArrayList<>();
+    private final BitSet matchedRowsInBuffer = new BitSet();
+    private final boolean emitUnmatchedLeft;
+    private final boolean emitUnmatchedRight;
+    private LuceneLongBitSetWrapper matchedRightRows;
+
+    private Phase phase = Phase.BUILD;
+    private int blockSize;
+    private boolean leftBatchHasItems = false;
+    private int numberOfLeftBatchesForBlock;
+    private int numberOfLeftBatchesLoadedForBlock;
+    private IntArrayList leftMatchingPositions;
+    private int leftMatchingIdx;
+    private int unmatchedLeftPosition;
+    private long rightPosition = -1;
+
+    public HashJoinBatchIterator(RamAccountingBatchIterator<L> left,
+                                 BatchIterator<R> right,
+                                 ElementCombiner<L, R, C> combiner,
+                                 JoinType joinType,
+                                 Predicate<C> joinCondition,
+                                 Function<L, Integer> hashBuilderForLeft,
+                                 Function<R, Integer> hashBuilderForRight,
+                                 IntSupplier blockSizeSupplier) {
+        super(left, right, combiner);
+        assert joinType != JoinType.CROSS && joinType != JoinType.INNER
+            : "Use HashInnerJoinBatchIterator for inner joins, cross joins cannot use a hash join";
+        this.joinType = joinType;
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.blockSizeSupplier = blockSizeSupplier;
+        this.emitUnmatchedLeft = joinType == JoinType.LEFT || joinType == JoinType.FULL || joinType == JoinType.ANTI;
+        this.emitUnmatchedRight = joinType == JoinType.RIGHT || joinType == JoinType.FULL;
+        this.matchedRightRows = emitUnmatchedRight ? new LuceneLongBitSetWrapper() : null;
+        // resized upon block size calculation
+        this.buffer = new IntObjectHashMap<>(0);
+        recreateBuffer();
+        // initially 1 page/batch is loaded
+        numberOfLeftBatchesLoadedForBlock = 1;
+        this.activeIt = left;
+    }
+
+    @Override
+    public void moveToStart() {
+        left.moveToStart();
+        right.moveToStart();
+        activeIt = left;
+        phase = Phase.BUILD;
+        leftBatchHasItems = false;
+        recreateBuffer();
+        numberOfLeftBatchesLoadedForBlock = 1;
+        ((RamAccountingBatchIterator) left).releaseAccountedRows();
+        leftMatchingPositions = null;
+        rightPosition = -1;
+        if (emitUnmatchedRight) {
+            matchedRightRows = new LuceneLongBitSetWrapper();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (activeIt == left) {
+            numberOfLeftBatchesLoadedForBlock++;
+        }
+        return super.loadNextBatch();
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            switch (phase) {
+                case BUILD:
+                    if (buildBuffer() == false) {
+                        // left needs the next batch loaded
+                        return false;
+                    }
+                    phase = Phase.PROBE;
+                    break;
+
+                case PROBE:
+                    if (matchRight()) {
+                        return true;
+                    }
+                    if (right.allLoaded() == false) {
+                        return false;
+                    }
+                    unmatchedLeftPosition = -1;
+                    phase = Phase.EMIT_UNMATCHED_LEFT;
+                    break;
+
+                case EMIT_UNMATCHED_LEFT:
+                    if (emitUnmatchedLeft && moveToNextUnmatchedLeft()) {
+                        return true;
+                    }
+                    boolean lastBlock = leftBatchHasItems == false && left.allLoaded();
+                    if (lastBlock && emitUnmatchedRight == false) {
+                        // both sides are fully loaded and processed, we're done here
+                        return false;
+                    }
+                    right.moveToStart();
+                    rightPosition = -1;
+                    if (lastBlock) {
+                        activeIt = right;
+                        combiner.nullLeft();
+                        phase = Phase.EMIT_UNMATCHED_RIGHT;
+                    } else {
+                        activeIt = left;
+                        recreateBuffer();
+                        ((RamAccountingBatchIterator) left).releaseAccountedRows();
+                        phase = Phase.BUILD;
+                    }
+                    break;
+
+                case EMIT_UNMATCHED_RIGHT:
+                    while (right.moveNext()) {
+                        rightPosition++;
+                        if (matchedRightRows.get(rightPosition) == false) {
+                            combiner.setRight(right.currentElement());
+                            return true;
+                        }
+                    }
+                    return false;
+
+                default:
+                    throw new AssertionError("Unexpected phase: " + phase);
+            }
+        }
+    }
+
+    private void recreateBuffer() {
+        blockSize = blockSizeSupplier.getAsInt();
+        buffer.release();
+        buffer.ensureCapacity(blockSize);
+        rowsInBuffer.clear();
+        matchedRowsInBuffer.clear();
+
+        // A batch is not guaranteed to deliver PAGE_SIZE number of rows. It could be more or less.
+        // So we cannot rely on that to decide if processing 1 block is done, we must also know and track how much
+        // batches should be required for processing 1 block.
+        numberOfLeftBatchesForBlock = Math.max(1, (int) Math.ceil((double) blockSize / Paging.PAGE_SIZE));
+        numberOfLeftBatchesLoadedForBlock = leftBatchHasItems ? 1 : 0;
+    }
+
+    /**
+     * @return true if the block is complete and the right side can be probed, false if left needs to load more data.
+     */
+    private boolean buildBuffer() {
+        while (leftBatchHasItems = left.moveNext()) {
+            Object[] currentRow = left.currentElement().materialize();
+            int hash = hashBuilderForLeft.apply(left.currentElement());
+            addToBuffer(currentRow, hash);
+            if (rowsInBuffer.size() == blockSize) {
+                break;
+            }
+        }
+        if (mustLoadLeftNextBatch()) {
+            return false;
+        }
+        activeIt = right;
+        return true;
+    }
+
+    private void addToBuffer(Object[] currentRow, int hash) {
+        IntArrayList positions = buffer.get(hash);
+        if (positions == null) {
+            positions = new IntArrayList(1);
+            buffer.put(hash, positions);
+        }
+        positions.add(rowsInBuffer.size());
+        rowsInBuffer.add(currentRow);
+    }
+
+    private boolean matchRight() {
+        // In case of multiple matches on the left side (duplicate values or hash collisions)
+        if (leftMatchingPositions != null && findMatchingRows()) {
+            return true;
+        }
+        leftMatchingPositions = null;
+        while (right.moveNext()) {
+            rightPosition++;
+            IntArrayList positions = buffer.get(hashBuilderForRight.apply(right.currentElement()));
+            if (positions != null) {
+                leftMatchingPositions = positions;
+                leftMatchingIdx = 0;
+                combiner.setRight(right.currentElement());
+                if (findMatchingRows()) {
+                    return true;
+                }
+            }
+        }
+        leftMatchingPositions = null;
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean findMatchingRows() {
+        while (leftMatchingIdx < leftMatchingPositions.size()) {
+            int position = leftMatchingPositions.get(leftMatchingIdx++);
+            boolean alreadyMatched = matchedRowsInBuffer.get(position);
+            if (alreadyMatched && (joinType == JoinType.SEMI || joinType == JoinType.ANTI)) {
+                // the left row was already emitted (SEMI) or is excluded (ANTI) regardless of other matches
+                continue;
+            }
+            leftRow.cells(rowsInBuffer.get(position));
+            combiner.setLeft((L) leftRow);
+            if (joinCondition.test(combiner.currentElement())) {
+                matchedRowsInBuffer.set(position);
+                if (emitUnmatchedRight) {
+                    matchedRightRows.set(rightPosition);
+                }
+                if (joinType != JoinType.ANTI) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean moveToNextUnmatchedLeft() {
+        unmatchedLeftPosition = matchedRowsInBuffer.nextClearBit(unmatchedLeftPosition + 1);
+        if (unmatchedLeftPosition < rowsInBuffer.size()) {
+            leftRow.cells(rowsInBuffer.get(unmatchedLeftPosition));
+            combiner.setLeft((L) leftRow);
+            combiner.nullRight();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean mustLoadLeftNextBatch() {
+        return leftBatchHasItems == false
+               && left.allLoaded() == false
+               && rowsInBuffer.size() < blockSize
+               && numberOfLeftBatchesLoadedForBlock < numberOfLeftBatchesForBlock;
+    }
+}
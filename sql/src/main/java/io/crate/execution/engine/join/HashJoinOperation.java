@@ -34,6 +34,7 @@ import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.expression.InputFactory;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
+import io.crate.planner.node.dql.join.JoinType;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
 import java.util.List;
@@ -51,6 +52,7 @@ public class HashJoinOperation implements CompletionListenable {
     public HashJoinOperation(int numLeftCols,
                              int numRightCols,
                              RowConsumer nlResultConsumer,
+                             JoinType joinType,
                              Predicate<Row> joinPredicate,
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
@@ -71,6 +73,7 @@ public class HashJoinOperation implements CompletionListenable {
                             numLeftCols,
                             rightBatchIterator.join(),
                             numRightCols,
+                            joinType,
                             joinPredicate,
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
@@ -121,16 +124,28 @@ public class HashJoinOperation implements CompletionListenable {
                                                              int leftNumCols,
                                                              BatchIterator<Row> right,
                                                              int rightNumCols,
+                                                             JoinType joinType,
                                                              Predicate<Row> joinCondition,
                                                              Function<Row, Integer> hashBuilderForLeft,
                                                              Function<Row, Integer> hashBuilderForRight,
                                                              RowAccounting rowAccounting,
                                                              RamBlockSizeCalculator blockSizeCalculator) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
-        return new HashInnerJoinBatchIterator<>(
+        if (joinType == JoinType.INNER) {
+            return new HashInnerJoinBatchIterator<>(
+                new RamAccountingBatchIterator<>(left, rowAccounting),
+                right,
+                combiner,
+                joinCondition,
+                hashBuilderForLeft,
+                hashBuilderForRight,
+                blockSizeCalculator);
+        }
+        return new HashJoinBatchIterator<>(
             new RamAccountingBatchIterator<>(left, rowAccounting),
             right,
             combiner,
+            joinType,
             joinCondition,
             hashBuilderForLeft,
             hashBuilderForRight,
@@ -84,6 +84,7 @@ import io.crate.expression.reference.StaticTableDefinition;
 import io.crate.expression.reference.sys.SysRowUpdater;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.Functions;
@@ -91,6 +92,7 @@ import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TransactionContext;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
@@ -231,12 +233,18 @@ public class ProjectionToProjectorVisitor
                 projection.offset()
             );
         }
+        List<DataType> inputTypes = new ArrayList<>(inputs.size());
+        inputTypes.addAll(Symbols.typeView(projection.outputs()));
+        inputTypes.addAll(Symbols.typeView(projection.orderBy()));
         return new SortingProjector(
             inputs,
+            inputTypes,
             ctx.expressions(),
             numOutputs,
-            OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            new PositionalOrderBy(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
+            projection.offset(),
+            context.ramAccountingContext,
+            SortingProjector.SPILL_THRESHOLD_SETTING.get(settings).getBytes()
         );
     }
 
@@ -268,7 +276,8 @@ public class ProjectionToProjectorVisitor
             ctx.aggregations().toArray(new AggregationContext[0]),
             context.ramAccountingContext,
             indexVersionCreated,
-            bigArrays
+            bigArrays,
+            GroupingProjector.SPILL_THRESHOLD_SETTING.get(settings).getBytes()
         );
     }
 
@@ -642,6 +651,7 @@ public class ProjectionToProjectorVisitor
             contextForStandaloneInputs.expressions(),
             standaloneInputTypes,
             context.ramAccountingContext,
+            windowAgg.partitionByIndexes(),
             windowAgg.orderByIndexes(),
             windowFuncArgsInputs);
     }
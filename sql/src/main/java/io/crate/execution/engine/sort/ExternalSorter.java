@@ -0,0 +1,274 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.data.Buckets;
+import io.crate.data.CollectionBucket;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.SpillFile;
+import io.crate.execution.engine.distribution.merge.KeyIterable;
+import io.crate.execution.engine.distribution.merge.SortedPagingIterator;
+import io.crate.types.DataType;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sorts rows which are added one by one.
+ *
+ * <p>
+ * If a {@code spillThreshold} is set the memory used by the rows is accounted and once it exceeds the threshold the
+ * rows are sorted and written as a run to a temporary file. The runs are merged with the remaining in-memory rows once
+ * all rows have been added, so that only one row per run has to be held in memory.
+ * </p>
+ *
+ * Rows are sorted using {@link Arrays#parallelSort(Object[], Comparator)}. If the first sort key has a
+ * {@link SortKeyPrefix} the prefixes are compared first and the full comparator is only used on equal prefixes.
+ */
+final class ExternalSorter implements Releasable {
+
+    private final Comparator<Object[]> ordering;
+    @Nullable
+    private final SortKeyPrefix prefix;
+    private final int prefixColumn;
+    private final int numOutputs;
+    private final int offset;
+
+    @Nullable
+    private final SpillContext spillContext;
+    private final List<SpillFile> runs = new ArrayList<>();
+    private List<Object[]> rows = new ArrayList<>();
+    private long bytesUsed = 0L;
+
+    /**
+     * Creates a sorter which keeps all rows in memory.
+     */
+    ExternalSorter(Comparator<Object[]> ordering,
+                   @Nullable SortKeyPrefix prefix,
+                   int prefixColumn,
+                   int numOutputs,
+                   int offset) {
+        this(ordering, prefix, prefixColumn, numOutputs, offset, null);
+    }
+
+    ExternalSorter(Comparator<Object[]> ordering,
+                   @Nullable SortKeyPrefix prefix,
+                   int prefixColumn,
+                   int numOutputs,
+                   int offset,
+                   @Nullable SpillContext spillContext) {
+        this.ordering = ordering;
+        this.prefix = prefix;
+        this.prefixColumn = prefixColumn;
+        this.numOutputs = numOutputs;
+        this.offset = offset;
+        this.spillContext = spillContext;
+    }
+
+    void add(Object[] cells) {
+        rows.add(cells);
+        if (spillContext != null) {
+            long size = spillContext.estimateSize(cells);
+            spillContext.ramAccounting.addBytes(size);
+            bytesUsed += size;
+            if (bytesUsed >= spillContext.spillThreshold) {
+                spill();
+            }
+        }
+    }
+
+    private void spill() {
+        assert spillContext != null : "spillContext must be set to spill rows";
+        SpillFile run = new SpillFile(spillContext.streamers);
+        runs.add(run);
+        RowN row = new RowN(spillContext.streamers.length);
+        for (Object[] cells : sort(rows)) {
+            row.cells(cells);
+            run.write(row);
+        }
+        rows = new ArrayList<>();
+        spillContext.ramAccounting.addBytesWithoutBreaking(-bytesUsed);
+        bytesUsed = 0L;
+    }
+
+    /**
+     * @return the sorted rows without the first {@code offset} rows. The returned row instances are shared.
+     */
+    Iterable<Row> sorted() {
+        List<Object[]> sortedRows = sort(rows);
+        if (runs.isEmpty()) {
+            if (offset >= sortedRows.size()) {
+                return new CollectionBucket(new ArrayList<>(), numOutputs);
+            }
+            return new CollectionBucket(sortedRows.subList(offset, sortedRows.size()), numOutputs);
+        }
+        assert spillContext != null : "rows can only be spilled if spillContext is set";
+        List<KeyIterable<Integer, Row>> iterables = new ArrayList<>(runs.size() + 1);
+        for (int i = 0; i < runs.size(); i++) {
+            iterables.add(new KeyIterable<>(i, runs.get(i).rows()));
+        }
+        iterables.add(new KeyIterable<>(runs.size(), Iterables.transform(sortedRows, Buckets.arrayToSharedRow()::apply)));
+        Comparator<Row> rowOrdering = spillContext.rowOrdering;
+        Iterable<Row> merged = () -> {
+            SortedPagingIterator<Integer, Row> iterator = new SortedPagingIterator<>(rowOrdering, false);
+            iterator.merge(iterables);
+            iterator.finish();
+            return Iterables.transform(() -> iterator, OutputRow.withColumns(numOutputs)::apply).iterator();
+        };
+        return Iterables.skip(merged, offset);
+    }
+
+    private List<Object[]> sort(List<Object[]> rows) {
+        if (prefix == null) {
+            Object[][] array = rows.toArray(new Object[0][]);
+            Arrays.parallelSort(array, ordering);
+            return Arrays.asList(array);
+        }
+        PrefixedRow[] prefixedRows = new PrefixedRow[rows.size()];
+        for (int i = 0; i < prefixedRows.length; i++) {
+            Object[] cells = rows.get(i);
+            prefixedRows[i] = new PrefixedRow(prefix.prefix(cells[prefixColumn]), cells);
+        }
+        Arrays.parallelSort(prefixedRows, (a, b) -> {
+            int cmp = Long.compareUnsigned(a.prefix, b.prefix);
+            return cmp == 0 ? ordering.compare(a.cells, b.cells) : cmp;
+        });
+        List<Object[]> sortedRows = new ArrayList<>(prefixedRows.length);
+        for (PrefixedRow prefixedRow : prefixedRows) {
+            sortedRows.add(prefixedRow.cells);
+        }
+        return sortedRows;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(runs);
+        runs.clear();
+        if (spillContext != null) {
+            spillContext.ramAccounting.addBytesWithoutBreaking(-bytesUsed);
+            bytesUsed = 0L;
+        }
+    }
+
+    /**
+     * Everything that is needed to write rows to temporary files and to merge them again.
+     */
+    static final class SpillContext {
+
+        private final Comparator<Row> rowOrdering;
+        private final Streamer[] streamers;
+        private final List<SizeEstimator<Object>> estimators;
+        private final RamAccountingContext ramAccounting;
+        private final long spillThreshold;
+
+        /**
+         * @param rowOrdering    ordering used to merge the runs
+         * @param columnTypes    types of all columns of the rows
+         * @param ramAccounting  used to account the memory of the rows which haven't been spilled yet
+         * @param spillThreshold number of bytes at which the rows are written to a temporary file
+         */
+        SpillContext(Comparator<Row> rowOrdering,
+                     List<? extends DataType> columnTypes,
+                     RamAccountingContext ramAccounting,
+                     long spillThreshold) {
+            assert spillThreshold > 0 : "spillThreshold must be greater than 0";
+            this.rowOrdering = rowOrdering;
+            this.streamers = new Streamer[columnTypes.size()];
+            this.estimators = new ArrayList<>(columnTypes.size());
+            for (int i = 0; i < columnTypes.size(); i++) {
+                DataType type = columnTypes.get(i);
+                streamers[i] = type.streamer();
+                estimators.add(SizeEstimatorFactory.create(type));
+            }
+            this.ramAccounting = ramAccounting;
+            this.spillThreshold = spillThreshold;
+        }
+
+        private long estimateSize(Object[] cells) {
+            long size = 0L;
+            for (int i = 0; i < cells.length; i++) {
+                size += estimators.get(i).estimateSize(cells[i]);
+            }
+            return size;
+        }
+    }
+
+    private static final class PrefixedRow {
+
+        private final long prefix;
+        private final Object[] cells;
+
+        PrefixedRow(long prefix, Object[] cells) {
+            this.prefix = prefix;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Exposes the first {@code numColumns} columns of another row.
+     */
+    private static final class OutputRow implements Row {
+
+        private final int numColumns;
+        private Row source;
+
+        private OutputRow(int numColumns) {
+            this.numColumns = numColumns;
+        }
+
+        static Function<Row, Row> withColumns(int numColumns) {
+            OutputRow outputRow = new OutputRow(numColumns);
+            return row -> {
+                outputRow.source = row;
+                return outputRow;
+            };
+        }
+
+        @Override
+        public int numColumns() {
+            return numColumns;
+        }
+
+        @Override
+        public Object get(int index) {
+            return source.get(index);
+        }
+
+        @Override
+        public Object[] materialize() {
+            return Arrays.copyOf(source.materialize(), numColumns);
+        }
+    }
+}
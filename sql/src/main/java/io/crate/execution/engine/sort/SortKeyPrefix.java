@@ -0,0 +1,128 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Normalizes the values of a sort key into a {@code long} prefix which can be compared using
+ * {@link Long#compareUnsigned(long, long)}.
+ *
+ * <p>
+ * The prefix respects the sort direction and the position of nulls: if the prefix of {@code a} is smaller than the
+ * prefix of {@code b}, {@code a} is sorted before {@code b}. Equal prefixes don't imply equal values, in that case
+ * the values must be compared using the full comparator.
+ * </p>
+ */
+abstract class SortKeyPrefix {
+
+    private final boolean reverse;
+    private final long nullPrefix;
+
+    /**
+     * @return a prefix for values of the given type or null if the type isn't supported.
+     */
+    @Nullable
+    static SortKeyPrefix of(DataType type, boolean reverse, @Nullable Boolean nullsFirst) {
+        // nulls are sorted as if they were greater than any other value if not specified otherwise
+        boolean nullsAreFirst = nullsFirst == null ? reverse : nullsFirst;
+        switch (type.id()) {
+            case LongType.ID:
+            case TimestampType.ID:
+            case IntegerType.ID:
+            case ShortType.ID:
+            case ByteType.ID:
+                return new SortKeyPrefix(reverse, nullsAreFirst) {
+                    @Override
+                    long ascending(Object value) {
+                        return ((Number) value).longValue() ^ Long.MIN_VALUE;
+                    }
+                };
+
+            case DoubleType.ID:
+            case FloatType.ID:
+                return new SortKeyPrefix(reverse, nullsAreFirst) {
+                    @Override
+                    long ascending(Object value) {
+                        long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+                        // flip all bits of negative numbers and only the sign bit of positive numbers
+                        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+                    }
+                };
+
+            case BooleanType.ID:
+                return new SortKeyPrefix(reverse, nullsAreFirst) {
+                    @Override
+                    long ascending(Object value) {
+                        return (Boolean) value ? 1L : 0L;
+                    }
+                };
+
+            case StringType.ID:
+                return new SortKeyPrefix(reverse, nullsAreFirst) {
+                    @Override
+                    long ascending(Object value) {
+                        // the first 4 UTF-16 chars, like they are compared by String.compareTo
+                        String str = (String) value;
+                        long prefix = 0L;
+                        for (int i = 0; i < 4; i++) {
+                            prefix = (prefix << 16) | (i < str.length() ? str.charAt(i) : 0);
+                        }
+                        return prefix;
+                    }
+                };
+
+            default:
+                return null;
+        }
+    }
+
+    private SortKeyPrefix(boolean reverse, boolean nullsFirst) {
+        this.reverse = reverse;
+        this.nullPrefix = nullsFirst ? 0L : -1L;
+    }
+
+    /**
+     * @return the prefix of a non-null value in ascending order.
+     */
+    abstract long ascending(Object value);
+
+    long prefix(@Nullable Object value) {
+        if (value == null) {
+            return nullPrefix;
+        }
+        long prefix = ascending(value);
+        return reverse ? ~prefix : prefix;
+    }
+}
@@ -23,35 +23,47 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.base.Preconditions;
+import io.crate.breaker.RamAccountingContext;
 import io.crate.data.BatchIterator;
-import io.crate.data.Bucket;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
-import io.crate.data.CollectionBucket;
 import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.planner.PositionalOrderBy;
+import io.crate.types.DataType;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.ByteSizeValue;
 
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 /**
  * Sort rows by ordering criteria and process given offset before emitting.
  * <p>
  * Compared to {@link SortingTopNProjector} this projector does not support limiting,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
+ * <p>
+ * If a spill threshold is set, sorted runs of rows are written to temporary files once the rows exceed the
+ * threshold. See {@link ExternalSorter}.
  */
 public class SortingProjector implements Projector {
 
+    public static final Setting<ByteSizeValue> SPILL_THRESHOLD_SETTING = Setting.memorySizeSetting(
+        "node.sql.order_by.spill_threshold",
+        "0b",
+        Setting.Property.NodeScope);
+
     private final Collection<? extends Input<?>> inputs;
     private final Iterable<? extends CollectExpression<Row, ?>> collectExpressions;
-
-    private final Comparator<Object[]> comparator;
-    private final int offset;
-    private final int numOutputs;
+    private final Supplier<ExternalSorter> sorterFactory;
 
     /**
      * @param inputs             contains output {@link Input}s and orderBy {@link Input}s
@@ -66,20 +78,75 @@ public class SortingProjector implements Projector {
                             Comparator<Object[]> comparator,
                             int offset) {
         Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
-        this.numOutputs = numOutputs;
         this.inputs = inputs;
         this.collectExpressions = collectExpressions;
-        this.comparator = comparator;
-        this.offset = offset;
+        Comparator<Object[]> ordering = comparator.reversed();
+        this.sorterFactory = () -> new ExternalSorter(ordering, null, -1, numOutputs, offset);
     }
 
+    /**
+     * @param inputs             contains output {@link Input}s and orderBy {@link Input}s
+     * @param inputTypes         the types of the <code>inputs</code>
+     * @param collectExpressions gathered from outputs and orderBy inputs
+     * @param numOutputs         <code>inputs</code> contains this much output {@link Input}s starting form index 0
+     * @param orderBy            ordering that is used to compare the rows, the indices point to <code>inputs</code>
+     * @param offset             the initial offset, this number of rows are skipped
+     * @param ramAccounting      used to account the rows if they can be spilled
+     * @param spillThreshold     number of bytes at which the rows are written to temporary files, 0 to disable
+     */
+    public SortingProjector(Collection<? extends Input<?>> inputs,
+                            List<? extends DataType> inputTypes,
+                            Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                            int numOutputs,
+                            PositionalOrderBy orderBy,
+                            int offset,
+                            RamAccountingContext ramAccounting,
+                            long spillThreshold) {
+        Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
+        this.inputs = inputs;
+        this.collectExpressions = collectExpressions;
+        Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(
+            orderBy.indices(), orderBy.reverseFlags(), orderBy.nullsFirst()).reverse();
+        int prefixColumn = orderBy.indices()[0];
+        SortKeyPrefix prefix = SortKeyPrefix.of(
+            inputTypes.get(prefixColumn), orderBy.reverseFlags()[0], orderBy.nullsFirst()[0]);
+        if (spillThreshold > 0) {
+            Comparator<Row> rowOrdering = OrderingByPosition.rowOrdering(orderBy);
+            this.sorterFactory = () -> new ExternalSorter(
+                ordering,
+                prefix,
+                prefixColumn,
+                numOutputs,
+                offset,
+                new ExternalSorter.SpillContext(rowOrdering, inputTypes, ramAccounting, spillThreshold));
+        } else {
+            this.sorterFactory = () -> new ExternalSorter(ordering, prefix, prefixColumn, numOutputs, offset);
+        }
+    }
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        Collector<Row, ?, Bucket> collector = Collectors.mapping(
-            this::getCells,
-            Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        Collector<Row, ExternalSorter, Iterable<Row>> collector = Collector.of(
+            sorterFactory,
+            (sorter, row) -> sorter.add(getCells(row)),
+            (sorter1, sorter2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            },
+            ExternalSorter::sorted
+        );
+        // the sorter holds the spilled runs, which must be deleted once the result has been consumed
+        AtomicReference<ExternalSorter> sorter = new AtomicReference<>();
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                batchIterator.close();
+                Releasables.close(sorter.get());
+            },
+            batchIterator::kill,
+            () -> {
+                sorter.set(sorterFactory.get());
+                return BatchIterators.collect(batchIterator, sorter.get(), collector, new CompletableFuture<>());
+            }
+        );
     }
 
     @Override
@@ -98,12 +165,4 @@ public class SortingProjector implements Projector {
         }
         return newRow;
     }
-
-    private Bucket sortAndCreateBucket(List<Object[]> rows) {
-        rows.sort(comparator.reversed());
-        if (offset == 0) {
-            return new CollectionBucket(rows, numOutputs);
-        }
-        return new CollectionBucket(rows.subList(offset, rows.size()), numOutputs);
-    }
 }
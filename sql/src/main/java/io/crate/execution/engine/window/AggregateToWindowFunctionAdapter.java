@@ -38,6 +38,15 @@ import org.elasticsearch.common.util.BigArrays;
 import javax.annotation.Nullable;
 import java.util.List;
 
+/**
+ * Adapts an {@link AggregationFunction} to be used as a {@link WindowFunction}.
+ * <p>
+ * The aggregation state is carried over between the frames of consecutive rows within a partition:
+ * Rows which enter the frame are aggregated into the state.
+ * Rows which leave the frame are removed from the state if the aggregation supports it
+ * (see {@link AggregationFunction#isRemovableCumulative()}), otherwise the aggregation is re-computed for the new frame.
+ * </p>
+ */
 public class AggregateToWindowFunctionAdapter implements WindowFunction {
 
     private final AggregationFunction aggregationFunction;
@@ -46,8 +55,20 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
     private final BigArrays bigArrays;
     private Object accumulatedState;
 
+    private int seenFrameLowerBound = -1;
     private int seenFrameUpperBound = -1;
+    /**
+     * The number of rows in the aggregated frame for which all arguments are not null.
+     * Aggregations ignore nulls, so once this drops to 0 the state is reset to the initial state.
+     * Otherwise an aggregation like sum would result in 0 instead of null after removing all values.
+     */
+    private int numValuesInFrame = 0;
     private Object resultForCurrentFrame;
+    /**
+     * Re-used to point the expressions to the rows of the frame.
+     */
+    @Nullable
+    private RowN row;
 
     public AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                             Version indexVersionCreated,
@@ -72,36 +93,84 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
 
     @Override
     public Object execute(int rowIdx, WindowFrameState frame, List<? extends CollectExpression<Row, ?>> expressions, Input... args) {
-        if (isNewFrame(seenFrameUpperBound, frame)) {
-            executeAggregateForFrame(frame, expressions, args);
-        } else if (isReiteratingWindow(frame)) {
+        if (!isNewFrame(rowIdx, seenFrameLowerBound, seenFrameUpperBound, frame)) {
+            return resultForCurrentFrame;
+        }
+        int lowerBound = frame.lowerBound();
+        int upperBound = frame.upperBoundExclusive();
+        if (rowIdx == 0 || !canMoveFrameIncrementally(lowerBound, upperBound)) {
             accumulatedState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
-            executeAggregateForFrame(frame, expressions, args);
+            numValuesInFrame = 0;
+            iterateRows(frame, lowerBound, upperBound, expressions, args);
+        } else {
+            removeRows(frame, seenFrameLowerBound, lowerBound, expressions, args);
+            iterateRows(frame, seenFrameUpperBound, upperBound, expressions, args);
         }
+        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccountingContext, accumulatedState);
+        seenFrameLowerBound = lowerBound;
+        seenFrameUpperBound = upperBound;
         return resultForCurrentFrame;
     }
 
-    private void executeAggregateForFrame(WindowFrameState frame, List<? extends CollectExpression<Row, ?>> expressions, Input... inputs) {
-        /*
-         * The successive frames have overlapping rows (especially now as we currently only support UNBOUNDED PRECEDING - CURRENT_ROW frames).
-         * We want to accumulate the rows we haven't processed yet (the difference between the rows in the current frame to the rows in the previous frame, if any).
-         */
-        int unseenRowsInCurrentFrameStart = seenFrameUpperBound > 0 ? seenFrameUpperBound : 0;
-        for (int i = unseenRowsInCurrentFrameStart; i < frame.size(); i++) {
-            Object[] cells = frame.getRowAtIndexOrNull(i);
-            assert cells != null : "Requested row for invalid index in the current frame";
-            RowN row = new RowN(cells);
-            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
-                expressions.get(j).setNextRow(row);
+    /**
+     * The state can be re-used if the new frame overlaps with the previous frame and only moved forward.
+     * If the start of the frame moved, the rows which left the frame must be removable from the state.
+     */
+    private boolean canMoveFrameIncrementally(int lowerBound, int upperBound) {
+        if (lowerBound < seenFrameLowerBound || upperBound < seenFrameUpperBound || lowerBound > seenFrameUpperBound) {
+            return false;
+        }
+        return lowerBound == seenFrameLowerBound || aggregationFunction.isRemovableCumulative();
+    }
+
+    private void iterateRows(WindowFrameState frame,
+                             int from,
+                             int to,
+                             List<? extends CollectExpression<Row, ?>> expressions,
+                             Input... inputs) {
+        for (int i = from; i < to; i++) {
+            setNextRow(frame.getRowInPartition(i), expressions);
+            if (allNotNull(inputs)) {
+                numValuesInFrame++;
             }
             accumulatedState = aggregationFunction.iterate(ramAccountingContext, accumulatedState, inputs);
         }
-        
-        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccountingContext, accumulatedState);
-        seenFrameUpperBound = frame.upperBoundExclusive();
     }
 
-    private boolean isReiteratingWindow(WindowFrameState frame) {
-        return frame.upperBoundExclusive() < seenFrameUpperBound && frame.lowerBound() == 0;
+    private void removeRows(WindowFrameState frame,
+                            int from,
+                            int to,
+                            List<? extends CollectExpression<Row, ?>> expressions,
+                            Input... inputs) {
+        for (int i = from; i < to; i++) {
+            setNextRow(frame.getRowInPartition(i), expressions);
+            if (allNotNull(inputs)) {
+                numValuesInFrame--;
+            }
+            accumulatedState = aggregationFunction.removeFromAggregatedState(ramAccountingContext, accumulatedState, inputs);
+        }
+        if (from < to && numValuesInFrame == 0) {
+            accumulatedState = aggregationFunction.newState(ramAccountingContext, indexVersionCreated, bigArrays);
+        }
+    }
+
+    private void setNextRow(Object[] cells, List<? extends CollectExpression<Row, ?>> expressions) {
+        if (row == null) {
+            // all rows of a partition have the same number of cells
+            row = new RowN(cells.length);
+        }
+        row.cells(cells);
+        for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+            expressions.get(j).setNextRow(row);
+        }
+    }
+
+    private static boolean allNotNull(Input... inputs) {
+        for (Input input : inputs) {
+            if (input.value() == null) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -22,8 +22,10 @@
 
 package io.crate.execution.engine.window;
 
+import io.crate.analyze.FrameBoundDefinition;
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.analyze.WindowFrameDefinition;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.BatchIterator;
@@ -32,13 +34,17 @@ import io.crate.data.MappedForwardingBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import io.crate.execution.engine.collect.CollectExpression;
-import io.crate.execution.engine.join.RamAccountingBatchIterator;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.sql.tree.FrameBound;
+import io.crate.sql.tree.WindowFrame;
 import io.crate.types.DataType;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.function.BiPredicate;
+import java.util.Objects;
 
 /**
  * BatchIterator that computes an aggregate or window function against a window over the source batch iterator.
@@ -66,37 +72,79 @@ import java.util.function.BiPredicate;
  *          2. for each row in the window emit the function result
  * <p>
  *                  [ 10, 10, 10, 10 ]
+ * <p>
+ * The source must be sorted by the partition by and the order by symbols of the window definition.
+ * The rows are processed partition by partition: Only the rows of the current partition are buffered, once the
+ * first row of the next partition is consumed the window functions are computed for every row of the buffered
+ * partition and the results are emitted. The frame of each row is computed from the {@link WindowFrameDefinition}
+ * using the row offsets ({@code ROWS}) or the peers and order by values ({@code RANGE}) of the rows.
  */
 public class WindowBatchIterator extends MappedForwardingBatchIterator<Row, Row> {
 
+    private static final int[] NO_INDEXES = new int[0];
+
     private final BatchIterator<Row> source;
+    private final RamAccountingContext ramAccountingContext;
+    private final RowAccountingWithEstimators rowAccounting;
     private final List<WindowFunction> functions;
     private final Object[] outgoingCells;
-    private final LinkedList<Object[]> standaloneOutgoingCells;
-    private final LinkedList<Object[]> outstandingResults;
+    private final Row outgoingRow;
     private final List<CollectExpression<Row, ?>> standaloneExpressions;
-    private final BiPredicate<Object[], Object[]> arePeerCellsPredicate;
     private final List<? extends CollectExpression<Row, ?>> windowFuncArgsExpressions;
     private final Input[][] windowFuncArgsInputs;
+    private final int windowFunctionsCount;
+
+    private final int[] partitionByIndexes;
+    private final int[] orderByIndexes;
+    private final boolean isOrdered;
+    private final boolean orderedDescending;
+    private final WindowFrame.Type frameType;
+    private final FrameBoundDefinition frameStart;
+    private final FrameBoundDefinition frameEnd;
+    @Nullable
+    private final Number frameStartOffset;
+    @Nullable
+    private final Number frameEndOffset;
 
-    private Row currentWindowRow;
     /**
-     * Represents the "window row", the row for which we are computing the window, and once that's complete, execute the
-     * window function for.
+     * The rows and the standalone values of the partition which is currently built up or emitted.
      */
-    private Object[] currentRowCells = null;
+    private final ArrayList<Object[]> partitionRows = new ArrayList<>();
+    private final ArrayList<Object[]> partitionStandaloneCells = new ArrayList<>();
+    private final WindowFrameState frame = new WindowFrameState(0, 0, partitionRows);
 
-    private int sourceRowsConsumed;
-    private int windowRowPosition;
-    private final List<Object[]> windowForCurrentRow = new ArrayList<>();
     /**
-     * Represents the start index of the new rows that were added in the current frame (compared to the previous frame)
-     * in the list of rows that define the window {@link #windowForCurrentRow}
+     * The first row of the next partition, consumed from the source while completing the current partition.
      */
-    private int newRowsInCurrentFrameStartIdx = -1;
-    private boolean foundCurrentRowsLastPeer = false;
-    private int windowFunctionsCount;
-    private final OrderBy order;
+    @Nullable
+    private Object[] nextPartitionFirstRow;
+    @Nullable
+    private Object[] nextPartitionFirstStandaloneCells;
+    private boolean partitionComplete = false;
+    private boolean sourceExhausted = false;
+
+    /**
+     * The bytes accounted for the buffered rows of the current partition and for the first row of the next
+     * partition. They are released once the partition is cleared.
+     */
+    private long partitionBytes = 0;
+    private long nextPartitionFirstRowBytes = 0;
+
+    /**
+     * Position of the next row to emit within the current partition and the bounds of the peer group of that row.
+     */
+    private int rowIdx = 0;
+    private int peersStart = 0;
+    private int peersEnd = 0;
+
+    /**
+     * The range of rows within the partition which have a non-null value for the first order by symbol.
+     * Used to compute frames with a {@code RANGE} offset.
+     */
+    private int nonNullOrderValuesStart = 0;
+    private int nonNullOrderValuesEnd = 0;
+
+    private Row currentWindowRow;
 
     WindowBatchIterator(WindowDefinition windowDefinition,
                         List<Input<?>> standaloneInputs,
@@ -106,51 +154,58 @@ public class WindowBatchIterator extends MappedForwardingBatchIterator<Row, Row>
                         List<? extends CollectExpression<Row, ?>> windowFuncArgsExpressions,
                         List<DataType> standaloneInputTypes,
                         RamAccountingContext ramAccountingContext,
-                        int[] orderByIndexes,
+                        @Nullable int[] partitionByIndexes,
+                        @Nullable int[] orderByIndexes,
                         Input[]... windowFuncArgsInputs) {
-        assert windowDefinition.partitions().size() == 0 : "Window partitions are not supported.";
-        assert windowDefinition.windowFrameDefinition().equals(WindowDefinition.DEFAULT_WINDOW_FRAME) : "Custom window frame definitions are not supported";
-        assert windowDefinition.orderBy() == null || orderByIndexes.length > 0 : "Window is ordered but the IC indexes are not specified";
+        assert windowDefinition.partitions().isEmpty() || (partitionByIndexes != null && partitionByIndexes.length > 0)
+            : "Window is partitioned but the IC indexes are not specified";
+        assert windowDefinition.orderBy() == null || (orderByIndexes != null && orderByIndexes.length > 0)
+            : "Window is ordered but the IC indexes are not specified";
+
+        OrderBy orderBy = windowDefinition.orderBy();
+        this.isOrdered = orderBy != null;
+        this.orderedDescending = orderBy != null && orderBy.reverseFlags()[0];
+        this.partitionByIndexes = windowDefinition.partitions().isEmpty() ? NO_INDEXES : partitionByIndexes;
+        this.orderByIndexes = orderBy == null ? NO_INDEXES : orderByIndexes;
 
-        this.order = windowDefinition.orderBy();
+        WindowFrameDefinition frameDefinition = windowDefinition.windowFrameDefinition();
+        this.frameType = frameDefinition.type();
+        this.frameStart = frameDefinition.start();
+        this.frameEnd = frameDefinition.end() == null
+            ? new FrameBoundDefinition(FrameBound.Type.CURRENT_ROW)
+            : frameDefinition.end();
+        this.frameStartOffset = frameOffset(frameStart);
+        this.frameEndOffset = frameOffset(frameEnd);
+        assert frameType == WindowFrame.Type.ROWS || (frameStartOffset == null && frameEndOffset == null) ||
+               this.orderByIndexes.length == 1
+            : "A RANGE frame with an offset requires exactly one order by symbol";
 
-        // adding 8 extra bytes as some cells of each row will be part of a LinkedList which adds the overhead of
-        // 2 pointers for prev and next element (4 bytes each with compressed oops)
+        // adding 8 extra bytes as the cells of each row are referenced from the partition buffers
         int extraRowOverhead = 8;
         if (standaloneInputs.size() > 0) {
-            // another LinkedList is used for standalone inputs
+            // another list is used for standalone inputs
             extraRowOverhead += 8;
         }
-        RowAccountingWithEstimators rowAccounting =
-            new RowAccountingWithEstimators(standaloneInputTypes, ramAccountingContext, extraRowOverhead);
-        this.source = new RamAccountingBatchIterator<>(source, rowAccounting);
+        this.rowAccounting = new RowAccountingWithEstimators(standaloneInputTypes, ramAccountingContext, extraRowOverhead);
+        this.ramAccountingContext = ramAccountingContext;
+        this.source = source;
         this.standaloneExpressions = standaloneExpressions;
         this.windowFunctionsCount = functions.size();
         this.outgoingCells = new Object[windowFunctionsCount + standaloneInputs.size()];
-        this.standaloneOutgoingCells = new LinkedList<>();
-        this.outstandingResults = new LinkedList<>();
+        this.outgoingRow = new RowN(outgoingCells);
         this.functions = functions;
         this.windowFuncArgsExpressions = windowFuncArgsExpressions;
         this.windowFuncArgsInputs = windowFuncArgsInputs;
-
-        arePeerCellsPredicate = (prevRowCells, currentRowCells) -> {
-            for (int i = 0; i < orderByIndexes.length; i++) {
-                int samplingIndex = orderByIndexes[i];
-                if (!prevRowCells[samplingIndex].equals(currentRowCells[samplingIndex])) {
-                    return false;
-                }
-            }
-            return true;
-        };
     }
 
-    private boolean arePeers(Object[] prevRowCells, Object[] currentRowCells) {
-        if (order == null) {
-            // all rows are peers when orderBy is missing
-            return true;
+    @Nullable
+    private static Number frameOffset(FrameBoundDefinition frameBound) {
+        Symbol value = frameBound.value();
+        if (value == null) {
+            return null;
         }
-
-        return prevRowCells == currentRowCells || arePeerCellsPredicate.test(prevRowCells, currentRowCells);
+        assert value instanceof Literal : "Frame offsets must be evaluated to literals before execution";
+        return (Number) ((Literal) value).value();
     }
 
     @Override
@@ -166,117 +221,265 @@ public class WindowBatchIterator extends MappedForwardingBatchIterator<Row, Row>
     @Override
     public void moveToStart() {
         super.moveToStart();
-        sourceRowsConsumed = 0;
-        windowRowPosition = 0;
-        windowForCurrentRow.clear();
-        newRowsInCurrentFrameStartIdx = -1;
-        currentRowCells = null;
+        clearPartition();
+        releaseBytes(nextPartitionFirstRowBytes);
+        nextPartitionFirstRowBytes = 0;
+        nextPartitionFirstRow = null;
+        nextPartitionFirstStandaloneCells = null;
+        sourceExhausted = false;
         currentWindowRow = null;
     }
 
     @Override
     public boolean moveNext() {
-        if (foundCurrentRowsLastPeer && windowRowPosition < sourceRowsConsumed - 1) {
-            // emit the result of the window function as we computed the result and not yet emitted it for every row
-            // in the window
-            windowRowPosition++;
-            computeCurrentElement();
-            return true;
+        while (true) {
+            if (partitionComplete) {
+                if (rowIdx < partitionRows.size()) {
+                    computeCurrentElement();
+                    rowIdx++;
+                    return true;
+                }
+                startNextPartition();
+            }
+            if (!consumeSourceUntilPartitionIsComplete()) {
+                currentWindowRow = null;
+                return false;
+            }
         }
+    }
 
+    /**
+     * @return true if the current partition is complete,
+     *         false if more data must be loaded or if all rows of the source have been emitted.
+     */
+    private boolean consumeSourceUntilPartitionIsComplete() {
+        if (sourceExhausted) {
+            return false;
+        }
         while (source.moveNext()) {
-            sourceRowsConsumed++;
-            Row currentSourceRow = source.currentElement();
-            Object[] sourceRowCells = currentSourceRow.materialize();
-            computeAndFillStandaloneOutgoingCellsFor(currentSourceRow);
-            if (sourceRowsConsumed == 1) {
-                // first row in the source is the "current window row" we start with
-                currentRowCells = sourceRowCells;
-                newRowsInCurrentFrameStartIdx = 0;
-            }
-
-            if (arePeers(currentRowCells, sourceRowCells)) {
-                windowForCurrentRow.add(sourceRowCells);
-                foundCurrentRowsLastPeer = false;
+            Row sourceRow = source.currentElement();
+            long rowBytes = rowAccounting.estimateSize(sourceRow);
+            ramAccountingContext.addBytes(rowBytes);
+            Object[] sourceRowCells = sourceRow.materialize();
+            Object[] standaloneCells = computeStandaloneCells(sourceRow);
+            if (partitionRows.isEmpty() || arePeers(partitionByIndexes, partitionRows.get(0), sourceRowCells)) {
+                partitionRows.add(sourceRowCells);
+                partitionStandaloneCells.add(standaloneCells);
+                partitionBytes += rowBytes;
             } else {
-                foundCurrentRowsLastPeer = true;
-
-                executeWindowFunctions();
-                // on the next source iteration, we'll start building the window for the next window row
-                currentRowCells = sourceRowCells;
-                windowForCurrentRow.add(currentRowCells);
-                newRowsInCurrentFrameStartIdx = windowForCurrentRow.size() - 1;
-                windowRowPosition++;
-                computeCurrentElement();
+                nextPartitionFirstRow = sourceRowCells;
+                nextPartitionFirstRowBytes = rowBytes;
+                nextPartitionFirstStandaloneCells = standaloneCells;
+                completePartition();
                 return true;
             }
         }
-
         if (source.allLoaded()) {
-            if (newRowsInCurrentFrameStartIdx != -1) {
-                // we're done with consuming the source iterator, but were still in the process of building up the
-                // window for the current window row. As there are no more rows to process, execute the function against
-                // what we currently accumulated in the window and emit the result.
-                executeWindowFunctions();
+            sourceExhausted = true;
+            if (partitionRows.isEmpty()) {
+                return false;
             }
+            completePartition();
+            return true;
+        }
+        return false;
+    }
 
-            if (windowRowPosition < sourceRowsConsumed) {
-                // we still need to emit rows
-                windowRowPosition++;
-                computeCurrentElement();
-                return true;
+    private void completePartition() {
+        partitionComplete = true;
+        rowIdx = 0;
+        peersStart = 0;
+        peersEnd = 0;
+        if (orderByIndexes.length > 0) {
+            int orderByIdx = orderByIndexes[0];
+            nonNullOrderValuesStart = 0;
+            while (nonNullOrderValuesStart < partitionRows.size() &&
+                   partitionRows.get(nonNullOrderValuesStart)[orderByIdx] == null) {
+                nonNullOrderValuesStart++;
+            }
+            nonNullOrderValuesEnd = partitionRows.size();
+            while (nonNullOrderValuesEnd > nonNullOrderValuesStart &&
+                   partitionRows.get(nonNullOrderValuesEnd - 1)[orderByIdx] == null) {
+                nonNullOrderValuesEnd--;
             }
         }
-        return false;
     }
 
-    private void computeCurrentElement() {
-        if (outstandingResults.size() > 0) {
-            Object[] windowFunctionsResult = outstandingResults.removeFirst();
-            System.arraycopy(windowFunctionsResult, 0, outgoingCells, 0, windowFunctionsResult.length);
+    private void startNextPartition() {
+        clearPartition();
+        if (nextPartitionFirstRow != null) {
+            partitionRows.add(nextPartitionFirstRow);
+            partitionStandaloneCells.add(nextPartitionFirstStandaloneCells);
+            partitionBytes = nextPartitionFirstRowBytes;
+            nextPartitionFirstRowBytes = 0;
+            nextPartitionFirstRow = null;
+            nextPartitionFirstStandaloneCells = null;
         }
-        if (standaloneOutgoingCells.size() > 0) {
-            Object[] inputRowCells = standaloneOutgoingCells.removeFirst();
-            System.arraycopy(inputRowCells, 0, outgoingCells, windowFunctionsCount, inputRowCells.length);
+    }
+
+    private void clearPartition() {
+        partitionRows.clear();
+        partitionStandaloneCells.clear();
+        releaseBytes(partitionBytes);
+        partitionBytes = 0;
+        partitionComplete = false;
+        rowIdx = 0;
+        peersStart = 0;
+        peersEnd = 0;
+    }
+
+    private void releaseBytes(long bytes) {
+        if (bytes > 0) {
+            ramAccountingContext.addBytesWithoutBreaking(-bytes);
         }
-        currentWindowRow = new RowN(outgoingCells);
     }
 
-    private void computeAndFillStandaloneOutgoingCellsFor(Row sourceRow) {
-        if (standaloneExpressions.size() > 0) {
-            Object[] standaloneInputValues = new Object[standaloneExpressions.size()];
-            for (int i = 0; i < standaloneExpressions.size(); i++) {
-                CollectExpression<Row, ?> expression = standaloneExpressions.get(i);
-                expression.setNextRow(sourceRow);
-                standaloneInputValues[i] = expression.value();
+    /**
+     * Releases the bytes accounted by this iterator; the context is shared and closed by its owner.
+     */
+    private void releaseAccountedBytes() {
+        releaseBytes(partitionBytes + nextPartitionFirstRowBytes);
+        partitionBytes = 0;
+        nextPartitionFirstRowBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        releaseAccountedBytes();
+        super.close();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        releaseAccountedBytes();
+        super.kill(throwable);
+    }
+
+    private boolean arePeers(int[] indexes, Object[] prevRowCells, Object[] currentRowCells) {
+        if (prevRowCells == currentRowCells) {
+            return true;
+        }
+        for (int index : indexes) {
+            if (!Objects.equals(prevRowCells[index], currentRowCells[index])) {
+                return false;
             }
-            standaloneOutgoingCells.add(standaloneInputValues);
         }
+        return true;
     }
 
-    private void executeWindowFunctions() {
-        int rowCountInCurrentFrame = windowForCurrentRow.size() - newRowsInCurrentFrameStartIdx;
-        WindowFrameState currentFrame = new WindowFrameState(
-            // lower bound is always 0 as we currently only support the UNBOUNDED_PRECEDING -> CURRENT_ROW frame definition.
-            0,
-            windowRowPosition + rowCountInCurrentFrame,
-            windowForCurrentRow
-        );
-
-        Object[][] newRowsInCurrentFrameCells = new Object[rowCountInCurrentFrame][windowFunctionsCount];
-
-        for (int i = 0; i < rowCountInCurrentFrame; i++) {
-            for (int funcIdx = 0; funcIdx < functions.size(); funcIdx++) {
-                WindowFunction function = functions.get(funcIdx);
-                Object result = function.execute(windowRowPosition + i, currentFrame, windowFuncArgsExpressions, windowFuncArgsInputs[funcIdx]);
-                newRowsInCurrentFrameCells[i][funcIdx] = result;
-            }
+    private void computeCurrentElement() {
+        if (rowIdx >= peersEnd) {
+            updatePeers();
+        }
+        int lowerBound = frameStart(frameStart.type(), frameStartOffset);
+        int upperBound = Math.max(lowerBound, frameEnd(frameEnd.type(), frameEndOffset));
+        frame.updateBounds(lowerBound, upperBound, partitionRows);
+        for (int funcIdx = 0; funcIdx < windowFunctionsCount; funcIdx++) {
+            WindowFunction function = functions.get(funcIdx);
+            outgoingCells[funcIdx] = function.execute(rowIdx, frame, windowFuncArgsExpressions, windowFuncArgsInputs[funcIdx]);
+        }
+        Object[] standaloneCells = partitionStandaloneCells.get(rowIdx);
+        if (standaloneCells != null) {
+            System.arraycopy(standaloneCells, 0, outgoingCells, windowFunctionsCount, standaloneCells.length);
+        }
+        currentWindowRow = outgoingRow;
+    }
+
+    /**
+     * Finds the peers of the current row. All rows of a partition are peers if the window is not ordered.
+     */
+    private void updatePeers() {
+        peersStart = rowIdx;
+        if (!isOrdered) {
+            peersEnd = partitionRows.size();
+            return;
         }
+        Object[] currentRowCells = partitionRows.get(rowIdx);
+        peersEnd = rowIdx + 1;
+        while (peersEnd < partitionRows.size() && arePeers(orderByIndexes, currentRowCells, partitionRows.get(peersEnd))) {
+            peersEnd++;
+        }
+    }
 
-        for (Object[] outgoingCells : newRowsInCurrentFrameCells) {
-            outstandingResults.add(outgoingCells);
+    private int frameStart(FrameBound.Type type, @Nullable Number offset) {
+        switch (type) {
+            case UNBOUNDED_PRECEDING:
+                return 0;
+            case CURRENT_ROW:
+                return frameType == WindowFrame.Type.ROWS ? rowIdx : peersStart;
+            case PRECEDING:
+            case FOLLOWING:
+                return boundOfOffset(type, offset, false);
+            case UNBOUNDED_FOLLOWING:
+            default:
+                return partitionRows.size();
         }
+    }
 
-        newRowsInCurrentFrameStartIdx = -1;
+    private int frameEnd(FrameBound.Type type, @Nullable Number offset) {
+        switch (type) {
+            case UNBOUNDED_PRECEDING:
+                return 0;
+            case CURRENT_ROW:
+                return frameType == WindowFrame.Type.ROWS ? rowIdx + 1 : peersEnd;
+            case PRECEDING:
+            case FOLLOWING:
+                return boundOfOffset(type, offset, true);
+            case UNBOUNDED_FOLLOWING:
+            default:
+                return partitionRows.size();
+        }
+    }
+
+    /**
+     * Computes the frame bound of a {@code <offset> PRECEDING} or {@code <offset> FOLLOWING} frame bound.
+     *
+     * @param isEnd true if the exclusive end of the frame is computed, false for the start of the frame.
+     */
+    private int boundOfOffset(FrameBound.Type type, @Nullable Number offset, boolean isEnd) {
+        assert offset != null : "Frame offset must not be null for " + type;
+        if (frameType == WindowFrame.Type.ROWS) {
+            long rowOffset = type == FrameBound.Type.PRECEDING ? -offset.longValue() : offset.longValue();
+            long bound = (long) rowIdx + rowOffset + (isEnd ? 1 : 0);
+            return (int) Math.max(0L, Math.min(bound, partitionRows.size()));
+        }
+
+        int orderByIdx = orderByIndexes[0];
+        Object currentValue = partitionRows.get(rowIdx)[orderByIdx];
+        if (currentValue == null) {
+            // null values are only within the range of other null values
+            return isEnd ? peersEnd : peersStart;
+        }
+        // values are sorted ascending after applying the sign, so the range boundary can be found by a binary search
+        double sign = orderedDescending ? -1d : 1d;
+        double valueOffset = type == FrameBound.Type.PRECEDING ? -offset.doubleValue() : offset.doubleValue();
+        double boundary = sign * ((Number) currentValue).doubleValue() + valueOffset;
+        int low = nonNullOrderValuesStart;
+        int high = nonNullOrderValuesEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double value = sign * ((Number) partitionRows.get(mid)[orderByIdx]).doubleValue();
+            // the start is the first row within the range, the exclusive end the first row after the range
+            if (value < boundary || (isEnd && value == boundary)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Nullable
+    private Object[] computeStandaloneCells(Row sourceRow) {
+        if (standaloneExpressions.isEmpty()) {
+            return null;
+        }
+        Object[] standaloneInputValues = new Object[standaloneExpressions.size()];
+        for (int i = 0; i < standaloneExpressions.size(); i++) {
+            CollectExpression<Row, ?> expression = standaloneExpressions.get(i);
+            expression.setNextRow(sourceRow);
+            standaloneInputValues[i] = expression.value();
+        }
+        return standaloneInputValues;
     }
 }
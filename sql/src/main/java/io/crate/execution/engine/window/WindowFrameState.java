@@ -27,36 +27,51 @@ import java.util.List;
 
 /**
  * Holds the runtime information of a window frame during the execution of a window function.
+ * <p>
+ * The bounds of the frame are indices into the rows of the partition the frame belongs to.
+ * All other accessors are relative to the start of the frame.
+ * </p>
  */
 public final class WindowFrameState {
 
-    private final int lowerBound;
-    private final int upperBoundExclusive;
-    private List<Object[]> rows;
+    private int lowerBound;
+    private int upperBoundExclusive;
+    private List<Object[]> partitionRows;
 
-    WindowFrameState(int lowerBound, int upperBoundExclusive, List<Object[]> rows) {
+    WindowFrameState(int lowerBound, int upperBoundExclusive, List<Object[]> partitionRows) {
+        updateBounds(lowerBound, upperBoundExclusive, partitionRows);
+    }
+
+    void updateBounds(int lowerBound, int upperBoundExclusive, List<Object[]> partitionRows) {
+        assert lowerBound <= upperBoundExclusive : "lowerBound must not be greater than upperBoundExclusive";
         this.lowerBound = lowerBound;
         this.upperBoundExclusive = upperBoundExclusive;
-        this.rows = rows;
+        this.partitionRows = partitionRows;
     }
 
-    int lowerBound() {
+    /**
+     * Returns the index of the first row of the frame within the partition.
+     */
+    public int lowerBound() {
         return lowerBound;
     }
 
+    /**
+     * Returns the index after the last row of the frame within the partition.
+     */
     public int upperBoundExclusive() {
         return upperBoundExclusive;
     }
 
     public Iterable<Object[]> getRows() {
-        return rows;
+        return partitionRows.subList(lowerBound, upperBoundExclusive);
     }
 
     /**
      * Returns the number of rows that are part of this frame.
      */
     public int size() {
-        return rows.size();
+        return upperBoundExclusive - lowerBound;
     }
 
     /**
@@ -64,10 +79,16 @@ public final class WindowFrameState {
      */
     @Nullable
     public Object[] getRowAtIndexOrNull(int index) {
-        if (index < 0 || index >= rows.size()) {
+        if (index < 0 || index >= size()) {
             return null;
         }
+        return partitionRows.get(lowerBound + index);
+    }
 
-        return rows.get(index);
+    /**
+     * Return the row at the given index in the partition, which may be outside of the frame.
+     */
+    Object[] getRowInPartition(int index) {
+        return partitionRows.get(index);
     }
 }
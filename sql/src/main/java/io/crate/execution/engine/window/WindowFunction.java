@@ -33,16 +33,23 @@ public interface WindowFunction extends FunctionImplementation {
 
     /**
      * Computes the window function for the row identified by the provided {@param rowIdx}.
-     * This method should be called sequentially for all the rows in a window, with each's row corresponding window
+     * This method should be called sequentially for all the rows in a partition, with each's row corresponding window
      * frame state {@link WindowFrameState}.
      *
-     * @param rowIdx       the 0-indexed id of the current window row.
+     * @param rowIdx       the 0-indexed id of the current window row within its partition.
+     *                     A value of 0 signals the start of a new partition, so any state kept for the previous
+     *                     partition must be discarded.
      * @param currentFrame the frame the row identified by {@param rowIdx} is part of.
      */
     Object execute(int rowIdx, WindowFrameState currentFrame, List<? extends CollectExpression<Row, ?>> expressions, Input... args);
 
-    default boolean isNewFrame(int lastSeenFramUpperBound, WindowFrameState frame) {
-        return frame.upperBoundExclusive() > lastSeenFramUpperBound;
+    /**
+     * @return true if the frame is not the same frame as the one seen with the previous row of the partition.
+     */
+    default boolean isNewFrame(int rowIdx, int seenFrameLowerBound, int seenFrameUpperBound, WindowFrameState frame) {
+        return rowIdx == 0 ||
+               frame.lowerBound() != seenFrameLowerBound ||
+               frame.upperBoundExclusive() != seenFrameUpperBound;
     }
 
 }
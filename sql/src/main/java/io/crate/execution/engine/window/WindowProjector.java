@@ -40,6 +40,7 @@ public class WindowProjector implements Projector {
     private final List<CollectExpression<Row, ?>> standaloneExpressions;
     private final List<WindowFunction> windowFunctions;
     private final List<? extends CollectExpression<Row, ?>> windowFuncArgsExpressions;
+    private final int[] partitionByIndexes;
     private final int[] orderByIndexes;
     private final List<DataType> standaloneInputTypes;
     private final RamAccountingContext ramAccountingContext;
@@ -52,6 +53,7 @@ public class WindowProjector implements Projector {
                            List<CollectExpression<Row, ?>> standaloneExpressions,
                            List<DataType> standaloneInputTypes,
                            RamAccountingContext ramAccountingContext,
+                           int[] partitionByIndexes,
                            int[] orderByIndexes,
                            Input[]... windowFuncArgsInputs) {
         this.windowDefinition = windowDefinition;
@@ -60,6 +62,7 @@ public class WindowProjector implements Projector {
         this.windowFunctions = windowFunctions;
         this.windowFuncArgsExpressions = windowFuncArgsExpressions;
         this.windowFuncArgsInputs = windowFuncArgsInputs;
+        this.partitionByIndexes = partitionByIndexes;
         this.orderByIndexes = orderByIndexes;
         this.standaloneInputTypes = standaloneInputTypes;
         this.ramAccountingContext = ramAccountingContext;
@@ -76,6 +79,7 @@ public class WindowProjector implements Projector {
             windowFuncArgsExpressions,
             standaloneInputTypes,
             ramAccountingContext,
+            partitionByIndexes,
             orderByIndexes,
             windowFuncArgsInputs);
     }
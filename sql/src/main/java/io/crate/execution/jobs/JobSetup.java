@@ -828,6 +828,7 @@ public class JobSetup extends AbstractComponent {
                 phase.numLeftOutputs(),
                 phase.numRightOutputs(),
                 firstConsumer,
+                phase.joinType(),
                 joinCondition,
                 phase.leftJoinConditionInputs(),
                 phase.rightJoinConditionInputs(),
@@ -23,6 +23,8 @@
 package io.crate.expression;
 
 import io.crate.data.Buckets;
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.data.Input;
 import io.crate.data.Row;
 
@@ -47,6 +49,11 @@ public class InputRow implements Row {
         return inputs.get(index).value();
     }
 
+    @Override
+    public void writeTo(int index, Column column, int position) {
+        ColumnInput.writeTo(inputs.get(index), column, position);
+    }
+
     @Override
     public Object[] materialize() {
         return Buckets.materialize(this);
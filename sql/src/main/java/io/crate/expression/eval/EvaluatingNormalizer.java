@@ -25,6 +25,7 @@ package io.crate.expression.eval;
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
 import io.crate.analyze.relations.FieldResolver;
+import io.crate.collections.Lists2;
 import io.crate.data.Input;
 import io.crate.expression.NestableInput;
 import io.crate.expression.reference.ReferenceResolver;
@@ -167,13 +168,11 @@ public class EvaluatingNormalizer {
             Function normalizedFunction = (Function) normalizeFunction(function, context);
             WindowDefinition windowDefinition = function.windowDefinition();
             OrderBy windowOrderBy = windowDefinition.orderBy();
-            if (windowOrderBy != null) {
-                windowDefinition = new WindowDefinition(
-                    windowDefinition.partitions(),
-                    windowOrderBy.copyAndReplace(s -> process(s, context)),
-                    windowDefinition.windowFrameDefinition()
-                );
-            }
+            windowDefinition = new WindowDefinition(
+                Lists2.map(windowDefinition.partitions(), s -> process(s, context)),
+                windowOrderBy == null ? null : windowOrderBy.copyAndReplace(s -> process(s, context)),
+                windowDefinition.windowFrameDefinition()
+            );
             return new WindowFunction(normalizedFunction.info(), normalizedFunction.arguments(), windowDefinition);
         }
     }
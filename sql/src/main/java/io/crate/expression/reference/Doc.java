@@ -23,8 +23,10 @@
 package io.crate.expression.reference;
 
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -33,6 +35,8 @@ public final class Doc {
 
     private final Map<String, Object> source;
     private final Supplier<String> raw;
+    @Nullable
+    private final BytesReference sourceRef;
     private final String index;
     private final String id;
     private final long version;
@@ -42,11 +46,21 @@ public final class Doc {
                long version,
                Map<String, Object> source,
                Supplier<String> raw) {
+        this(index, id, version, source, raw, null);
+    }
+
+    public Doc(String index,
+               String id,
+               long version,
+               Map<String, Object> source,
+               Supplier<String> raw,
+               @Nullable BytesReference sourceRef) {
         this.index = index;
         this.id = id;
         this.version = version;
         this.source = source;
         this.raw = raw;
+        this.sourceRef = sourceRef;
     }
 
     public long getVersion() {
@@ -65,6 +79,15 @@ public final class Doc {
         return source;
     }
 
+    /**
+     * The serialized source the document was loaded from.
+     * Null if the document wasn't loaded from the index or if the source has been updated.
+     */
+    @Nullable
+    public BytesReference getSourceRef() {
+        return sourceRef;
+    }
+
     public String getIndex() {
         return index;
     }
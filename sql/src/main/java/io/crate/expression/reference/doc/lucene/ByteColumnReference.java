@@ -21,6 +21,8 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
@@ -28,11 +30,12 @@ import org.apache.lucene.index.SortedNumericDocValues;
 
 import java.io.IOException;
 
-public class ByteColumnReference extends LuceneCollectorExpression<Byte> {
+public class ByteColumnReference extends LuceneCollectorExpression<Byte> implements ColumnInput<Byte> {
 
     private final String columnName;
     private SortedNumericDocValues values;
-    private Byte value;
+    private boolean hasValue;
+    private byte value;
 
     public ByteColumnReference(String columnName) {
         this.columnName = columnName;
@@ -40,7 +43,16 @@ public class ByteColumnReference extends LuceneCollectorExpression<Byte> {
 
     @Override
     public Byte value() {
-        return value;
+        return hasValue ? value : null;
+    }
+
+    @Override
+    public void writeTo(Column column, int position) {
+        if (hasValue) {
+            column.setLong(position, value);
+        } else {
+            column.setNull(position);
+        }
     }
 
     @Override
@@ -49,6 +61,7 @@ public class ByteColumnReference extends LuceneCollectorExpression<Byte> {
         if (values.advanceExact(docId)) {
             switch (values.docValueCount()) {
                 case 1:
+                    hasValue = true;
                     value = (byte) values.nextValue();
                     break;
 
@@ -57,7 +70,7 @@ public class ByteColumnReference extends LuceneCollectorExpression<Byte> {
 
             }
         } else {
-            value = null;
+            hasValue = false;
         }
     }
 
@@ -21,6 +21,8 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
@@ -29,11 +31,13 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 
 import java.io.IOException;
 
-public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFieldData, Double> {
+public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFieldData, Double>
+    implements ColumnInput<Double> {
 
     private final String columnName;
     private SortedNumericDoubleValues values;
-    private Double value;
+    private boolean hasValue;
+    private double value;
 
     public DoubleColumnReference(String columnName, MappedFieldType mappedFieldType) {
         super(mappedFieldType);
@@ -42,7 +46,16 @@ public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFiel
 
     @Override
     public Double value() {
-        return value;
+        return hasValue ? value : null;
+    }
+
+    @Override
+    public void writeTo(Column column, int position) {
+        if (hasValue) {
+            column.setDouble(position, value);
+        } else {
+            column.setNull(position);
+        }
     }
 
     @Override
@@ -51,6 +64,7 @@ public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFiel
         if (values.advanceExact(docId)) {
             switch (values.docValueCount()) {
                 case 1:
+                    hasValue = true;
                     value = values.nextValue();
                     break;
 
@@ -58,7 +72,7 @@ public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFiel
                     throw new GroupByOnArrayUnsupportedException(columnName);
             }
         } else {
-            value = null;
+            hasValue = false;
         }
     }
 
@@ -21,6 +21,8 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
@@ -29,11 +31,13 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 
 import java.io.IOException;
 
-public class FloatColumnReference extends FieldCacheExpression<IndexNumericFieldData, Float> {
+public class FloatColumnReference extends FieldCacheExpression<IndexNumericFieldData, Float>
+    implements ColumnInput<Float> {
 
     private final String columnName;
     private SortedNumericDoubleValues values;
-    private Float value;
+    private boolean hasValue;
+    private float value;
 
     public FloatColumnReference(String columnName, MappedFieldType fieldType) {
         super(fieldType);
@@ -42,7 +46,16 @@ public class FloatColumnReference extends FieldCacheExpression<IndexNumericField
 
     @Override
     public Float value() {
-        return value;
+        return hasValue ? value : null;
+    }
+
+    @Override
+    public void writeTo(Column column, int position) {
+        if (hasValue) {
+            column.setDouble(position, value);
+        } else {
+            column.setNull(position);
+        }
     }
 
     @Override
@@ -51,6 +64,7 @@ public class FloatColumnReference extends FieldCacheExpression<IndexNumericField
         if (values.advanceExact(docId)) {
             switch (values.docValueCount()) {
                 case 1:
+                    hasValue = true;
                     value = (float) values.nextValue();
                     break;
 
@@ -58,7 +72,7 @@ public class FloatColumnReference extends FieldCacheExpression<IndexNumericField
                     throw new GroupByOnArrayUnsupportedException(columnName);
             }
         } else {
-            value = null;
+            hasValue = false;
         }
     }
 
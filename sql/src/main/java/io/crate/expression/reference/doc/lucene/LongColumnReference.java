@@ -21,6 +21,8 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
@@ -28,11 +30,12 @@ import org.apache.lucene.index.SortedNumericDocValues;
 
 import java.io.IOException;
 
-public class LongColumnReference extends LuceneCollectorExpression<Long> {
+public class LongColumnReference extends LuceneCollectorExpression<Long> implements ColumnInput<Long> {
 
     private final String columnName;
     private SortedNumericDocValues values;
-    private Long value;
+    private boolean hasValue;
+    private long value;
 
     public LongColumnReference(String columnName) {
         this.columnName = columnName;
@@ -40,7 +43,16 @@ public class LongColumnReference extends LuceneCollectorExpression<Long> {
 
     @Override
     public Long value() {
-        return value;
+        return hasValue ? value : null;
+    }
+
+    @Override
+    public void writeTo(Column column, int position) {
+        if (hasValue) {
+            column.setLong(position, value);
+        } else {
+            column.setNull(position);
+        }
     }
 
     @Override
@@ -49,6 +61,7 @@ public class LongColumnReference extends LuceneCollectorExpression<Long> {
         if (values.advanceExact(docId)) {
             switch (values.docValueCount()) {
                 case 1:
+                    hasValue = true;
                     value = values.nextValue();
                     break;
 
@@ -56,7 +69,7 @@ public class LongColumnReference extends LuceneCollectorExpression<Long> {
                     throw new GroupByOnArrayUnsupportedException(columnName);
             }
         } else {
-            value = null;
+            hasValue = false;
         }
     }
 
@@ -21,6 +21,8 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
@@ -28,11 +30,12 @@ import org.apache.lucene.index.SortedNumericDocValues;
 
 import java.io.IOException;
 
-public class ShortColumnReference extends LuceneCollectorExpression<Short> {
+public class ShortColumnReference extends LuceneCollectorExpression<Short> implements ColumnInput<Short> {
 
     private final String columnName;
     private SortedNumericDocValues values;
-    private Short value;
+    private boolean hasValue;
+    private short value;
 
     public ShortColumnReference(String columnName) {
         this.columnName = columnName;
@@ -40,7 +43,16 @@ public class ShortColumnReference extends LuceneCollectorExpression<Short> {
 
     @Override
     public Short value() {
-        return value;
+        return hasValue ? value : null;
+    }
+
+    @Override
+    public void writeTo(Column column, int position) {
+        if (hasValue) {
+            column.setLong(position, value);
+        } else {
+            column.setNull(position);
+        }
     }
 
     @Override
@@ -49,6 +61,7 @@ public class ShortColumnReference extends LuceneCollectorExpression<Short> {
         if (values.advanceExact(docId)) {
             switch (values.docValueCount()) {
                 case 1:
+                    hasValue = true;
                     value = (short) values.nextValue();
                     break;
 
@@ -56,7 +69,7 @@ public class ShortColumnReference extends LuceneCollectorExpression<Short> {
                     throw new GroupByOnArrayUnsupportedException(columnName);
             }
         } else {
-            value = null;
+            hasValue = false;
         }
     }
 
@@ -25,8 +25,6 @@ package io.crate.expression.reference.doc.lucene;
 
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
-import org.elasticsearch.common.xcontent.XContentHelper;
-import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -37,6 +35,7 @@ import java.util.RandomAccess;
 public final class SourceLookup {
 
     private final SourceFieldVisitor fieldsVisitor = new SourceFieldVisitor();
+    private final SourceParser sourceParser = new SourceParser();
     private LeafReader reader;
     private int doc;
     private Map<String, Object> source;
@@ -55,7 +54,19 @@ public final class SourceLookup {
         this.doc = doc;
     }
 
+    /**
+     * Registers a path which will be looked up using {@link #get(List)}.
+     * Only the values of registered paths are parsed from the source.
+     */
+    public void registerPath(List<String> path) {
+        sourceParser.register(path);
+    }
+
     public Object get(List<String> path) {
+        if (sourceParser.register(path)) {
+            // the path wasn't registered, so the already parsed source doesn't contain its value
+            source = null;
+        }
         if (source == null) {
             try {
                 source = loadSource();
@@ -67,8 +78,10 @@ public final class SourceLookup {
     }
 
     private Map<String, Object> loadSource() throws IOException {
-        reader.document(doc, fieldsVisitor);
-        return XContentHelper.convertToMap(fieldsVisitor.source(), false, XContentType.JSON).v2();
+        if (fieldsVisitor.source() == null) {
+            reader.document(doc, fieldsVisitor);
+        }
+        return sourceParser.parse(fieldsVisitor.source());
     }
 
     @SuppressWarnings("unchecked")
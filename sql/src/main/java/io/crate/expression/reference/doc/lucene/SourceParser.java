@@ -0,0 +1,150 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses a source into a map which only contains the values of the registered paths.
+ * <p>
+ * Fields which aren't part of a registered path are skipped by the parser without materializing their values.
+ * The result can be used with {@link SourceLookup#extractValue(Map, List, int)} like a fully parsed source
+ * for any of the registered paths.
+ */
+final class SourceParser {
+
+    private final Node root = new Node();
+
+    /**
+     * Registers a path whose value must be contained in the parsed source.
+     *
+     * @return true if the path has been added, false if it was already covered by the registered paths.
+     */
+    boolean register(List<String> path) {
+        Node node = root;
+        for (String name : path) {
+            if (node.all) {
+                return false;
+            }
+            node = node.children.computeIfAbsent(name, k -> new Node());
+        }
+        if (node.all) {
+            return false;
+        }
+        node.all = true;
+        node.children.clear();
+        return true;
+    }
+
+    Map<String, Object> parse(BytesReference source) throws IOException {
+        try (XContentParser parser = XContentHelper.createParser(
+            NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source, XContentType.JSON)) {
+
+            if (root.all) {
+                return parser.map();
+            }
+            parser.nextToken();
+            return readObject(parser, root);
+        }
+    }
+
+    private static Map<String, Object> readObject(XContentParser parser, Node node) throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            Node child = node.children.get(name);
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                map.put(name, readValue(parser, child));
+            }
+        }
+        return map;
+    }
+
+    private static Object readValue(XContentParser parser, Node node) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                return node.all ? parser.map() : readObject(parser, node);
+            case START_ARRAY:
+                return node.all ? parser.list() : readList(parser, node);
+            default:
+                return readScalar(parser);
+        }
+    }
+
+    /**
+     * Reads a list of which only the objects are filtered; other values are returned as they are by
+     * {@link SourceLookup#extractValue(Map, List, int)}, so they're read completely.
+     */
+    private static List<Object> readList(XContentParser parser, Node node) throws IOException {
+        List<Object> list = new ArrayList<>();
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+            if (token == XContentParser.Token.START_OBJECT) {
+                list.add(readObject(parser, node));
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                list.add(parser.list());
+            } else {
+                list.add(readScalar(parser));
+            }
+        }
+        return list;
+    }
+
+    private static Object readScalar(XContentParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        /**
+         * The complete value is required
+         */
+        private boolean all = false;
+    }
+}
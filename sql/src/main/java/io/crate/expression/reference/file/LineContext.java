@@ -28,6 +28,7 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.compress.NotXContentException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
 
 import javax.annotation.Nullable;
 import java.net.URI;
@@ -36,6 +37,7 @@ import java.util.Map;
 public class LineContext {
 
     private byte[] rawSource;
+    private String rawSourceString;
     private Map<String, Object> parsedSource;
     private String currentUri;
     private String currentUriFailure;
@@ -43,6 +45,9 @@ public class LineContext {
 
     @Nullable
     String sourceAsString() {
+        if (rawSourceString != null) {
+            return rawSourceString;
+        }
         if (rawSource != null) {
             char[] chars = new char[rawSource.length];
             int len = UnicodeUtil.UTF8toUTF16(rawSource, 0, rawSource.length, chars);
@@ -54,12 +59,14 @@ public class LineContext {
     @Nullable
     Map<String, Object> sourceAsMap() {
         if (parsedSource == null) {
-            if (rawSource != null) {
-                try {
+            try {
+                if (rawSourceString != null) {
+                    parsedSource = XContentHelper.convertToMap(JsonXContent.jsonXContent, rawSourceString, false);
+                } else if (rawSource != null) {
                     parsedSource = XContentHelper.convertToMap(new BytesArray(rawSource), false, XContentType.JSON).v2();
-                } catch (ElasticsearchParseException | NotXContentException e) {
-                    throw new RuntimeException("JSON parser error: " + e.getMessage(), e);
                 }
+            } catch (ElasticsearchParseException | NotXContentException e) {
+                throw new RuntimeException("JSON parser error: " + e.getMessage(), e);
             }
         }
         return parsedSource;
@@ -75,6 +82,17 @@ public class LineContext {
 
     public void rawSource(byte[] bytes) {
         this.rawSource = bytes;
+        this.rawSourceString = null;
+        this.parsedSource = null;
+    }
+
+    /**
+     * Sets a JSON line as source. It is passed through as is to the {@code _raw} column;
+     * it's only parsed if other columns are accessed.
+     */
+    public void rawSource(String json) {
+        this.rawSource = null;
+        this.rawSourceString = json;
         this.parsedSource = null;
     }
 
@@ -107,6 +125,10 @@ public class LineContext {
         currentLineNumber = 0;
     }
 
+    public void currentLineNumber(long lineNumber) {
+        currentLineNumber = lineNumber;
+    }
+
     public void incrementCurrentLineNumber() {
         currentLineNumber++;
     }
@@ -28,6 +28,7 @@ import io.crate.metadata.IndexParts;
 import io.crate.metadata.PartitionName;
 import io.crate.metadata.RelationName;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreStats;
@@ -53,6 +54,8 @@ public class ShardRowContext {
     private final String aliasName;
     @Nullable
     private final String templateName;
+    private final CounterMetric resultCacheHits = new CounterMetric();
+    private final CounterMetric resultCacheMisses = new CounterMetric();
 
     public ShardRowContext(IndexShard indexShard, ClusterService clusterService) {
         this(indexShard, null, clusterService, Suppliers.memoizeWithExpiration(() -> {
@@ -142,4 +145,12 @@ public class ShardRowContext {
     public String templateName() {
         return templateName;
     }
+
+    public CounterMetric resultCacheHits() {
+        return resultCacheHits;
+    }
+
+    public CounterMetric resultCacheMisses() {
+        return resultCacheMisses;
+    }
 }
@@ -552,6 +552,10 @@ public class LuceneQueryBuilder {
         if (function.valueType() != DataTypes.BOOLEAN) {
             raiseUnsupported(function);
         }
+        Query numericComparisonQuery = NumericComparisonQuery.tryCreate(function, context);
+        if (numericComparisonQuery != null) {
+            return numericComparisonQuery;
+        }
         // rewrite references to source lookup instead of using the docValues column store if:
         // - no docValues are available for the related column, currently only on objects defined as `ignored`
         // - docValues value differs from source, currently happening on GeoPoint types as lucene's internal format
@@ -0,0 +1,188 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
+import io.crate.expression.symbol.Function;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Query for comparisons of numeric expressions, e.g. {@code abs(x) > 5} or {@code a + b < c},
+ * which evaluates the expressions on doc values instead of going through the {@link GenericFunctionQuery}.
+ * <p>
+ * Documents without a value in one of the columns can't match, so the doc values of a column are used as
+ * approximation. The query is deterministic and therefore cacheable.
+ */
+final class NumericComparisonQuery extends Query {
+
+    private final Function function;
+    private final NumericDocValuesExpression left;
+    private final NumericDocValuesExpression right;
+    private final IntPredicate cmpResultIsMatch;
+    private final boolean floatingPoint;
+    private final String[] columns;
+
+    private NumericComparisonQuery(Function function,
+                                   NumericDocValuesExpression left,
+                                   NumericDocValuesExpression right,
+                                   IntPredicate cmpResultIsMatch,
+                                   String[] columns) {
+        this.function = function;
+        this.left = left;
+        this.right = right;
+        this.cmpResultIsMatch = cmpResultIsMatch;
+        this.floatingPoint = NumericDocValuesExpression.isFloatingPoint(left.type);
+        this.columns = columns;
+    }
+
+    /**
+     * @return the query or null if the function is no comparison or if one of its arguments can't be
+     *         evaluated on doc values.
+     */
+    @Nullable
+    static Query tryCreate(Function function, LuceneQueryBuilder.Context context) {
+        IntPredicate cmpResultIsMatch = cmpResultIsMatch(function.info().ident().name());
+        if (cmpResultIsMatch == null || function.arguments().size() != 2) {
+            return null;
+        }
+        NumericDocValuesExpression left = NumericDocValuesExpression.compile(function.arguments().get(0), context);
+        if (left == null) {
+            return null;
+        }
+        NumericDocValuesExpression right = NumericDocValuesExpression.compile(function.arguments().get(1), context);
+        if (right == null || !left.type.equals(right.type)) {
+            return null;
+        }
+        Set<String> columns = new LinkedHashSet<>();
+        left.collectColumns(columns);
+        right.collectColumns(columns);
+        if (columns.isEmpty()) {
+            return null;
+        }
+        return new NumericComparisonQuery(function, left, right, cmpResultIsMatch, columns.toArray(new String[0]));
+    }
+
+    @Nullable
+    private static IntPredicate cmpResultIsMatch(String functionName) {
+        switch (functionName) {
+            case EqOperator.NAME:
+                return cmpResult -> cmpResult == 0;
+            case LtOperator.NAME:
+                return cmpResult -> cmpResult < 0;
+            case LteOperator.NAME:
+                return cmpResult -> cmpResult <= 0;
+            case GtOperator.NAME:
+                return cmpResult -> cmpResult > 0;
+            case GteOperator.NAME:
+                return cmpResult -> cmpResult >= 0;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, boolean needsScores, float boost) {
+        return new ConstantScoreWeight(this, boost) {
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                return DocValues.isCacheable(ctx, columns);
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                return new ConstantScoreScorer(this, score(), twoPhaseIterator(context));
+            }
+        };
+    }
+
+    private TwoPhaseIterator twoPhaseIterator(LeafReaderContext context) throws IOException {
+        DocIdSetIterator approximation = null;
+        for (String column : columns) {
+            SortedNumericDocValues docValues = DocValues.getSortedNumeric(context.reader(), column);
+            if (approximation == null || docValues.cost() < approximation.cost()) {
+                approximation = docValues;
+            }
+        }
+        NumericDocValuesExpression.Values leftValues = left.values(context);
+        NumericDocValuesExpression.Values rightValues = right.values(context);
+        float matchCost = left.cost() + right.cost() + 1;
+        return new TwoPhaseIterator(approximation) {
+            @Override
+            public boolean matches() throws IOException {
+                int doc = approximation.docID();
+                if (leftValues.advanceExact(doc) && rightValues.advanceExact(doc)) {
+                    int cmpResult = floatingPoint
+                        ? Double.compare(leftValues.doubleValue(), rightValues.doubleValue())
+                        : Long.compare(leftValues.longValue(), rightValues.longValue());
+                    return cmpResultIsMatch.test(cmpResult);
+                }
+                return false;
+            }
+
+            @Override
+            public float matchCost() {
+                return matchCost;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        NumericComparisonQuery that = (NumericComparisonQuery) o;
+
+        return function.equals(that.function);
+    }
+
+    @Override
+    public int hashCode() {
+        return function.hashCode();
+    }
+
+    @Override
+    public String toString(String field) {
+        return function.toString();
+    }
+}
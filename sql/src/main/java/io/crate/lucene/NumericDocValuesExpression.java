@@ -0,0 +1,808 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import io.crate.expression.scalar.DateTruncFunction;
+import io.crate.expression.scalar.TimeZoneParser;
+import io.crate.expression.scalar.arithmetic.AbsFunction;
+import io.crate.expression.scalar.arithmetic.ArithmeticFunctions;
+import io.crate.expression.scalar.cast.CastFunctionResolver;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolType;
+import io.crate.metadata.Reference;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A numeric scalar expression which reads the values of its columns directly from the doc values of a segment.
+ * <p>
+ * Values of integral and timestamp expressions are carried as {@code long}, values of floating point expressions
+ * as {@code double}, so evaluating an expression doesn't box. {@link #compile(Symbol, LuceneQueryBuilder.Context)}
+ * only accepts the functions for which this yields exactly the same results as their scalar implementations.
+ */
+abstract class NumericDocValuesExpression {
+
+    final DataType type;
+
+    private NumericDocValuesExpression(DataType type) {
+        this.type = type;
+    }
+
+    /**
+     * Binds the expression to a segment. The returned values must only be used by a single thread.
+     */
+    abstract Values values(LeafReaderContext context) throws IOException;
+
+    /**
+     * Rough estimate of the operations needed to evaluate the expression for a single document.
+     */
+    abstract float cost();
+
+    /**
+     * Adds the names of all columns read by the expression to {@code columns}.
+     */
+    abstract void collectColumns(Collection<String> columns);
+
+    abstract static class Values {
+
+        /**
+         * Positions the values on {@code doc}; doc ids must be increasing.
+         *
+         * @return false if the expression evaluates to null for the document.
+         */
+        abstract boolean advanceExact(int doc) throws IOException;
+
+        /**
+         * The current value of an integral expression
+         */
+        abstract long longValue();
+
+        /**
+         * The current value of a floating point expression
+         */
+        abstract double doubleValue();
+    }
+
+    static boolean isFloatingPoint(DataType type) {
+        return type.id() == DoubleType.ID || type.id() == FloatType.ID;
+    }
+
+    private static boolean isSupported(DataType type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID:
+            case FloatType.ID:
+            case DoubleType.ID:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the compiled expression or null if the symbol contains anything which can't be evaluated on doc values.
+     */
+    @Nullable
+    static NumericDocValuesExpression compile(Symbol symbol, LuceneQueryBuilder.Context context) {
+        if (!isSupported(symbol.valueType())) {
+            return null;
+        }
+        switch (symbol.symbolType()) {
+            case LITERAL:
+                Object value = ((Literal) symbol).value();
+                return value == null ? null : new Constant(symbol.valueType(), (Number) value);
+
+            case REFERENCE:
+            case GENERATED_REFERENCE:
+                return column((Reference) symbol, context);
+
+            case FUNCTION:
+                return function((Function) symbol, context);
+
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static NumericDocValuesExpression column(Reference ref, LuceneQueryBuilder.Context context) {
+        String fqn = ref.column().fqn();
+        MappedFieldType fieldType = context.getFieldTypeOrNull(fqn);
+        if (fieldType == null || !fieldType.hasDocValues()) {
+            return null;
+        }
+        return new Column(ref.valueType(), fqn);
+    }
+
+    @Nullable
+    private static NumericDocValuesExpression function(Function function, LuceneQueryBuilder.Context context) {
+        if (function.info().ident().schema() != null) {
+            // user defined function
+            return null;
+        }
+        List<Symbol> args = function.arguments();
+        DataType returnType = function.valueType();
+        String name = function.info().ident().name();
+        switch (name) {
+            case ArithmeticFunctions.Names.ADD:
+            case ArithmeticFunctions.Names.SUBTRACT:
+            case ArithmeticFunctions.Names.MULTIPLY:
+            case ArithmeticFunctions.Names.DIVIDE:
+            case ArithmeticFunctions.Names.MODULUS: {
+                NumericDocValuesExpression left = compile(args.get(0), context);
+                NumericDocValuesExpression right = left == null ? null : compile(args.get(1), context);
+                return right == null ? null : new Arithmetic(returnType, Operation.of(name), left, right);
+            }
+
+            case AbsFunction.NAME: {
+                if (returnType.id() == TimestampType.ID) {
+                    // abs on timestamps goes through a seconds to milliseconds conversion
+                    return null;
+                }
+                NumericDocValuesExpression arg = compile(args.get(0), context);
+                return arg == null ? null : new Abs(returnType, arg);
+            }
+
+            case DateTruncFunction.NAME:
+                return dateTrunc(args, context);
+
+            case CastFunctionResolver.FunctionNames.TO_DOUBLE:
+            case CastFunctionResolver.FunctionNames.TO_FLOAT:
+            case CastFunctionResolver.FunctionNames.TO_LONG:
+            case CastFunctionResolver.FunctionNames.TO_TIMESTAMP:
+            case CastFunctionResolver.FunctionNames.TO_INTEGER: {
+                if (!isLosslessCast(args.get(0).valueType(), returnType)) {
+                    return null;
+                }
+                NumericDocValuesExpression arg = compile(args.get(0), context);
+                return arg == null ? null : new Cast(returnType, arg);
+            }
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Casts which can neither fail nor involve unit conversions (like numbers to timestamps).
+     */
+    private static boolean isLosslessCast(DataType source, DataType target) {
+        switch (target.id()) {
+            case DoubleType.ID:
+                return true;
+
+            case FloatType.ID:
+                return source.id() != DoubleType.ID && source.id() != TimestampType.ID;
+
+            case LongType.ID:
+                return true;
+
+            case TimestampType.ID:
+                return !isFloatingPoint(source);
+
+            case IntegerType.ID:
+                return source.id() == IntegerType.ID || source.id() == ShortType.ID || source.id() == ByteType.ID;
+
+            default:
+                return false;
+        }
+    }
+
+    @Nullable
+    private static NumericDocValuesExpression dateTrunc(List<Symbol> args, LuceneQueryBuilder.Context context) {
+        Symbol interval = args.get(0);
+        Symbol timeZone = args.size() == 3 ? args.get(1) : null;
+        Symbol timestamp = args.get(args.size() - 1);
+        if (interval.symbolType() != SymbolType.LITERAL
+            || (timeZone != null && timeZone.symbolType() != SymbolType.LITERAL)
+            || !(timestamp.valueType().id() == TimestampType.ID || timestamp.valueType().id() == LongType.ID)) {
+            return null;
+        }
+        Object intervalValue = ((Literal) interval).value();
+        Object timeZoneValue = timeZone == null ? TimeZoneParser.DEFAULT_TZ_LITERAL.value() : ((Literal) timeZone).value();
+        if (intervalValue == null || timeZoneValue == null) {
+            return null;
+        }
+        Rounding rounding;
+        try {
+            rounding = DateTruncFunction.rounding((String) intervalValue, (String) timeZoneValue);
+        } catch (IllegalArgumentException e) {
+            // let the generic evaluation raise the error
+            return null;
+        }
+        NumericDocValuesExpression arg = compile(timestamp, context);
+        return arg == null ? null : new DateTrunc(rounding, arg);
+    }
+
+    private static final class Constant extends NumericDocValuesExpression {
+
+        private final long longValue;
+        private final double doubleValue;
+
+        Constant(DataType type, Number value) {
+            super(type);
+            this.longValue = value.longValue();
+            this.doubleValue = value.doubleValue();
+        }
+
+        @Override
+        Values values(LeafReaderContext context) {
+            return new Values() {
+                @Override
+                boolean advanceExact(int doc) {
+                    return true;
+                }
+
+                @Override
+                long longValue() {
+                    return longValue;
+                }
+
+                @Override
+                double doubleValue() {
+                    return doubleValue;
+                }
+            };
+        }
+
+        @Override
+        float cost() {
+            return 0;
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+        }
+    }
+
+    private static final class Column extends NumericDocValuesExpression {
+
+        private final String fqn;
+
+        Column(DataType type, String fqn) {
+            super(type);
+            this.fqn = fqn;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            SortedNumericDocValues docValues = DocValues.getSortedNumeric(context.reader(), fqn);
+            switch (type.id()) {
+                case DoubleType.ID:
+                    return new ColumnValues(fqn, docValues) {
+                        @Override
+                        long longValue() {
+                            return (long) doubleValue();
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return NumericUtils.sortableLongToDouble(value);
+                        }
+                    };
+
+                case FloatType.ID:
+                    return new ColumnValues(fqn, docValues) {
+                        @Override
+                        long longValue() {
+                            return (long) doubleValue();
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return NumericUtils.sortableIntToFloat((int) value);
+                        }
+                    };
+
+                default:
+                    return new ColumnValues(fqn, docValues);
+            }
+        }
+
+        @Override
+        float cost() {
+            return 1;
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+            columns.add(fqn);
+        }
+    }
+
+    private static class ColumnValues extends Values {
+
+        private final String fqn;
+        private final SortedNumericDocValues docValues;
+        long value;
+
+        ColumnValues(String fqn, SortedNumericDocValues docValues) {
+            this.fqn = fqn;
+            this.docValues = docValues;
+        }
+
+        @Override
+        boolean advanceExact(int doc) throws IOException {
+            if (docValues.advanceExact(doc)) {
+                // only columns of a numeric scalar type are compiled, they have a single value per document
+                assert docValues.docValueCount() == 1 : "column [" + fqn + "] must have a single value per document";
+                value = docValues.nextValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        long longValue() {
+            return value;
+        }
+
+        @Override
+        double doubleValue() {
+            return value;
+        }
+    }
+
+    enum Operation {
+        ADD {
+            @Override
+            long apply(long a, long b) {
+                return a + b;
+            }
+
+            @Override
+            double apply(double a, double b) {
+                return a + b;
+            }
+
+            @Override
+            float apply(float a, float b) {
+                return a + b;
+            }
+        },
+        SUBTRACT {
+            @Override
+            long apply(long a, long b) {
+                return a - b;
+            }
+
+            @Override
+            double apply(double a, double b) {
+                return a - b;
+            }
+
+            @Override
+            float apply(float a, float b) {
+                return a - b;
+            }
+        },
+        MULTIPLY {
+            @Override
+            long apply(long a, long b) {
+                return a * b;
+            }
+
+            @Override
+            double apply(double a, double b) {
+                return a * b;
+            }
+
+            @Override
+            float apply(float a, float b) {
+                return a * b;
+            }
+        },
+        DIVIDE {
+            @Override
+            long apply(long a, long b) {
+                return a / b;
+            }
+
+            @Override
+            double apply(double a, double b) {
+                return a / b;
+            }
+
+            @Override
+            float apply(float a, float b) {
+                return a / b;
+            }
+        },
+        MODULUS {
+            @Override
+            long apply(long a, long b) {
+                return a % b;
+            }
+
+            @Override
+            double apply(double a, double b) {
+                return a % b;
+            }
+
+            @Override
+            float apply(float a, float b) {
+                return a % b;
+            }
+        };
+
+        abstract long apply(long a, long b);
+
+        abstract double apply(double a, double b);
+
+        abstract float apply(float a, float b);
+
+        static Operation of(String functionName) {
+            switch (functionName) {
+                case ArithmeticFunctions.Names.ADD:
+                    return ADD;
+                case ArithmeticFunctions.Names.SUBTRACT:
+                    return SUBTRACT;
+                case ArithmeticFunctions.Names.MULTIPLY:
+                    return MULTIPLY;
+                case ArithmeticFunctions.Names.DIVIDE:
+                    return DIVIDE;
+                case ArithmeticFunctions.Names.MODULUS:
+                    return MODULUS;
+                default:
+                    throw new IllegalArgumentException("Unsupported arithmetic function: " + functionName);
+            }
+        }
+    }
+
+    private static final class Arithmetic extends NumericDocValuesExpression {
+
+        private final Operation operation;
+        private final NumericDocValuesExpression left;
+        private final NumericDocValuesExpression right;
+
+        Arithmetic(DataType type,
+                   Operation operation,
+                   NumericDocValuesExpression left,
+                   NumericDocValuesExpression right) {
+            super(type);
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            Values leftValues = left.values(context);
+            Values rightValues = right.values(context);
+            switch (type.id()) {
+                case DoubleType.ID:
+                    return new Values() {
+
+                        double value;
+
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            if (leftValues.advanceExact(doc) && rightValues.advanceExact(doc)) {
+                                value = operation.apply(leftValues.doubleValue(), rightValues.doubleValue());
+                                return true;
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        long longValue() {
+                            return (long) value;
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return value;
+                        }
+                    };
+
+                case FloatType.ID:
+                    return new Values() {
+
+                        float value;
+
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            if (leftValues.advanceExact(doc) && rightValues.advanceExact(doc)) {
+                                value = operation.apply((float) leftValues.doubleValue(), (float) rightValues.doubleValue());
+                                return true;
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        long longValue() {
+                            return (long) value;
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return value;
+                        }
+                    };
+
+                case IntegerType.ID:
+                    return new Values() {
+
+                        int value;
+
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            if (leftValues.advanceExact(doc) && rightValues.advanceExact(doc)) {
+                                value = (int) operation.apply(leftValues.longValue(), rightValues.longValue());
+                                return true;
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        long longValue() {
+                            return value;
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return value;
+                        }
+                    };
+
+                default:
+                    return new Values() {
+
+                        long value;
+
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            if (leftValues.advanceExact(doc) && rightValues.advanceExact(doc)) {
+                                value = operation.apply(leftValues.longValue(), rightValues.longValue());
+                                return true;
+                            }
+                            return false;
+                        }
+
+                        @Override
+                        long longValue() {
+                            return value;
+                        }
+
+                        @Override
+                        double doubleValue() {
+                            return value;
+                        }
+                    };
+            }
+        }
+
+        @Override
+        float cost() {
+            return 1 + left.cost() + right.cost();
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+            left.collectColumns(columns);
+            right.collectColumns(columns);
+        }
+    }
+
+    /**
+     * Mirrors {@link AbsFunction}, which computes the absolute value as double and converts it back to the argument type
+     */
+    private static final class Abs extends NumericDocValuesExpression {
+
+        private final NumericDocValuesExpression arg;
+
+        Abs(DataType type, NumericDocValuesExpression arg) {
+            super(type);
+            this.arg = arg;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            Values argValues = arg.values(context);
+            boolean floatingPoint = isFloatingPoint(type);
+            double maxValue = maxValue(type);
+            return new Values() {
+
+                double value;
+
+                @Override
+                boolean advanceExact(int doc) throws IOException {
+                    if (argValues.advanceExact(doc)) {
+                        value = Math.abs(floatingPoint ? argValues.doubleValue() : (double) argValues.longValue());
+                        if (value > maxValue) {
+                            // out of range for the argument type, e.g. abs(Integer.MIN_VALUE); raises the same error
+                            type.value(value);
+                        }
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                long longValue() {
+                    return (long) value;
+                }
+
+                @Override
+                double doubleValue() {
+                    return value;
+                }
+            };
+        }
+
+        private static double maxValue(DataType type) {
+            switch (type.id()) {
+                case ByteType.ID:
+                    return Byte.MAX_VALUE;
+                case ShortType.ID:
+                    return Short.MAX_VALUE;
+                case IntegerType.ID:
+                    return Integer.MAX_VALUE;
+                case FloatType.ID:
+                    return Float.MAX_VALUE;
+                default:
+                    return Double.POSITIVE_INFINITY;
+            }
+        }
+
+        @Override
+        float cost() {
+            return 1 + arg.cost();
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+            arg.collectColumns(columns);
+        }
+    }
+
+    private static final class DateTrunc extends NumericDocValuesExpression {
+
+        private final Rounding rounding;
+        private final NumericDocValuesExpression arg;
+
+        DateTrunc(Rounding rounding, NumericDocValuesExpression arg) {
+            super(DataTypes.TIMESTAMP);
+            this.rounding = rounding;
+            this.arg = arg;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            Values argValues = arg.values(context);
+            return new Values() {
+
+                long value;
+
+                @Override
+                boolean advanceExact(int doc) throws IOException {
+                    if (argValues.advanceExact(doc)) {
+                        value = rounding.round(argValues.longValue());
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                long longValue() {
+                    return value;
+                }
+
+                @Override
+                double doubleValue() {
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        float cost() {
+            // rounding needs time zone and calendar calculations
+            return 10 + arg.cost();
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+            arg.collectColumns(columns);
+        }
+    }
+
+    /**
+     * Only used for casts accepted by {@link #isLosslessCast(DataType, DataType)}
+     */
+    private static final class Cast extends NumericDocValuesExpression {
+
+        private final NumericDocValuesExpression arg;
+
+        Cast(DataType type, NumericDocValuesExpression arg) {
+            super(type);
+            this.arg = arg;
+        }
+
+        @Override
+        Values values(LeafReaderContext context) throws IOException {
+            Values argValues = arg.values(context);
+            if (type.id() == FloatType.ID && !isFloatingPoint(arg.type)) {
+                return new Values() {
+
+                    float value;
+
+                    @Override
+                    boolean advanceExact(int doc) throws IOException {
+                        if (argValues.advanceExact(doc)) {
+                            value = (float) argValues.longValue();
+                            return true;
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    long longValue() {
+                        return (long) value;
+                    }
+
+                    @Override
+                    double doubleValue() {
+                        return value;
+                    }
+                };
+            }
+            // all other casts only widen or truncate, which is what the accessors of the argument do already
+            return argValues;
+        }
+
+        @Override
+        float cost() {
+            return arg.cost();
+        }
+
+        @Override
+        void collectColumns(Collection<String> columns) {
+            arg.collectColumns(columns);
+        }
+    }
+}
@@ -29,13 +29,23 @@ import org.HdrHistogram.Histogram;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Histograms of statement durations per {@link Classification}.
+ *
+ * Each classification uses multiple histograms, a thread records into the histogram chosen by its thread id.
+ * This avoids contention between threads recording values concurrently. The histograms of a classification are
+ * merged when they're read.
+ */
 public class ClassifiedHistograms implements Iterable<ClassifiedHistograms.ClassifiedHistogram> {
 
     private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toMillis(10);
     private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+    private static final int NUM_STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 8));
 
-    private final ConcurrentHashMap<Classification, ConcurrentHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Classification, AtomicReferenceArray<ConcurrentHistogram>> histograms =
+        new ConcurrentHashMap<>();
 
     public static class ClassifiedHistogram {
 
@@ -64,14 +74,31 @@ public class ClassifiedHistograms implements Iterable<ClassifiedHistograms.Class
     }
 
     private ConcurrentHistogram getOrCreate(Classification classification) {
-        ConcurrentHistogram histogram = histograms.get(classification);
+        AtomicReferenceArray<ConcurrentHistogram> stripes = histograms.get(classification);
+        if (stripes == null) {
+            stripes = histograms.computeIfAbsent(classification, c -> new AtomicReferenceArray<>(NUM_STRIPES));
+        }
+        int stripe = (int) Thread.currentThread().getId() & (NUM_STRIPES - 1);
+        ConcurrentHistogram histogram = stripes.get(stripe);
         if (histogram == null) {
-            histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_VALUE, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
-            histograms.put(classification, histogram);
+            stripes.compareAndSet(
+                stripe, null, new ConcurrentHistogram(HIGHEST_TRACKABLE_VALUE, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS));
+            histogram = stripes.get(stripe);
         }
         return histogram;
     }
 
+    private static Histogram merge(AtomicReferenceArray<ConcurrentHistogram> stripes) {
+        Histogram merged = new Histogram(HIGHEST_TRACKABLE_VALUE, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+        for (int i = 0; i < stripes.length(); i++) {
+            ConcurrentHistogram histogram = stripes.get(i);
+            if (histogram != null) {
+                merged.add(histogram.copy());
+            }
+        }
+        return merged;
+    }
+
     public void reset() {
         histograms.clear();
     }
@@ -80,7 +107,7 @@ public class ClassifiedHistograms implements Iterable<ClassifiedHistograms.Class
     public Iterator<ClassifiedHistogram> iterator() {
         return histograms.entrySet()
             .stream()
-            .map(e -> new ClassifiedHistogram(e.getValue().copy(), e.getKey()))
+            .map(e -> new ClassifiedHistogram(merge(e.getValue()), e.getKey()))
             .iterator();
     }
 }
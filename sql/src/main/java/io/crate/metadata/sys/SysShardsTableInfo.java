@@ -36,6 +36,7 @@ import io.crate.expression.reference.sys.shard.ShardMinLuceneVersionExpression;
 import io.crate.expression.reference.sys.shard.ShardNumDocsExpression;
 import io.crate.expression.reference.sys.shard.ShardPartitionOrphanedExpression;
 import io.crate.expression.reference.sys.shard.ShardRecoveryExpression;
+import io.crate.expression.reference.sys.shard.ShardResultCacheExpression;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.IndexParts;
@@ -123,6 +124,9 @@ public class SysShardsTableInfo extends StaticTableInfo {
         static final ColumnIdent NODE = new ColumnIdent("node");
         static final ColumnIdent NODE_ID = new ColumnIdent("node", "id");
         static final ColumnIdent NODE_NAME = new ColumnIdent("node", "name");
+        static final ColumnIdent RESULT_CACHE = new ColumnIdent("result_cache");
+        static final ColumnIdent RESULT_CACHE_HITS = new ColumnIdent("result_cache", "hits");
+        static final ColumnIdent RESULT_CACHE_MISSES = new ColumnIdent("result_cache", "misses");
     }
 
     public static Map<ColumnIdent, RowCollectExpressionFactory<ShardRowContext>> expressions() {
@@ -151,6 +155,7 @@ public class SysShardsTableInfo extends StaticTableInfo {
             .put(Columns.BLOB_PATH, () -> NestableCollectExpression.forFunction(ShardRowContext::blobPath))
             .put(Columns.MIN_LUCENE_VERSION, ShardMinLuceneVersionExpression::new)
             .put(Columns.NODE, NodeNestableInput::new)
+            .put(Columns.RESULT_CACHE, ShardResultCacheExpression::new)
             .build();
     }
 
@@ -214,6 +219,21 @@ public class SysShardsTableInfo extends StaticTableInfo {
                     return this;
                 }
             })
+            .put(Columns.RESULT_CACHE, () -> new NestableCollectExpression<UnassignedShard, Object>() {
+                @Override
+                public void setNextRow(UnassignedShard unassignedShard) {
+                }
+
+                @Override
+                public Object value() {
+                    return null;
+                }
+
+                @Override
+                public NestableInput<?> getChild(String name) {
+                    return this;
+                }
+            })
             .build();
     }
 
@@ -260,7 +280,10 @@ public class SysShardsTableInfo extends StaticTableInfo {
                 .register(Columns.MIN_LUCENE_VERSION, StringType.INSTANCE)
                 .register(Columns.NODE, DataTypes.OBJECT)
                 .register(Columns.NODE_ID, DataTypes.STRING)
-                .register(Columns.NODE_NAME, DataTypes.STRING),
+                .register(Columns.NODE_NAME, DataTypes.STRING)
+                .register(Columns.RESULT_CACHE, DataTypes.OBJECT)
+                .register(Columns.RESULT_CACHE_HITS, DataTypes.LONG)
+                .register(Columns.RESULT_CACHE_MISSES, DataTypes.LONG),
             PRIMARY_KEY);
     }
 
@@ -21,51 +21,199 @@
 
 package io.crate.operation.collect.files;
 
-import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvObjectReader;
-import com.fasterxml.jackson.dataformat.csv.CsvParser;
-
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Converts CSV lines into JSON objects using the values of the header line as keys.
+ * <p>
+ * Values are tokenized in place and written as JSON strings straight into a reused buffer;
+ * no intermediate map or value objects are created per line.
+ * Spaces around values are trimmed, values can be enclosed in double quotes and a double quote
+ * within a quoted value is escaped with another double quote. Only spaces may follow the closing quote.
+ */
 public class CSVLineParser {
 
-    private List<Object> keyList;
-    private ObjectMapper objectMapper = new ObjectMapper();
-    private CsvObjectReader csvReader = new CsvMapper().enable(CsvParser.Feature.TRIM_SPACES)
-        .readerWithTypedSchemaFor(String.class);
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The keys of the header as JSON field names, e.g. {@code "name":}
+     */
+    private String[] jsonKeys;
+    private final StringBuilder json = new StringBuilder();
 
     public void parseHeader(BufferedReader currentReader) throws IOException {
         String header = currentReader.readLine();
-        keyList = csvReader.readValues(header.getBytes(StandardCharsets.UTF_8)).readAll();
-        Set<Object> keySet = new HashSet<>(keyList);
+        List<String> keyList = new ArrayList<>();
+        if (header != null) {
+            int end = lineEnd(header);
+            int pos = 0;
+            StringBuilder key = new StringBuilder();
+            while (end > 0) {
+                key.setLength(0);
+                pos = readValue(header, pos, end, key, false);
+                keyList.add(key.toString());
+                if (pos >= end) {
+                    break;
+                }
+                pos++;
+            }
+        }
+        Set<String> keySet = new HashSet<>(keyList);
         keySet.remove("");
 
         if (keySet.size() != keyList.size() || keySet.size() == 0) {
             throw new IllegalArgumentException("Invalid header: duplicate entries or no entries present");
         }
+        jsonKeys = new String[keyList.size()];
+        for (int i = 0; i < jsonKeys.length; i++) {
+            String key = keyList.get(i);
+            StringBuilder sb = new StringBuilder(key.length() + 3);
+            sb.append(QUOTE);
+            appendEscaped(key, 0, key.length(), sb);
+            sb.append(QUOTE).append(':');
+            jsonKeys[i] = sb.toString();
+        }
     }
 
-    public byte[] parse(String row) throws IOException {
-        MappingIterator<Object> iterator = csvReader.readValues(row.getBytes(StandardCharsets.UTF_8));
-        HashMap<Object, Object> csvAsMap = new HashMap<>();
-        int i = 0;
-        while (iterator.hasNext()) {
-            if (iterator.hasNext() && i >= keyList.size()) {
+    /**
+     * Converts a CSV line into a JSON object.
+     * Keys without a value are omitted; more values than keys result in an {@link IllegalArgumentException}.
+     * <p>
+     * The result is a string because it's emitted as the {@code _raw} string column, which is sent to the shards
+     * with the upsert requests and encoded to the source bytes once there, like the lines of JSON files.
+     */
+    public String parse(String row) {
+        StringBuilder sb = json;
+        sb.setLength(0);
+        sb.append('{');
+        int end = lineEnd(row);
+        int pos = 0;
+        int column = 0;
+        while (end > 0) {
+            if (column >= jsonKeys.length) {
                 throw new IllegalArgumentException("Number of values exceeds number of keys");
             }
+            if (column > 0) {
+                sb.append(',');
+            }
+            sb.append(jsonKeys[column]).append(QUOTE);
+            pos = readValue(row, pos, end, sb, true);
+            sb.append(QUOTE);
+            column++;
+            if (pos >= end) {
+                break;
+            }
+            pos++;
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static int lineEnd(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Reads the value starting at {@code pos} and appends it to {@code out}.
+     *
+     * @return the position of the delimiter following the value or {@code end}
+     */
+    private static int readValue(String line, int pos, int end, StringBuilder out, boolean escape) {
+        pos = skipSpaces(line, pos, end);
+        if (pos < end && line.charAt(pos) == QUOTE) {
+            int start = pos + 1;
+            int i = start;
+            while (true) {
+                if (i >= end) {
+                    throw new IllegalArgumentException("Missing closing quote for value");
+                }
+                if (line.charAt(i) == QUOTE) {
+                    append(line, start, i, out, escape);
+                    if (i + 1 < end && line.charAt(i + 1) == QUOTE) {
+                        // escaped quote; the second one is appended as part of the next chunk
+                        start = i + 1;
+                        i += 2;
+                        continue;
+                    }
+                    pos = skipSpaces(line, i + 1, end);
+                    if (pos < end && line.charAt(pos) != DELIMITER) {
+                        throw new IllegalArgumentException(
+                            "Unexpected character '" + line.charAt(pos) + "' after the closing quote of a value");
+                    }
+                    return pos;
+                }
+                i++;
+            }
+        }
+        int delimiter = line.indexOf(DELIMITER, pos);
+        if (delimiter < 0 || delimiter > end) {
+            delimiter = end;
+        }
+        int valueEnd = delimiter;
+        while (valueEnd > pos && isSpace(line.charAt(valueEnd - 1))) {
+            valueEnd--;
+        }
+        append(line, pos, valueEnd, out, escape);
+        return delimiter;
+    }
+
+    private static int skipSpaces(String line, int pos, int end) {
+        while (pos < end && isSpace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
 
-            csvAsMap.put(keyList.get(i), iterator.next());
-            i++;
+    private static void append(String line, int start, int end, StringBuilder out, boolean escape) {
+        if (escape) {
+            appendEscaped(line, start, end, out);
+        } else {
+            out.append(line, start, end);
         }
-        return objectMapper.writeValueAsBytes(csvAsMap);
     }
 
+    private static void appendEscaped(String value, int start, int end, StringBuilder out) {
+        int unescaped = start;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != QUOTE && c != '\\') {
+                continue;
+            }
+            out.append(value, unescaped, i);
+            unescaped = i + 1;
+            switch (c) {
+                case QUOTE:
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        out.append(value, unescaped, end);
+    }
 }
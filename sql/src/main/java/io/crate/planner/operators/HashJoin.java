@@ -60,6 +60,7 @@ import static io.crate.planner.operators.LogicalPlanner.NO_LIMIT;
 
 class HashJoin extends TwoInputPlan {
 
+    private final JoinType joinType;
     private final Symbol joinCondition;
     private final TableStats tableStats;
     @VisibleForTesting
@@ -67,19 +68,23 @@ class HashJoin extends TwoInputPlan {
 
     HashJoin(LogicalPlan lhs,
              LogicalPlan rhs,
+             JoinType joinType,
              Symbol joinCondition,
              AnalyzedRelation concreteRelation,
              TableStats tableStats) {
         super(lhs, rhs, new ArrayList<>());
         this.concreteRelation = concreteRelation;
+        this.joinType = joinType;
         this.joinCondition = joinCondition;
         this.outputs.addAll(lhs.outputs());
-        this.outputs.addAll(rhs.outputs());
+        if (joinType != JoinType.SEMI && joinType != JoinType.ANTI) {
+            this.outputs.addAll(rhs.outputs());
+        }
         this.tableStats = tableStats;
     }
 
     JoinType joinType() {
-        return JoinType.INNER;
+        return joinType;
     }
 
     Symbol joinCondition() {
@@ -112,12 +117,16 @@ class HashJoin extends TwoInputPlan {
 
         LogicalPlan leftLogicalPlan = lhs;
         LogicalPlan rightLogicalPlan = rhs;
+        JoinType joinTypeForExecution = joinType;
 
         boolean tablesSwitched = false;
         // We move smaller table to the right side since benchmarking
         // revealed that this improves performance in most cases.
-        if (lhs.numExpectedRows() < rhs.numExpectedRows()) {
+        // The right side is kept in memory to be able to iterate it repeatedly, whereas the left side is processed
+        // in blocks, so the size in bytes is compared if available.
+        if (joinType.supportsInversion() && isSmaller(lhs, rhs)) {
             tablesSwitched = true;
+            joinTypeForExecution = joinType.invert();
             leftLogicalPlan = rhs;
             rightLogicalPlan = lhs;
 
@@ -154,18 +163,40 @@ class HashJoin extends TwoInputPlan {
             leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
             rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
         } else {
-            if (isDistributed) {
-                // Run the join distributed by modulo distribution algorithm
-                leftOutputs = setModuloDistribution(hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan);
-                rightOutputs = setModuloDistribution(hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan);
-            } else {
-                // Run the join non-distributed on the handler node
-                joinExecutionNodes = Collections.singletonList(plannerContext.handlerNode());
-                leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+            long leftSizeInBytes = estimatedSizeInBytes(leftLogicalPlan);
+            long rightSizeInBytes = estimatedSizeInBytes(rightLogicalPlan);
+            if (isDistributed
+                && joinTypeForExecution != JoinType.RIGHT
+                && joinTypeForExecution != JoinType.FULL
+                && isBroadcastCheaper(rightSizeInBytes, leftSizeInBytes, leftResultDesc.nodeIds())) {
+                // Run the join on the nodes of the left side and broadcast the right side to them.
+                // Not possible if all rows of the right side must be emitted, they would be emitted on every node.
+                joinExecutionNodes = leftResultDesc.nodeIds();
+                leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
                 rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+                rightMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, rightResultDesc, joinExecutionNodes);
+            } else if (isDistributed
+                       && (joinTypeForExecution == JoinType.INNER || joinTypeForExecution == JoinType.RIGHT)
+                       && isBroadcastCheaper(leftSizeInBytes, rightSizeInBytes, rightResultDesc.nodeIds())) {
+                // Run the join on the nodes of the right side and broadcast the left side to them.
+                joinExecutionNodes = rightResultDesc.nodeIds();
+                leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+                rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+                leftMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, leftResultDesc, joinExecutionNodes);
+            } else {
+                if (isDistributed) {
+                    // Run the join distributed by modulo distribution algorithm
+                    leftOutputs = setModuloDistribution(hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan);
+                    rightOutputs = setModuloDistribution(hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan);
+                } else {
+                    // Run the join non-distributed on the handler node
+                    joinExecutionNodes = Collections.singletonList(plannerContext.handlerNode());
+                    leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+                    rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+                }
+                leftMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, leftResultDesc, joinExecutionNodes);
+                rightMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, rightResultDesc, joinExecutionNodes);
             }
-            leftMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, leftResultDesc, joinExecutionNodes);
-            rightMerge = JoinOperations.buildMergePhaseForJoin(plannerContext, rightResultDesc, joinExecutionNodes);
         }
 
         List<Symbol> joinOutputs = Lists2.concat(leftOutputs, rightOutputs);
@@ -180,6 +211,7 @@ class HashJoin extends TwoInputPlan {
             leftOutputs.size(),
             rightOutputs.size(),
             joinExecutionNodes,
+            joinTypeForExecution,
             InputColumns.create(joinCondition, joinOutputs),
             InputColumns.create(hashSymbols.v1(), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(hashSymbols.v2(), new InputColumns.SourceSymbols(rightOutputs)),
@@ -217,7 +249,7 @@ class HashJoin extends TwoInputPlan {
 
     @Override
     protected LogicalPlan updateSources(LogicalPlan newLeftSource, LogicalPlan newRightSource) {
-        return new HashJoin(newLeftSource, newRightSource, joinCondition, concreteRelation, tableStats);
+        return new HashJoin(newLeftSource, newRightSource, joinType, joinCondition, concreteRelation, tableStats);
     }
 
     @Override
@@ -236,6 +268,47 @@ class HashJoin extends TwoInputPlan {
         return visitor.visitHashJoin(this, context);
     }
 
+    /**
+     * @return the estimated size of all rows of the plan in bytes, -1 if unknown.
+     */
+    private static long estimatedSizeInBytes(LogicalPlan plan) {
+        long numRows = plan.numExpectedRows();
+        long rowSize = plan.estimatedRowSize();
+        if (numRows < 0 || rowSize <= 0) {
+            return -1L;
+        }
+        return numRows * rowSize;
+    }
+
+    /**
+     * Compares the estimated size in bytes if available for both plans, otherwise the number of rows.
+     */
+    private static boolean isSmaller(LogicalPlan plan, LogicalPlan other) {
+        long sizeInBytes = estimatedSizeInBytes(plan);
+        long otherSizeInBytes = estimatedSizeInBytes(other);
+        if (sizeInBytes >= 0 && otherSizeInBytes >= 0) {
+            return sizeInBytes < otherSizeInBytes;
+        }
+        return plan.numExpectedRows() < other.numExpectedRows();
+    }
+
+    /**
+     * A modulo distribution sends (nearly) all rows of both sides over the network, a broadcast sends all rows of
+     * one side to each node holding the other side.
+     *
+     * @return true if broadcasting the rows of one side to the nodes of the other side is estimated to transfer
+     *         less data than distributing the rows of both sides by modulo.
+     */
+    @VisibleForTesting
+    static boolean isBroadcastCheaper(long broadcastSizeInBytes,
+                                      long localSizeInBytes,
+                                      Collection<String> localNodeIds) {
+        if (broadcastSizeInBytes < 0 || localSizeInBytes < 0 || localNodeIds.isEmpty()) {
+            return false;
+        }
+        return broadcastSizeInBytes * localNodeIds.size() < broadcastSizeInBytes + localSizeInBytes;
+    }
+
     private List<Symbol> setModuloDistribution(List<Symbol> joinSymbols,
                                                List<Symbol> planOutputs,
                                                ExecutionPlan executionPlan) {
@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.ToLongFunction;
 
 /**
  * Utility class which is used by the {@link JoinPlanBuilder} for the building of
@@ -42,18 +43,120 @@ final class JoinOrdering {
     private JoinOrdering() {
     }
 
+    /**
+     * @param numRows the estimated number of rows of a relation, -1 if unknown. The relations are only re-ordered
+     *                by their number of rows if it is known for all relations, see
+     *                {@link #orderByNumberOfRows(Collection, Set, Set, ToLongFunction)}.
+     */
     static Collection<QualifiedName> getOrderedRelationNames(Collection<QualifiedName> sourceRelations,
                                                              Set<? extends Set<QualifiedName>> explicitJoinConditions,
-                                                             Set<? extends Set<QualifiedName>> implicitJoinConditions) {
+                                                             Set<? extends Set<QualifiedName>> implicitJoinConditions,
+                                                             ToLongFunction<QualifiedName> numRows) {
         if (explicitJoinConditions.isEmpty() && implicitJoinConditions.isEmpty()) {
             return sourceRelations;
         }
+        if (sourceRelations.stream().allMatch(r -> numRows.applyAsLong(r) >= 0)) {
+            return orderByNumberOfRows(
+                sourceRelations,
+                explicitJoinConditions,
+                implicitJoinConditions,
+                numRows);
+        }
         return orderByJoinConditions(
             sourceRelations,
             explicitJoinConditions,
             implicitJoinConditions);
     }
 
+    /**
+     * Returns the relations ordered to keep the intermediate results of the join tree small.
+     * <p>
+     * (Assuming the relations are consumed from left to right to build a tree of two-relations join nodes)
+     * <p>
+     * The ordering is built greedily: It starts with the two relations with a join condition between them which
+     * have the least number of rows. Then the relation with the least number of rows that has a join condition
+     * with one of the already ordered relations is added, until all relations are ordered. Relations which can
+     * only be joined using a cross join are added last, ordered by their number of rows as well.
+     * On equal number of rows the original order is kept.
+     *
+     * @param relations               all relations, e.g. [t1, t2, t3, t3]
+     * @param explicitJoinedRelations contains all relation pairs that have an explicit join condition
+     *                                e.g. {{t1, t2}, {t2, t3}}
+     * @param implicitJoinedRelations contains all relations pairs that have an implicit join condition
+     *                                e.g. {{t1, t2}, {t2, t3}}
+     * @param numRows                 the estimated number of rows of a relation
+     */
+    static Collection<QualifiedName> orderByNumberOfRows(Collection<QualifiedName> relations,
+                                                         Set<? extends Set<QualifiedName>> explicitJoinedRelations,
+                                                         Set<? extends Set<QualifiedName>> implicitJoinedRelations,
+                                                         ToLongFunction<QualifiedName> numRows) {
+        List<Set<QualifiedName>> joinConditions = new ArrayList<>(explicitJoinedRelations);
+        joinConditions.addAll(implicitJoinedRelations);
+        joinConditions.removeIf(names -> names.size() < 2);
+
+        LinkedHashSet<QualifiedName> bestOrder = new LinkedHashSet<>(relations.size());
+        long minNumRows = Long.MAX_VALUE;
+        Set<QualifiedName> firstJoinPair = null;
+        for (Set<QualifiedName> names : joinConditions) {
+            if (names.size() == 2) {
+                long pairNumRows = 0;
+                for (QualifiedName name : names) {
+                    pairNumRows += numRows.applyAsLong(name);
+                }
+                if (pairNumRows < minNumRows) {
+                    minNumRows = pairNumRows;
+                    firstJoinPair = names;
+                }
+            }
+        }
+        if (firstJoinPair == null) {
+            return orderByJoinConditions(relations, explicitJoinedRelations, implicitJoinedRelations);
+        }
+        for (QualifiedName name : relations) {
+            if (firstJoinPair.contains(name)) {
+                bestOrder.add(name);
+            }
+        }
+        while (bestOrder.size() < relations.size()) {
+            QualifiedName next = null;
+            boolean nextIsJoined = false;
+            for (QualifiedName name : relations) {
+                if (bestOrder.contains(name)) {
+                    continue;
+                }
+                boolean isJoined = hasJoinCondition(joinConditions, bestOrder, name);
+                if (next == null
+                    || (isJoined && !nextIsJoined)
+                    || (isJoined == nextIsJoined && numRows.applyAsLong(name) < numRows.applyAsLong(next))) {
+                    next = name;
+                    nextIsJoined = isJoined;
+                }
+            }
+            bestOrder.add(next);
+        }
+        return bestOrder;
+    }
+
+    private static boolean hasJoinCondition(List<Set<QualifiedName>> joinConditions,
+                                            Set<QualifiedName> joinedRelations,
+                                            QualifiedName relation) {
+        for (Set<QualifiedName> names : joinConditions) {
+            if (names.contains(relation)) {
+                boolean allOthersJoined = true;
+                for (QualifiedName name : names) {
+                    if (!name.equals(relation) && !joinedRelations.contains(name)) {
+                        allOthersJoined = false;
+                        break;
+                    }
+                }
+                if (allOthersJoined) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a the relation re-ordered to apply join conditions further down in the tree.
      * <p>
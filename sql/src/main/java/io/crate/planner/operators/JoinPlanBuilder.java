@@ -24,7 +24,9 @@ package io.crate.planner.operators;
 
 import io.crate.action.sql.SessionContext;
 import io.crate.analyze.MultiSourceSelect;
+import io.crate.analyze.QueriedTable;
 import io.crate.analyze.WhereClause;
+import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.JoinPair;
 import io.crate.analyze.relations.QueriedRelation;
 import io.crate.analyze.relations.QuerySplitter;
@@ -101,10 +103,14 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
 
         Collection<QualifiedName> orderedRelationNames;
         if (mss.sources().size() > 2) {
+            // Only inner and cross joins can be freely re-ordered by cost
+            boolean reorderByNumRows = joinPairs.values().stream()
+                .allMatch(p -> p.joinType() == JoinType.INNER || p.joinType() == JoinType.CROSS);
             orderedRelationNames = JoinOrdering.getOrderedRelationNames(
                 mss.sources().keySet(),
                 joinPairs.keySet(),
-                queryParts.keySet()
+                queryParts.keySet(),
+                name -> reorderByNumRows ? numExpectedRows(mss.sources().get(name), tableStats) : -1L
             );
         } else {
             orderedRelationNames = mss.sources().keySet();
@@ -201,6 +207,7 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
             return new HashJoin(
                 lhsPlan,
                 rhsPlan,
+                joinType,
                 joinCondition,
                 rhs,
                 tableStats);
@@ -216,6 +223,16 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
         }
     }
 
+    /**
+     * @return the number of rows of the relation if it's a table with statistics, -1 otherwise.
+     */
+    private static long numExpectedRows(AnalyzedRelation relation, TableStats tableStats) {
+        if (relation instanceof QueriedTable) {
+            return tableStats.numDocs(((QueriedTable<?>) relation).tableRelation().tableInfo().ident());
+        }
+        return -1L;
+    }
+
     private static boolean isHashJoinPossible(JoinType joinType, Symbol joinCondition, SessionContext sessionContext) {
         return sessionContext.isHashJoinEnabled() && EquiJoinDetector.isHashJoinPossible(joinType, joinCondition);
     }
@@ -22,22 +22,33 @@
 
 package io.crate.planner.operators;
 
+import io.crate.analyze.FrameBoundDefinition;
 import io.crate.analyze.OrderBy;
+import io.crate.analyze.SymbolEvaluator;
 import io.crate.analyze.WindowDefinition;
+import io.crate.analyze.WindowFrameDefinition;
 import io.crate.collections.Lists2;
 import io.crate.data.Row;
-import io.crate.exceptions.UnsupportedFeatureException;
+import io.crate.execution.dsl.phases.MergePhase;
+import io.crate.execution.dsl.projection.EvalProjection;
 import io.crate.execution.dsl.projection.OrderedTopNProjection;
+import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.WindowAggProjection;
 import io.crate.execution.dsl.projection.builder.InputColumns;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
-import io.crate.expression.symbol.InputColumn;
+import io.crate.execution.engine.pipeline.TopN;
+import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.WindowFunction;
 import io.crate.planner.ExecutionPlan;
 import io.crate.planner.ExplainLeaf;
 import io.crate.planner.Merge;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.ResultDescription;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.planner.distribution.DistributionType;
+import io.crate.sql.tree.WindowFrame;
+import io.crate.types.DataTypes;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -51,7 +62,7 @@ import static io.crate.planner.operators.LogicalPlanner.extractColumns;
 
 public class WindowAgg extends OneInputPlan {
 
-    private static final int[] EMPTY_ORDER_BY_INDEXES = new int[0];
+    private static final int[] EMPTY_INDEXES = new int[0];
 
     private final WindowDefinition windowDefinition;
     private final List<WindowFunction> windowFunctions;
@@ -62,20 +73,13 @@ public class WindowAgg extends OneInputPlan {
             return source;
         }
 
-        for (WindowFunction windowFunction : windowFunctions) {
-            WindowDefinition windowDefinition = windowFunction.windowDefinition();
-            if (windowDefinition.partitions().size() > 0 ||
-                !windowDefinition.windowFrameDefinition().equals(WindowDefinition.DEFAULT_WINDOW_FRAME)) {
-                throw new UnsupportedFeatureException("Window partitions or custom frame definitions are not supported");
-            }
-        }
-
         return (tableStats, usedBeforeNextFetch) -> {
             HashSet<Symbol> allUsedColumns = new HashSet<>(usedBeforeNextFetch);
             Set<Symbol> columnsUsedInFunctions = extractColumns(windowFunctions);
             LinkedHashMap<WindowDefinition, ArrayList<WindowFunction>> groupedFunctions = new LinkedHashMap<>();
             for (WindowFunction windowFunction : windowFunctions) {
                 WindowDefinition windowDefinition = windowFunction.windowDefinition();
+                columnsUsedInFunctions.addAll(extractColumns(windowDefinition.partitions()));
                 OrderBy orderBy = windowDefinition.orderBy();
                 if (orderBy != null) {
                     columnsUsedInFunctions.addAll(extractColumns(orderBy.orderBySymbols()));
@@ -123,22 +127,43 @@ public class WindowAgg extends OneInputPlan {
                                @Nullable Integer pageSizeHint,
                                Row params,
                                SubQueryResults subQueryResults) {
+        // The window functions must see all rows, limit, offset and order are applied on top of the WindowAgg
         ExecutionPlan sourcePlan = source.build(
             plannerContext,
             projectionBuilder,
-            limit,
-            offset,
-            order,
-            pageSizeHint,
+            TopN.NO_LIMIT,
+            TopN.NO_OFFSET,
+            null,
+            null,
             params,
             subQueryResults
         );
+        List<Symbol> partitions = windowDefinition.partitions();
+        OrderBy orderBy = windowDefinition.orderBy();
+        ResultDescription resultDescription = sourcePlan.resultDescription();
+        boolean distributeByPartitions = !partitions.isEmpty()
+                                         && resultDescription.nodeIds().size() > 1
+                                         && !resultDescription.hasRemainingLimitOrOffset();
+        if (!distributeByPartitions) {
+            sourcePlan = Merge.ensureOnHandler(sourcePlan, plannerContext);
+        }
 
-        sourcePlan = Merge.ensureOnHandler(sourcePlan, plannerContext);
+        // The partition by and order by symbols are accessed by their position in the rows,
+        // symbols which aren't part of the source outputs are evaluated and appended to the rows.
+        List<Symbol> sourceOutputs = source.outputs();
+        ArrayList<Symbol> windowInputs = new ArrayList<>(sourceOutputs);
+        addIfMissing(windowInputs, partitions);
+        if (orderBy != null) {
+            addIfMissing(windowInputs, orderBy.orderBySymbols());
+        }
+        InputColumns.SourceSymbols sourceSymbols = new InputColumns.SourceSymbols(sourceOutputs);
+        if (windowInputs.size() > sourceOutputs.size()) {
+            sourcePlan.addProjection(new EvalProjection(InputColumns.create(windowInputs, sourceSymbols)));
+        }
+        int[] partitionByIndexes = indexesOf(windowInputs, partitions);
+        int[] orderByIndexes = orderBy == null ? EMPTY_INDEXES : indexesOf(windowInputs, orderBy.orderBySymbols());
 
-        InputColumns.SourceSymbols sourceSymbols = new InputColumns.SourceSymbols(source.outputs());
         List<Symbol> standaloneWithInputs = InputColumns.create(this.standalone, sourceSymbols);
-
         LinkedHashMap<WindowFunction, List<Symbol>> functionsWithInputs = new LinkedHashMap<>(windowFunctions.size(), 1f);
         for (WindowFunction windowFunction : windowFunctions) {
             WindowFunction windowFunctionSymbol = (WindowFunction) InputColumns.create(windowFunction, sourceSymbols);
@@ -146,39 +171,136 @@ public class WindowAgg extends OneInputPlan {
             functionsWithInputs.put(windowFunctionSymbol, inputs);
         }
 
-        OrderBy orderBy = windowDefinition.orderBy();
-        int[] orderByIndexes = EMPTY_ORDER_BY_INDEXES;
-        if (orderBy != null) {
-            InputColumns.SourceSymbols orderByCtx = new InputColumns.SourceSymbols(source.outputs());
-            List<Symbol> outputs = InputColumns.create(source.outputs(), orderByCtx);
-            List<Symbol> orderByInputColumns = InputColumns.create(orderBy.orderBySymbols(), orderByCtx);
-
-            orderByIndexes = new int[orderByInputColumns.size()];
-            for (int i = 0; i < orderByInputColumns.size(); i++) {
-                Symbol orderBySymbol = orderByInputColumns.get(i);
-                assert orderBySymbol instanceof InputColumn : "Window ordering should be expressed as ICs at this stage";
-                orderByIndexes[i] = ((InputColumn) orderBySymbol).index();
-            }
-
-            OrderedTopNProjection topNProjection = new OrderedTopNProjection(
-                Limit.limitAndOffset(limit, offset),
-                0,
-                outputs,
-                orderByInputColumns,
-                orderBy.reverseFlags(),
-                orderBy.nullsFirst()
-            );
-            sourcePlan.addProjection(
-                topNProjection,
-                limit,
-                offset,
+        ArrayList<Projection> projections = new ArrayList<>(2);
+        if (!partitions.isEmpty() || orderBy != null) {
+            projections.add(createSortProjection(windowInputs, partitions, orderBy));
+        }
+        projections.add(new WindowAggProjection(
+            windowDefinitionWithEvaluatedFrameOffsets(plannerContext, params, subQueryResults),
+            functionsWithInputs,
+            standaloneWithInputs,
+            partitionByIndexes,
+            orderByIndexes
+        ));
+        if (distributeByPartitions) {
+            // All rows of a partition must be processed by the same node, the rows are distributed by the first
+            // partition by symbol and each node computes the window functions for the partitions it receives.
+            sourcePlan.setDistributionInfo(new DistributionInfo(DistributionType.MODULO, partitionByIndexes[0]));
+            return new Merge(
+                sourcePlan,
+                new MergePhase(
+                    plannerContext.jobId(),
+                    plannerContext.nextExecutionPhaseId(),
+                    "distributed-window-agg",
+                    resultDescription.nodeIds().size(),
+                    1,
+                    resultDescription.nodeIds(),
+                    sourcePlan.resultDescription().streamOutputs(),
+                    projections,
+                    DistributionInfo.DEFAULT_BROADCAST,
+                    null
+                ),
+                TopN.NO_LIMIT,
+                TopN.NO_OFFSET,
+                outputs.size(),
+                TopN.NO_LIMIT,
                 null
             );
         }
-        sourcePlan.addProjection(new WindowAggProjection(windowDefinition, functionsWithInputs, standaloneWithInputs, orderByIndexes));
+        for (Projection projection : projections) {
+            sourcePlan.addProjection(projection);
+        }
         return sourcePlan;
     }
 
+    private static void addIfMissing(List<Symbol> symbols, List<Symbol> symbolsToAdd) {
+        for (Symbol symbol : symbolsToAdd) {
+            if (!symbols.contains(symbol)) {
+                symbols.add(symbol);
+            }
+        }
+    }
+
+    private static int[] indexesOf(List<Symbol> symbols, List<Symbol> symbolsToFind) {
+        int[] indexes = new int[symbolsToFind.size()];
+        for (int i = 0; i < symbolsToFind.size(); i++) {
+            indexes[i] = symbols.indexOf(symbolsToFind.get(i));
+            assert indexes[i] >= 0 : "Symbol " + symbolsToFind.get(i) + " must be part of " + symbols;
+        }
+        return indexes;
+    }
+
+    /**
+     * Sorts the rows by the partition by symbols followed by the order by symbols of the window definition,
+     * so that the rows of a partition are consecutive and ordered.
+     */
+    private static OrderedTopNProjection createSortProjection(List<Symbol> windowInputs,
+                                                              List<Symbol> partitions,
+                                                              @Nullable OrderBy orderBy) {
+        int numOrderBySymbols = partitions.size() + (orderBy == null ? 0 : orderBy.orderBySymbols().size());
+        List<Symbol> sortSymbols = new ArrayList<>(numOrderBySymbols);
+        boolean[] reverseFlags = new boolean[numOrderBySymbols];
+        Boolean[] nullsFirst = new Boolean[numOrderBySymbols];
+        sortSymbols.addAll(partitions);
+        if (orderBy != null) {
+            sortSymbols.addAll(orderBy.orderBySymbols());
+            System.arraycopy(orderBy.reverseFlags(), 0, reverseFlags, partitions.size(), orderBy.reverseFlags().length);
+            System.arraycopy(orderBy.nullsFirst(), 0, nullsFirst, partitions.size(), orderBy.nullsFirst().length);
+        }
+        InputColumns.SourceSymbols windowInputSymbols = new InputColumns.SourceSymbols(windowInputs);
+        return new OrderedTopNProjection(
+            TopN.NO_LIMIT,
+            TopN.NO_OFFSET,
+            InputColumns.create(windowInputs, windowInputSymbols),
+            InputColumns.create(sortSymbols, windowInputSymbols),
+            reverseFlags,
+            nullsFirst
+        );
+    }
+
+    /**
+     * The offsets of {@code <offset> PRECEDING} and {@code <offset> FOLLOWING} frame bounds may be parameters,
+     * they're evaluated and validated here so that the execution layer can use their values.
+     */
+    private WindowDefinition windowDefinitionWithEvaluatedFrameOffsets(PlannerContext plannerContext,
+                                                                       Row params,
+                                                                       SubQueryResults subQueryResults) {
+        WindowFrameDefinition frameDefinition = windowDefinition.windowFrameDefinition();
+        FrameBoundDefinition start = evaluateFrameOffset(
+            frameDefinition.type(), frameDefinition.start(), plannerContext, params, subQueryResults);
+        FrameBoundDefinition end = frameDefinition.end() == null
+            ? null
+            : evaluateFrameOffset(frameDefinition.type(), frameDefinition.end(), plannerContext, params, subQueryResults);
+        if (start == frameDefinition.start() && end == frameDefinition.end()) {
+            return windowDefinition;
+        }
+        return new WindowDefinition(
+            windowDefinition.partitions(),
+            windowDefinition.orderBy(),
+            new WindowFrameDefinition(frameDefinition.type(), start, end)
+        );
+    }
+
+    private static FrameBoundDefinition evaluateFrameOffset(WindowFrame.Type frameType,
+                                                            FrameBoundDefinition frameBound,
+                                                            PlannerContext plannerContext,
+                                                            Row params,
+                                                            SubQueryResults subQueryResults) {
+        Symbol offset = frameBound.value();
+        if (offset == null) {
+            return frameBound;
+        }
+        Object value = SymbolEvaluator.evaluate(
+            plannerContext.transactionContext(), plannerContext.functions(), offset, params, subQueryResults);
+        if (!(value instanceof Number) || ((Number) value).doubleValue() < 0) {
+            throw new IllegalArgumentException("Window frame offset must be a non-negative number, got: " + value);
+        }
+        if (frameType == WindowFrame.Type.ROWS) {
+            return new FrameBoundDefinition(frameBound.type(), Literal.of(DataTypes.LONG.value(value)));
+        }
+        return new FrameBoundDefinition(frameBound.type(), Literal.of(DataTypes.DOUBLE.value(value)));
+    }
+
     @Override
     public <C, R> R accept(LogicalPlanVisitor<C, R> visitor, C context) {
         return visitor.visitWindowAgg(this, context);
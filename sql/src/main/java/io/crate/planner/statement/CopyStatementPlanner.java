@@ -278,7 +278,8 @@ public final class CopyStatementPlanner {
             Collections.emptyList(),
             copyFrom.settings().get("compression", null),
             copyFrom.settings().getAsBoolean("shared", null),
-            copyFrom.inputFormat()
+            copyFrom.inputFormat(),
+            copyFrom.settings().getAsInt("readers", 1)
         );
 
         Collect collect = new Collect(collectPhase, TopN.NO_LIMIT, 0, 1, -1, null);
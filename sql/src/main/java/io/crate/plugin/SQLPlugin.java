@@ -23,6 +23,7 @@ package io.crate.plugin;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import io.crate.action.sql.ParseCache;
 import io.crate.action.sql.SQLOperations;
 import io.crate.analyze.repositories.RepositorySettingsModule;
 import io.crate.auth.AuthSettings;
@@ -30,9 +31,14 @@ import io.crate.breaker.CircuitBreakerModule;
 import io.crate.cluster.gracefulstop.DecommissionAllocationDecider;
 import io.crate.cluster.gracefulstop.DecommissioningService;
 import io.crate.execution.TransportExecutorModule;
+import io.crate.execution.engine.aggregation.GroupingProjector;
 import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
 import io.crate.execution.engine.collect.CollectOperationModule;
+import io.crate.execution.engine.collect.ShardResultCache;
+import io.crate.execution.engine.collect.count.SegmentCountCache;
 import io.crate.execution.engine.collect.files.FileCollectModule;
+import io.crate.execution.engine.collect.sources.ShardCollectSource;
+import io.crate.execution.engine.sort.SortingProjector;
 import io.crate.execution.engine.window.WindowFunctionModule;
 import io.crate.execution.jobs.JobModule;
 import io.crate.execution.jobs.TasksService;
@@ -140,6 +146,12 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         List<Setting<?>> settings = new ArrayList<>();
         settings.add(AnalyzerSettings.CUSTOM_ANALYSIS_SETTING_GROUP);
         settings.add(SQLOperations.NODE_READ_ONLY_SETTING);
+        settings.add(ParseCache.SIZE_SETTING);
+        settings.add(ShardCollectSource.MAX_SEGMENT_SLICES_SETTING);
+        settings.add(SegmentCountCache.SIZE_SETTING);
+        settings.add(ShardResultCache.SIZE_SETTING);
+        settings.add(GroupingProjector.SPILL_THRESHOLD_SETTING);
+        settings.add(SortingProjector.SPILL_THRESHOLD_SETTING);
 
         // Postgres settings are node settings
         settings.add(PostgresNetty.PSQL_ENABLED_SETTING.setting());
@@ -0,0 +1,302 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.Session;
+import io.crate.analyze.expressions.ExpressionToStringVisitor;
+import io.crate.data.Row;
+import io.crate.exceptions.SQLExceptions;
+import io.crate.expression.symbol.Field;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.tree.Assignment;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.QualifiedName;
+import io.crate.sql.tree.QualifiedNameReference;
+import io.crate.sql.tree.Table;
+import io.crate.types.DataType;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handles the copy-in sub-protocol of a {@code COPY .. FROM STDIN}:
+ *
+ * <pre>
+ *          |     CopyInResponse               |
+ *          |<---------------------------------|
+ *          |     CopyData                     |
+ *          |--------------------------------->|
+ *          |     CopyData                     |
+ *          |--------------------------------->|
+ *          |     CopyDone | CopyFail          |
+ *          |--------------------------------->|
+ *          |     CommandComplete | Error      |
+ *          |<---------------------------------|
+ * </pre>
+ *
+ * The rows are decoded as the CopyData messages arrive and are inserted in bulks of {@link CopyOptions#bulkSize}
+ * rows using a prepared {@code INSERT} statement, so the statement is only parsed and analyzed once and planned
+ * once per bulk.
+ * Only one bulk is executed at a time; if the next bulk is complete before the running one finishes,
+ * reading from the channel is suspended until the running bulk is done.
+ * <p>
+ * All methods must be called from the event loop of the channel.
+ */
+class CopyIn {
+
+    private static final Logger LOGGER = LogManager.getLogger(CopyIn.class);
+    private static final String STATEMENT_NAME = "_crate_copy_in";
+
+    private final Session session;
+    private final Channel channel;
+    private final CopyInDecoder decoder;
+    private final int bulkSize;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private List<List<Object>> pendingRows = new ArrayList<>();
+    private boolean executing = false;
+    private boolean copyDone = false;
+    private Throwable failure;
+    private long rowCount = 0;
+
+    private CopyIn(Session session, Channel channel, CopyInDecoder decoder, int bulkSize) {
+        this.session = session;
+        this.channel = channel;
+        this.decoder = decoder;
+        this.bulkSize = bulkSize;
+    }
+
+    /**
+     * Prepare the {@code INSERT} statement and send the CopyInResponse.
+     *
+     * @return the handler for the CopyData, CopyDone and CopyFail messages that follow.
+     */
+    static CopyIn start(CopyFromStdin copyFrom, Session session, Channel channel) {
+        CopyOptions options = CopyOptions.of(copyFrom.genericProperties(), true);
+        Table table = copyFrom.table();
+
+        List<Field> fields;
+        session.parse(STATEMENT_NAME, CopyStatements.selectColumns(table, copyFrom.columns()), Collections.emptyList());
+        try {
+            fields = session.describe('S', STATEMENT_NAME).getFields();
+        } finally {
+            session.close((byte) 'S', STATEMENT_NAME);
+        }
+        assert fields != null : "a SELECT statement must have fields";
+
+        Set<String> partitionColumns = new HashSet<>();
+        for (Assignment assignment : table.partitionProperties()) {
+            partitionColumns.add(ExpressionToStringVisitor.convert(assignment.columnName(), Row.EMPTY));
+        }
+        List<Expression> targetColumns = new ArrayList<>(copyFrom.columns());
+        List<String> columns = new ArrayList<>(fields.size());
+        List<DataType> types = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            String column = field.path().outputName();
+            if (copyFrom.columns().isEmpty()) {
+                if (partitionColumns.contains(column)) {
+                    continue;
+                }
+                targetColumns.add(new QualifiedNameReference(QualifiedName.of(column)));
+            }
+            columns.add(column);
+            types.add(field.valueType());
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("COPY FROM STDIN requires at least one column");
+        }
+
+        session.parse(STATEMENT_NAME, CopyStatements.insert(table, targetColumns), types);
+        PGType[] pgTypes = new PGType[types.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = PGTypes.get(types.get(i));
+        }
+        CopyIn copyIn = new CopyIn(session, channel, CopyInDecoder.create(options, columns, pgTypes), options.bulkSize);
+        Messages.sendCopyInResponse(channel, options.format == CopyOptions.Format.BINARY, columns.size());
+        return copyIn;
+    }
+
+    /**
+     * Completes once all rows are inserted and the CommandComplete has been sent, or exceptionally once the
+     * ErrorResponse has been sent.
+     */
+    CompletableFuture<Void> result() {
+        return result;
+    }
+
+    /**
+     * CopyData
+     * | 'd' | int32 len | byteN data
+     */
+    void handleCopyData(ByteBuf buffer) {
+        if (failure != null || copyDone) {
+            return;
+        }
+        try {
+            decoder.decode(buffer, this::addRow);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len
+     */
+    void handleCopyDone() {
+        if (failure != null || copyDone) {
+            return;
+        }
+        copyDone = true;
+        try {
+            decoder.finish(this::addRow);
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        if (!executing) {
+            if (pendingRows.isEmpty()) {
+                complete();
+            } else {
+                executeBulk();
+            }
+        }
+    }
+
+    /**
+     * CopyFail
+     * | 'f' | int32 len | string errorMessage
+     */
+    void handleCopyFail(String message) {
+        if (failure != null || copyDone) {
+            return;
+        }
+        fail(new IllegalStateException("COPY FROM STDIN failed: " + message));
+    }
+
+    private void addRow(Object[] row) {
+        pendingRows.add(Arrays.asList(row));
+        if (pendingRows.size() >= bulkSize) {
+            if (executing) {
+                channel.config().setAutoRead(false);
+            } else {
+                executeBulk();
+            }
+        }
+    }
+
+    private void executeBulk() {
+        List<List<Object>> rows = pendingRows;
+        pendingRows = new ArrayList<>();
+        executing = true;
+        channel.config().setAutoRead(true);
+
+        RowCountCollector rowCountCollector = new RowCountCollector();
+        try {
+            for (List<Object> row : rows) {
+                session.bind("", STATEMENT_NAME, row, null);
+                session.execute("", 0, rowCountCollector);
+            }
+            session.sync().whenComplete((r, t) -> channel.eventLoop().execute(() -> onBulkDone(rowCountCollector, t)));
+        } catch (Throwable t) {
+            session.clearState();
+            onBulkDone(rowCountCollector, t);
+        }
+    }
+
+    private void onBulkDone(RowCountCollector rowCountCollector, Throwable t) {
+        executing = false;
+        if (t != null) {
+            fail(t);
+            return;
+        }
+        rowCount += rowCountCollector.rowCount;
+        if (failure != null) {
+            fail(failure);
+        } else if (pendingRows.size() >= bulkSize || (copyDone && !pendingRows.isEmpty())) {
+            executeBulk();
+        } else if (copyDone) {
+            complete();
+        } else {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    private void complete() {
+        close();
+        Messages.sendCommandComplete(channel, "COPY", rowCount).addListener(f -> result.complete(null));
+    }
+
+    private void fail(Throwable t) {
+        if (failure == null) {
+            failure = t;
+        }
+        if (executing) {
+            // the error is sent once the running bulk is done
+            return;
+        }
+        close();
+        pendingRows = Collections.emptyList();
+        final Throwable error = SQLExceptions.createSQLActionException(failure, session.sessionContext());
+        Messages.sendErrorResponse(channel, error).addListener(f -> result.completeExceptionally(error));
+    }
+
+    private void close() {
+        channel.config().setAutoRead(true);
+        try {
+            session.close((byte) 'S', STATEMENT_NAME);
+        } catch (Throwable t) {
+            LOGGER.debug("Couldn't close the COPY FROM STDIN statement", t);
+        }
+        decoder.close();
+    }
+
+    /**
+     * Sums up the row counts of all rows of a bulk; rows that failed to insert are skipped, like rows that fail
+     * within a {@code COPY FROM} from files.
+     */
+    private static class RowCountCollector extends BaseResultReceiver {
+
+        private long rowCount = 0;
+
+        @Override
+        public void setNextRow(Row row) {
+            long count = (long) row.get(0);
+            if (count > 0) {
+                rowCount += count;
+            }
+        }
+    }
+}
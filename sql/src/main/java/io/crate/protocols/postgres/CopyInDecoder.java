@@ -0,0 +1,487 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.protocols.postgres.types.PGType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the payload of the CopyData messages of a {@code COPY .. FROM STDIN} into rows.
+ * <p>
+ * A row may be split across several CopyData messages, so the decoders keep the state of an incomplete row
+ * until the rest of it arrives.
+ * See https://www.postgresql.org/docs/current/static/sql-copy.html#id-1.9.3.55.9 for a description of the formats.
+ */
+abstract class CopyInDecoder {
+
+    final List<String> columns;
+    final PGType[] types;
+    long lineNumber = 1;
+    boolean endOfData = false;
+
+    private CopyInDecoder(List<String> columns, PGType[] types) {
+        assert columns.size() == types.length : "there must be a type for each column";
+        this.columns = columns;
+        this.types = types;
+    }
+
+    static CopyInDecoder create(CopyOptions options, List<String> columns, PGType[] types) {
+        switch (options.format) {
+            case TEXT:
+                return new TextDecoder(options, columns, types);
+            case CSV:
+                return new CsvDecoder(options, columns, types);
+            case BINARY:
+                return new BinaryDecoder(columns, types);
+            default:
+                throw new AssertionError("Unsupported COPY format: " + options.format);
+        }
+    }
+
+    /**
+     * Decode all complete rows contained in {@code data} and pass them to {@code onRow}.
+     */
+    abstract void decode(ByteBuf data, Consumer<Object[]> onRow);
+
+    /**
+     * Called once all CopyData messages have been received; decodes a trailing row that isn't terminated.
+     */
+    abstract void finish(Consumer<Object[]> onRow);
+
+    abstract void close();
+
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(String.format(Locale.ENGLISH, "COPY line %d: %s", lineNumber, message));
+    }
+
+    Object readValue(int column, ByteBuf value, boolean text) {
+        try {
+            if (text) {
+                return types[column].readTextValue(value, value.readableBytes());
+            }
+            return types[column].readBinaryValue(value, value.readableBytes());
+        } catch (Exception e) {
+            throw error(String.format(Locale.ENGLISH,
+                "invalid value for column \"%s\": %s", columns.get(column), e.getMessage()));
+        }
+    }
+
+    private static boolean contentEquals(ByteBuf buffer, byte[] bytes) {
+        return buffer.readableBytes() == bytes.length && buffer.equals(Unpooled.wrappedBuffer(bytes));
+    }
+
+    private static final byte[] END_OF_DATA = new byte[] { '\\', '.' };
+
+    /**
+     * Base for the line based text and csv formats; fields are collected into {@link #field} and converted
+     * into values once they are complete.
+     */
+    private abstract static class DelimitedDecoder extends CopyInDecoder {
+
+        final byte delimiter;
+        final byte[] nullString;
+        final ByteBuf field = Unpooled.buffer();
+        Object[] row;
+        int column = 0;
+
+        DelimitedDecoder(CopyOptions options, List<String> columns, PGType[] types) {
+            super(columns, types);
+            this.delimiter = options.delimiter;
+            this.nullString = options.nullString;
+            this.row = new Object[types.length];
+        }
+
+        @Override
+        void decode(ByteBuf data, Consumer<Object[]> onRow) {
+            while (data.isReadable() && !endOfData) {
+                decodeByte(data.readByte(), onRow);
+            }
+        }
+
+        abstract void decodeByte(byte b, Consumer<Object[]> onRow);
+
+        /**
+         * @return true if the field that has just been completed marks the end of the data
+         */
+        boolean isEndOfData(ByteBuf rawField) {
+            return column == 0 && contentEquals(rawField, END_OF_DATA);
+        }
+
+        void endField(ByteBuf rawField, boolean isNull) {
+            if (column >= types.length) {
+                throw error("extra data after last expected column");
+            }
+            row[column] = isNull ? null : readValue(column, rawField, true);
+            column++;
+            rawField.clear();
+        }
+
+        void endRow(Consumer<Object[]> onRow) {
+            if (column < types.length) {
+                throw error(String.format(Locale.ENGLISH, "missing data for column \"%s\"", columns.get(column)));
+            }
+            lineNumber++;
+            column = 0;
+            Object[] completedRow = row;
+            row = new Object[types.length];
+            onRow.accept(completedRow);
+        }
+
+        @Override
+        void close() {
+            field.release();
+        }
+    }
+
+    /**
+     * Text format: fields are separated by the delimiter, rows by a newline.
+     * Backslash escapes are used for special characters and {@code \N} represents NULL.
+     */
+    private static class TextDecoder extends DelimitedDecoder {
+
+        private final ByteBuf raw = Unpooled.buffer();
+        private boolean escaped = false;
+
+        TextDecoder(CopyOptions options, List<String> columns, PGType[] types) {
+            super(options, columns, types);
+        }
+
+        @Override
+        void decodeByte(byte b, Consumer<Object[]> onRow) {
+            if (escaped) {
+                raw.writeByte(b);
+                escaped = false;
+            } else if (b == '\\') {
+                raw.writeByte(b);
+                escaped = true;
+            } else if (b == delimiter) {
+                endTextField();
+            } else if (b == '\n') {
+                endLine(onRow);
+            } else if (b != '\r') {
+                raw.writeByte(b);
+            }
+        }
+
+        private void endLine(Consumer<Object[]> onRow) {
+            if (isEndOfData(raw)) {
+                endOfData = true;
+                return;
+            }
+            endTextField();
+            endRow(onRow);
+        }
+
+        private void endTextField() {
+            if (contentEquals(raw, nullString)) {
+                raw.clear();
+                endField(field, true);
+            } else {
+                unescape(raw, field);
+                raw.clear();
+                endField(field, false);
+            }
+        }
+
+        @Override
+        void finish(Consumer<Object[]> onRow) {
+            if (!endOfData && (raw.isReadable() || column > 0)) {
+                endLine(onRow);
+            }
+        }
+
+        @Override
+        void close() {
+            super.close();
+            raw.release();
+        }
+
+        private static void unescape(ByteBuf raw, ByteBuf out) {
+            while (raw.isReadable()) {
+                byte b = raw.readByte();
+                if (b != '\\' || !raw.isReadable()) {
+                    out.writeByte(b);
+                    continue;
+                }
+                byte c = raw.readByte();
+                switch (c) {
+                    case 'b':
+                        out.writeByte('\b');
+                        break;
+                    case 'f':
+                        out.writeByte('\f');
+                        break;
+                    case 'n':
+                        out.writeByte('\n');
+                        break;
+                    case 'r':
+                        out.writeByte('\r');
+                        break;
+                    case 't':
+                        out.writeByte('\t');
+                        break;
+                    case 'v':
+                        out.writeByte(0x0B);
+                        break;
+                    case 'x':
+                        int hex = 0;
+                        int hexDigits = 0;
+                        while (hexDigits < 2 && raw.isReadable() && Character.digit(raw.getByte(raw.readerIndex()), 16) >= 0) {
+                            hex = hex * 16 + Character.digit(raw.readByte(), 16);
+                            hexDigits++;
+                        }
+                        out.writeByte(hexDigits == 0 ? 'x' : hex);
+                        break;
+                    default:
+                        if (c >= '0' && c <= '7') {
+                            int octal = c - '0';
+                            for (int i = 0; i < 2 && raw.isReadable(); i++) {
+                                byte d = raw.getByte(raw.readerIndex());
+                                if (d < '0' || d > '7') {
+                                    break;
+                                }
+                                octal = octal * 8 + (raw.readByte() - '0');
+                            }
+                            out.writeByte(octal);
+                        } else {
+                            out.writeByte(c);
+                        }
+                }
+            }
+        }
+    }
+
+    /**
+     * CSV format: values containing the delimiter, the quote character or newlines are quoted.
+     * An unquoted null string represents NULL.
+     */
+    private static class CsvDecoder extends DelimitedDecoder {
+
+        private final byte quote;
+        private final byte escape;
+        private boolean skipHeader;
+        private boolean inQuotes = false;
+        private boolean quoted = false;
+        private boolean quotePending = false;
+        private boolean escapePending = false;
+
+        CsvDecoder(CopyOptions options, List<String> columns, PGType[] types) {
+            super(options, columns, types);
+            this.quote = options.quote;
+            this.escape = options.escape;
+            this.skipHeader = options.header;
+        }
+
+        @Override
+        void decodeByte(byte b, Consumer<Object[]> onRow) {
+            if (quotePending) {
+                quotePending = false;
+                if (b == quote) {
+                    // doubled quote within a quoted value
+                    field.writeByte(b);
+                    return;
+                }
+                inQuotes = false;
+            }
+            if (inQuotes) {
+                if (escapePending) {
+                    escapePending = false;
+                    if (b == quote || b == escape) {
+                        field.writeByte(b);
+                        return;
+                    }
+                    field.writeByte(escape);
+                }
+                if (b == quote) {
+                    if (escape == quote) {
+                        quotePending = true;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (b == escape) {
+                    escapePending = true;
+                } else {
+                    field.writeByte(b);
+                }
+                return;
+            }
+            if (b == quote) {
+                inQuotes = true;
+                quoted = true;
+            } else if (b == delimiter) {
+                endCsvField();
+            } else if (b == '\n') {
+                endLine(onRow);
+            } else if (b != '\r') {
+                field.writeByte(b);
+            }
+        }
+
+        private void endLine(Consumer<Object[]> onRow) {
+            if (!quoted && isEndOfData(field)) {
+                endOfData = true;
+                return;
+            }
+            if (skipHeader) {
+                skipHeader = false;
+                field.clear();
+                quoted = false;
+                column = 0;
+                lineNumber++;
+                return;
+            }
+            endCsvField();
+            endRow(onRow);
+        }
+
+        private void endCsvField() {
+            if (skipHeader) {
+                field.clear();
+                quoted = false;
+                return;
+            }
+            boolean isNull = !quoted && contentEquals(field, nullString);
+            quoted = false;
+            endField(field, isNull);
+        }
+
+        @Override
+        void finish(Consumer<Object[]> onRow) {
+            if (quotePending) {
+                quotePending = false;
+                inQuotes = false;
+            }
+            if (inQuotes) {
+                throw error("unterminated CSV quoted field");
+            }
+            if (!endOfData && (field.isReadable() || quoted || column > 0)) {
+                endLine(onRow);
+            }
+        }
+    }
+
+    /**
+     * Binary format: a header followed by tuples of length prefixed values using the binary representation
+     * of the types; a field count of -1 marks the end of the data.
+     */
+    private static class BinaryDecoder extends CopyInDecoder {
+
+        private static final byte[] SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+        private static final int HEADER_LENGTH = SIGNATURE.length + 4 + 4;
+
+        private final ByteBuf buffer = Unpooled.buffer();
+        private boolean headerRead = false;
+
+        BinaryDecoder(List<String> columns, PGType[] types) {
+            super(columns, types);
+        }
+
+        @Override
+        void decode(ByteBuf data, Consumer<Object[]> onRow) {
+            buffer.writeBytes(data);
+            if (!headerRead && !readHeader()) {
+                return;
+            }
+            while (!endOfData && isTupleComplete()) {
+                short numFields = buffer.readShort();
+                if (numFields == -1) {
+                    endOfData = true;
+                    break;
+                }
+                if (numFields != types.length) {
+                    throw error(String.format(Locale.ENGLISH,
+                        "row field count is %d, expected %d", numFields, types.length));
+                }
+                Object[] row = new Object[types.length];
+                for (int i = 0; i < numFields; i++) {
+                    int length = buffer.readInt();
+                    if (length >= 0) {
+                        row[i] = readValue(i, buffer.readSlice(length), false);
+                    }
+                }
+                lineNumber++;
+                onRow.accept(row);
+            }
+            buffer.discardSomeReadBytes();
+        }
+
+        private boolean readHeader() {
+            if (buffer.readableBytes() < HEADER_LENGTH) {
+                return false;
+            }
+            int extensionLength = buffer.getInt(buffer.readerIndex() + HEADER_LENGTH - 4);
+            if (buffer.readableBytes() < HEADER_LENGTH + extensionLength) {
+                return false;
+            }
+            if (!buffer.readSlice(SIGNATURE.length).equals(Unpooled.wrappedBuffer(SIGNATURE))) {
+                throw error("invalid COPY file header (wrong signature)");
+            }
+            int flags = buffer.readInt();
+            if ((flags & (1 << 16)) != 0) {
+                throw error("invalid COPY file header (OIDs are not supported)");
+            }
+            buffer.skipBytes(4 + extensionLength);
+            headerRead = true;
+            return true;
+        }
+
+        private boolean isTupleComplete() {
+            int idx = buffer.readerIndex();
+            int end = buffer.writerIndex();
+            if (end - idx < 2) {
+                return false;
+            }
+            short numFields = buffer.getShort(idx);
+            idx += 2;
+            for (int i = 0; i < numFields; i++) {
+                if (end - idx < 4) {
+                    return false;
+                }
+                int length = buffer.getInt(idx);
+                idx += 4 + Math.max(length, 0);
+                if (idx > end) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void finish(Consumer<Object[]> onRow) {
+            if (!endOfData && buffer.isReadable()) {
+                throw error("unexpected end of binary COPY data");
+            }
+        }
+
+        @Override
+        void close() {
+            buffer.release();
+        }
+    }
+}
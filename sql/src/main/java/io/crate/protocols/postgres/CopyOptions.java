@@ -0,0 +1,175 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.analyze.expressions.ExpressionToStringVisitor;
+import io.crate.data.Row;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.GenericProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Options of a {@code COPY .. FROM STDIN} or {@code COPY .. TO STDOUT} statement.
+ *
+ * <pre>
+ *     format      text | csv | binary (default: text)
+ *     delimiter   single byte column delimiter (default: tab for text, comma for csv)
+ *     null        string representing a NULL value (default: \N for text, an unquoted empty string for csv)
+ *     header      csv only, if the first line contains the column names (default: false)
+ *     quote       csv only, quoting character (default: ")
+ *     escape      csv only, character escaping the quote character within quoted values (default: quote)
+ *     bulk_size   COPY FROM only, number of rows that are indexed with a single bulk request (default: 10000)
+ * </pre>
+ */
+final class CopyOptions {
+
+    enum Format {
+        TEXT,
+        CSV,
+        BINARY
+    }
+
+    static final int DEFAULT_BULK_SIZE = 10_000;
+
+    final Format format;
+    final byte delimiter;
+    final byte[] nullString;
+    final boolean header;
+    final byte quote;
+    final byte escape;
+    final int bulkSize;
+
+    private CopyOptions(Format format,
+                        byte delimiter,
+                        byte[] nullString,
+                        boolean header,
+                        byte quote,
+                        byte escape,
+                        int bulkSize) {
+        this.format = format;
+        this.delimiter = delimiter;
+        this.nullString = nullString;
+        this.header = header;
+        this.quote = quote;
+        this.escape = escape;
+        this.bulkSize = bulkSize;
+    }
+
+    static CopyOptions of(GenericProperties properties, boolean copyFrom) {
+        Format format = Format.TEXT;
+        Expression formatExpression = properties.get("format");
+        if (formatExpression != null) {
+            String value = ExpressionToStringVisitor.convert(formatExpression, Row.EMPTY);
+            try {
+                format = Format.valueOf(value.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "COPY format \"%s\" not supported, supported formats are: text, csv, binary", value));
+            }
+        }
+        byte delimiter = format == Format.CSV ? (byte) ',' : (byte) '\t';
+        byte[] nullString = format == Format.CSV ? new byte[0] : new byte[] { '\\', 'N' };
+        boolean header = false;
+        byte quote = '"';
+        Byte escape = null;
+        int bulkSize = DEFAULT_BULK_SIZE;
+
+        for (Map.Entry<String, Expression> entry : properties.properties().entrySet()) {
+            String name = entry.getKey();
+            String value = ExpressionToStringVisitor.convert(entry.getValue(), Row.EMPTY);
+            switch (name) {
+                case "format":
+                    break;
+
+                case "delimiter":
+                    ensureFormat(name, format != Format.BINARY);
+                    delimiter = singleByte(name, value);
+                    break;
+
+                case "null":
+                    ensureFormat(name, format != Format.BINARY);
+                    nullString = value.getBytes(StandardCharsets.UTF_8);
+                    break;
+
+                case "header":
+                    ensureFormat(name, format == Format.CSV);
+                    header = Boolean.parseBoolean(value);
+                    break;
+
+                case "quote":
+                    ensureFormat(name, format == Format.CSV);
+                    quote = singleByte(name, value);
+                    break;
+
+                case "escape":
+                    ensureFormat(name, format == Format.CSV);
+                    escape = singleByte(name, value);
+                    break;
+
+                case "bulk_size":
+                    if (!copyFrom) {
+                        throw new IllegalArgumentException("COPY option \"bulk_size\" is only supported by COPY FROM");
+                    }
+                    try {
+                        bulkSize = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        bulkSize = 0;
+                    }
+                    if (bulkSize <= 0) {
+                        throw new IllegalArgumentException("COPY option \"bulk_size\" must be a positive integer");
+                    }
+                    break;
+
+                default:
+                    throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                        "COPY option \"%s\" not supported", name));
+            }
+        }
+        if (delimiter == '\n' || delimiter == '\r' || (format == Format.TEXT && delimiter == '\\')) {
+            throw new IllegalArgumentException("COPY delimiter cannot be newline, carriage return or backslash");
+        }
+        if (format == Format.CSV && delimiter == quote) {
+            throw new IllegalArgumentException("COPY delimiter and quote must be different");
+        }
+        return new CopyOptions(format, delimiter, nullString, header, quote, escape == null ? quote : escape, bulkSize);
+    }
+
+    private static void ensureFormat(String option, boolean supported) {
+        if (!supported) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                "COPY option \"%s\" is not supported by the chosen format", option));
+        }
+    }
+
+    private static byte singleByte(String option, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                "COPY option \"%s\" must be a single one-byte character", option));
+        }
+        return bytes[0];
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.auth.user.ExceptionAuthorizedValidator;
+import io.crate.data.Row;
+import io.crate.exceptions.SQLExceptions;
+import io.crate.protocols.postgres.types.PGType;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Sends the result of a {@code COPY .. TO STDOUT} as CopyData messages, one message per row.
+ *
+ * <pre>
+ *          |     CopyOutResponse              |
+ *          |<---------------------------------|
+ *          |     CopyData                     |
+ *          |<---------------------------------|
+ *          |     CopyDone                     |
+ *          |<---------------------------------|
+ *          |     CommandComplete              |
+ *          |<---------------------------------|
+ * </pre>
+ */
+class CopyOutReceiver extends BaseResultReceiver {
+
+    private static final byte[] BINARY_SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final Channel channel;
+    private final ExceptionAuthorizedValidator exceptionAuthorizedValidator;
+    private final CopyOptions options;
+    private final List<String> columnNames;
+    private final PGType[] types;
+
+    private long rowCount = 0;
+
+    CopyOutReceiver(Channel channel,
+                    ExceptionAuthorizedValidator exceptionAuthorizedValidator,
+                    CopyOptions options,
+                    List<String> columnNames,
+                    List<PGType> types) {
+        this.channel = channel;
+        this.exceptionAuthorizedValidator = exceptionAuthorizedValidator;
+        this.options = options;
+        this.columnNames = columnNames;
+        this.types = types.toArray(new PGType[0]);
+    }
+
+    /**
+     * Send the CopyOutResponse and, depending on the format, the header; must be called before the execution starts.
+     */
+    void sendCopyOutResponse() {
+        boolean binary = options.format == CopyOptions.Format.BINARY;
+        Messages.sendCopyOutResponse(channel, binary, types.length);
+        if (binary) {
+            ByteBuf buffer = startCopyData();
+            buffer.writeBytes(BINARY_SIGNATURE);
+            buffer.writeInt(0); // flags
+            buffer.writeInt(0); // header extension length
+            sendCopyData(buffer);
+        } else if (options.header) {
+            ByteBuf buffer = startCopyData();
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (i > 0) {
+                    buffer.writeByte(options.delimiter);
+                }
+                writeCsvValue(buffer, columnNames.get(i).getBytes(StandardCharsets.UTF_8));
+            }
+            buffer.writeByte('\n');
+            sendCopyData(buffer);
+        }
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        rowCount++;
+        ByteBuf buffer = startCopyData();
+        try {
+            switch (options.format) {
+                case TEXT:
+                case CSV:
+                    writeDelimitedRow(buffer, row);
+                    break;
+                case BINARY:
+                    writeBinaryRow(buffer, row);
+                    break;
+                default:
+                    throw new AssertionError("Unsupported COPY format: " + options.format);
+            }
+        } catch (Exception e) {
+            buffer.release();
+            throw e;
+        }
+        sendCopyData(buffer);
+        if (rowCount % 1000 == 0) {
+            channel.flush();
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            super.allFinished(true);
+            return;
+        }
+        if (options.format == CopyOptions.Format.BINARY) {
+            ByteBuf buffer = startCopyData();
+            buffer.writeShort(-1); // file trailer
+            sendCopyData(buffer);
+        }
+        Messages.sendCopyDone(channel);
+        Messages.sendCommandComplete(channel, "COPY", rowCount).addListener(f -> super.allFinished(false));
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable throwable) {
+        final Throwable t = SQLExceptions.createSQLActionException(throwable, exceptionAuthorizedValidator);
+        Messages.sendErrorResponse(channel, t).addListener(f -> super.fail(t));
+    }
+
+    /**
+     * CopyData
+     * | 'd' | int32 len | byteN data
+     */
+    private ByteBuf startCopyData() {
+        ByteBuf buffer = channel.alloc().buffer();
+        buffer.writeByte('d');
+        buffer.writeInt(0); // will be set once the data is written
+        return buffer;
+    }
+
+    private void sendCopyData(ByteBuf buffer) {
+        buffer.setInt(1, buffer.writerIndex() - 1);
+        channel.write(buffer);
+    }
+
+    private void writeDelimitedRow(ByteBuf buffer, Row row) {
+        boolean csv = options.format == CopyOptions.Format.CSV;
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                buffer.writeByte(options.delimiter);
+            }
+            Object value = row.get(i);
+            if (value == null) {
+                buffer.writeBytes(options.nullString);
+            } else if (csv) {
+                writeCsvValue(buffer, types[i].encodeAsText(value));
+            } else {
+                writeTextValue(buffer, types[i].encodeAsText(value));
+            }
+        }
+        buffer.writeByte('\n');
+    }
+
+    private void writeTextValue(ByteBuf buffer, byte[] value) {
+        for (byte b : value) {
+            switch (b) {
+                case '\\':
+                    buffer.writeByte('\\').writeByte('\\');
+                    break;
+                case '\n':
+                    buffer.writeByte('\\').writeByte('n');
+                    break;
+                case '\r':
+                    buffer.writeByte('\\').writeByte('r');
+                    break;
+                case '\t':
+                    buffer.writeByte('\\').writeByte('t');
+                    break;
+                default:
+                    if (b == options.delimiter) {
+                        buffer.writeByte('\\');
+                    }
+                    buffer.writeByte(b);
+            }
+        }
+    }
+
+    private void writeCsvValue(ByteBuf buffer, byte[] value) {
+        if (!needsQuotes(value)) {
+            buffer.writeBytes(value);
+            return;
+        }
+        buffer.writeByte(options.quote);
+        for (byte b : value) {
+            if (b == options.quote || b == options.escape) {
+                buffer.writeByte(options.escape);
+            }
+            buffer.writeByte(b);
+        }
+        buffer.writeByte(options.quote);
+    }
+
+    private boolean needsQuotes(byte[] value) {
+        if (value.length == 0 || value.length == options.nullString.length && startsWith(value, options.nullString)) {
+            // distinguish the value from NULL
+            return true;
+        }
+        for (byte b : value) {
+            if (b == options.delimiter || b == options.quote || b == '\n' || b == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] value, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (value[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeBinaryRow(ByteBuf buffer, Row row) {
+        buffer.writeShort(types.length);
+        for (int i = 0; i < types.length; i++) {
+            Object value = row.get(i);
+            if (value == null) {
+                buffer.writeInt(-1);
+            } else {
+                types[i].writeAsBinary(buffer, value);
+            }
+        }
+    }
+}
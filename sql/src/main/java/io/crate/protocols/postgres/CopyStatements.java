@@ -0,0 +1,107 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.sql.ExpressionFormatter;
+import io.crate.sql.tree.Assignment;
+import io.crate.sql.tree.CopyToStdout;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.QualifiedNameReference;
+import io.crate.sql.tree.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Builds the statements that are executed on behalf of {@code COPY .. FROM STDIN} and {@code COPY .. TO STDOUT}.
+ * <p>
+ * Executing these with the regular parse/bind/execute flow keeps privilege checks, jobs logging and
+ * the insert/query execution in one place.
+ */
+final class CopyStatements {
+
+    private CopyStatements() {
+    }
+
+    /**
+     * @return {@code SELECT columns FROM table LIMIT 0}, used to resolve the columns and their types.
+     *         All columns are selected if {@code columns} is empty.
+     */
+    static String selectColumns(Table table, List<Expression> columns) {
+        StringJoiner outputs = new StringJoiner(", ");
+        for (Expression column : columns) {
+            outputs.add(ExpressionFormatter.formatStandaloneExpression(column));
+        }
+        return "SELECT " + (columns.isEmpty() ? "*" : outputs.toString()) + " FROM " + tableName(table) + " LIMIT 0";
+    }
+
+    /**
+     * @return {@code INSERT INTO table (columns, partitionColumns) VALUES ($1, .., $n, partitionValues)}
+     */
+    static String insert(Table table, List<Expression> columns) {
+        StringJoiner targetColumns = new StringJoiner(", ", " (", ")");
+        StringJoiner values = new StringJoiner(", ", " VALUES (", ")");
+        for (int i = 0; i < columns.size(); i++) {
+            targetColumns.add(ExpressionFormatter.formatStandaloneExpression(columns.get(i)));
+            values.add("$" + (i + 1));
+        }
+        for (Assignment assignment : table.partitionProperties()) {
+            targetColumns.add(ExpressionFormatter.formatStandaloneExpression(assignment.columnName()));
+            values.add(ExpressionFormatter.formatStandaloneExpression(assignment.expression()));
+        }
+        return "INSERT INTO " + tableName(table) + targetColumns + values;
+    }
+
+    /**
+     * @return {@code SELECT columns FROM table WHERE partitionColumn = value AND whereClause}
+     */
+    static String select(CopyToStdout copyTo) {
+        StringBuilder query = new StringBuilder("SELECT ");
+        if (copyTo.columns().isEmpty()) {
+            query.append('*');
+        } else {
+            StringJoiner outputs = new StringJoiner(", ");
+            for (Expression column : copyTo.columns()) {
+                outputs.add(ExpressionFormatter.formatStandaloneExpression(column));
+            }
+            query.append(outputs);
+        }
+        query.append(" FROM ").append(tableName(copyTo.table()));
+
+        List<String> conditions = new ArrayList<>();
+        for (Assignment assignment : copyTo.table().partitionProperties()) {
+            conditions.add(ExpressionFormatter.formatStandaloneExpression(assignment.columnName()) + " = " +
+                           ExpressionFormatter.formatStandaloneExpression(assignment.expression()));
+        }
+        copyTo.whereClause().ifPresent(where -> conditions.add(ExpressionFormatter.formatExpression(where)));
+        if (!conditions.isEmpty()) {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return query.toString();
+    }
+
+    private static String tableName(Table table) {
+        return ExpressionFormatter.formatExpression(new QualifiedNameReference(table.getName()));
+    }
+}
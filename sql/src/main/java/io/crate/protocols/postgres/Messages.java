@@ -37,8 +37,8 @@ import org.apache.logging.log4j.LogManager;
 
 import javax.annotation.Nullable;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Locale;
 import java.util.SortedSet;
 
@@ -285,50 +285,56 @@ public class Messages {
      * <p>
      * ByteN
      * The value of the column, in the format indicated by the associated format code. n is the above length.
+     *
+     * @param columnTypes the pg types of the columns, resolved once per result set
+     * @param sizeHint the expected size of the message (e.g. the size of the previous row) used as initial capacity
+     *                 of the buffer to avoid re-allocations while the cells are written. 0 if unknown.
+     * @return the size of the message
      */
-    static void sendDataRow(Channel channel, Row row, List<? extends DataType> columnTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
+    static int sendDataRow(Channel channel,
+                           Row row,
+                           PGType[] columnTypes,
+                           @Nullable FormatCodes.FormatCode[] formatCodes,
+                           int sizeHint) {
         int length = 4 + 2;
-        assert columnTypes.size() == row.numColumns()
-            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + columnTypes;
-
-        ByteBuf buffer = channel.alloc().buffer();
-        buffer.writeByte('D');
-        buffer.writeInt(0); // will be set at the end
-        buffer.writeShort(row.numColumns());
-
-        for (int i = 0; i < row.numColumns(); i++) {
-            DataType dataType = columnTypes.get(i);
-            PGType pgType;
-            Object value;
-            try {
-                pgType = PGTypes.get(dataType);
-                value = row.get(i);
-            } catch (Exception e) {
-                buffer.release();
-                throw e;
-            }
-            if (value == null) {
-                buffer.writeInt(-1);
-                length += 4;
-            } else {
-                FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
-                switch (formatCode) {
-                    case TEXT:
-                        length += pgType.writeAsText(buffer, value);
-                        break;
-                    case BINARY:
-                        length += pgType.writeAsBinary(buffer, value);
-                        break;
-
-                    default:
-                        buffer.release();
-                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
+        assert columnTypes.length == row.numColumns()
+            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + Arrays.toString(columnTypes);
+
+        ByteBuf buffer = sizeHint > 0 ? channel.alloc().buffer(sizeHint) : channel.alloc().buffer();
+        try {
+            buffer.writeByte('D');
+            buffer.writeInt(0); // will be set at the end
+            buffer.writeShort(row.numColumns());
+
+            for (int i = 0; i < columnTypes.length; i++) {
+                PGType pgType = columnTypes[i];
+                Object value = row.get(i);
+                if (value == null) {
+                    buffer.writeInt(-1);
+                    length += 4;
+                } else {
+                    FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
+                    switch (formatCode) {
+                        case TEXT:
+                            length += pgType.writeAsText(buffer, value);
+                            break;
+                        case BINARY:
+                            length += pgType.writeAsBinary(buffer, value);
+                            break;
+
+                        default:
+                            throw new AssertionError("Unrecognized formatCode: " + formatCode);
+                    }
                 }
             }
+        } catch (Throwable t) {
+            buffer.release();
+            throw t;
         }
 
         buffer.setInt(1, length);
         channel.write(buffer);
+        return length + 1;
     }
 
     static void writeCString(ByteBuf buffer, byte[] valBytes) {
@@ -422,6 +428,51 @@ public class Messages {
         }
     }
 
+    /**
+     * CopyInResponse (B)
+     * <p>
+     * | 'G' | int32 len | int8 format | int16 numCols | int16 format_code (for each column)
+     * <p>
+     * Sent in response to a {@code COPY .. FROM STDIN}; the client then sends CopyData messages followed
+     * by CopyDone or CopyFail.
+     */
+    static void sendCopyInResponse(Channel channel, boolean binary, int numColumns) {
+        sendCopyResponse(channel, 'G', binary, numColumns);
+        channel.flush();
+    }
+
+    /**
+     * CopyOutResponse (B)
+     * <p>
+     * | 'H' | int32 len | int8 format | int16 numCols | int16 format_code (for each column)
+     * <p>
+     * Sent in response to a {@code COPY .. TO STDOUT}; followed by CopyData messages and a CopyDone.
+     */
+    static void sendCopyOutResponse(Channel channel, boolean binary, int numColumns) {
+        sendCopyResponse(channel, 'H', binary, numColumns);
+    }
+
+    private static void sendCopyResponse(Channel channel, char msgType, boolean binary, int numColumns) {
+        int length = 4 + 1 + 2 + numColumns * 2;
+        ByteBuf buffer = channel.alloc().buffer(length + 1);
+        buffer.writeByte(msgType);
+        buffer.writeInt(length);
+        buffer.writeByte(binary ? 1 : 0);
+        buffer.writeShort(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            buffer.writeShort(binary ? 1 : 0);
+        }
+        channel.write(buffer);
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len |
+     */
+    static void sendCopyDone(Channel channel) {
+        sendShortMsg(channel, 'c', "sentCopyDone");
+    }
+
     /**
      * ParseComplete
      * | '1' | int32 len |
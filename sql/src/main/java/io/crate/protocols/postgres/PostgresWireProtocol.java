@@ -36,6 +36,9 @@ import io.crate.expression.symbol.Field;
 import io.crate.protocols.http.CrateNettyHttpServerTransport;
 import io.crate.protocols.postgres.types.PGType;
 import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.CopyToStdout;
+import io.crate.sql.tree.Statement;
 import io.crate.types.DataType;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -170,6 +173,9 @@ import static io.crate.protocols.postgres.PostgresWireProtocol.State.STARTUP_HEA
  *          |<---------------------------------|
  * </pre>
  * <p>
+ * {@code COPY .. FROM STDIN} and {@code COPY .. TO STDOUT} issued as simple query switch to the copy sub-protocol,
+ * see {@link CopyIn} and {@link CopyOutReceiver}.
+ * <p>
  * Take a look at {@link Messages} to see how the messages are structured.
  * <p>
  * See https://www.postgresql.org/docs/current/static/protocol-flow.html for a more detailed description of the message flow
@@ -189,6 +195,8 @@ class PostgresWireProtocol {
     private int msgLength;
     private byte msgType;
     private Session session;
+    @Nullable
+    private CopyIn copyIn;
     private boolean ignoreTillSync = false;
     private AuthenticationContext authContext;
     private Properties properties;
@@ -317,6 +325,10 @@ class PostgresWireProtocol {
         }
 
         private void dispatchMessage(ByteBuf buffer, Channel channel) {
+            if (copyIn != null && (msgType == 'H' || msgType == 'S')) {
+                // Flush and Sync are ignored during copy-in mode
+                return;
+            }
             switch (msgType) {
                 case 'Q': // Query (simple)
                     handleSimpleQuery(buffer, channel);
@@ -345,6 +357,15 @@ class PostgresWireProtocol {
                 case 'C':
                     handleClose(buffer, channel);
                     return;
+                case 'd':
+                    handleCopyData(buffer);
+                    return;
+                case 'c':
+                    handleCopyDone();
+                    return;
+                case 'f':
+                    handleCopyFail(buffer);
+                    return;
                 case 'X': // Terminate (called when jdbc connection is closed)
                     closeSession();
                     channel.close();
@@ -639,6 +660,30 @@ class PostgresWireProtocol {
         Messages.sendCloseComplete(channel);
     }
 
+    /**
+     * CopyData messages that arrive after a COPY FROM STDIN failed are dropped.
+     */
+    private void handleCopyData(ByteBuf buffer) {
+        if (copyIn != null) {
+            copyIn.handleCopyData(buffer);
+        }
+    }
+
+    private void handleCopyDone() {
+        if (copyIn != null) {
+            copyIn.handleCopyDone();
+        }
+    }
+
+    /**
+     * | 'f' | int32 len | string errorMessage
+     */
+    private void handleCopyFail(ByteBuf buffer) {
+        if (copyIn != null) {
+            copyIn.handleCopyFail(readCString(buffer));
+        }
+    }
+
     @VisibleForTesting
     void handleSimpleQuery(ByteBuf buffer, final Channel channel) {
         String queryString = readCString(buffer);
@@ -665,6 +710,14 @@ class PostgresWireProtocol {
 
         try {
             session.parse("", query, Collections.emptyList());
+            Statement statement = session.getStatement("");
+            if (statement instanceof CopyFromStdin) {
+                session.close((byte) 'S', "");
+                return handleCopyFromStdin((CopyFromStdin) statement, channel);
+            } else if (statement instanceof CopyToStdout) {
+                session.close((byte) 'S', "");
+                return handleCopyToStdout((CopyToStdout) statement, channel);
+            }
             session.bind("", "", Collections.emptyList(), null);
             Session.DescribeResult describeResult = session.describe('P', "");
             List<Field> fields = describeResult.getFields();
@@ -692,6 +745,30 @@ class PostgresWireProtocol {
     }
 
 
+    private CompletableFuture<?> handleCopyFromStdin(CopyFromStdin copyFrom, Channel channel) {
+        CopyIn copyIn = CopyIn.start(copyFrom, session, channel);
+        this.copyIn = copyIn;
+        return copyIn.result().whenComplete((result, t) -> this.copyIn = null);
+    }
+
+    private CompletableFuture<?> handleCopyToStdout(CopyToStdout copyTo, Channel channel) {
+        CopyOptions options = CopyOptions.of(copyTo.genericProperties(), false);
+        session.parse("", CopyStatements.select(copyTo), Collections.emptyList());
+        session.bind("", "", Collections.emptyList(), null);
+        List<Field> fields = session.describe('P', "").getFields();
+        assert fields != null : "a SELECT statement must have fields";
+        CopyOutReceiver copyOutReceiver = new CopyOutReceiver(
+            channel,
+            session.sessionContext(),
+            options,
+            Lists2.map(fields, f -> f.path().outputName()),
+            Lists2.map(fields, f -> PGTypes.get(f.valueType()))
+        );
+        copyOutReceiver.sendCopyOutResponse();
+        session.execute("", 0, copyOutReceiver);
+        return session.sync();
+    }
+
     /**
      * FrameDecoder that makes sure that a full message is in the buffer before delegating work to the MessageHandler
      */
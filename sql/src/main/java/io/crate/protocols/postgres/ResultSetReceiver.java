@@ -26,6 +26,8 @@ import io.crate.action.sql.BaseResultReceiver;
 import io.crate.auth.user.ExceptionAuthorizedValidator;
 import io.crate.data.Row;
 import io.crate.exceptions.SQLExceptions;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
 import io.crate.types.DataType;
 import io.netty.channel.Channel;
 
@@ -38,12 +40,13 @@ class ResultSetReceiver extends BaseResultReceiver {
     private final String query;
     private final Channel channel;
     private final ExceptionAuthorizedValidator exceptionAuthorizedValidator;
-    private final List<? extends DataType> columnTypes;
+    private final PGType[] columnTypes;
 
     @Nullable
     private final FormatCodes.FormatCode[] formatCodes;
 
     private long rowCount = 0;
+    private int rowSizeHint = 0;
 
     ResultSetReceiver(String query,
                       Channel channel,
@@ -53,14 +56,17 @@ class ResultSetReceiver extends BaseResultReceiver {
         this.query = query;
         this.channel = channel;
         this.exceptionAuthorizedValidator = exceptionAuthorizedValidator;
-        this.columnTypes = columnTypes;
+        this.columnTypes = new PGType[columnTypes.size()];
+        for (int i = 0; i < columnTypes.size(); i++) {
+            this.columnTypes[i] = PGTypes.get(columnTypes.get(i));
+        }
         this.formatCodes = formatCodes;
     }
 
     @Override
     public void setNextRow(Row row) {
         rowCount++;
-        Messages.sendDataRow(channel, row, columnTypes, formatCodes);
+        rowSizeHint = Messages.sendDataRow(channel, row, columnTypes, formatCodes, rowSizeHint);
         if (rowCount % 1000 == 0) {
             channel.flush();
         }
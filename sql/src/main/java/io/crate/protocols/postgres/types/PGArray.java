@@ -22,11 +22,13 @@
 
 package io.crate.protocols.postgres.types;
 
-import com.google.common.primitives.Bytes;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 class PGArray extends PGType {
@@ -121,55 +123,62 @@ class PGArray extends PGType {
         return array;
     }
 
+    @Override
+    public int writeAsText(ByteBuf buffer, @Nonnull Object value) {
+        final int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        int len = writeArrayAsText(buffer, (Object[]) value);
+        buffer.setInt(lenIndex, len);
+        return INT32_BYTE_SIZE + len;
+    }
+
     @Override
     byte[] encodeAsUTF8Text(@Nonnull Object array) {
-        boolean isJson = JsonType.OID == innerType.oid();
-        Object[] values = (Object[]) array;
-        List<Byte> encodedValues = new ArrayList<>();
-        encodedValues.add((byte) '{');
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            writeArrayAsText(buffer, (Object[]) array);
+            return ByteBufUtil.getBytes(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Writes the text representation of the array, every element quoted:
+     * <pre>
+     *     {"10",NULL,"20"}
+     *     {{"10","20"},{"30",NULL}}
+     * </pre>
+     * Double quotes and backslashes within elements are escaped with a backslash.
+     *
+     * @return the number of bytes written
+     */
+    private int writeArrayAsText(ByteBuf buffer, Object[] values) {
+        final int startIndex = buffer.writerIndex();
+        buffer.writeByte('{');
         for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.writeByte(',');
+            }
             Object o = values[i];
             if (o instanceof Object[]) { // Nested Array -> recursive call
-                byte[] bytes = encodeAsUTF8Text(o);
-                for (byte b : bytes) {
-                    encodedValues.add(b);
-                }
-                if (i == 0) {
-                    encodedValues.add((byte) ',');
-                }
+                writeArrayAsText(buffer, (Object[]) o);
+            } else if (o == null) {
+                buffer.writeBytes(NULL_BYTES);
             } else {
-                if (i > 0) {
-                    encodedValues.add((byte) ',');
-                }
-                byte[] bytes;
-                if (o == null) {
-                    bytes = NULL_BYTES;
-                    for (byte aByte : bytes) {
-                        encodedValues.add(aByte);
-                    }
-                } else {
-                    bytes = innerType.encodeAsUTF8Text(o);
-
-                    encodedValues.add((byte) '"');
-                    if (isJson) {
-                        for (byte aByte : bytes) {
-                            // Escape double quotes with backslash for json
-                            if ((char) aByte == '"') {
-                                encodedValues.add((byte) '\\');
-                            }
-                            encodedValues.add(aByte);
-                        }
-                    } else {
-                        for (byte aByte : bytes) {
-                            encodedValues.add(aByte);
-                        }
+                byte[] bytes = innerType.encodeAsUTF8Text(o);
+                buffer.writeByte('"');
+                for (byte aByte : bytes) {
+                    if (aByte == '"' || aByte == '\\') {
+                        buffer.writeByte('\\');
                     }
-                    encodedValues.add((byte) '"');
+                    buffer.writeByte(aByte);
                 }
+                buffer.writeByte('"');
             }
         }
-        encodedValues.add((byte) '}');
-        return Bytes.toArray(encodedValues);
+        buffer.writeByte('}');
+        return buffer.writerIndex() - startIndex;
     }
 
     @Override
@@ -261,13 +270,18 @@ class PGArray extends PGType {
                     endIdx--;
                 }
                 byte[] innerBytes = new byte[endIdx - startIdx + 1];
-                for (int i = startIdx, innerBytesIdx = 0; i <= endIdx; i++, innerBytesIdx++) {
+                int innerBytesIdx = 0;
+                for (int i = startIdx; i <= endIdx; i++, innerBytesIdx++) {
                     if (i < endIdx && (char) bytes[i] == '\\' &&
                         ((char) bytes[i + 1] == '\\' || (char) bytes[i + 1] == '\"')) {
                         i++;
                     }
                     innerBytes[innerBytesIdx] = bytes[i];
                 }
+                if (innerBytesIdx < innerBytes.length) {
+                    // escape characters have been skipped
+                    innerBytes = Arrays.copyOf(innerBytes, innerBytesIdx);
+                }
                 objects.add(innerType.decodeUTF8Text(innerBytes));
             }
         }
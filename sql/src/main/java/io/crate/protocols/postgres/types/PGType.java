@@ -87,6 +87,14 @@ public abstract class PGType {
         return INT32_BYTE_SIZE + bytes.length;
     }
 
+    /**
+     * Return the UTF8 encoded text representation of the value, without the length prefix that
+     * {@link #writeAsText(ByteBuf, Object)} writes.
+     */
+    public final byte[] encodeAsText(@Nonnull Object value) {
+        return encodeAsUTF8Text(value);
+    }
+
     public Object readTextValue(ByteBuf buffer, int valueLength) {
         byte[] bytes = new byte[valueLength];
         buffer.readBytes(bytes);
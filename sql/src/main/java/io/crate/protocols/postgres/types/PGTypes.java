@@ -62,6 +62,8 @@ public class PGTypes {
         .put(new ArrayType(DataTypes.BOOLEAN), PGArray.BOOL_ARRAY)
         .put(new ArrayType(DataTypes.TIMESTAMP), PGArray.TIMESTAMPZ_ARRAY)
         .put(new ArrayType(DataTypes.STRING), PGArray.VARCHAR_ARRAY)
+        .put(new ArrayType(DataTypes.IP), PGArray.VARCHAR_ARRAY)
+        .put(new ArrayType(DataTypes.UNDEFINED), PGArray.VARCHAR_ARRAY)
         .put(new ArrayType(DataTypes.GEO_POINT), PGArray.FLOAT8_ARRAY)
         .put(new ArrayType(DataTypes.GEO_SHAPE), PGArray.JSON_ARRAY)
         .put(new ArrayType(DataTypes.OBJECT), JsonType.INSTANCE)
@@ -74,6 +76,8 @@ public class PGTypes {
         .put(new SetType(DataTypes.BOOLEAN), PGArray.BOOL_ARRAY)
         .put(new SetType(DataTypes.TIMESTAMP), PGArray.TIMESTAMPZ_ARRAY)
         .put(new SetType(DataTypes.STRING), PGArray.VARCHAR_ARRAY)
+        .put(new SetType(DataTypes.IP), PGArray.VARCHAR_ARRAY)
+        .put(new SetType(DataTypes.UNDEFINED), PGArray.VARCHAR_ARRAY)
         .put(new SetType(DataTypes.GEO_POINT), PGArray.FLOAT8_ARRAY)
         .put(new SetType(DataTypes.GEO_SHAPE), PGArray.JSON_ARRAY)
         .put(new SetType(DataTypes.OBJECT), JsonType.INSTANCE)
@@ -95,6 +99,8 @@ public class PGTypes {
         PG_TYPES_TO_CRATE_TYPE.put(0, DataTypes.UNDEFINED);
         PG_TYPES_TO_CRATE_TYPE.put(TEXT_OID, DataTypes.STRING);
         PG_TYPES_TO_CRATE_TYPE.put(TEXT_ARRAY_OID, new ArrayType(DataTypes.STRING));
+        // jsonb values are read as json, see JsonType#readBinaryValue
+        PG_TYPES_TO_CRATE_TYPE.put(JsonType.JSONB_OID, DataTypes.OBJECT);
         TYPES = new HashSet<>(CRATE_TO_PG_TYPES.values()); // some pgTypes are used multiple times, de-dup them
     }
 
@@ -103,10 +103,11 @@ class TimestampType extends PGType {
     }
 
     /**
-     * Convert a postgres timestamp (seconds since 2000-01-01) into a crate timestamp (unix timestamp in ms)
+     * Convert a postgres timestamp (microseconds since 2000-01-01) into a crate timestamp (unix timestamp in ms)
+     * Sub millisecond precision is truncated towards the past, also for timestamps before 2000-01-01.
      */
     private static long toCrateTimestamp(long microSecondsSince2k) {
-        return (microSecondsSince2k / 1000) + EPOCH_DIFF_IN_MS;
+        return Math.floorDiv(microSecondsSince2k, 1000L) + EPOCH_DIFF_IN_MS;
     }
 
     @Override
@@ -34,19 +34,28 @@ import static io.crate.exceptions.Exceptions.userFriendlyMessageInclNested;
 class HTTPErrorFormatter {
 
     public static XContentBuilder convert(SQLActionException t, boolean includeErrorTrace) throws IOException {
+        XContentBuilder builder = JsonXContent.contentBuilder().startObject();
+        return errorFields(builder, t, includeErrorTrace).endObject();
+    }
+
+    /**
+     * Adds the "error" object (and the "error_trace" if requested) to an already started object
+     */
+    static XContentBuilder errorFields(XContentBuilder builder,
+                                       SQLActionException t,
+                                       boolean includeErrorTrace) throws IOException {
         // @formatter:off
-        XContentBuilder builder = JsonXContent.contentBuilder()
-            .startObject()
-                .startObject("error")
-                    .field("message", userFriendlyMessageInclNested(t))
-                    .field("code", t.errorCode())
-                .endObject();
+        builder
+            .startObject("error")
+                .field("message", userFriendlyMessageInclNested(t))
+                .field("code", t.errorCode())
+            .endObject();
         // @formatter:on
 
         if (includeErrorTrace) {
             builder.field("error_trace", ExceptionsHelper.stackTrace(t));
         }
-        return builder.endObject();
+        return builder;
     }
 }
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Encoding of the result of the {@code _sql} endpoint, negotiated using the {@code Accept} header of the request.
+ */
+enum ResponseFormat {
+
+    JSON(XContentType.JSON, XContentType.JSON.mediaType()),
+    SMILE(XContentType.SMILE, XContentType.SMILE.mediaType()),
+    CBOR(XContentType.CBOR, XContentType.CBOR.mediaType()),
+
+    /**
+     * Newline delimited JSON: one line with the column names, one line per row and a last line with the row count.
+     * Always streamed.
+     */
+    NDJSON(XContentType.JSON, "application/x-ndjson");
+
+    private final XContentType xContentType;
+    private final String mediaType;
+
+    ResponseFormat(XContentType xContentType, String mediaType) {
+        this.xContentType = xContentType;
+        this.mediaType = mediaType;
+    }
+
+    String mediaType() {
+        return mediaType;
+    }
+
+    XContentBuilder contentBuilder() throws IOException {
+        return XContentBuilder.builder(xContentType.xContent());
+    }
+
+    XContentBuilder contentBuilder(OutputStream out) throws IOException {
+        return new XContentBuilder(xContentType.xContent(), out);
+    }
+
+    /**
+     * @return the first supported media type listed in the Accept header. JSON if none of them is supported.
+     */
+    static ResponseFormat fromAcceptHeader(@Nullable String accept) {
+        if (accept == null) {
+            return JSON;
+        }
+        for (String mediaRange : accept.split(",")) {
+            int paramsIdx = mediaRange.indexOf(';');
+            String mediaType = paramsIdx < 0 ? mediaRange : mediaRange.substring(0, paramsIdx);
+            switch (mediaType.trim().toLowerCase(Locale.ENGLISH)) {
+                case "application/json":
+                    return JSON;
+                case "application/smile":
+                    return SMILE;
+                case "application/cbor":
+                    return CBOR;
+                case "application/x-ndjson":
+                    return NDJSON;
+                default:
+                    // try the next one
+            }
+        }
+        return JSON;
+    }
+}
@@ -47,5 +47,10 @@ public class RestSQLAction {
             "sql_handler",
             corsConfig -> new SqlHttpHandler(settings, sqlOperations, breakerService::getBreaker, userManager, corsConfig)
         ));
+        pipelineRegistry.addBefore(new PipelineRegistry.ChannelPipelineItem(
+            "pipelining",
+            StreamedResponseHandler.NAME,
+            corsConfig -> new StreamedResponseHandler()
+        ));
     }
 }
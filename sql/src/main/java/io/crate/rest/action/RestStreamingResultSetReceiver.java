@@ -0,0 +1,427 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.action.sql.SQLActionException;
+import io.crate.auth.user.ExceptionAuthorizedValidator;
+import io.crate.data.Row;
+import io.crate.exceptions.JobKilledException;
+import io.crate.expression.symbol.Field;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static io.crate.exceptions.SQLExceptions.createSQLActionException;
+
+/**
+ * Writes the rows of a result set as HTTP chunks while they're received.
+ *
+ * Expects to be used with a {@code maxRows} limit: Each page of rows is written as one chunk and the next page is
+ * only requested once the chunk has been written and the channel is writable again.
+ */
+class RestStreamingResultSetReceiver implements ResultReceiver<Void> {
+
+    private final ChannelHandlerContext ctx;
+    private final Encoder encoder;
+    private final ExceptionAuthorizedValidator exceptionValidator;
+    private final Supplier<ChannelFuture> sendHead;
+    private final Consumer<RestStreamingResultSetReceiver> fetchNextPage;
+    private final Consumer<Runnable> deferUntilWritable;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private ChannelFuture headSent;
+    private long rowCount;
+    private boolean finished = false;
+
+    /**
+     * @param sendHead writes the head of the response; called once, before the first chunk is written
+     * @param fetchNextPage called to resume the execution after a page of rows has been written
+     * @param deferUntilWritable used to postpone fetching the next page until the channel is writable
+     */
+    RestStreamingResultSetReceiver(ChannelHandlerContext ctx,
+                                   Encoder encoder,
+                                   ExceptionAuthorizedValidator exceptionValidator,
+                                   Supplier<ChannelFuture> sendHead,
+                                   Consumer<RestStreamingResultSetReceiver> fetchNextPage,
+                                   Consumer<Runnable> deferUntilWritable) {
+        this.ctx = ctx;
+        this.encoder = encoder;
+        this.exceptionValidator = exceptionValidator;
+        this.sendHead = sendHead;
+        this.fetchNextPage = fetchNextPage;
+        this.deferUntilWritable = deferUntilWritable;
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            encoder.addRow(row);
+            rowCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        ByteBuf chunk;
+        try {
+            chunk = encoder.takeChunk();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        write(new DefaultHttpContent(chunk)).addListener(f -> {
+            if (f.isSuccess()) {
+                if (ctx.channel().isWritable()) {
+                    fetchNextPage();
+                } else {
+                    deferUntilWritable.accept(this::fetchNextPage);
+                }
+            }
+            // otherwise the channel is closed and the suspended execution is released by closing the session
+        });
+    }
+
+    private void fetchNextPage() {
+        try {
+            fetchNextPage.accept(this);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            fail(new JobKilledException());
+            return;
+        }
+        if (finished) {
+            return;
+        }
+        finished = true;
+        ByteBuf chunk;
+        try {
+            chunk = encoder.finish(rowCount);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        writeLast(chunk);
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (headSent == null) {
+            // nothing has been written yet, a regular error response can be sent
+            encoder.close();
+            result.completeExceptionally(t);
+            return;
+        }
+        ByteBuf chunk;
+        try {
+            chunk = encoder.finishWithError(createSQLActionException(t, exceptionValidator));
+        } catch (IOException e) {
+            // the response can't be terminated properly, the client has to notice the closed connection
+            encoder.close();
+            ctx.close();
+            result.complete(null);
+            return;
+        }
+        writeLast(chunk);
+    }
+
+    private void writeLast(ByteBuf chunk) {
+        write(new DefaultLastHttpContent(chunk)).addListener(f -> result.complete(null));
+    }
+
+    private ChannelFuture write(HttpContent content) {
+        if (headSent == null) {
+            headSent = sendHead.get();
+        }
+        ChannelPromise promise = ctx.newPromise();
+        headSent.addListener(f -> {
+            if (f.isSuccess()) {
+                ctx.writeAndFlush(content, promise);
+            } else {
+                ReferenceCountUtil.release(content);
+                promise.setFailure(f.cause());
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * @return future which is completed once the response has been written completely
+     *         or exceptionally if a failure occurred before anything was written.
+     */
+    @Override
+    public CompletableFuture<Void> completionFuture() {
+        return result;
+    }
+
+    static Encoder encoder(ResponseFormat format,
+                           ByteBufAllocator alloc,
+                           List<Field> fields,
+                           boolean includeTypes,
+                           boolean includeErrorTrace,
+                           long startTimeNs) throws IOException {
+        ChunkOutputStream out = new ChunkOutputStream(alloc);
+        if (format == ResponseFormat.NDJSON) {
+            return new NdJsonEncoder(format, out, fields, includeTypes, includeErrorTrace, startTimeNs);
+        }
+        return new DocumentEncoder(format, out, fields, includeTypes, includeErrorTrace, startTimeNs);
+    }
+
+    /**
+     * Encodes the rows into the {@link ByteBuf} chunks of the response
+     */
+    abstract static class Encoder {
+
+        final ResponseFormat format;
+        final ChunkOutputStream out;
+        final int numCols;
+        final boolean includeErrorTrace;
+        final long startTimeNs;
+
+        Encoder(ResponseFormat format,
+                ChunkOutputStream out,
+                List<Field> fields,
+                boolean includeErrorTrace,
+                long startTimeNs) {
+            this.format = format;
+            this.out = out;
+            this.numCols = fields.size();
+            this.includeErrorTrace = includeErrorTrace;
+            this.startTimeNs = startTimeNs;
+        }
+
+        abstract void addRow(Row row) throws IOException;
+
+        /**
+         * @return the content encoded since the last call
+         */
+        abstract ByteBuf takeChunk() throws IOException;
+
+        /**
+         * @return the remaining content including the end of the result
+         */
+        abstract ByteBuf finish(long rowCount) throws IOException;
+
+        /**
+         * @return the remaining content terminated with the error instead of the end of the result
+         */
+        abstract ByteBuf finishWithError(SQLActionException error) throws IOException;
+
+        void close() {
+            ReferenceCountUtil.release(out.take());
+        }
+    }
+
+    /**
+     * Encodes the result into the same document as the non-streamed response
+     * (or, in case of a failure, into the document with the rows and the error)
+     */
+    private static class DocumentEncoder extends Encoder {
+
+        private final XContentBuilder builder;
+        private final ResultToXContentBuilder resultBuilder;
+
+        DocumentEncoder(ResponseFormat format,
+                        ChunkOutputStream out,
+                        List<Field> fields,
+                        boolean includeTypes,
+                        boolean includeErrorTrace,
+                        long startTimeNs) throws IOException {
+            super(format, out, fields, includeErrorTrace, startTimeNs);
+            builder = format.contentBuilder(out);
+            resultBuilder = ResultToXContentBuilder.builder(builder).cols(fields);
+            if (includeTypes) {
+                resultBuilder.colTypes(fields);
+            }
+            resultBuilder.startRows();
+        }
+
+        @Override
+        void addRow(Row row) throws IOException {
+            resultBuilder.addRow(row, numCols);
+        }
+
+        @Override
+        ByteBuf takeChunk() throws IOException {
+            builder.flush();
+            return out.take();
+        }
+
+        @Override
+        ByteBuf finish(long rowCount) throws IOException {
+            resultBuilder
+                .finishRows()
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build()
+                .close();
+            return out.take();
+        }
+
+        @Override
+        ByteBuf finishWithError(SQLActionException error) throws IOException {
+            resultBuilder.finishRows();
+            HTTPErrorFormatter.errorFields(builder, error, includeErrorTrace);
+            resultBuilder.build().close();
+            return out.take();
+        }
+    }
+
+    /**
+     * Encodes the result as one JSON document per line:
+     * <pre>
+     * {"cols":["name","position"]}
+     * ["North West Ripple",1]
+     * ["Arkintoofle Minor",3]
+     * {"rowcount":2,"duration":0.42}
+     * </pre>
+     * In case of a failure the last line contains the error instead of the row count.
+     */
+    private static class NdJsonEncoder extends Encoder {
+
+        NdJsonEncoder(ResponseFormat format,
+                      ChunkOutputStream out,
+                      List<Field> fields,
+                      boolean includeTypes,
+                      boolean includeErrorTrace,
+                      long startTimeNs) throws IOException {
+            super(format, out, fields, includeErrorTrace, startTimeNs);
+            XContentBuilder builder = format.contentBuilder(out);
+            ResultToXContentBuilder resultBuilder = ResultToXContentBuilder.builder(builder).cols(fields);
+            if (includeTypes) {
+                resultBuilder.colTypes(fields);
+            }
+            endLine(resultBuilder.build());
+        }
+
+        private void endLine(XContentBuilder builder) throws IOException {
+            builder.close();
+            out.write('\n');
+        }
+
+        @Override
+        void addRow(Row row) throws IOException {
+            XContentBuilder builder = format.contentBuilder(out);
+            builder.startArray();
+            for (int i = 0; i < numCols; i++) {
+                builder.value(row.get(i));
+            }
+            builder.endArray();
+            endLine(builder);
+        }
+
+        @Override
+        ByteBuf takeChunk() {
+            return out.take();
+        }
+
+        @Override
+        ByteBuf finish(long rowCount) throws IOException {
+            XContentBuilder builder = format.contentBuilder(out);
+            ResultToXContentBuilder.builder(builder)
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build();
+            endLine(builder);
+            return out.take();
+        }
+
+        @Override
+        ByteBuf finishWithError(SQLActionException error) throws IOException {
+            XContentBuilder builder = format.contentBuilder(out).startObject();
+            HTTPErrorFormatter.errorFields(builder, error, includeErrorTrace).endObject();
+            endLine(builder);
+            return out.take();
+        }
+    }
+
+    /**
+     * Stream writing into a new buffer after every {@link #take()}
+     */
+    static class ChunkOutputStream extends OutputStream {
+
+        private final ByteBufAllocator alloc;
+        private ByteBuf buffer;
+
+        ChunkOutputStream(ByteBufAllocator alloc) {
+            this.alloc = alloc;
+        }
+
+        private ByteBuf buffer() {
+            if (buffer == null) {
+                buffer = alloc.buffer();
+            }
+            return buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer().writeByte(b);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) {
+            buffer().writeBytes(b, off, len);
+        }
+
+        ByteBuf take() {
+            ByteBuf chunk = buffer == null ? Unpooled.EMPTY_BUFFER : buffer;
+            buffer = null;
+            return chunk;
+        }
+
+        @Override
+        public void close() {
+            // the taken buffers are released once they are written
+        }
+    }
+}
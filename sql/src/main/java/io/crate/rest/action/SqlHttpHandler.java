@@ -40,6 +40,7 @@ import io.crate.expression.symbol.Field;
 import io.crate.expression.symbol.Symbols;
 import io.crate.rest.CrateRestMainAction;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
@@ -66,6 +67,7 @@ import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
@@ -88,6 +90,8 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
     private static final String REQUEST_HEADER_USER = "User";
     private static final String REQUEST_HEADER_SCHEMA = "Default-Schema";
     private static final int DEFAULT_SOFT_LIMIT = 10_000;
+    private static final String STREAM_PORTAL_PREFIX = "_crate_http_stream_";
+    static final int STREAM_PAGE_SIZE = 1_000;
 
     private final Settings settings;
     private final SQLOperations sqlOperations;
@@ -95,7 +99,10 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
     private final UserLookup userLookup;
     private final Netty4CorsConfig corsConfig;
 
+    private final ArrayDeque<Runnable> resumeWhenWritable = new ArrayDeque<>();
+
     private Session session;
+    private int numStreams = 0;
 
     SqlHttpHandler(Settings settings,
                    SQLOperations sqlOperations,
@@ -117,10 +124,17 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
             ensureSession(request);
             Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
             ByteBuf content = request.content();
-            handleSQLRequest(content, paramContainFlag(parameters, "types"))
+            handleSQLRequest(ctx, msg, request, parameters)
                 .whenComplete((result, t) -> {
                     try {
-                        sendResponse(ctx, msg, request, parameters, result, t);
+                        if (result == null && t == null) {
+                            // the result has been streamed, the response is complete
+                            if (isCloseConnection(request)) {
+                                ctx.close();
+                            }
+                        } else {
+                            sendResponse(ctx, msg, request, parameters, result, t);
+                        }
                     } catch (Throwable ex) {
                         LOGGER.error("Error sending response", ex);
                         throw ex;
@@ -144,6 +158,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
 
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
+        resumeWhenWritable.clear();
         if (session != null) {
             session.close();
             session = null;
@@ -151,6 +166,15 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
         super.channelUnregistered(ctx);
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Runnable resume;
+        while (ctx.channel().isWritable() && (resume = resumeWhenWritable.poll()) != null) {
+            resume.run();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     private void sendResponse(ChannelHandlerContext ctx,
                               HttpPipelinedRequest msg,
                               FullHttpRequest request,
@@ -197,10 +221,26 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
                    && !HttpHeaderValues.KEEP_ALIVE.contentEqualsIgnoreCase(headers.get(HttpHeaderNames.CONNECTION)));
     }
 
-    private CompletableFuture<XContentBuilder> handleSQLRequest(ByteBuf content, boolean includeTypes) {
+    /**
+     * @return the response or, if the result has been streamed, a future completed with null
+     */
+    private CompletableFuture<XContentBuilder> handleSQLRequest(ChannelHandlerContext ctx,
+                                                                HttpPipelinedRequest msg,
+                                                                FullHttpRequest request,
+                                                                Map<String, List<String>> parameters) {
+        boolean includeTypes = paramContainFlag(parameters, "types");
+        ResponseFormat format = ResponseFormat.fromAcceptHeader(request.headers().get(HttpHeaderNames.ACCEPT));
+        boolean stream = format == ResponseFormat.NDJSON || paramContainFlag(parameters, "stream");
+        if (stream && !request.protocolVersion().equals(HttpVersion.HTTP_1_1)) {
+            // chunked transfer encoding requires HTTP/1.1
+            stream = false;
+            if (format == ResponseFormat.NDJSON) {
+                format = ResponseFormat.JSON;
+            }
+        }
         SQLRequestParseContext parseContext;
         try {
-            parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(content));
+            parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(request.content()));
         } catch (Throwable t) {
             return failedFuture(t);
         }
@@ -212,7 +252,12 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
         }
         try {
             if (args != null || bulkArgs == null) {
-                return executeSimpleRequest(session, parseContext.stmt(), args, includeTypes);
+                if (stream) {
+                    return executeStreamingRequest(
+                        ctx, msg, request, session, parseContext.stmt(), args, format, includeTypes,
+                        paramContainFlag(parameters, "error_trace"));
+                }
+                return executeSimpleRequest(session, parseContext.stmt(), args, format, includeTypes);
             } else {
                 return executeBulkRequest(session, parseContext.stmt(), bulkArgs);
             }
@@ -248,6 +293,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
     private CompletableFuture<XContentBuilder> executeSimpleRequest(Session session,
                                                                     String stmt,
                                                                     Object[] args,
+                                                                    ResponseFormat format,
                                                                     boolean includeTypes) throws IOException {
         long startTimeInNs = System.nanoTime();
         session.parse(UNNAMED, stmt, emptyList());
@@ -256,10 +302,10 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
         List<Field> resultFields = description.getFields();
         ResultReceiver<XContentBuilder> resultReceiver;
         if (resultFields == null) {
-            resultReceiver = new RestRowCountReceiver(JsonXContent.contentBuilder(), startTimeInNs, includeTypes);
+            resultReceiver = new RestRowCountReceiver(format.contentBuilder(), startTimeInNs, includeTypes);
         } else {
             resultReceiver = new RestResultSetReceiver(
-                JsonXContent.contentBuilder(),
+                format.contentBuilder(),
                 resultFields,
                 startTimeInNs,
                 new RowAccountingWithEstimators(
@@ -274,6 +320,70 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<HttpPipelinedReq
             .thenCompose(ignored -> resultReceiver.completionFuture());
     }
 
+    /**
+     * Executes the statement using {@link #STREAM_PAGE_SIZE} as {@code maxRows} so that the rows are written
+     * as chunks of the response page by page.
+     * Statements which don't return a result set are responded to as usual.
+     */
+    private CompletableFuture<XContentBuilder> executeStreamingRequest(ChannelHandlerContext ctx,
+                                                                       HttpPipelinedRequest msg,
+                                                                       FullHttpRequest request,
+                                                                       Session session,
+                                                                       String stmt,
+                                                                       Object[] args,
+                                                                       ResponseFormat format,
+                                                                       boolean includeTypes,
+                                                                       boolean includeErrorTrace) throws IOException {
+        long startTimeInNs = System.nanoTime();
+        // a dedicated portal per stream, the unnamed one is closed by sync and may be used by subsequent requests
+        String portalName = STREAM_PORTAL_PREFIX + numStreams++;
+        session.parse(UNNAMED, stmt, emptyList());
+        session.bind(portalName, UNNAMED, args == null ? emptyList() : asList(args), null);
+        List<Field> resultFields = session.describe('P', portalName).getFields();
+        if (resultFields == null) {
+            ResponseFormat rowCountFormat = format == ResponseFormat.NDJSON ? ResponseFormat.JSON : format;
+            ResultReceiver<XContentBuilder> resultReceiver =
+                new RestRowCountReceiver(rowCountFormat.contentBuilder(), startTimeInNs, includeTypes);
+            session.execute(portalName, 0, resultReceiver);
+            CompletableFuture<XContentBuilder> result = session.sync()
+                .thenCompose(ignored -> resultReceiver.completionFuture());
+            session.close((byte) 'P', portalName);
+            return result;
+        }
+        RestStreamingResultSetReceiver resultReceiver = new RestStreamingResultSetReceiver(
+            ctx,
+            RestStreamingResultSetReceiver.encoder(
+                format, ctx.alloc(), resultFields, includeTypes, includeErrorTrace, startTimeInNs),
+            session.sessionContext(),
+            () -> sendStreamHead(ctx, msg, request, format),
+            receiver -> {
+                session.execute(portalName, STREAM_PAGE_SIZE, receiver);
+                session.sync();
+            },
+            resumeWhenWritable::add
+        );
+        resultReceiver.completionFuture().whenComplete(
+            (r, t) -> ctx.executor().execute(() -> session.close((byte) 'P', portalName)));
+        session.execute(portalName, STREAM_PAGE_SIZE, resultReceiver);
+        return session.sync()
+            .thenCompose(ignored -> resultReceiver.completionFuture())
+            .thenApply(ignored -> null);
+    }
+
+    private ChannelFuture sendStreamHead(ChannelHandlerContext ctx,
+                                         HttpPipelinedRequest msg,
+                                         FullHttpRequest request,
+                                         ResponseFormat format) {
+        StreamedResponseHandler.StreamStart head =
+            new StreamedResponseHandler.StreamStart(request.protocolVersion(), HttpResponseStatus.OK);
+        head.headers().add(HttpHeaderNames.CONTENT_TYPE, format.mediaType());
+        head.headers().add(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        Netty4CorsHandler.setCorsResponseHeaders(request, head, corsConfig);
+        ChannelPromise promise = ctx.newPromise();
+        ctx.writeAndFlush(msg.createHttpResponse(head, promise), promise);
+        return promise;
+    }
+
     private CompletableFuture<XContentBuilder> executeBulkRequest(Session session,
                                                                   String stmt,
                                                                   Object[][] bulkArgs) {
@@ -0,0 +1,123 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+
+/**
+ * Outbound handler placed between the HTTP encoder and the {@code pipelining} handler which makes it possible to
+ * send chunked responses for pipelined requests.
+ *
+ * The pipelining handler only orders {@link FullHttpResponse}s. A streamed response is therefore started by writing
+ * a {@link StreamStart} through the pipelining handler. Once it's the turn of the response, this handler replaces it
+ * with the response head and lets the content chunks pass until the {@link LastHttpContent} of the stream.
+ * Full responses of subsequent requests are held back until then.
+ */
+class StreamedResponseHandler extends ChannelOutboundHandlerAdapter {
+
+    static final String NAME = "sql_stream";
+
+    private final ArrayDeque<PendingWrite> heldBack = new ArrayDeque<>();
+    private boolean streaming = false;
+
+    /**
+     * Head of a chunked response, without any content.
+     */
+    static class StreamStart extends DefaultFullHttpResponse {
+
+        StreamStart(HttpVersion version, HttpResponseStatus status) {
+            super(version, status, Unpooled.EMPTY_BUFFER);
+        }
+
+        private DefaultHttpResponse head() {
+            DefaultHttpResponse head = new DefaultHttpResponse(protocolVersion(), status());
+            head.headers().set(headers());
+            return head;
+        }
+    }
+
+    private static class PendingWrite {
+
+        private final Object msg;
+        private final ChannelPromise promise;
+
+        PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof FullHttpResponse) {
+            if (streaming) {
+                heldBack.add(new PendingWrite(msg, promise));
+            } else if (msg instanceof StreamStart) {
+                streaming = true;
+                ctx.write(((StreamStart) msg).head(), promise);
+            } else {
+                ctx.write(msg, promise);
+            }
+        } else if (msg instanceof LastHttpContent && streaming) {
+            streaming = false;
+            ctx.write(msg, promise);
+            writeHeldBack(ctx);
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    private void writeHeldBack(ChannelHandlerContext ctx) {
+        if (heldBack.isEmpty()) {
+            return;
+        }
+        while (!streaming && !heldBack.isEmpty()) {
+            PendingWrite pendingWrite = heldBack.poll();
+            write(ctx, pendingWrite.msg, pendingWrite.promise);
+        }
+        ctx.flush();
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        PendingWrite pendingWrite;
+        while ((pendingWrite = heldBack.poll()) != null) {
+            ReferenceCountUtil.release(pendingWrite.msg);
+            pendingWrite.promise.tryFailure(new ClosedChannelException());
+        }
+        super.close(ctx, promise);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.sql.parser.ParsingException;
+import io.crate.sql.tree.Statement;
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ParseCacheTest extends CrateUnitTest {
+
+    @Test
+    public void testParsedStatementIsReusedForTheSameQuery() {
+        ParseCache parseCache = new ParseCache(10);
+        Statement statement = parseCache.parse("select name from sys.nodes where id = ?");
+
+        assertThat(parseCache.parse("select name from sys.nodes where id = ?"), sameInstance(statement));
+        assertThat(parseCache.parse("select id from sys.nodes where name = ?"), not(sameInstance(statement)));
+        assertThat(parseCache.stats().hitCount(), is(1L));
+        assertThat(parseCache.stats().missCount(), is(2L));
+    }
+
+    @Test
+    public void testParsingFailuresAreNotCached() {
+        ParseCache parseCache = new ParseCache(10);
+        try {
+            parseCache.parse("select from where");
+            fail("parsing must fail");
+        } catch (ParsingException ignored) {
+        }
+        assertThat(parseCache.stats().missCount(), is(1L));
+
+        expectedException.expect(ParsingException.class);
+        parseCache.parse("select from where");
+    }
+
+    @Test
+    public void testCacheWithSizeZeroParsesEveryQuery() {
+        ParseCache parseCache = new ParseCache(0);
+        Statement statement = parseCache.parse("select 1");
+
+        assertThat(parseCache.parse("select 1"), not(sameInstance(statement)));
+        assertThat(parseCache.parse("select 1"), is(statement));
+        assertThat(parseCache.stats().hitCount(), is(0L));
+    }
+
+    @Test
+    public void testLongStatementsAreNotCached() {
+        ParseCache parseCache = new ParseCache(10);
+        StringBuilder query = new StringBuilder("select 1");
+        while (query.length() <= ParseCache.MAX_QUERY_LENGTH) {
+            query.append(", 1");
+        }
+        Statement statement = parseCache.parse(query.toString());
+
+        assertThat(parseCache.parse(query.toString()), not(sameInstance(statement)));
+        assertThat(parseCache.stats().hitCount(), is(0L));
+        assertThat(parseCache.stats().missCount(), is(2L));
+    }
+}
@@ -112,6 +112,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new ParseCache(10),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -275,6 +276,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new ParseCache(10),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -309,6 +311,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new ParseCache(10),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -335,6 +338,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             sqlExecutor.planner,
+            new ParseCache(10),
             new JobsLogs(() -> false),
             false,
             executor,
@@ -37,6 +37,8 @@ import io.crate.testing.SQLExecutor;
 import io.crate.types.ArrayType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.common.lucene.BytesRefs;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -317,4 +319,20 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         expectedException.expectMessage("node_filters argument 'name' must be a String, not 20 (Long)");
         e.analyze("copy users from '/' with (node_filters={name=20})");
     }
+
+    @Test
+    public void testCopyFromWithInvalidNumberOfReaders() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value for readers: 0. The number of readers must be greater than 0");
+        e.analyze("copy users from '/' with (readers=0)");
+    }
+
+    @Test
+    public void testCopyFromWithMoreReadersThanProcessors() throws Exception {
+        int numProcessors = EsExecutors.numberOfProcessors(Settings.EMPTY);
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid value for readers: " + (numProcessors + 1) +
+                                        ". The number of readers must not exceed the number of processors");
+        e.analyze("copy users from '/' with (readers=" + (numProcessors + 1) + ")");
+    }
 }
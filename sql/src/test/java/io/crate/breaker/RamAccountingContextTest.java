@@ -97,4 +97,21 @@ public class RamAccountingContextTest extends CrateUnitTest {
         assertThat(ramAccountingContext.totalBytes(), is(0L));
         assertThat(breaker.getUsed(), is(0L));
     }
+
+    @Test
+    public void testReleaseOfChildContextReleasesOnlyTheBytesOfTheChild() {
+        RamAccountingContext child = ramAccountingContext.newChildContext();
+        ramAccountingContext.addBytes(10);
+        child.addBytes(20);
+        assertThat(child.totalBytes(), is(20L));
+        assertThat(ramAccountingContext.totalBytes(), is(30L));
+
+        child.release();
+        assertThat(child.totalBytes(), is(0L));
+        assertThat(ramAccountingContext.totalBytes(), is(10L));
+
+        child.addBytes(5);
+        ramAccountingContext.close();
+        assertThat(breaker.getUsed(), is(0L));
+    }
 }
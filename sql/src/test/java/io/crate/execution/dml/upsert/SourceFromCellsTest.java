@@ -25,6 +25,7 @@ package io.crate.execution.dml.upsert;
 import io.crate.analyze.QueriedTable;
 import io.crate.analyze.relations.QueriedRelation;
 import io.crate.common.collections.Maps;
+import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Reference;
@@ -106,4 +107,47 @@ public class SourceFromCellsTest extends CrateDummyClusterServiceUnitTest {
         assertThat(Maps.getByPath(map, "obj.a"), is(10));
         assertThat(Maps.getByPath(map, "obj.c"), is(13));
     }
+
+    @Test
+    public void testGeneratedSourceIsNotChangedBySubsequentRows() throws IOException {
+        InsertSourceFromCells sourceFromCells = new InsertSourceFromCells(
+            txnCtx, e.functions(), t1, GeneratedColumns.Validation.VALUE_MATCH, Arrays.asList(x, y));
+        BytesReference first = sourceFromCells.generateSource(new Object[]{1, 2});
+        BytesReference second = sourceFromCells.generateSource(new Object[]{10, 20});
+        assertThat(first.utf8ToString(), is("{\"x\":1,\"y\":2,\"z\":3}"));
+        assertThat(second.utf8ToString(), is("{\"x\":10,\"y\":20,\"z\":30}"));
+    }
+
+    @Test
+    public void testGeneratedSourceForNestedTargetColumn() throws IOException {
+        Reference a = t2.getReference(new ColumnIdent("obj", "a"));
+        InsertSourceFromCells sourceFromCells = new InsertSourceFromCells(
+            txnCtx, e.functions(), t2, GeneratedColumns.Validation.VALUE_MATCH, Collections.singletonList(a));
+        BytesReference source = sourceFromCells.generateSource(new Object[]{10});
+        assertThat(source.utf8ToString(), is("{\"obj\":{\"a\":10,\"c\":13},\"b\":11}"));
+    }
+
+    @Test
+    public void testGeneratedColumnsAreAppendedToRawSource() throws IOException {
+        GeneratedColsFromRawInsertSource sourceGen = new GeneratedColsFromRawInsertSource(
+            txnCtx, e.functions(), t1.generatedColumns());
+        BytesReference source = sourceGen.generateSource(new Object[]{"{\"x\": 1, \"y\": 2}"});
+        assertThat(source.utf8ToString(), is("{\"x\": 1,\"y\": 2,\"z\":3}"));
+    }
+
+    @Test
+    public void testGeneratedColumnWithExplicitNullInRawSourceIsReplacedByGeneratedValue() throws IOException {
+        GeneratedColsFromRawInsertSource sourceGen = new GeneratedColsFromRawInsertSource(
+            txnCtx, e.functions(), t1.generatedColumns());
+        BytesReference source = sourceGen.generateSource(new Object[]{"{\"x\": 1, \"y\": 2, \"z\": null}"});
+        assertThat(source.utf8ToString(), is("{\"x\": 1,\"y\": 2,\"z\":3}"));
+    }
+
+    @Test
+    public void testGeneratedColumnValueInRawSourceIsKept() throws IOException {
+        GeneratedColsFromRawInsertSource sourceGen = new GeneratedColsFromRawInsertSource(
+            txnCtx, e.functions(), t1.generatedColumns());
+        BytesReference source = sourceGen.generateSource(new Object[]{"{\"x\": 1, \"y\": 2, \"z\": 3}"});
+        assertThat(source.utf8ToString(), is("{\"x\": 1,\"y\": 2,\"z\": 3}"));
+    }
 }
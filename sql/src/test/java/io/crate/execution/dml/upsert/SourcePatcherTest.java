@@ -0,0 +1,99 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.dml.upsert;
+
+import io.crate.metadata.ColumnIdent;
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SourcePatcherTest extends CrateUnitTest {
+
+    @Test
+    public void testUntouchedFieldsAreCopiedAsIs() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("x"), 2);
+        BytesReference source = new BytesArray("{\"a\" : [1, {\"b\": 2}], \"x\": 1 , \"y\": \"f\\\"oo\"}");
+
+        assertThat(patcher.apply(source).utf8ToString(), is("{\"a\" : [1, {\"b\": 2}],\"x\":2,\"y\": \"f\\\"oo\"}"));
+    }
+
+    @Test
+    public void testNestedColumnIsPatchedAndMissingColumnsAreAdded() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("o", "b"), 3);
+        patcher.set(new ColumnIdent("o", Arrays.asList("c", "d")), "foo");
+        patcher.set(new ColumnIdent("z"), Collections.singletonList(4));
+        BytesReference source = new BytesArray("{\"x\": 1, \"o\": {\"a\": {\"b\": 1}, \"b\": 2}}");
+
+        assertThat(
+            patcher.apply(source).utf8ToString(),
+            is("{\"x\": 1,\"o\": {\"a\": {\"b\": 1},\"b\":3,\"c\":{\"d\":\"foo\"}},\"z\":[4]}"));
+    }
+
+    @Test
+    public void testObjectValueIsReplaced() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("o"), Collections.singletonMap("a", null));
+        BytesReference source = new BytesArray("{\"o\": {\"a\": 1, \"b\": 2}}");
+
+        assertThat(patcher.apply(source).utf8ToString(), is("{\"o\":{\"a\":null}}"));
+    }
+
+    @Test
+    public void testSourceCannotBePatchedIfParentIsNoObject() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("o", "a"), 1);
+
+        assertThat(patcher.apply(new BytesArray("{\"o\": null}")), nullValue());
+        assertThat(patcher.apply(new BytesArray("{\"o\": [1, 2]}")), nullValue());
+    }
+
+    @Test
+    public void testSourceCannotBePatchedIfParentAndChildAreSet() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("o"), Collections.singletonMap("a", 1));
+        patcher.set(new ColumnIdent("o", "b"), 2);
+
+        assertThat(patcher.apply(new BytesArray("{\"o\": {}}")), nullValue());
+    }
+
+    @Test
+    public void testSourceCannotBePatchedIfItIsNotJson() throws Exception {
+        SourcePatcher patcher = new SourcePatcher();
+        patcher.set(new ColumnIdent("x"), 2);
+        BytesReference source = BytesReference.bytes(
+            XContentFactory.contentBuilder(XContentType.SMILE).startObject().field("x", 1).endObject());
+
+        assertThat(patcher.apply(source), nullValue());
+    }
+}
@@ -34,8 +34,11 @@ import io.crate.metadata.doc.DocTableInfo;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -173,4 +176,35 @@ public class UpdateSourceGenTest extends CrateDummyClusterServiceUnitTest {
 
         assertThat(source.utf8ToString(), is("{\"gen\":\"dummySchema\",\"x\":1}"));
     }
+
+    @Test
+    public void testChangedColumnsAreWrittenIntoExistingSource() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (x int, obj object as (y as x + 1), z string)")
+            .build();
+        AnalyzedUpdateStatement update = e.analyze("update t set x = x + 3");
+        Assignments assignments = Assignments.convert(update.assignmentByTargetCol());
+        DocTableInfo table = (DocTableInfo) update.table().tableInfo();
+        UpdateSourceGen updateSourceGen = new UpdateSourceGen(
+            e.functions(),
+            txnCtx,
+            table,
+            assignments.targetNames()
+        );
+
+        BytesReference source = new BytesArray("{\"z\": \"foo\", \"obj\": {\"y\": 2}, \"x\": 1}");
+        BytesReference updatedSource = updateSourceGen.generateSource(
+            new Doc(
+                table.concreteIndices()[0],
+                "1",
+                1,
+                XContentHelper.convertToMap(source, false, XContentType.JSON).v2(),
+                source::utf8ToString,
+                source
+            ),
+            assignments.sources(),
+            new Object[0]
+        );
+        assertThat(updatedSource.utf8ToString(), is("{\"z\": \"foo\",\"obj\": {\"y\":5},\"x\":4}"));
+    }
 }
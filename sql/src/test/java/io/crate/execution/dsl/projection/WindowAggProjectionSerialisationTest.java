@@ -47,6 +47,7 @@ import java.util.Map;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 public class WindowAggProjectionSerialisationTest {
@@ -71,6 +72,7 @@ public class WindowAggProjectionSerialisationTest {
             new WindowAggProjection(partitionByOneWindowDef,
                 functionsWithInputs,
                 Collections.singletonList(Literal.of(42L)),
+                new int[] {1},
                 new int[0]);
         BytesStreamOutput output = new BytesStreamOutput();
         windowAggProjection.writeTo(output);
@@ -81,6 +83,9 @@ public class WindowAggProjectionSerialisationTest {
         Map<WindowFunction, List<Symbol>> deserialisedFunctionsByWindow = fromInput.functionsWithInputs();
 
         assertThat(deserialisedFunctionsByWindow, equalTo(functionsWithInputs));
+        assertThat(fromInput.partitionByIndexes(), is(new int[] {1}));
+        assertThat(fromInput.orderByIndexes(), is(new int[0]));
+        assertThat(fromInput.outputs(), equalTo(windowAggProjection.outputs()));
     }
 
     private FunctionImplementation getSumFunction() {
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collector;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class GroupByFixedWidthKeysCollectorTest extends CrateUnitTest {
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private GroupByFixedWidthKeysCollector groupByCount(List<DataType> keyTypes) {
+        AggregationFunction count = (AggregationFunction) getFunctions().getQualified(
+            new FunctionIdent(CountAggregation.NAME, Collections.emptyList()));
+        List<Input<?>> keyInputs = new ArrayList<>(keyTypes.size());
+        CollectExpression<Row, ?>[] expressions = new CollectExpression[keyTypes.size()];
+        for (int i = 0; i < keyTypes.size(); i++) {
+            InputCollectExpression keyInput = new InputCollectExpression(i);
+            keyInputs.add(keyInput);
+            expressions[i] = keyInput;
+        }
+        return new GroupByFixedWidthKeysCollector(
+            keyTypes,
+            expressions,
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { count },
+            new Input[][] { new Input[0] },
+            ramAccountingContext,
+            keyInputs,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
+    private static List<Object[]> collect(Collector<Row, ?, Iterable<Row>> collector, List<Row> rows) throws Exception {
+        Iterable<Row> result = BatchIterators.collect(InMemoryBatchIterator.of(rows, SENTINEL), collector).get();
+        List<Object[]> materialized = new ArrayList<>();
+        for (Row row : result) {
+            materialized.add(row.materialize());
+        }
+        return materialized;
+    }
+
+    private static Matcher<Object[]> cells(Object... cells) {
+        return arrayContaining(cells);
+    }
+
+    @Test
+    public void testGroupByTwoLongKeysIncludingNulls() throws Exception {
+        List<Row> rows = Arrays.asList(
+            new RowN(new Object[] { 1L, 2L }),
+            new RowN(new Object[] { 1L, 2L }),
+            new RowN(new Object[] { 2L, 1L }),
+            new RowN(new Object[] { null, 0L }),
+            new RowN(new Object[] { 0L, null }),
+            new RowN(new Object[] { 0L, null }),
+            new RowN(new Object[] { 0L, 0L })
+        );
+        List<Object[]> result = collect(groupByCount(Arrays.asList(DataTypes.LONG, DataTypes.LONG)), rows);
+        assertThat(result, containsInAnyOrder(
+            cells(1L, 2L, 2L),
+            cells(2L, 1L, 1L),
+            cells(null, 0L, 1L),
+            cells(0L, null, 2L),
+            cells(0L, 0L, 1L)
+        ));
+    }
+
+    @Test
+    public void testGroupByMixedFixedWidthKeysDecodesKeyTypes() throws Exception {
+        List<Row> rows = Arrays.asList(
+            new RowN(new Object[] { 1.5d, true, (short) 3, 1.0f }),
+            new RowN(new Object[] { 1.5d, true, (short) 3, 1.0f }),
+            new RowN(new Object[] { -0.5d, false, (short) -3, -1.0f })
+        );
+        List<DataType> keyTypes = Arrays.asList(DataTypes.DOUBLE, DataTypes.BOOLEAN, DataTypes.SHORT, DataTypes.FLOAT);
+        List<Object[]> result = collect(groupByCount(keyTypes), rows);
+        assertThat(result, containsInAnyOrder(
+            cells(1.5d, true, (short) 3, 1.0f, 2L),
+            cells(-0.5d, false, (short) -3, -1.0f, 1L)
+        ));
+    }
+
+    @Test
+    public void testTableGrowsAndAccountsMemoryPerSlab() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            rows.add(new RowN(new Object[] { i % 1000, (long) i % 1000 }));
+        }
+        List<Object[]> result = collect(groupByCount(Arrays.asList(DataTypes.INTEGER, DataTypes.LONG)), rows);
+        assertThat(result.size(), is(1000));
+        for (Object[] cells : result) {
+            assertThat(((Integer) cells[0]).longValue(), is(cells[1]));
+            assertThat(cells[2], is(10L));
+        }
+        assertThat(ramAccountingContext.totalBytes(), greaterThan(0L));
+    }
+
+    @Test
+    public void testOnlyFixedWidthKeyTypesAreSupported() {
+        assertThat(GroupByFixedWidthKeysCollector.supportsKeyTypes(
+            Arrays.asList(DataTypes.LONG, DataTypes.TIMESTAMP, DataTypes.DOUBLE)), is(true));
+        assertThat(GroupByFixedWidthKeysCollector.supportsKeyTypes(
+            Arrays.asList(DataTypes.LONG, DataTypes.STRING)), is(false));
+        assertThat(GroupByFixedWidthKeysCollector.supportsKeyTypes(Collections.emptyList()), is(false));
+    }
+}
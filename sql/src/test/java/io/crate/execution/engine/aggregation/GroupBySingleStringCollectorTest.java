@@ -0,0 +1,123 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collector;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class GroupBySingleStringCollectorTest extends CrateUnitTest {
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private GroupBySingleStringCollector groupByCount() {
+        AggregationFunction count = (AggregationFunction) getFunctions().getQualified(
+            new FunctionIdent(CountAggregation.NAME, Collections.emptyList()));
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        return new GroupBySingleStringCollector(
+            new CollectExpression[] { keyInput },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { count },
+            new Input[][] { new Input[0] },
+            ramAccountingContext,
+            keyInput,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE
+        );
+    }
+
+    private static List<Object[]> collect(Collector<Row, ?, Iterable<Row>> collector, List<Row> rows) throws Exception {
+        Iterable<Row> result = BatchIterators.collect(InMemoryBatchIterator.of(rows, SENTINEL), collector).get();
+        List<Object[]> materialized = new ArrayList<>();
+        for (Row row : result) {
+            materialized.add(row.materialize());
+        }
+        return materialized;
+    }
+
+    private static Matcher<Object[]> cells(Object... cells) {
+        return arrayContaining(cells);
+    }
+
+    @Test
+    public void testGroupByStringKeyIncludingNullAndMultiByteCharacters() throws Exception {
+        List<Row> rows = Arrays.asList(
+            new RowN(new Object[] { "foo" }),
+            new RowN(new Object[] { "bär" }),
+            new RowN(new Object[] { null }),
+            new RowN(new Object[] { "foo" }),
+            new RowN(new Object[] { "" }),
+            new RowN(new Object[] { null })
+        );
+        assertThat(collect(groupByCount(), rows), containsInAnyOrder(
+            cells("foo", 2L),
+            cells("bär", 1L),
+            cells("", 1L),
+            cells(null, 2L)
+        ));
+    }
+
+    @Test
+    public void testManyGroupsAreAccounted() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new RowN(new Object[] { "key-" + (i % 2500) }));
+        }
+        List<Object[]> result = collect(groupByCount(), rows);
+        assertThat(result.size(), is(2500));
+        for (Object[] cells : result) {
+            assertThat(cells[1], is(2L));
+        }
+        assertThat(ramAccountingContext.totalBytes(), greaterThan((long) BigArrays.BYTE_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterators;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
+
+public class SpillingGroupingCollectorTest extends CrateUnitTest {
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private static AggregationFunction[] countAndSum() {
+        return new AggregationFunction[] {
+            (AggregationFunction) getFunctions().getQualified(
+                new FunctionIdent(CountAggregation.NAME, Collections.emptyList())),
+            (AggregationFunction) getFunctions().getQualified(
+                new FunctionIdent(SumAggregation.NAME, Collections.singletonList(DataTypes.LONG)))
+        };
+    }
+
+    /**
+     * select key, count(*), sum(value) ... group by key
+     * rows in ITER modes: [key, value]
+     * rows in PARTIAL_FINAL mode: [key, countState, sumState]
+     */
+    private SpillingGroupingCollector groupByCountAndSum(DataType keyType, AggregateMode mode, long spillThreshold) {
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        InputCollectExpression firstInput = new InputCollectExpression(1);
+        Input[][] inputs;
+        CollectExpression<Row, ?>[] expressions;
+        if (mode == AggregateMode.PARTIAL_FINAL) {
+            InputCollectExpression secondInput = new InputCollectExpression(2);
+            inputs = new Input[][] { new Input[] { firstInput }, new Input[] { secondInput } };
+            expressions = new CollectExpression[] { keyInput, firstInput, secondInput };
+        } else {
+            inputs = new Input[][] { new Input[0], new Input[] { firstInput } };
+            expressions = new CollectExpression[] { keyInput, firstInput };
+        }
+        return SpillingGroupingCollector.create(
+            Collections.singletonList(keyType),
+            Collections.singletonList(keyInput),
+            expressions,
+            mode,
+            countAndSum(),
+            inputs,
+            ramAccountingContext,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE,
+            spillThreshold
+        );
+    }
+
+    private static List<Row> rows(int numRows, int numKeys) {
+        List<Row> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new RowN(new Object[] { (long) (i % numKeys), (long) i }));
+        }
+        return rows;
+    }
+
+    private static List<Object[]> collect(SpillingGroupingCollector collector, List<Row> rows) throws Exception {
+        SpillingGroupingCollector.State state = collector.supplier().get();
+        try {
+            Iterable<Row> result = BatchIterators.collect(
+                InMemoryBatchIterator.of(rows, SENTINEL), state, collector, new CompletableFuture<>()).get();
+            List<Object[]> materialized = new ArrayList<>();
+            for (Row row : result) {
+                materialized.add(row.materialize());
+            }
+            return materialized;
+        } finally {
+            state.close();
+        }
+    }
+
+    private static void assertCountAndSumPerKey(List<Object[]> result, int numRows, int numKeys) {
+        Map<Object, Object[]> resultByKey = new HashMap<>();
+        for (Object[] cells : result) {
+            assertThat("key must be unique: " + cells[0], resultByKey.put(cells[0], cells), is((Object[]) null));
+        }
+        assertThat(resultByKey.size(), is(numKeys));
+        for (long key = 0; key < numKeys; key++) {
+            long expectedCount = 0;
+            long expectedSum = 0;
+            for (long value = key; value < numRows; value += numKeys) {
+                expectedCount++;
+                expectedSum += value;
+            }
+            Object[] cells = resultByKey.get(key);
+            assertThat(cells[1], is(expectedCount));
+            assertThat(cells[2], is(expectedSum));
+        }
+    }
+
+    private static long numSpillFiles() throws IOException {
+        Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        long numFiles = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tmpDir, "crate-spill-*")) {
+            for (Path ignored : files) {
+                numFiles++;
+            }
+        }
+        return numFiles;
+    }
+
+    @Test
+    public void testGroupsAreFinishedInMemoryIfThresholdIsNotReached() throws Exception {
+        long numSpillFiles = numSpillFiles();
+        List<Object[]> result = collect(
+            groupByCountAndSum(DataTypes.LONG, AggregateMode.ITER_FINAL, Long.MAX_VALUE), rows(1000, 10));
+        assertCountAndSumPerKey(result, 1000, 10);
+        assertThat(numSpillFiles(), is(numSpillFiles));
+    }
+
+    @Test
+    public void testSpilledGroupsAreMergedPerPartitionInIterFinalMode() throws Exception {
+        List<Object[]> result = collect(
+            groupByCountAndSum(DataTypes.LONG, AggregateMode.ITER_FINAL, 1024), rows(20_000, 3000));
+        assertCountAndSumPerKey(result, 20_000, 3000);
+    }
+
+    @Test
+    public void testSpilledGroupsWithStringKeysAreMergedInIterFinalMode() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        for (Row row : rows(5000, 500)) {
+            rows.add(new RowN(new Object[] { "key-" + row.get(0), row.get(1) }));
+        }
+        rows.add(new RowN(new Object[] { null, 1L }));
+        List<Object[]> result = collect(groupByCountAndSum(DataTypes.STRING, AggregateMode.ITER_FINAL, 1024), rows);
+        assertThat(result.size(), is(501));
+        for (Object[] cells : result) {
+            assertThat(cells[1], is(cells[0] == null ? 1L : 10L));
+        }
+    }
+
+    @Test
+    public void testSpilledPartialStatesAreMergedInPartialFinalMode() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        for (Row row : rows(20_000, 3000)) {
+            rows.add(new RowN(new Object[] { row.get(0), new CountAggregation.LongState(1L), row.get(1) }));
+        }
+        List<Object[]> result = collect(groupByCountAndSum(DataTypes.LONG, AggregateMode.PARTIAL_FINAL, 1024), rows);
+        assertCountAndSumPerKey(result, 20_000, 3000);
+    }
+
+    @Test
+    public void testSpilledPartialStatesAreEmittedInIterPartialMode() throws Exception {
+        List<Object[]> result = collect(
+            groupByCountAndSum(DataTypes.LONG, AggregateMode.ITER_PARTIAL, 1024), rows(20_000, 3000));
+        assertThat(result.size() > 3000, is(true));
+
+        // the partial states of a key can be emitted multiple times and are reduced by the next phase
+        Map<Object, long[]> countAndSumByKey = new HashMap<>();
+        for (Object[] cells : result) {
+            long[] countAndSum = countAndSumByKey.computeIfAbsent(cells[0], k -> new long[2]);
+            countAndSum[0] += Long.parseLong(cells[1].toString());
+            countAndSum[1] += (Long) cells[2];
+        }
+        List<Object[]> reduced = new ArrayList<>();
+        for (Map.Entry<Object, long[]> entry : countAndSumByKey.entrySet()) {
+            reduced.add(new Object[] { entry.getKey(), entry.getValue()[0], entry.getValue()[1] });
+        }
+        assertCountAndSumPerKey(reduced, 20_000, 3000);
+    }
+
+    @Test
+    public void testSpillFilesAreDeletedOnClose() throws Exception {
+        long numSpillFiles = numSpillFiles();
+        SpillingGroupingCollector collector = groupByCountAndSum(DataTypes.LONG, AggregateMode.ITER_FINAL, 1024);
+        SpillingGroupingCollector.State state = collector.supplier().get();
+        for (Row row : rows(5000, 1000)) {
+            collector.accumulator().accept(state, row);
+        }
+        assertThat(numSpillFiles() > numSpillFiles, is(true));
+
+        Iterable<Row> result = collector.finisher().apply(state);
+        // consume only a part of the result, like a consumer with a limit
+        result.iterator().next();
+        state.close();
+        assertThat(numSpillFiles(), is(numSpillFiles));
+    }
+
+    @Test
+    public void testSpillReleasesOnlyTheBytesUsedByTheGroups() throws Exception {
+        SpillingGroupingCollector collector = groupByCountAndSum(DataTypes.LONG, AggregateMode.ITER_PARTIAL, 1024);
+        SpillingGroupingCollector.State state = collector.supplier().get();
+        List<Row> rows = rows(5000, 1000);
+        // bytes accounted on the shared context by another operation while the groups are built
+        long otherBytes = 10_000L;
+        Thread otherOperation = new Thread(() -> {
+            for (int i = 0; i < otherBytes; i++) {
+                ramAccountingContext.addBytes(1L);
+            }
+        });
+        otherOperation.start();
+        for (Row row : rows) {
+            collector.accumulator().accept(state, row);
+        }
+        otherOperation.join();
+        state.close();
+        assertThat(ramAccountingContext.totalBytes() >= otherBytes, is(true));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.BatchIterators;
+import io.crate.data.Column;
+import io.crate.data.ColumnInput;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.AverageAggregation;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.execution.engine.aggregation.impl.MaximumAggregation;
+import io.crate.execution.engine.aggregation.impl.MinimumAggregation;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.InputRow;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collector;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
+
+public class VectorizedAggregateCollectorTest extends CrateUnitTest {
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private static AggregationFunction aggregation(String name, DataType... argumentTypes) {
+        return (AggregationFunction) getFunctions().getQualified(new FunctionIdent(name, Arrays.asList(argumentTypes)));
+    }
+
+    /**
+     * Aggregates column 0 (long) and column 1 (double) of the rows with all vectorized aggregations
+     * using either the {@link VectorizedAggregateCollector} or the {@link AggregateCollector}.
+     */
+    private Object[] aggregate(boolean vectorized, AggregateMode mode, List<Row> rows) throws Exception {
+        return BatchIterators.collect(InMemoryBatchIterator.of(rows, SENTINEL), collector(vectorized, mode))
+            .get().iterator().next().materialize();
+    }
+
+    private Collector<Row, ?, Iterable<Row>> collector(boolean vectorized, AggregateMode mode) {
+        InputCollectExpression longInput = new InputCollectExpression(0);
+        InputCollectExpression doubleInput = new InputCollectExpression(1);
+        List<CollectExpression<Row, ?>> expressions = Arrays.asList(longInput, doubleInput);
+        AggregationFunction[] aggregations = new AggregationFunction[] {
+            aggregation(CountAggregation.NAME),
+            aggregation(CountAggregation.NAME, DataTypes.LONG),
+            aggregation(SumAggregation.NAME, DataTypes.LONG),
+            aggregation(SumAggregation.NAME, DataTypes.DOUBLE),
+            aggregation(MinimumAggregation.NAME, DataTypes.LONG),
+            aggregation(MaximumAggregation.NAME, DataTypes.DOUBLE),
+            aggregation(AverageAggregation.NAME, DataTypes.LONG),
+            aggregation(AverageAggregation.NAME, DataTypes.DOUBLE),
+        };
+        Input[][] inputs = new Input[][] {
+            new Input[0],
+            new Input[] { longInput },
+            new Input[] { longInput },
+            new Input[] { doubleInput },
+            new Input[] { longInput },
+            new Input[] { doubleInput },
+            new Input[] { longInput },
+            new Input[] { doubleInput },
+        };
+        Collector<Row, ?, Iterable<Row>> collector;
+        if (vectorized) {
+            assertThat(VectorizedAggregateCollector.supports(mode, aggregations), is(true));
+            collector = new VectorizedAggregateCollector(
+                expressions, ramAccountingContext, mode, aggregations, Version.CURRENT,
+                BigArrays.NON_RECYCLING_INSTANCE, inputs);
+        } else {
+            collector = new AggregateCollector(
+                expressions, ramAccountingContext, mode, aggregations, Version.CURRENT,
+                BigArrays.NON_RECYCLING_INSTANCE, inputs);
+        }
+        return collector;
+    }
+
+    private static <S> Object[] aggregateSharedRow(Collector<Row, S, Iterable<Row>> collector,
+                                                   PrimitiveInput longInput,
+                                                   PrimitiveInput doubleInput,
+                                                   int numRows) {
+        Row row = new InputRow(Arrays.asList(longInput, doubleInput));
+        S state = collector.supplier().get();
+        for (int i = 0; i < numRows; i++) {
+            longInput.value = i - 500;
+            longInput.isNull = i % 7 == 0;
+            doubleInput.value = (i - 700) / 3.0d;
+            doubleInput.isNull = i % 5 == 0;
+            collector.accumulator().accept(state, row);
+        }
+        return collector.finisher().apply(state).iterator().next().materialize();
+    }
+
+    /**
+     * Input which fails if its value is boxed
+     */
+    private static class PrimitiveInput implements ColumnInput<Object> {
+
+        private final boolean isLong;
+        private double value;
+        private boolean isNull;
+
+        PrimitiveInput(boolean isLong) {
+            this.isLong = isLong;
+        }
+
+        @Override
+        public Object value() {
+            throw new AssertionError("value must be written into the column without boxing it");
+        }
+
+        @Override
+        public void writeTo(Column column, int position) {
+            if (isNull) {
+                column.setNull(position);
+            } else if (isLong) {
+                column.setLong(position, (long) value);
+            } else {
+                column.setDouble(position, value);
+            }
+        }
+    }
+
+    @Test
+    public void testVectorizedAggregationsReturnSameResultAsRowBasedAggregations() throws Exception {
+        List<Row> rows = new ArrayList<>();
+        // more than one batch, with nulls
+        for (int i = 0; i < VectorizedAggregateCollector.BATCH_SIZE * 2 + 10; i++) {
+            Long longValue = i % 7 == 0 ? null : (long) (i - 500);
+            Double doubleValue = i % 5 == 0 ? null : (i - 700) / 3.0d;
+            rows.add(new RowN(new Object[] { longValue, doubleValue }));
+        }
+        Object[] expected = aggregate(false, AggregateMode.ITER_FINAL, rows);
+        Object[] actual = aggregate(true, AggregateMode.ITER_FINAL, rows);
+        assertThat(actual, is(expected));
+        assertThat(actual[0], is((long) rows.size()));
+    }
+
+    @Test
+    public void testValuesOfColumnInputsAreWrittenIntoTheColumnsWithoutBoxing() throws Exception {
+        int numRows = VectorizedAggregateCollector.BATCH_SIZE + 10;
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < numRows; i++) {
+            Long longValue = i % 7 == 0 ? null : (long) (i - 500);
+            Double doubleValue = i % 5 == 0 ? null : (i - 700) / 3.0d;
+            rows.add(new RowN(new Object[] { longValue, doubleValue }));
+        }
+        Object[] expected = aggregate(false, AggregateMode.ITER_FINAL, rows);
+        Object[] actual = aggregateSharedRow(
+            collector(true, AggregateMode.ITER_FINAL), new PrimitiveInput(true), new PrimitiveInput(false), numRows);
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void testVectorizedAggregationsProduceMergeablePartialStates() throws Exception {
+        List<Row> rows = Arrays.asList(
+            new RowN(new Object[] { 1L, 1.5d }),
+            new RowN(new Object[] { null, null }),
+            new RowN(new Object[] { 3L, -1.5d })
+        );
+        Object[] expected = aggregate(false, AggregateMode.ITER_PARTIAL, rows);
+        Object[] actual = aggregate(true, AggregateMode.ITER_PARTIAL, rows);
+        assertThat(actual.length, is(expected.length));
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(expected[i].getClass(), actual[i].getClass());
+            assertThat(actual[i].toString(), is(expected[i].toString()));
+        }
+    }
+
+    @Test
+    public void testEmptyInputReturnsSameResultAsRowBasedAggregations() throws Exception {
+        Object[] expected = aggregate(false, AggregateMode.ITER_FINAL, Collections.emptyList());
+        Object[] actual = aggregate(true, AggregateMode.ITER_FINAL, Collections.emptyList());
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void testOnlyNumericArgumentsAndVectorizedFunctionsAreSupported() {
+        assertThat(VectorizedAggregateCollector.supports(
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { aggregation(SumAggregation.NAME, DataTypes.INTEGER) }), is(true));
+        assertThat(VectorizedAggregateCollector.supports(
+            AggregateMode.PARTIAL_FINAL,
+            new AggregationFunction[] { aggregation(SumAggregation.NAME, DataTypes.INTEGER) }), is(false));
+        assertThat(VectorizedAggregateCollector.supports(
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { aggregation(MaximumAggregation.NAME, DataTypes.STRING) }), is(false));
+        assertThat(VectorizedAggregateCollector.supports(
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { aggregation("arbitrary", DataTypes.LONG) }), is(false));
+    }
+}
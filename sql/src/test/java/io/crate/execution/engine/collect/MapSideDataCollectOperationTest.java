@@ -60,7 +60,7 @@ public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUni
     @Test
     public void testFileUriCollect() throws Exception {
         Functions functions = getFunctions();
-        FileCollectSource fileCollectSource = new FileCollectSource(functions, clusterService, Collections.emptyMap());
+        FileCollectSource fileCollectSource = new FileCollectSource(functions, clusterService, Collections.emptyMap(), THREAD_POOL);
 
         File tmpFile = temporaryFolder.newFile("fileUriCollectOperation.json");
         try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
@@ -81,7 +81,8 @@ public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUni
             Collections.emptyList(),
             null,
             false,
-            FileUriCollectPhase.InputFormat.JSON
+            FileUriCollectPhase.InputFormat.JSON,
+            1
         );
         TestingRowConsumer consumer = new TestingRowConsumer();
         CollectTask collectTask = mock(CollectTask.class);
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.expression.reference.Doc;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.VersionFieldMapper;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PKLookupOperationTest {
+
+    private static Document doc(String id, long version, int x) {
+        Document doc = new Document();
+        doc.add(new Field(IdFieldMapper.NAME, Uid.encodeId(id), IdFieldMapper.Defaults.FIELD_TYPE));
+        doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, version));
+        doc.add(new StoredField(SourceFieldMapper.NAME, new BytesRef("{\"x\":" + x + "}")));
+        return doc;
+    }
+
+    private static Term uidTerm(String id) {
+        return new Term(IdFieldMapper.NAME, Uid.encodeId(id));
+    }
+
+    @Test
+    public void testLookupDocsAcrossSegmentsReturnsDocsInOrderOfIds() throws Exception {
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (int i = 0; i < 20; i++) {
+            iw.addDocument(doc(Integer.toString(i), 1, i));
+            if (i % 5 == 0) {
+                iw.commit();
+            }
+        }
+        // update doc 3 in a later segment
+        iw.updateDocument(uidTerm("3"), doc("3", 2, 30));
+        iw.commit();
+
+        String[] ids = new String[] { "17", "3", "missing", "0", "11" };
+        Term[] uidTerms = new Term[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            uidTerms[i] = uidTerm(ids[i]);
+        }
+        Doc[] docs;
+        try (DirectoryReader reader = DirectoryReader.open(iw)) {
+            assertThat(reader.leaves().size() > 1, is(true));
+            docs = PKLookupOperation.lookupDocs("t", reader, uidTerms, ids);
+        }
+
+        assertThat(docs.length, is(5));
+        assertThat(docs[0].getId(), is("17"));
+        assertThat(docs[0].getSource().get("x"), is(17));
+        assertThat(docs[0].getVersion(), is(1L));
+
+        assertThat(docs[1].getId(), is("3"));
+        assertThat(docs[1].getSource().get("x"), is(30));
+        assertThat(docs[1].getVersion(), is(2L));
+
+        assertThat(docs[2], nullValue());
+
+        assertThat(docs[3].getId(), is("0"));
+        assertThat(docs[3].getSource().get("x"), is(0));
+        assertThat(docs[4].getRaw(), is("{\"x\":11}"));
+        assertThat(docs[4].getIndex(), is("t"));
+    }
+
+    @Test
+    public void testLookupDocsIgnoresDeletedDocs() throws Exception {
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        iw.addDocument(doc("1", 1, 1));
+        iw.addDocument(doc("2", 1, 2));
+        iw.commit();
+        iw.deleteDocuments(uidTerm("1"));
+        iw.commit();
+
+        Doc[] docs;
+        try (DirectoryReader reader = DirectoryReader.open(iw)) {
+            docs = PKLookupOperation.lookupDocs(
+                "t", reader, new Term[] { uidTerm("2"), uidTerm("1") }, new String[] { "2", "1" });
+        }
+        assertThat(docs[0].getId(), is("2"));
+        assertThat(docs[1], nullValue());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.WhereClause;
+import io.crate.data.BatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.data.SentinelRow;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.Routing;
+import io.crate.metadata.RowGranularity;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardResultCacheTest extends CrateUnitTest {
+
+    private static final FunctionInfo COUNT_INFO = new FunctionInfo(
+        new FunctionIdent("count", ImmutableList.of()), DataTypes.LONG, FunctionInfo.Type.AGGREGATE);
+
+    private IndexWriter writer;
+    private DirectoryReader reader;
+
+    @Before
+    public void createIndex() throws Exception {
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        writer.addDocument(new Document());
+        writer.commit();
+        reader = DirectoryReader.open(writer);
+    }
+
+    @After
+    public void closeIndex() throws Exception {
+        // closing is idempotent, some tests close the index themselves
+        reader.close();
+        writer.close();
+    }
+
+    private static RoutedCollectPhase countPhase(Symbol where, AggregateMode mode) {
+        Projection projection = new AggregationProjection(
+            Collections.singletonList(new Aggregation(COUNT_INFO, DataTypes.LONG, Collections.emptyList())),
+            RowGranularity.SHARD,
+            mode);
+        return new RoutedCollectPhase(
+            UUID.randomUUID(),
+            0,
+            "collect",
+            new Routing(Collections.emptyMap()),
+            RowGranularity.DOC,
+            Collections.singletonList(Literal.of(1L)),
+            Collections.singletonList(projection),
+            where,
+            DistributionInfo.DEFAULT_BROADCAST
+        );
+    }
+
+    private static List<Object> consume(BatchIterator<Row> iterator) throws Exception {
+        List<Object> values = new ArrayList<>();
+        while (iterator.moveNext()) {
+            values.add(iterator.currentElement().get(0));
+        }
+        iterator.close();
+        return values;
+    }
+
+    private static BatchIterator<Row> rows(Long... values) {
+        List<Row> rows = new ArrayList<>(values.length);
+        for (Long value : values) {
+            rows.add(new RowN(new Object[] { value }));
+        }
+        return InMemoryBatchIterator.of(rows, SentinelRow.SENTINEL);
+    }
+
+    @Test
+    public void testOnlyDeterministicPartialAggregationsCanBeCached() {
+        assertThat(ShardResultCache.canCache(countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_PARTIAL)), is(true));
+        assertThat(ShardResultCache.canCache(countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_FINAL)), is(false));
+
+        Function random = new Function(
+            new FunctionInfo(new FunctionIdent("random", ImmutableList.of()), DataTypes.DOUBLE, FunctionInfo.Type.SCALAR, Collections.emptySet()),
+            Collections.emptyList());
+        Function lessThanRandom = new Function(
+            new FunctionInfo(new FunctionIdent("op_<", Arrays.asList(DataTypes.DOUBLE, DataTypes.DOUBLE)), DataTypes.BOOLEAN),
+            Arrays.asList(Literal.of(0.5), random));
+        assertThat(ShardResultCache.canCache(countPhase(lessThanRandom, AggregateMode.ITER_PARTIAL)), is(false));
+    }
+
+    @Test
+    public void testResultIsCachedOnceAllIteratorsAreExhausted() throws Exception {
+        ShardResultCache cache = new ShardResultCache(1024);
+        RoutedCollectPhase phase = countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_PARTIAL);
+        ShardResultCache.Key key = cache.key(phase, reader);
+        assertThat(cache.get(key), nullValue());
+
+        List<BatchIterator<Row>> iterators = cache.recordResult(key, Arrays.asList(rows(1L, 2L), rows(3L)));
+        assertThat(consume(iterators.get(0)), contains(1L, 2L));
+        assertThat(cache.size(), is(0L));
+        assertThat(consume(iterators.get(1)), contains(3L));
+        assertThat(cache.size(), is(1L));
+
+        // jobId and phaseId are not part of the key
+        ShardResultCache.Key otherKey = cache.key(
+            countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_PARTIAL), reader);
+        assertThat(consume(cache.get(otherKey)), contains(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testResultIsRemovedOnceReaderIsClosed() throws Exception {
+        ShardResultCache cache = new ShardResultCache(1024);
+        RoutedCollectPhase phase = countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_PARTIAL);
+        ShardResultCache.Key key = cache.key(phase, reader);
+        consume(cache.recordResult(key, Collections.singletonList(rows(1L))).get(0));
+        assertThat(cache.size(), is(1L));
+
+        writer.addDocument(new Document());
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer);
+        assertNotNull(newReader);
+        reader.close();
+        reader = newReader;
+
+        assertThat(cache.size(), is(0L));
+        assertThat(cache.get(cache.key(phase, reader)), nullValue());
+    }
+
+    @Test
+    public void testResultLargerThanCacheIsNotCached() throws Exception {
+        ShardResultCache cache = new ShardResultCache(16);
+        RoutedCollectPhase phase = countPhase(WhereClause.MATCH_ALL.queryOrFallback(), AggregateMode.ITER_PARTIAL);
+        ShardResultCache.Key key = cache.key(phase, reader);
+        assertThat(consume(cache.recordResult(key, Collections.singletonList(rows(1L, 2L, 3L))).get(0)), contains(1L, 2L, 3L));
+        assertThat(cache.size(), is(0L));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.collectors;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.expression.reference.doc.lucene.CollectorContext;
+import io.crate.expression.reference.doc.lucene.LongColumnReference;
+import io.crate.test.integration.CrateUnitTest;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class LuceneLeafSlicesTest extends CrateUnitTest {
+
+    private IndexSearcher indexSearcher;
+    private List<Long> expectedValues;
+
+    @Before
+    public void prepareSearcher() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(new RAMDirectory(), config);
+        expectedValues = new ArrayList<>();
+        long value = 0;
+        // segments with 40, 30, 20, 10, 10, 10 docs
+        for (int numDocs : new int[] { 40, 30, 20, 10, 10, 10 }) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new NumericDocValuesField("x", value));
+                iw.addDocument(doc);
+                expectedValues.add(value);
+                value++;
+            }
+            iw.commit();
+        }
+        indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+    }
+
+    @Test
+    public void testSegmentsAreDistributedEvenlyAcrossSlices() {
+        List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        assertThat(leaves.size(), is(6));
+
+        List<List<LeafReaderContext>> slices = LuceneLeafSlices.slice(leaves, 3, 1);
+        assertThat(slices.size(), is(3));
+        List<LeafReaderContext> allLeaves = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            assertThat(numDocs(slice), is(40));
+            allLeaves.addAll(slice);
+        }
+        assertThat(allLeaves, containsInAnyOrder(leaves.toArray()));
+    }
+
+    @Test
+    public void testShardIsNotSplitIfSlicesWouldBeTooSmall() {
+        List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        assertThat(LuceneLeafSlices.slice(leaves, 3, 100), is(Collections.singletonList(leaves)));
+        assertThat(LuceneLeafSlices.slice(leaves, 1, 1), is(Collections.singletonList(leaves)));
+    }
+
+    @Test
+    public void testLuceneBatchIteratorsOfAllSlicesReturnAllDocuments() throws Exception {
+        List<Long> values = new ArrayList<>();
+        for (List<LeafReaderContext> slice : LuceneLeafSlices.slice(indexSearcher.getTopReaderContext().leaves(), 4, 1)) {
+            List<LongColumnReference> columnRefs = Collections.singletonList(new LongColumnReference("x"));
+            LuceneBatchIterator iterator = new LuceneBatchIterator(
+                indexSearcher,
+                slice,
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(
+                    mappedFieldType -> null,
+                    new CollectorFieldsVisitor(0)
+                ),
+                new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy")),
+                columnRefs,
+                columnRefs
+            );
+            while (iterator.moveNext()) {
+                values.add((Long) iterator.currentElement().get(0));
+            }
+            iterator.close();
+        }
+        assertThat(values, containsInAnyOrder(expectedValues.toArray()));
+    }
+
+    private static int numDocs(List<LeafReaderContext> leaves) {
+        int numDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            numDocs += leaf.reader().maxDoc();
+        }
+        return numDocs;
+    }
+}
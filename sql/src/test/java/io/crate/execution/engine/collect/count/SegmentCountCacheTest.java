@@ -0,0 +1,147 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.count;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+
+public class SegmentCountCacheTest extends CrateUnitTest {
+
+    private IndexWriter writer;
+    private DirectoryReader reader;
+    private SegmentCountCache cache;
+
+    @Before
+    public void createIndexWithThreeSegments() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        writer = new IndexWriter(new RAMDirectory(), config);
+        for (int segment = 0; segment < 3; segment++) {
+            for (int i = 0; i < 10; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("x", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+                doc.add(new StringField("y", Integer.toString(i), Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        reader = DirectoryReader.open(writer);
+        assertThat(reader.leaves().size(), is(3));
+        cache = new SegmentCountCache(100);
+    }
+
+    @After
+    public void closeIndex() throws Exception {
+        // closing is idempotent, some tests close the index themselves
+        reader.close();
+        writer.close();
+    }
+
+    private long count(Query query) throws Exception {
+        return cache.count(new IndexSearcher(reader), query, reader.leaves());
+    }
+
+    private static Query evenOrFive() {
+        return new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("x", "even")), BooleanClause.Occur.SHOULD)
+            .add(new TermQuery(new Term("y", "5")), BooleanClause.Occur.SHOULD)
+            .build();
+    }
+
+    @Test
+    public void testCountsWhichCanBeReadFromSegmentStatisticsAreNotCached() throws Exception {
+        assertThat(count(new MatchAllDocsQuery()), is(30L));
+        assertThat(count(new TermQuery(new Term("x", "odd"))), is(15L));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testSegmentCountsAreCachedPerQuery() throws Exception {
+        assertThat(count(evenOrFive()), is(18L));
+        assertThat(cache.size(), is(3L));
+        assertThat(count(evenOrFive()), is(18L));
+        assertThat(cache.size(), is(3L));
+
+        Query evenOrSix = new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("x", "even")), BooleanClause.Occur.SHOULD)
+            .add(new TermQuery(new Term("y", "6")), BooleanClause.Occur.SHOULD)
+            .build();
+        assertThat(count(evenOrSix), is(15L));
+        assertThat(cache.size(), is(6L));
+    }
+
+    @Test
+    public void testOnlyChangedSegmentsAreCountedAfterRefresh() throws Exception {
+        assertThat(count(evenOrFive()), is(18L));
+
+        // a deletion changes all three segments
+        writer.deleteDocuments(new Term("y", "0"));
+        refresh();
+        assertThat(count(evenOrFive()), is(15L));
+        long cachedCounts = cache.size();
+
+        writer.addDocument(new Document());
+        writer.commit();
+        refresh();
+
+        // the existing segments are shared by the new reader, only the new segment is counted
+        assertThat(count(evenOrFive()), is(15L));
+        assertThat(cache.size(), is(cachedCounts + 1));
+    }
+
+    @Test
+    public void testCountsAreRemovedOnceSegmentsAreClosed() throws Exception {
+        assertThat(count(evenOrFive()), is(18L));
+        assertThat(cache.size(), is(3L));
+
+        reader.close();
+        writer.close();
+        assertThat(cache.size(), is(0L));
+    }
+
+    private void refresh() throws Exception {
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader, writer);
+        assertNotNull(newReader);
+        reader.close();
+        reader = newReader;
+    }
+}
@@ -48,6 +48,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.CSV;
@@ -161,7 +165,47 @@ public class FileReadingIteratorTest extends CrateUnitTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void testIteratorContract_givenMultipleReaders_thenReadsAllFiles() throws Exception {
+        Path jsonFile = createTempFile("tempfile", ".json");
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(jsonFile.toFile()), StandardCharsets.UTF_8)) {
+            writer.write("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}\n");
+            writer.write("\n");
+            writer.write("{\"id\": 5, \"name\": \"Trillian\", \"details\": {\"age\": 33}}\n");
+        }
+        Path csvFile = createTempFile("tempfile", ".csv");
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(csvFile.toFile()), StandardCharsets.UTF_8)) {
+            writer.write("name,id,age\n");
+            writer.write("Arthur,4,38\n");
+            writer.write("Trillian,5,33\n");
+        }
+        List<String> fileUris = Arrays.asList(jsonFile.toUri().toString(), csvFile.toUri().toString());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> createBatchIterator(fileUris, null, JSON, 2, executor);
+
+            List<Object[]> expectedResult = Arrays.asList(
+                new Object[]{JSON_AS_MAP_FIRST_LINE},
+                new Object[]{JSON_AS_MAP_SECOND_LINE},
+                new Object[]{CSV_AS_MAP_FIRST_LINE},
+                new Object[]{CSV_AS_MAP_SECOND_LINE});
+            BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+            tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
     private BatchIterator<Row> createBatchIterator(Collection<String> fileUris, String compression, FileUriCollectPhase.InputFormat format) {
+        return createBatchIterator(fileUris, compression, format, 1, null);
+    }
+
+    private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
+                                                   String compression,
+                                                   FileUriCollectPhase.InputFormat format,
+                                                   int readers,
+                                                   Executor executor) {
         Reference raw = createReference("_raw", DataTypes.STRING);
         InputFactory.Context<LineCollectorExpression<?>> ctx =
             inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
@@ -177,6 +221,8 @@ public class FileReadingIteratorTest extends CrateUnitTest {
             false,
             1,
             0,
-            format);
+            format,
+            readers,
+            executor);
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class ParallelLineReaderTest extends CrateUnitTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testEachLineIsReadExactlyOnceIfFileIsSplitIntoRanges() throws Exception {
+        Path file = createTempFile("lines", ".json");
+        List<String> expectedLines = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 2500; i++) {
+                String line = "{\"id\": " + i + ", \"text\": \"" + String.join("", Collections.nCopies(i % 13, "ä")) + "\"}";
+                expectedLines.add(line);
+                writer.write(line);
+                writer.write(i % 7 == 0 ? "\r\n" : "\n");
+                if (i % 11 == 0) {
+                    writer.write("\n");
+                }
+            }
+        }
+        URI uri = file.toUri();
+        long size = Files.size(file);
+        LocalFsFileInput fileInput = new LocalFsFileInput();
+        for (long splitSize : new long[] { 1, 17, 1000, size - 1, size }) {
+            List<ParallelLineReader.Source> sources = new ArrayList<>();
+            for (long start = 0; start < size; start += splitSize) {
+                sources.add(ParallelLineReader.Source.range(fileInput, uri, start, Math.min(size, start + splitSize)));
+            }
+            List<String> lines = readAll(new ParallelLineReader(sources, 3, executor, false));
+            assertThat("splitSize=" + splitSize, lines.size(), is(expectedLines.size()));
+            assertThat(lines, containsInAnyOrder(expectedLines.toArray()));
+        }
+    }
+
+    @Test
+    public void testMissingFileResultsInFailedBatch() throws Exception {
+        URI uri = createTempDir().resolve("missing.json").toUri();
+        ParallelLineReader reader = new ParallelLineReader(
+            Collections.singletonList(ParallelLineReader.Source.file(new LocalFsFileInput(), uri, false)),
+            2,
+            executor,
+            false
+        );
+        ParallelLineReader.Batch batch = reader.nextBatch().get(5, TimeUnit.SECONDS);
+        assertThat(batch.uri, is(uri));
+        assertNotNull(batch.failure);
+        assertThat(batch.lines.isEmpty(), is(true));
+    }
+
+    private static List<String> readAll(ParallelLineReader reader) throws Exception {
+        List<String> lines = new ArrayList<>();
+        while (true) {
+            ParallelLineReader.Batch batch = reader.nextBatch().get(5, TimeUnit.SECONDS);
+            if (batch == null) {
+                return lines;
+            } else {
+                assertNull(batch.failure);
+                lines.addAll(batch.lines);
+            }
+        }
+    }
+}
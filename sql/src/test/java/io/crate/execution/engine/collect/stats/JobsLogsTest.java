@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import io.crate.auth.user.User;
 import io.crate.breaker.CrateCircuitBreakerService;
+import io.crate.breaker.JobContextLogSizeEstimator;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.common.collections.BlockingEvictingQueue;
 import io.crate.expression.reference.sys.job.JobContext;
@@ -36,6 +37,7 @@ import io.crate.planner.Plan;
 import io.crate.planner.operators.StatementClassifier;
 import io.crate.plugin.SQLPlugin;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -105,7 +107,7 @@ public class JobsLogsTest extends CrateDummyClusterServiceUnitTest {
         assertThat(stats.jobsLogExpiration, is(JobsLogService.STATS_JOBS_LOG_EXPIRATION_SETTING.getDefault()));
         assertThat(stats.operationsLogExpiration, is(JobsLogService.STATS_OPERATIONS_LOG_EXPIRATION_SETTING.getDefault()));
         assertThat(stats.get().jobsLog(), Matchers.instanceOf(FilteredLogSink.class));
-        assertThat(stats.get().operationsLog(), Matchers.instanceOf(QueueSink.class));
+        assertThat(stats.get().operationsLog(), Matchers.instanceOf(RingBufferLogSink.class));
     }
 
     @Test
@@ -173,7 +175,7 @@ public class JobsLogsTest extends CrateDummyClusterServiceUnitTest {
         assertThat(stats.jobsLogSize, is(100));
         assertThat(stats.get().jobsLog(), Matchers.instanceOf(FilteredLogSink.class));
         assertThat(stats.operationsLogSize, is(100));
-        assertThat(stats.get().operationsLog(), Matchers.instanceOf(QueueSink.class));
+        assertThat(stats.get().operationsLog(), Matchers.instanceOf(RingBufferLogSink.class));
     }
 
     @Test
@@ -187,14 +189,10 @@ public class JobsLogsTest extends CrateDummyClusterServiceUnitTest {
         Supplier<LogSink<JobContextLog>> jobsLogSink = () -> (LogSink<JobContextLog>) stats.get().jobsLog();
         Supplier<LogSink<OperationContextLog>> operationsLogSink = () -> (LogSink<OperationContextLog>) stats.get().operationsLog();
 
-        // sinks are still of type QueueSink
+        // size based sinks are ring buffers
         assertThat(jobsLogSink.get(), Matchers.instanceOf(FilteredLogSink.class));
-        assertThat(operationsLogSink.get(), Matchers.instanceOf(QueueSink.class));
-
-        assertThat(inspectRamAccountingQueue((QueueSink) ((FilteredLogSink) jobsLogSink.get()).delegate),
-            Matchers.instanceOf(BlockingEvictingQueue.class));
-        assertThat(inspectRamAccountingQueue((QueueSink) operationsLogSink.get()),
-            Matchers.instanceOf(BlockingEvictingQueue.class));
+        assertThat(((FilteredLogSink) jobsLogSink.get()).delegate, Matchers.instanceOf(RingBufferLogSink.class));
+        assertThat(operationsLogSink.get(), Matchers.instanceOf(RingBufferLogSink.class));
 
         clusterSettings.applySettings(Settings.builder()
             .put(JobsLogService.STATS_JOBS_LOG_EXPIRATION_SETTING.getKey(), "10s")
@@ -223,11 +221,8 @@ public class JobsLogsTest extends CrateDummyClusterServiceUnitTest {
             .put(JobsLogService.STATS_ENABLED_SETTING.getKey(), true)
             .build());
         assertThat(jobsLogSink.get(), Matchers.instanceOf(FilteredLogSink.class));
-        assertThat(inspectRamAccountingQueue((QueueSink) ((FilteredLogSink<JobContextLog>) jobsLogSink.get()).delegate),
-            Matchers.instanceOf(BlockingEvictingQueue.class));
-        assertThat(operationsLogSink.get(), Matchers.instanceOf(QueueSink.class));
-        assertThat(inspectRamAccountingQueue((QueueSink) operationsLogSink.get()),
-            Matchers.instanceOf(BlockingEvictingQueue.class));
+        assertThat(((FilteredLogSink) jobsLogSink.get()).delegate, Matchers.instanceOf(RingBufferLogSink.class));
+        assertThat(operationsLogSink.get(), Matchers.instanceOf(RingBufferLogSink.class));
 
         // disable stats
         clusterSettings.applySettings(Settings.builder()
@@ -397,6 +392,19 @@ public class JobsLogsTest extends CrateDummyClusterServiceUnitTest {
         assertThat(jobsLogEntries.get(0).classification(), nullValue());
     }
 
+    @Test
+    public void testEntriesEvictedFromAFullJobsLogAreCounted() {
+        JobsLogs jobsLogs = new JobsLogs(() -> true);
+        jobsLogs.updateJobsLog(new RingBufferLogSink<>(1, new NoopCircuitBreaker("dummy"), new JobContextLogSizeEstimator()));
+        User user = User.of("arthur");
+        jobsLogs.logPreExecutionFailure(UUID.randomUUID(), "select foo", "stmt error", user);
+        jobsLogs.logPreExecutionFailure(UUID.randomUUID(), "select bar", "stmt error", user);
+        jobsLogs.logPreExecutionFailure(UUID.randomUUID(), "select baz", "stmt error", user);
+
+        assertThat(jobsLogs.jobsLogNumEvicted(), is(2L));
+        assertThat(jobsLogs.operationsLogNumEvicted(), is(0L));
+    }
+
     @Test
     public void testUniqueOperationIdsInOperationsTable() {
         JobsLogs jobsLogs = new JobsLogs(() -> true);
@@ -0,0 +1,98 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.stats;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.breaker.SizeEstimator;
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RingBufferLogSinkTest extends CrateUnitTest {
+
+    private static final SizeEstimator<Integer> ESTIMATOR = new SizeEstimator<Integer>() {
+        @Override
+        public long estimateSize(@Nullable Integer value) {
+            return 16L;
+        }
+    };
+
+    @Test
+    public void testOldestItemsAreEvictedIfBufferIsFull() {
+        RingBufferLogSink<Integer> sink = new RingBufferLogSink<>(3, RamAccountingQueueSinkTest.breaker(), ESTIMATOR);
+        assertThat(ImmutableList.copyOf(sink), empty());
+
+        for (int i = 0; i < 5; i++) {
+            sink.add(i);
+        }
+        assertThat(ImmutableList.copyOf(sink), contains(2, 3, 4));
+        assertThat(sink.numEvicted(), is(2L));
+    }
+
+    @Test
+    public void testConcurrentAddsKeepCapacityItems() throws Exception {
+        RingBufferLogSink<Integer> sink = new RingBufferLogSink<>(15_000, RamAccountingQueueSinkTest.breaker(), ESTIMATOR);
+
+        int numThreads = 50;
+        CountDownLatch latch = new CountDownLatch(numThreads);
+        List<Thread> threads = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            Thread t = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    sink.add(j);
+                }
+                latch.countDown();
+            });
+            t.start();
+            threads.add(t);
+        }
+        latch.await();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ImmutableList.copyOf(sink).size(), is(15_000));
+        assertThat(sink.numEvicted(), is(35_000L));
+    }
+
+    @Test
+    public void testBufferIsClearedIfBreakerLimitIsExceeded() {
+        CircuitBreaker breaker = mock(CircuitBreaker.class);
+        when(breaker.getLimit()).thenReturn(10L);
+        when(breaker.getUsed()).thenReturn(20L);
+        RingBufferLogSink<Integer> sink = new RingBufferLogSink<>(10, breaker, ESTIMATOR);
+
+        sink.add(1);
+        assertThat(ImmutableList.copyOf(sink), empty());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.ArrayType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamBucketTest extends CrateUnitTest {
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"));
+
+    @After
+    public void disableColumnarEncoding() {
+        StreamBucket.COLUMNAR_ENCODING = false;
+    }
+
+    private static Streamer<?>[] streamers(DataType... types) {
+        Streamer<?>[] streamers = new Streamer[types.length];
+        for (int i = 0; i < types.length; i++) {
+            streamers[i] = types[i].streamer();
+        }
+        return streamers;
+    }
+
+    private StreamBucket roundTrip(Streamer<?>[] streamers, List<Object[]> rows) throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        for (Object[] cells : rows) {
+            builder.add(new RowN(cells));
+        }
+        assertThat(builder.size(), is(rows.size()));
+        BytesStreamOutput out = new BytesStreamOutput();
+        builder.build().writeTo(out);
+        return new StreamBucket(out.bytes().streamInput(), streamers);
+    }
+
+    private static void assertRows(StreamBucket bucket, List<Object[]> expectedRows) {
+        assertThat(bucket.size(), is(expectedRows.size()));
+        int idx = 0;
+        for (Row row : bucket) {
+            Object[] expected = expectedRows.get(idx);
+            for (int i = 0; i < expected.length; i++) {
+                assertThat("row " + idx + " column " + i, row.get(i), is(expected[i]));
+            }
+            idx++;
+        }
+        assertThat(idx, is(expectedRows.size()));
+    }
+
+    @Test
+    public void testAllColumnEncodingsSurviveRoundTripIncludingNulls() throws Exception {
+        StreamBucket.COLUMNAR_ENCODING = true;
+        Streamer<?>[] streamers = streamers(
+            DataTypes.LONG, DataTypes.TIMESTAMP, DataTypes.INTEGER, DataTypes.SHORT, DataTypes.BYTE,
+            DataTypes.DOUBLE, DataTypes.FLOAT, DataTypes.BOOLEAN, DataTypes.STRING, DataTypes.IP,
+            new ArrayType(DataTypes.LONG));
+        List<Object[]> rows = new ArrayList<>();
+        // more than 64 rows so that the null bitmap of the fixed width columns spans multiple words
+        for (int i = 0; i < 200; i++) {
+            if (i % 7 == 0) {
+                rows.add(new Object[streamers.length]);
+            } else {
+                rows.add(new Object[] {
+                    (long) i * 1000,
+                    1546300800000L + i,
+                    i,
+                    (short) i,
+                    (byte) i,
+                    i / 3.0d,
+                    i / 3.0f,
+                    i % 2 == 0,
+                    "value-" + (i % 5),
+                    "10.0.0." + (i % 255),
+                    new Long[] { (long) i, null }
+                });
+            }
+        }
+        StreamBucket bucket = roundTrip(streamers, rows);
+        assertRows(bucket, rows);
+        // a bucket can be iterated multiple times
+        assertRows(bucket, rows);
+    }
+
+    @Test
+    public void testEmptyBucketRoundTrip() throws Exception {
+        StreamBucket bucket = roundTrip(streamers(DataTypes.LONG, DataTypes.STRING), new ArrayList<>());
+        assertThat(bucket.size(), is(0));
+        assertThat(bucket.iterator().hasNext(), is(false));
+    }
+
+    @Test
+    public void testBuilderCanBeReusedAfterReset() throws Exception {
+        Streamer<?>[] streamers = streamers(DataTypes.INTEGER, DataTypes.STRING);
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        builder.add(new RowN(new Object[] { 1, "a" }));
+        builder.build();
+        builder.reset();
+        builder.add(new RowN(new Object[] { 2, "b" }));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        builder.build().writeTo(out);
+        assertRows(
+            new StreamBucket(out.bytes().streamInput(), streamers),
+            Arrays.<Object[]>asList(new Object[] { 2, "b" }));
+    }
+
+    @Test
+    public void testRowsAreStreamedOneAfterAnotherIfColumnarEncodingIsDisabled() throws Exception {
+        Streamer<?>[] streamers = streamers(DataTypes.LONG, DataTypes.STRING);
+        List<Object[]> rows = Arrays.asList(new Object[] { 1L, "a" }, new Object[] { null, null }, new Object[] { 3L, "c" });
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        for (Object[] cells : rows) {
+            builder.add(new RowN(cells));
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        builder.build().writeTo(out);
+
+        StreamInput in = out.bytes().streamInput();
+        assertThat(in.readVInt(), is(rows.size()));
+        StreamInput rowsIn = in.readBytesReference().streamInput();
+        for (Object[] cells : rows) {
+            for (int i = 0; i < cells.length; i++) {
+                assertThat(streamers[i].readValueFrom(rowsIn), is(cells[i]));
+            }
+        }
+
+        assertRows(new StreamBucket(out.bytes().streamInput(), streamers), rows);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testColumnarEncodingIsSmallerThanRowWiseEncoding() throws Exception {
+        StreamBucket.COLUMNAR_ENCODING = true;
+        Streamer<?>[] streamers = streamers(DataTypes.LONG, DataTypes.STRING, DataTypes.DOUBLE);
+        List<Object[]> rows = new ArrayList<>();
+        BytesStreamOutput rowWise = new BytesStreamOutput();
+        for (int i = 0; i < 1000; i++) {
+            Object[] cells = new Object[] { (long) i, "country-" + (i % 10), i % 3 == 0 ? null : i * 1.5d };
+            rows.add(cells);
+            for (int c = 0; c < streamers.length; c++) {
+                ((Streamer) streamers[c]).writeValueTo(rowWise, cells[c]);
+            }
+        }
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        for (Object[] cells : rows) {
+            builder.add(new RowN(cells));
+        }
+        BytesStreamOutput columnar = new BytesStreamOutput();
+        builder.build().writeTo(columnar);
+        assertThat(columnar.size(), lessThan(rowWise.size()));
+    }
+}
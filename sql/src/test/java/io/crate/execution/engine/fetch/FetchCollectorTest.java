@@ -0,0 +1,161 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.fetch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class FetchCollectorTest extends CrateUnitTest {
+
+    private static final int DOCS_PER_SEGMENT = 10;
+
+    private DirectoryReader reader;
+    private Engine.Searcher searcher;
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"));
+
+    @Before
+    public void createIndexWithThreeSegments() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(new RAMDirectory(), config)) {
+            for (int segment = 0; segment < 3; segment++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    writer.addDocument(new Document());
+                }
+                writer.commit();
+            }
+            reader = DirectoryReader.open(writer);
+        }
+        assertThat(reader.leaves().size(), is(3));
+        searcher = new Engine.Searcher("test", new IndexSearcher(reader), reader);
+    }
+
+    @After
+    public void closeReader() throws Exception {
+        searcher.close();
+    }
+
+    @Test
+    public void testRowsAreReturnedInRequestedOrderAndSegmentsAreReadInDocIdOrder() throws Exception {
+        IntArrayList docIds = IntArrayList.from(25, 3, 14, 3, 29, 0, 10);
+        DocIdExpression expression = new DocIdExpression();
+        FetchCollector collector = new FetchCollector(
+            Collections.singletonList(expression),
+            Collections.singletonList(DataTypes.INTEGER),
+            searcher,
+            mock(IndexFieldDataService.class),
+            ramAccountingContext,
+            0);
+
+        long[] sortedDocs = FetchCollector.sortByDocId(docIds);
+        Object[][] rows = new Object[sortedDocs.length][];
+        long accountedBytes = collector.collect(sortedDocs, 0, sortedDocs.length, rows);
+
+        for (int i = 0; i < docIds.size(); i++) {
+            assertThat(rows[i][0], is(docIds.get(i)));
+        }
+        assertThat(expression.numReaders, is(3));
+        // the duplicate doc is only fetched and accounted once
+        assertThat(accountedBytes, is(6L * DataTypes.INTEGER.fixedSize()));
+        assertThat(ramAccountingContext.totalBytes(), is(accountedBytes));
+    }
+
+    @Test
+    public void testDocsCanBeFetchedInSeveralParts() throws Exception {
+        IntArrayList docIds = new IntArrayList();
+        for (int docId = 3 * DOCS_PER_SEGMENT - 1; docId >= 0; docId -= 2) {
+            docIds.add(docId);
+        }
+        long[] sortedDocs = FetchCollector.sortByDocId(docIds);
+        Object[][] rows = new Object[sortedDocs.length][];
+        int[] bounds = new int[] { 0, 4, 5, sortedDocs.length };
+        for (int part = 0; part < bounds.length - 1; part++) {
+            FetchCollector collector = new FetchCollector(
+                Collections.singletonList(new DocIdExpression()),
+                Collections.singletonList(DataTypes.INTEGER),
+                searcher,
+                mock(IndexFieldDataService.class),
+                ramAccountingContext,
+                0);
+            collector.collect(sortedDocs, bounds[part], bounds[part + 1], rows);
+        }
+
+        for (int i = 0; i < docIds.size(); i++) {
+            assertThat(rows[i][0], is(docIds.get(i)));
+        }
+    }
+
+    /**
+     * Returns the doc id relative to the top level reader and
+     * fails if the docs of a segment aren't visited in order.
+     */
+    private static class DocIdExpression extends LuceneCollectorExpression<Integer> {
+
+        private int numReaders = 0;
+        private int docBase;
+        private int lastDoc;
+        private int value;
+
+        @Override
+        public void setNextReader(LeafReaderContext context) {
+            numReaders++;
+            docBase = context.docBase;
+            lastDoc = -1;
+        }
+
+        @Override
+        public void setNextDocId(int doc) {
+            assertTrue("docs must be visited in order", doc > lastDoc);
+            lastDoc = doc;
+            value = docBase + doc;
+        }
+
+        @Override
+        public Integer value() {
+            return value;
+        }
+    }
+}
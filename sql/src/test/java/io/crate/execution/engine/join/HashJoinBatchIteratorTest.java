@@ -0,0 +1,180 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.randomizedtesting.RandomizedRunner;
+import com.carrotsearch.randomizedtesting.annotations.Name;
+import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RandomizedRunner.class)
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+public class HashJoinBatchIteratorTest {
+
+    private static final List<Integer> LEFT_VALUES = Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4);
+    private static final List<Integer> RIGHT_VALUES = Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6);
+
+    private static final List<Object[]> MATCHING_ROWS = Arrays.asList(
+        new Object[] { 1, 1 }, new Object[] { 1, 1 },
+        new Object[] { 2, 2 }, new Object[] { 2, 2 },
+        new Object[] { 3, 3 },
+        new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }
+    );
+    private static final List<Object[]> UNMATCHED_LEFT_ROWS = Arrays.asList(
+        new Object[] { 0, null }, new Object[] { 0, null });
+    private static final List<Object[]> UNMATCHED_RIGHT_ROWS = Arrays.asList(
+        new Object[] { null, 5 }, new Object[] { null, 5 }, new Object[] { null, 6 });
+
+    private final Supplier<RamAccountingBatchIterator<Row>> leftIterator;
+    private final Supplier<BatchIterator<Row>> rightIterator;
+
+    private static Predicate<Row> getCol0EqCol1JoinCondition() {
+        return row -> Objects.equals(row.get(0), row.get(1));
+    }
+
+    private static Function<Row, Integer> getHash() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static Function<Row, Integer> getHashWithCollisions() {
+        return row -> (Integer) row.get(0) % 3;
+    }
+
+    public HashJoinBatchIteratorTest(@SuppressWarnings("unused") @Name("dataSetName") String testName,
+                                     @Name("dataForLeft") Supplier<RamAccountingBatchIterator<Row>> leftIterator,
+                                     @Name("dataForRight") Supplier<BatchIterator<Row>> rightIterator) {
+        this.leftIterator = leftIterator;
+        this.rightIterator = rightIterator;
+    }
+
+    @ParametersFactory
+    public static Iterable<Object[]> testParameters() {
+        return Arrays.asList(
+            $("plain",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(TestingBatchIterators.ofValues(LEFT_VALUES)),
+              (Supplier<BatchIterator<Row>>) () -> TestingBatchIterators.ofValues(RIGHT_VALUES)),
+            $("batchedSource",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(LEFT_VALUES), 2, 4, null)),
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(RIGHT_VALUES), 2, 4, null)),
+            $("leftLoadedRightBatched",
+              (Supplier<RamAccountingBatchIterator<Row>>) () -> of(TestingBatchIterators.ofValues(LEFT_VALUES)),
+              (Supplier<BatchIterator<Row>>) () ->
+                  new BatchSimulatingIterator<>(TestingBatchIterators.ofValues(RIGHT_VALUES), 2, 4, null)));
+    }
+
+    private static RamAccountingBatchIterator<Row> of(BatchIterator<Row> batchIterator) {
+        return new RamAccountingBatchIterator<>(batchIterator, mock(RowAccounting.class));
+    }
+
+    @SafeVarargs
+    private static List<Object[]> concat(List<Object[]>... rows) {
+        List<Object[]> result = new ArrayList<>();
+        for (List<Object[]> r : rows) {
+            result.addAll(r);
+        }
+        return result;
+    }
+
+    private void assertHashJoin(JoinType joinType,
+                                Function<Row, Integer> hashBuilder,
+                                int blockSize,
+                                List<Object[]> expectedResult) throws Exception {
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> new HashJoinBatchIterator<>(
+            leftIterator.get(),
+            rightIterator.get(),
+            new CombinedRow(1, 1),
+            joinType,
+            getCol0EqCol1JoinCondition(),
+            hashBuilder,
+            hashBuilder,
+            () -> blockSize
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    private void assertHashJoinWithDifferentBlockSizesAndHashes(JoinType joinType,
+                                                                List<Object[]> expectedResult) throws Exception {
+        for (int blockSize : new int[] { 1, 3, 5, 100 }) {
+            assertHashJoin(joinType, getHash(), blockSize, expectedResult);
+            assertHashJoin(joinType, getHashWithCollisions(), blockSize, expectedResult);
+        }
+    }
+
+    @Test
+    public void testLeftHashJoin() throws Exception {
+        assertHashJoinWithDifferentBlockSizesAndHashes(
+            JoinType.LEFT, concat(MATCHING_ROWS, UNMATCHED_LEFT_ROWS));
+    }
+
+    @Test
+    public void testRightHashJoin() throws Exception {
+        assertHashJoinWithDifferentBlockSizesAndHashes(
+            JoinType.RIGHT, concat(MATCHING_ROWS, UNMATCHED_RIGHT_ROWS));
+    }
+
+    @Test
+    public void testFullHashJoin() throws Exception {
+        assertHashJoinWithDifferentBlockSizesAndHashes(
+            JoinType.FULL, concat(MATCHING_ROWS, UNMATCHED_LEFT_ROWS, UNMATCHED_RIGHT_ROWS));
+    }
+
+    @Test
+    public void testSemiHashJoinEmitsEachMatchingLeftRowOnce() throws Exception {
+        // only the left column is part of the output, the right column contains the first match
+        assertHashJoinWithDifferentBlockSizesAndHashes(JoinType.SEMI, Arrays.asList(
+            new Object[] { 1, 1 },
+            new Object[] { 2, 2 }, new Object[] { 2, 2 },
+            new Object[] { 3, 3 },
+            new Object[] { 4, 4 }, new Object[] { 4, 4 }
+        ));
+    }
+
+    @Test
+    public void testAntiHashJoinEmitsLeftRowsWithoutMatch() throws Exception {
+        assertHashJoinWithDifferentBlockSizesAndHashes(JoinType.ANTI, UNMATCHED_LEFT_ROWS);
+    }
+}
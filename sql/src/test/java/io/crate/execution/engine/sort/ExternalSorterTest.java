@@ -0,0 +1,155 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Row;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ExternalSorterTest extends CrateUnitTest {
+
+    private static final List<DataType> TYPES = Arrays.asList(DataTypes.STRING, DataTypes.LONG);
+
+    private final RamAccountingContext ramAccountingContext =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"));
+
+    /**
+     * rows: [name, number], sorted by number and then name, outputs only [name]
+     */
+    private ExternalSorter sorter(boolean reverse, Boolean nullsFirst, int offset, long spillThreshold) {
+        int[] positions = new int[] { 1, 0 };
+        boolean[] reverseFlags = new boolean[] { reverse, false };
+        Boolean[] nullsFirstFlags = new Boolean[] { nullsFirst, null };
+        Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(positions, reverseFlags, nullsFirstFlags).reverse();
+        SortKeyPrefix prefix = SortKeyPrefix.of(DataTypes.LONG, reverse, nullsFirst);
+        if (spillThreshold == 0) {
+            return new ExternalSorter(ordering, prefix, 1, 1, offset);
+        }
+        return new ExternalSorter(ordering, prefix, 1, 1, offset, new ExternalSorter.SpillContext(
+            OrderingByPosition.rowOrdering(positions, reverseFlags, nullsFirstFlags),
+            TYPES,
+            ramAccountingContext,
+            spillThreshold));
+    }
+
+    private static List<Object[]> randomRows(int numRows) {
+        List<Object[]> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            Long number = randomBoolean() && randomBoolean() ? null : (long) randomIntBetween(-100, 100);
+            rows.add(new Object[] { "name-" + i, number });
+        }
+        return rows;
+    }
+
+    private static List<Object> sort(ExternalSorter sorter, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            sorter.add(row.clone());
+        }
+        List<Object> names = new ArrayList<>();
+        for (Row row : sorter.sorted()) {
+            assertThat(row.numColumns(), is(1));
+            names.add(row.get(0));
+        }
+        return names;
+    }
+
+    private static long numSpillFiles() throws IOException {
+        Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        long numFiles = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tmpDir, "crate-spill-*")) {
+            for (Path ignored : files) {
+                numFiles++;
+            }
+        }
+        return numFiles;
+    }
+
+    @Test
+    public void testSpilledRunsAreMergedInSameOrderAsInMemorySort() throws Exception {
+        List<Object[]> rows = randomRows(5000);
+        for (boolean reverse : new boolean[] { false, true }) {
+            for (Boolean nullsFirst : new Boolean[] { null, false, true }) {
+                int offset = randomFrom(0, 10, 4999, 5000);
+                try (ExternalSorter inMemory = sorter(reverse, nullsFirst, offset, 0);
+                     ExternalSorter spilling = sorter(reverse, nullsFirst, offset, 1024)) {
+                    List<Object> expected = sort(inMemory, rows);
+                    assertThat(expected.size(), is(5000 - offset));
+                    assertThat(sort(spilling, rows), is(expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRowsAreSortedByPrefixAndFullOrdering() {
+        List<Object[]> rows = Arrays.asList(
+            new Object[] { "c", 2L },
+            new Object[] { "a", null },
+            new Object[] { "b", 2L },
+            new Object[] { "d", Long.MIN_VALUE },
+            new Object[] { "e", Long.MAX_VALUE }
+        );
+        try (ExternalSorter sorter = sorter(false, null, 0, 0)) {
+            assertThat(sort(sorter, rows), contains("d", "b", "c", "e", "a"));
+        }
+        try (ExternalSorter sorter = sorter(true, null, 0, 0)) {
+            assertThat(sort(sorter, rows), contains("a", "e", "b", "c", "d"));
+        }
+        try (ExternalSorter sorter = sorter(false, true, 0, 0)) {
+            assertThat(sort(sorter, rows), contains("a", "d", "b", "c", "e"));
+        }
+    }
+
+    @Test
+    public void testSpillFilesAreDeletedOnClose() throws Exception {
+        long numSpillFiles = numSpillFiles();
+        ExternalSorter sorter = sorter(false, null, 0, 1024);
+        for (Object[] row : randomRows(2000)) {
+            sorter.add(row);
+        }
+        assertThat(numSpillFiles() > numSpillFiles, is(true));
+
+        // consume only a part of the result, like a consumer with a limit
+        sorter.sorted().iterator().next();
+        sorter.close();
+        assertThat(numSpillFiles(), is(numSpillFiles));
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SortKeyPrefixTest extends CrateUnitTest {
+
+    /**
+     * Asserts that the prefixes of the values never contradict the ordering used by the SortingProjector
+     */
+    private void assertPrefixIsConsistentWithOrdering(DataType type, Supplier<Object> randomValue) {
+        List<Object> values = new ArrayList<>();
+        values.add(null);
+        for (int i = 0; i < 200; i++) {
+            values.add(randomValue.get());
+        }
+        for (boolean reverse : new boolean[] { false, true }) {
+            for (Boolean nullsFirst : new Boolean[] { null, false, true }) {
+                SortKeyPrefix prefix = SortKeyPrefix.of(type, reverse, nullsFirst);
+                Comparator<Object[]> ordering = OrderingByPosition.arrayOrdering(0, reverse, nullsFirst).reverse();
+                for (Object a : values) {
+                    for (Object b : values) {
+                        int prefixCmp = Long.compareUnsigned(prefix.prefix(a), prefix.prefix(b));
+                        if (prefixCmp != 0) {
+                            int cmp = ordering.compare(new Object[] { a }, new Object[] { b });
+                            assertThat(
+                                "prefix order of " + a + " and " + b + " (reverse=" + reverse + ", nullsFirst=" +
+                                nullsFirst + ")",
+                                Integer.signum(cmp), is(Integer.signum(prefixCmp)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongPrefix() {
+        assertPrefixIsConsistentWithOrdering(DataTypes.LONG, () -> randomFrom(
+            randomLong(), Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L));
+    }
+
+    @Test
+    public void testIntegerPrefix() {
+        assertPrefixIsConsistentWithOrdering(DataTypes.INTEGER, () -> randomInt());
+        assertPrefixIsConsistentWithOrdering(DataTypes.SHORT, () -> randomShort());
+        assertPrefixIsConsistentWithOrdering(DataTypes.BYTE, () -> randomByte());
+    }
+
+    @Test
+    public void testDoublePrefix() {
+        assertPrefixIsConsistentWithOrdering(DataTypes.DOUBLE, () -> randomFrom(
+            randomDouble() * randomIntBetween(-1000, 1000), -0.0d, 0.0d, Double.NaN,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertPrefixIsConsistentWithOrdering(DataTypes.FLOAT, () -> randomFloat() * randomIntBetween(-1000, 1000));
+    }
+
+    @Test
+    public void testBooleanPrefix() {
+        assertPrefixIsConsistentWithOrdering(DataTypes.BOOLEAN, () -> randomBoolean());
+    }
+
+    @Test
+    public void testStringPrefix() {
+        assertPrefixIsConsistentWithOrdering(DataTypes.STRING, () -> randomFrom(
+            randomAlphaOfLengthBetween(0, 6), randomRealisticUnicodeOfLengthBetween(0, 6), "a", "a\u0000"));
+    }
+
+    @Test
+    public void testNoPrefixForUnsupportedTypes() {
+        assertThat(SortKeyPrefix.of(DataTypes.IP, false, null), nullValue());
+        assertThat(SortKeyPrefix.of(DataTypes.GEO_POINT, false, null), nullValue());
+    }
+}
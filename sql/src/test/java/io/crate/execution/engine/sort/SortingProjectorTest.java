@@ -23,17 +23,23 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.breaker.RamAccountingContext;
 import io.crate.expression.symbol.Literal;
 import io.crate.data.BatchIterator;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.junit.Test;
 
+import java.util.List;
+
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.core.Is.is;
 
@@ -81,6 +87,30 @@ public class SortingProjectorTest extends CrateUnitTest {
         }
     }
 
+    @Test
+    public void testOrderByDescWithSpilling() throws Exception {
+        InputCollectExpression input = new InputCollectExpression(0);
+        SortingProjector projector = new SortingProjector(
+            ImmutableList.of(input, Literal.of(true)),
+            ImmutableList.of(DataTypes.INTEGER, DataTypes.BOOLEAN),
+            ImmutableList.<CollectExpression<Row, ?>>of(input),
+            1,
+            new PositionalOrderBy(new int[] { 0 }, new boolean[] { true }, new Boolean[] { null }),
+            5,
+            new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy")),
+            64
+        );
+
+        BatchIterator batchIterator = projector.apply(TestingBatchIterators.range(0, 1000));
+        consumer.accept(batchIterator, null);
+        List<Object[]> rows = consumer.getResult();
+        assertThat(rows.size(), is(995));
+        int expected = 994;
+        for (Object[] row : rows) {
+            assertThat(row, is(new Object[] { expected-- }));
+        }
+    }
+
     @Test
     public void testInvalidOffset() throws Exception {
         expectedException.expect(IllegalArgumentException.class);
@@ -113,10 +113,23 @@ public abstract class AbstractWindowFunctionTest {
         }
     }
 
+    protected <T> void assertEvaluate(String functionExpression,
+                                      Matcher<T> expectedValue,
+                                      Map<ColumnIdent, Integer> positionInRowByColumn,
+                                      int[] orderByIndices,
+                                      Object[]... inputRows) {
+        assertEvaluate(functionExpression, expectedValue, positionInRowByColumn, null, orderByIndices, inputRows);
+    }
+
+    /**
+     * Evaluates the window function over the input rows which must be sorted by the
+     * partition by and order by columns of the window definition.
+     */
     @SuppressWarnings("unchecked")
     protected <T> void assertEvaluate(String functionExpression,
                                       Matcher<T> expectedValue,
                                       Map<ColumnIdent, Integer> positionInRowByColumn,
+                                      int[] partitionByIndices,
                                       int[] orderByIndices,
                                       Object[]... inputRows) {
         performInputSanityChecks(inputRows);
@@ -150,6 +163,7 @@ public abstract class AbstractWindowFunctionTest {
                 .map(Symbol::valueType)
                 .collect(Collectors.toList()),
             RAM_ACCOUNTING_CONTEXT,
+            partitionByIndices,
             orderByIndices,
             ctx.topLevelInputs().toArray(new Input[0])
         );
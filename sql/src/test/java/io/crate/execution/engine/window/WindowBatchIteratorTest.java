@@ -22,28 +22,51 @@
 
 package io.crate.execution.engine.window;
 
+import io.crate.analyze.FrameBoundDefinition;
+import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.analyze.WindowFrameDefinition;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.InputColumn;
+import io.crate.expression.symbol.Literal;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionInfo;
+import io.crate.sql.tree.FrameBound;
 import io.crate.testing.BatchIteratorTester;
 import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.util.BigArrays;
 import org.junit.Test;
 
+import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.sql.tree.FrameBound.Type.CURRENT_ROW;
+import static io.crate.sql.tree.FrameBound.Type.FOLLOWING;
+import static io.crate.sql.tree.FrameBound.Type.PRECEDING;
+import static io.crate.sql.tree.WindowFrame.Type.RANGE;
+import static io.crate.sql.tree.WindowFrame.Type.ROWS;
+import static io.crate.testing.TestingHelpers.getFunctions;
 import static org.elasticsearch.common.collect.Tuple.tuple;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 
@@ -68,6 +91,7 @@ public class WindowBatchIteratorTest {
                 Collections.singletonList(DataTypes.INTEGER),
                 RAM_ACCOUNTING_CONTEXT,
                 null,
+                null,
                 new Input[0])
         );
 
@@ -88,6 +112,7 @@ public class WindowBatchIteratorTest {
                 Collections.singletonList(DataTypes.INTEGER),
                 RAM_ACCOUNTING_CONTEXT,
                 null,
+                null,
                 new Input[0])
         );
 
@@ -107,6 +132,7 @@ public class WindowBatchIteratorTest {
             Collections.singletonList(DataTypes.INTEGER),
             RAM_ACCOUNTING_CONTEXT,
             null,
+            null,
             new Input[0]), null);
 
         Object[] expectedBounds = {tuple(0, 10)};
@@ -127,13 +153,158 @@ public class WindowBatchIteratorTest {
             Collections.singletonList(DataTypes.INTEGER),
             RAM_ACCOUNTING_CONTEXT,
             null,
+            null,
             new Input[0]);
         RAM_ACCOUNTING_CONTEXT.release();
-        TestingRowConsumer consumer = new TestingRowConsumer();
-        consumer.accept(windowBatchIterator, null);
+        assertThat(windowBatchIterator.moveNext(), is(true));
 
         // should've accounted for 10 integers (with padding) and some overhead
         assertThat(RAM_ACCOUNTING_CONTEXT.totalBytes(), is(greaterThan(160L)));
+
+        while (windowBatchIterator.moveNext()) {
+        }
+        // the rows of the emitted partition are released
+        assertThat(RAM_ACCOUNTING_CONTEXT.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void testCloseReleasesOnlyTheBytesOfTheIteratorAndKeepsTheContextOpen() {
+        WindowBatchIterator windowBatchIterator = new WindowBatchIterator(
+            emptyWindow(),
+            Collections.emptyList(),
+            Collections.emptyList(),
+            TestingBatchIterators.range(0, 10),
+            Collections.singletonList(rowNumberWindowFunction()),
+            Collections.emptyList(),
+            Collections.singletonList(DataTypes.INTEGER),
+            RAM_ACCOUNTING_CONTEXT,
+            null,
+            null,
+            new Input[0]);
+        // accounted by another user of the same context
+        RAM_ACCOUNTING_CONTEXT.addBytes(100L);
+        assertThat(windowBatchIterator.moveNext(), is(true));
+        assertThat(RAM_ACCOUNTING_CONTEXT.totalBytes(), is(greaterThan(100L)));
+
+        windowBatchIterator.close();
+        assertThat(RAM_ACCOUNTING_CONTEXT.totalBytes(), is(100L));
+        RAM_ACCOUNTING_CONTEXT.addBytes(10L);
+        assertThat(RAM_ACCOUNTING_CONTEXT.totalBytes(), is(110L));
+    }
+
+    @Test
+    public void testSlidingRowsFrameWithinPartitions() throws Exception {
+        WindowDefinition window = partitionedWindow(
+            new WindowFrameDefinition(ROWS, bound(PRECEDING, Literal.of(1L)), bound(FOLLOWING, Literal.of(1L))));
+        Object[][] rows = new Object[][] {
+            {1, 1L}, {1, 2L}, {1, 3L}, {1, 4L},
+            {2, 10L}, {2, 20L}
+        };
+        assertThat(aggregate("sum", window, rows), contains(3L, 6L, 9L, 7L, 30L, 30L));
+        // max can't remove values from its state, so the frames are re-computed
+        assertThat(aggregate("max", window, rows), contains(2L, 3L, 4L, 4L, 20L, 20L));
+        assertThat(aggregate("count", window, rows), contains(2L, 3L, 3L, 2L, 2L, 2L));
+    }
+
+    @Test
+    public void testSlidingFrameReturnsNullIfAllValuesInFrameAreNull() throws Exception {
+        WindowDefinition window = partitionedWindow(
+            new WindowFrameDefinition(ROWS, bound(PRECEDING, Literal.of(1L)), new FrameBoundDefinition(CURRENT_ROW)));
+        Object[][] rows = new Object[][] {
+            {1, 1L}, {1, null}, {1, null}, {1, 2L}
+        };
+        assertThat(aggregate("sum", window, rows), contains(1L, 1L, null, 2L));
+        // count(*) counts rows, not values
+        assertThat(aggregate("count", window, rows), contains(1L, 2L, 2L, 2L));
+    }
+
+    @Test
+    public void testRangeFrameWithOffset() throws Exception {
+        WindowDefinition window = partitionedWindow(
+            new WindowFrameDefinition(RANGE, bound(PRECEDING, Literal.of(2d)), new FrameBoundDefinition(CURRENT_ROW)));
+        Object[][] rows = new Object[][] {
+            {1, 1L}, {1, 2L}, {1, 4L}, {1, 4L}, {1, 7L}, {1, null},
+            {2, 1L}
+        };
+        assertThat(aggregate("sum", window, rows), contains(1L, 3L, 10L, 10L, 7L, null, 1L));
+    }
+
+    @Test
+    public void testDefaultFrameWithinPartitionsIncludesPeers() throws Exception {
+        WindowDefinition window = partitionedWindow(null);
+        Object[][] rows = new Object[][] {
+            {1, 1L}, {1, 1L}, {1, 3L},
+            {2, 5L}
+        };
+        assertThat(aggregate("sum", window, rows), contains(2L, 2L, 5L, 5L));
+    }
+
+    @Test
+    public void testPartitionsWithBatchSimulatingSource() throws Exception {
+        WindowDefinition window = new WindowDefinition(
+            Collections.singletonList(new InputColumn(0, DataTypes.INTEGER)), null, null);
+        // partitions: [0, 0, 0], [1, 1, 1], [2, 2, 2], [3]
+        List<Row> partitionedRows = IntStream.range(0, 10)
+            .mapToObj(i -> new RowN(new Object[] {i / 3})).collect(Collectors.toList());
+        List<Object[]> expectedResult = IntStream.range(0, 10)
+            .mapToObj(i -> new Object[] {i % 3 + 1}).collect(Collectors.toList());
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new WindowBatchIterator(
+                window,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new BatchSimulatingIterator<>(InMemoryBatchIterator.of(partitionedRows, SENTINEL), 4, 2, null),
+                Collections.singletonList(rowNumberWindowFunction()),
+                Collections.emptyList(),
+                Collections.singletonList(DataTypes.INTEGER),
+                RAM_ACCOUNTING_CONTEXT,
+                new int[] {0},
+                null,
+                new Input[0])
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    private static FrameBoundDefinition bound(FrameBound.Type type, Literal<?> offset) {
+        return new FrameBoundDefinition(type, offset);
+    }
+
+    /**
+     * A window partitioned by the first column and ordered by the second column of the rows.
+     */
+    private static WindowDefinition partitionedWindow(@Nullable WindowFrameDefinition frameDefinition) {
+        return new WindowDefinition(
+            Collections.singletonList(new InputColumn(0, DataTypes.INTEGER)),
+            new OrderBy(
+                Collections.singletonList(new InputColumn(1, DataTypes.LONG)),
+                new boolean[] {false},
+                new Boolean[] {null}),
+            frameDefinition
+        );
+    }
+
+    private List<Object> aggregate(String aggregationName, WindowDefinition window, Object[][] rows) throws Exception {
+        List<DataType> argumentTypes = aggregationName.equals("count")
+            ? Collections.emptyList()
+            : Collections.singletonList(DataTypes.LONG);
+        AggregationFunction aggregation = (AggregationFunction) getFunctions().getQualified(
+            new FunctionIdent(aggregationName, argumentTypes));
+        InputCollectExpression argument = new InputCollectExpression(1);
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(new WindowBatchIterator(
+            window,
+            Collections.emptyList(),
+            Collections.emptyList(),
+            InMemoryBatchIterator.of(Arrays.stream(rows).map(RowN::new).collect(Collectors.toList()), SENTINEL),
+            Collections.singletonList(new AggregateToWindowFunctionAdapter(
+                aggregation, Version.CURRENT, BigArrays.NON_RECYCLING_INSTANCE, RAM_ACCOUNTING_CONTEXT)),
+            Collections.singletonList(argument),
+            Arrays.asList(DataTypes.INTEGER, DataTypes.LONG),
+            RAM_ACCOUNTING_CONTEXT,
+            new int[] {0},
+            new int[] {1},
+            argumentTypes.isEmpty() ? new Input[0] : new Input[] {argument}), null);
+        return consumer.getResult().stream().map(cells -> cells[0]).collect(Collectors.toList());
     }
 
     private static WindowDefinition emptyWindow() {
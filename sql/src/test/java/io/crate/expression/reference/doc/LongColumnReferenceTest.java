@@ -21,6 +21,7 @@
 
 package io.crate.expression.reference.doc;
 
+import io.crate.data.LongColumn;
 import io.crate.expression.reference.doc.lucene.LongColumnReference;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -67,4 +68,22 @@ public class LongColumnReferenceTest extends DocLevelExpressionsTest {
             l++;
         }
     }
+
+    @Test
+    public void testWriteToWritesTheValueIntoTheColumn() throws Exception {
+        LongColumnReference longColumn = new LongColumnReference(column);
+        longColumn.startCollect(ctx);
+        longColumn.setNextReader(readerContext);
+        IndexSearcher searcher = new IndexSearcher(readerContext.reader());
+        TopDocs topDocs = searcher.search(new MatchAllDocsQuery(), 20);
+        LongColumn values = new LongColumn(topDocs.scoreDocs.length);
+        for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+            longColumn.setNextDocId(topDocs.scoreDocs[i].doc);
+            longColumn.writeTo(values, i);
+        }
+        for (int i = 0; i < values.capacity(); i++) {
+            assertThat(values.isNull(i), is(false));
+            assertThat(values.getLong(i), is(Long.MIN_VALUE + i));
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SourceParserTest {
+
+    private static final BytesArray SOURCE = new BytesArray(
+        "{\"x\": 10, \"y\": \"foo\", \"o\": {\"a\": 1, \"b\": {\"c\": true}}, " +
+        "\"l\": [{\"a\": 1, \"b\": 2}, {\"a\": 3}, null, [4]]}");
+
+    @Test
+    public void testOnlyRegisteredColumnsAreParsed() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(Collections.singletonList("x"));
+        parser.register(Arrays.asList("o", "b", "c"));
+
+        Map<String, Object> map = parser.parse(SOURCE);
+        assertThat(map.toString(), is("{x=10, o={b={c=true}}}"));
+    }
+
+    @Test
+    public void testObjectsWithinArraysAreFiltered() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(Arrays.asList("l", "a"));
+
+        Map<String, Object> map = parser.parse(SOURCE);
+        assertThat(map.toString(), is("{l=[{a=1}, {a=3}, null, [4]]}"));
+        assertThat(SourceLookup.extractValue(map, Arrays.asList("l", "a"), 0).toString(), is("[1, 3, null, [4]]"));
+    }
+
+    @Test
+    public void testParentPathCoversChildPaths() throws Exception {
+        SourceParser parser = new SourceParser();
+        assertThat(parser.register(Arrays.asList("o", "a")), is(true));
+        assertThat(parser.register(Collections.singletonList("o")), is(true));
+        assertThat(parser.register(Arrays.asList("o", "b")), is(false));
+        assertThat(parser.register(Collections.singletonList("o")), is(false));
+
+        Map<String, Object> map = parser.parse(SOURCE);
+        assertThat(map.keySet(), contains("o"));
+        assertThat(SourceLookup.extractValue(map, Arrays.asList("o", "b", "c"), 0), is(true));
+    }
+
+    @Test
+    public void testEmptyPathParsesCompleteSource() throws Exception {
+        SourceParser parser = new SourceParser();
+        parser.register(Collections.emptyList());
+
+        Map<String, Object> map = parser.parse(SOURCE);
+        assertThat(map.size(), is(4));
+    }
+}
@@ -38,4 +38,15 @@ public class LineContextTest extends CrateUnitTest {
         assertNull(context.get(new ColumnIdent("details", "invalid")));
         assertEquals(43, context.get(new ColumnIdent("details", "age")));
     }
+
+    @Test
+    public void testJsonLineIsPassedThroughAsRawSource() {
+        LineContext context = new LineContext();
+
+        String source = "{\"name\": \"foo\", \"details\": {\"age\": 43}}";
+        context.rawSource(source);
+
+        assertSame(source, context.sourceAsString());
+        assertEquals(43, context.get(new ColumnIdent("details", "age")));
+    }
 }
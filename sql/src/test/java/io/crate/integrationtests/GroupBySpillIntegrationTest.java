@@ -0,0 +1,64 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.integrationtests;
+
+import io.crate.execution.engine.aggregation.GroupingProjector;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Test;
+
+import static io.crate.testing.TestingHelpers.printedTable;
+import static org.hamcrest.Matchers.is;
+
+public class GroupBySpillIntegrationTest extends SQLTransportIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            .put(GroupingProjector.SPILL_THRESHOLD_SETTING.getKey(), "1kb")
+            .build();
+    }
+
+    @Test
+    public void testGroupByWithSpilledGroups() throws Exception {
+        execute("create table t (x long, name string) clustered into 3 shards with (number_of_replicas = 0)");
+        Object[] values = new Object[3000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) i;
+        }
+        execute("insert into t (x, name) (select col1, concat('name-', cast(col1 % 500 as string)) from unnest(?))", new Object[] { values });
+        refresh();
+
+        execute("select x % 500, count(*), sum(x) from t group by 1 order by 1 limit 3");
+        assertThat(printedTable(response.rows()), is("0| 6| 7500\n" +
+                                                     "1| 6| 7506\n" +
+                                                     "2| 6| 7512\n"));
+
+        execute("select count(*) from (select name, count(*) from t group by name) tt");
+        assertThat(printedTable(response.rows()), is("500\n"));
+
+        execute("select name, count(*), min(x) from t group by name order by name limit 2");
+        assertThat(printedTable(response.rows()), is("name-0| 6| 0\n" +
+                                                     "name-1| 6| 1\n"));
+    }
+}
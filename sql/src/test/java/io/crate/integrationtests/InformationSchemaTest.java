@@ -583,7 +583,7 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
     @Test
     public void testDefaultColumns() {
         execute("select * from information_schema.columns order by table_schema, table_name");
-        assertEquals(664, response.rowCount());
+        assertEquals(667, response.rowCount());
     }
 
     @Test
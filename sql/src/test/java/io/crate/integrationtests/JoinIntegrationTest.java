@@ -820,6 +820,47 @@ public class JoinIntegrationTest extends SQLTransportIntegrationTest {
                "2| 3\n"));
     }
 
+    @Test
+    @UseHashJoins(1)
+    public void testOuterEquiJoinsUsingHashJoin() {
+        execute("create table t1 (a integer)");
+        execute("create table t2 (x integer)");
+        ensureYellow();
+        execute("insert into t1 (a) values (0), (0), (1), (2), (4)");
+        execute("insert into t2 (x) values (1), (3), (3), (4), (4), (7)");
+        execute("refresh table t1, t2");
+        execute("select a, x from t1 left join t2 on t1.a + 1 = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("0| 1\n" +
+               "0| 1\n" +
+               "1| NULL\n" +
+               "2| 3\n" +
+               "2| 3\n" +
+               "4| NULL\n"));
+
+        execute("select a, x from t1 right join t2 on t1.a + 1 = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("0| 1\n" +
+               "0| 1\n" +
+               "2| 3\n" +
+               "2| 3\n" +
+               "NULL| 4\n" +
+               "NULL| 4\n" +
+               "NULL| 7\n"));
+
+        execute("select a, x from t1 full join t2 on t1.a + 1 = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("0| 1\n" +
+               "0| 1\n" +
+               "1| NULL\n" +
+               "2| 3\n" +
+               "2| 3\n" +
+               "4| NULL\n" +
+               "NULL| 4\n" +
+               "NULL| 4\n" +
+               "NULL| 7\n"));
+    }
+
     @Test
     public void testJoinWithLargerRightBranch() throws Exception {
         execute("create table t1 (a integer)");
@@ -843,6 +884,49 @@ public class JoinIntegrationTest extends SQLTransportIntegrationTest {
                "1| 1\n"));
     }
 
+    @Test
+    @UseHashJoins(1)
+    public void testHashJoinWithBroadcastOfSmallSide() throws Exception {
+        execute("create table t1 (a integer) clustered into 4 shards with (number_of_replicas = 0)");
+        execute("create table t2 (x integer) clustered into 1 shards with (number_of_replicas = 0)");
+        ensureYellow();
+        execute("insert into t1 (a) values (0), (1), (1), (2), (3), (4), (5), (6)");
+        execute("insert into t2 (x) values (1), (3), (7)");
+        execute("refresh table t1, t2");
+
+        Iterable<TableStats> tableStatsOnAllNodes = internalCluster().getInstances(TableStats.class);
+        for (TableStats tableStats : tableStatsOnAllNodes) {
+            ObjectObjectHashMap<RelationName, TableStats.Stats> newStats = new ObjectObjectHashMap<>();
+            newStats.put(new RelationName(sqlExecutor.getCurrentSchema(), "t1"), new TableStats.Stats(800_000L, 3_200_000L));
+            newStats.put(new RelationName(sqlExecutor.getCurrentSchema(), "t2"), new TableStats.Stats(3L, 12L));
+            tableStats.updateTableStats(newStats);
+        }
+
+        execute("select a, x from t1 join t2 on t1.a = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("1| 1\n" +
+               "1| 1\n" +
+               "3| 3\n"));
+
+        execute("select a, x from t1 left join t2 on t1.a = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("0| NULL\n" +
+               "1| 1\n" +
+               "1| 1\n" +
+               "2| NULL\n" +
+               "3| 3\n" +
+               "4| NULL\n" +
+               "5| NULL\n" +
+               "6| NULL\n"));
+
+        execute("select a, x from t1 right join t2 on t1.a = t2.x order by a, x");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("1| 1\n" +
+               "1| 1\n" +
+               "3| 3\n" +
+               "NULL| 7\n"));
+    }
+
     /**
      * some implementations will apply the branch reordering optimisation, whilst others might not.
      * either way, all join implementations should yield the same results
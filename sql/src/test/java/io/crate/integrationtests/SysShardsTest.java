@@ -156,14 +156,14 @@ public class SysShardsTest extends SQLTransportIntegrationTest {
         SQLResponse response = execute(
             "select * from sys.shards where table_name = 'characters'");
         assertEquals(8L, response.rowCount());
-        assertEquals(16, response.cols().length);
+        assertEquals(17, response.cols().length);
     }
 
     @Test
     public void testSelectStarAllTables() throws Exception {
         SQLResponse response = execute("select * from sys.shards");
         assertEquals(26L, response.rowCount());
-        assertEquals(16, response.cols().length);
+        assertEquals(17, response.cols().length);
         assertThat(response.cols(), arrayContaining(
             "blob_path",
             "id",
@@ -176,6 +176,7 @@ public class SysShardsTest extends SQLTransportIntegrationTest {
             "primary",
             "recovery",
             "relocating_node",
+            "result_cache",
             "routing_state",
             "schema_name",
             "size",
@@ -188,7 +189,7 @@ public class SysShardsTest extends SQLTransportIntegrationTest {
         SQLResponse response = execute(
             "select * from sys.shards where table_name like 'charact%'");
         assertEquals(8L, response.rowCount());
-        assertEquals(16, response.cols().length);
+        assertEquals(17, response.cols().length);
     }
 
     @Test
@@ -196,7 +197,7 @@ public class SysShardsTest extends SQLTransportIntegrationTest {
         SQLResponse response = execute(
             "select * from sys.shards where table_name not like 'quotes%'");
         assertEquals(18L, response.rowCount());
-        assertEquals(16, response.cols().length);
+        assertEquals(17, response.cols().length);
     }
 
     @Test
@@ -204,7 +205,7 @@ public class SysShardsTest extends SQLTransportIntegrationTest {
         SQLResponse response = execute(
             "select * from sys.shards where table_name in ('characters')");
         assertEquals(8L, response.rowCount());
-        assertEquals(16, response.cols().length);
+        assertEquals(17, response.cols().length);
     }
 
     @Test
@@ -108,4 +108,54 @@ public class WindowFunctionsIntegrationTest extends SQLTransportIntegrationTest
                                                      "c| 4\n" +
                                                      "d| 5\n"));
     }
+
+    @Test
+    public void testSlidingRowsFrameWithinPartitions() {
+        execute("select col1, col2, sum(col2) OVER(PARTITION BY col1 ORDER BY col2 ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) " +
+                "from unnest(['a', 'b', 'a', 'b', 'a'], [1, 10, 2, 20, 3]) order by col1, col2");
+        assertThat(printedTable(response.rows()), is("a| 1| 3\n" +
+                                                     "a| 2| 6\n" +
+                                                     "a| 3| 5\n" +
+                                                     "b| 10| 30\n" +
+                                                     "b| 20| 30\n"));
+    }
+
+    @Test
+    public void testRowsFrameOffsetAsParameter() {
+        execute("select col1, max(col1) OVER(ORDER BY col1 ROWS BETWEEN CURRENT ROW AND ? FOLLOWING) " +
+                "from unnest([1, 2, 3, 4]) order by col1",
+            new Object[] {2});
+        assertThat(printedTable(response.rows()), is("1| 3\n" +
+                                                     "2| 4\n" +
+                                                     "3| 4\n" +
+                                                     "4| 4\n"));
+    }
+
+    @Test
+    public void testRangeFrameWithOffset() {
+        execute("select col1, sum(col1) OVER(ORDER BY col1 RANGE BETWEEN 2 PRECEDING AND CURRENT ROW) " +
+                "from unnest([4, 1, 7, 2, 4]) order by col1");
+        assertThat(printedTable(response.rows()), is("1| 1\n" +
+                                                     "2| 3\n" +
+                                                     "4| 10\n" +
+                                                     "4| 10\n" +
+                                                     "7| 7\n"));
+    }
+
+    @Test
+    public void testPartitionedWindowOverTableDistributesPartitions() {
+        execute("create table t (p int, x int) clustered into 4 shards with (number_of_replicas = 0)");
+        execute("insert into t (p, x) values (1, 1), (1, 2), (1, 3), (2, 1), (2, 5), (3, 4), (3, 6), (4, null)");
+        refresh();
+        execute("select p, x, row_number() OVER(PARTITION BY p ORDER BY x), sum(x) OVER(PARTITION BY p) " +
+                "from t order by p, x");
+        assertThat(printedTable(response.rows()), is("1| 1| 1| 6\n" +
+                                                     "1| 2| 2| 6\n" +
+                                                     "1| 3| 3| 6\n" +
+                                                     "2| 1| 1| 6\n" +
+                                                     "2| 5| 2| 6\n" +
+                                                     "3| 4| 1| 10\n" +
+                                                     "3| 6| 2| 10\n" +
+                                                     "4| NULL| 1| NULL\n"));
+    }
 }
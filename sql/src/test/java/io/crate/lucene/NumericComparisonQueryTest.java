@@ -0,0 +1,123 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.QueryTester;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.Version;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+
+public class NumericComparisonQueryTest extends CrateDummyClusterServiceUnitTest {
+
+    private QueryTester tester(String createTable, String column, Object... values) throws Exception {
+        return new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            createTable
+        ).indexValues(column, values).build();
+    }
+
+    @Test
+    public void testAbsOnIntegerColumn() throws Exception {
+        try (QueryTester tester = tester("create table t (x integer)", "x", -10, -3, null, 2, 7)) {
+            assertThat(tester.toQuery("abs(x) > 5"), instanceOf(NumericComparisonQuery.class));
+            List<Object> rows = tester.runQuery("x", "abs(x) > 5");
+            assertThat(rows, containsInAnyOrder(-10, 7));
+        }
+    }
+
+    @Test
+    public void testNestedArithmeticOnLongColumn() throws Exception {
+        try (QueryTester tester = tester("create table t (x long)", "x", 1L, 3L, null, 5L)) {
+            assertThat(tester.toQuery("x * 2 + 1 >= 7"), instanceOf(NumericComparisonQuery.class));
+            List<Object> rows = tester.runQuery("x", "x * 2 + 1 >= 7");
+            assertThat(rows, containsInAnyOrder(3L, 5L));
+        }
+    }
+
+    @Test
+    public void testArithmeticWithSameColumnOnBothSides() throws Exception {
+        try (QueryTester tester = tester("create table t (x long)", "x", -2L, 0L, 4L)) {
+            List<Object> rows = tester.runQuery("x", "x + x = x * 2 and x - 1 < x % 3");
+            assertThat(rows, containsInAnyOrder(-2L, 0L));
+        }
+    }
+
+    @Test
+    public void testDoubleArithmetic() throws Exception {
+        try (QueryTester tester = tester("create table t (d double)", "d", 1.5, 2.0, 3.0, -1.0, null)) {
+            assertThat(tester.toQuery("d / 2 < 1.0"), instanceOf(NumericComparisonQuery.class));
+            List<Object> rows = tester.runQuery("d", "d / 2 < 1.0");
+            assertThat(rows, containsInAnyOrder(1.5, -1.0));
+        }
+    }
+
+    @Test
+    public void testFloatColumnCastToDouble() throws Exception {
+        try (QueryTester tester = tester("create table t (f float)", "f", 1.5f, 2.5f, -0.5f)) {
+            assertThat(tester.toQuery("f - 0.5 = 1.0"), instanceOf(NumericComparisonQuery.class));
+            List<Object> rows = tester.runQuery("f", "f - 0.5 = 1.0");
+            assertThat(rows, containsInAnyOrder(1.5f));
+            rows = tester.runQuery("f", "abs(f) <= 1.5");
+            assertThat(rows, containsInAnyOrder(1.5f, -0.5f));
+        }
+    }
+
+    @Test
+    public void testDateTruncOnTimestampColumn() throws Exception {
+        // 2019-03-01T10:00, 2019-03-02T00:00 and 2019-02-28T23:59:59.999
+        try (QueryTester tester = tester("create table t (ts timestamp)", "ts",
+            1551434400000L, 1551484800000L, 1551398399999L, null)) {
+            Query query = tester.toQuery("date_trunc('day', ts) = 1551398400000");
+            assertThat(query, instanceOf(NumericComparisonQuery.class));
+            List<Object> rows = tester.runQuery("ts", "date_trunc('day', ts) = 1551398400000");
+            assertThat(rows, containsInAnyOrder(1551434400000L));
+        }
+    }
+
+    @Test
+    public void testUnsupportedFunctionUsesGenericFunctionQuery() throws Exception {
+        try (QueryTester tester = tester("create table t (x integer)", "x", 1, 2, 3)) {
+            assertThat(tester.toQuery("power(x, 2) > 4"), instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("x", "power(x, 2) > 4"), containsInAnyOrder(3));
+        }
+    }
+
+    @Test
+    public void testEqualQueriesForEqualFunctions() throws Exception {
+        try (QueryTester tester = tester("create table t (x integer)", "x", 1)) {
+            Query query = tester.toQuery("abs(x) > 5");
+            assertThat(query, is(tester.toQuery("abs(x) > 5")));
+            assertThat(query.hashCode(), is(tester.toQuery("abs(x) > 5").hashCode()));
+        }
+    }
+}
@@ -25,6 +25,9 @@ import com.google.common.collect.ImmutableList;
 import io.crate.action.sql.SessionContext;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.data.ArrayBucket;
+import io.crate.data.Column;
+import io.crate.data.DoubleColumn;
+import io.crate.data.LongColumn;
 import io.crate.data.Row;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.collect.InputCollectExpression;
@@ -37,6 +40,7 @@ import io.crate.metadata.Functions;
 import io.crate.metadata.SearchPath;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
@@ -47,6 +51,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
 
 public abstract class AggregationTest extends CrateUnitTest {
 
@@ -94,9 +99,44 @@ public abstract class AggregationTest extends CrateUnitTest {
 
         }
         state = impl.terminatePartial(ramAccountingContext, state);
+        if (supportsColumns(fi.argumentTypes())) {
+            assertThat(
+                "iterateColumns must produce the same result as iterate",
+                executeAggregationOnColumns(impl, fi.argumentTypes(), data),
+                is(state));
+        }
         return new Object[][]{{state}};
     }
 
+    private static boolean supportsColumns(List<DataType> argumentTypes) {
+        for (DataType argumentType : argumentTypes) {
+            if (!DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(argumentType) && !argumentType.equals(DataTypes.TIMESTAMP)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object executeAggregationOnColumns(AggregationFunction impl,
+                                                      List<DataType> argumentTypes,
+                                                      Object[][] data) {
+        Column[] columns = new Column[argumentTypes.size()];
+        for (int i = 0; i < columns.length; i++) {
+            DataType argumentType = argumentTypes.get(i);
+            if (argumentType.equals(DataTypes.DOUBLE) || argumentType.equals(DataTypes.FLOAT)) {
+                columns[i] = new DoubleColumn(data.length);
+            } else {
+                columns[i] = new LongColumn(data.length);
+            }
+            for (int row = 0; row < data.length; row++) {
+                columns[i].set(row, argumentType.value(data[row][i]));
+            }
+        }
+        Object state = impl.newState(ramAccountingContext, Version.CURRENT, BigArrays.NON_RECYCLING_INSTANCE);
+        state = impl.iterateColumns(ramAccountingContext, state, columns, data.length);
+        return impl.terminatePartial(ramAccountingContext, state);
+    }
+
     protected Symbol normalize(String functionName, Object value, DataType type) {
         return normalize(functionName, Literal.of(type, value));
     }
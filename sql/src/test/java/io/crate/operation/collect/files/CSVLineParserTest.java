@@ -6,7 +6,6 @@ import org.junit.Test;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -14,7 +13,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 public class CSVLineParserTest {
 
     private CSVLineParser subjectUnderTest;
-    private byte[] result;
+    private String result;
 
     @Before
     public void setup(){
@@ -60,7 +59,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
     }
 
     @Test
@@ -70,7 +69,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
     }
 
     @Test
@@ -80,7 +79,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("");
 
-        assertThat(result, is("{}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{}"));
     }
 
     @Test
@@ -90,7 +89,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse(",");
 
-        assertThat(result, is("{\"Country\":\"\",\"Code\":\"\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"\",\"Country\":\"\"}"));
     }
 
     @Test
@@ -100,7 +99,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Coun, try\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Coun, try\":\"Germany\"}"));
     }
 
     @Test
@@ -110,7 +109,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,,Berlin\n");
 
-        assertThat(result, is("{\"Country\":\"\",\"City\":\"Berlin\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"\",\"City\":\"Berlin\"}"));
     }
 
     @Test
@@ -120,7 +119,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
     }
 
     @Test
@@ -130,7 +129,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER        ,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
     }
 
     @Test
@@ -140,7 +139,7 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
     }
 
     @Test
@@ -150,6 +149,42 @@ public class CSVLineParserTest {
         subjectUnderTest.parseHeader(bufferedReader);
         result = subjectUnderTest.parse("GER,               Germany\n");
 
-        assertThat(result, is("{\"Country\":\"Germany\",\"Code\":\"GER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\"Germany\"}"));
+    }
+
+    @Test
+    public void parse_givenQuotedValues_thenParsesValuesWithoutQuotes() throws IOException {
+        String header = "Code,Country,Motto\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        result = subjectUnderTest.parse("  \"GER\" , \" Germany, \"\"DE\"\" \",\"\"");
+
+        assertThat(result, is("{\"Code\":\"GER\",\"Country\":\" Germany, \\\"DE\\\" \",\"Motto\":\"\"}"));
+    }
+
+    @Test
+    public void parse_givenCharactersWhichMustBeEscaped_thenParsesToValidJson() throws IOException {
+        String header = "Path,\"Quote\"\"\"\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        result = subjectUnderTest.parse("C:\\crate,\"tab\tü\u0001\"");
+
+        assertThat(result, is("{\"Path\":\"C:\\\\crate\",\"Quote\\\"\":\"tab\\tü\\u0001\"}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_givenMissingClosingQuote_thenThrowsException() throws IOException {
+        String header = "Code,Country\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        subjectUnderTest.parse("GER,\"Germany");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_givenCharactersAfterClosingQuote_thenThrowsException() throws IOException {
+        String header = "Code,Country\n";
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(header));
+        subjectUnderTest.parseHeader(bufferedReader);
+        subjectUnderTest.parse("GER,\"Germ\"any");
     }
 }
@@ -138,6 +138,7 @@ public class JoinPhaseTest extends CrateUnitTest {
             2,
             3,
             Sets.newHashSet("node1", "node2"),
+            JoinType.FULL,
             joinCondition,
             Arrays.asList(Literal.of("testLeft"), Literal.of(10)),
             Arrays.asList(Literal.of("testRight"), Literal.of(20)),
@@ -159,7 +160,7 @@ public class JoinPhaseTest extends CrateUnitTest {
         assertThat(node.jobId(), is(node2.jobId()));
         assertThat(node.name(), is(node2.name()));
         assertThat(node.outputTypes(), is(node2.outputTypes()));
-        assertThat(node.joinType(), is(node2.joinType()));
+        assertThat(node2.joinType(), is(JoinType.FULL));
         assertThat(node.joinCondition(), is(node2.joinCondition()));
         assertThat(node.leftJoinConditionInputs(), is(node2.leftJoinConditionInputs()));
         assertThat(node.rightJoinConditionInputs(), is(node2.rightJoinConditionInputs()));
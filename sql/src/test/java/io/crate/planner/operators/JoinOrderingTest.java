@@ -23,6 +23,7 @@
 package io.crate.planner.operators;
 
 import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.ObjectLongHashMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import io.crate.sql.tree.QualifiedName;
@@ -80,4 +81,48 @@ public class JoinOrderingTest {
         );
         assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
     }
+
+    @Test
+    public void testOrderByNumberOfRowsStartsWithSmallestJoinedPair() {
+        // SELECT * FROM t1, t2, t3, t4 WHERE t1.id = t2.id AND t2.id = t3.id AND t3.id = t4.id
+        ObjectLongHashMap<QualifiedName> numRows = new ObjectLongHashMap<>();
+        numRows.put(T3.T1, 1000L);
+        numRows.put(T3.T2, 10L);
+        numRows.put(T3.T3, 100L);
+        numRows.put(T3.T4, 5L);
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.getOrderedRelationNames(
+            Arrays.asList(T3.T1, T3.T2, T3.T3, T3.T4),
+            ImmutableSet.of(ImmutableSet.of(T3.T1, T3.T2), ImmutableSet.of(T3.T2, T3.T3)),
+            ImmutableSet.of(ImmutableSet.of(T3.T3, T3.T4)),
+            numRows::get
+        );
+        assertThat(qualifiedNames, contains(T3.T3, T3.T4, T3.T2, T3.T1));
+    }
+
+    @Test
+    public void testOrderByNumberOfRowsAddsRelationsWithoutJoinConditionLast() {
+        // SELECT * FROM t1, t2, t3 WHERE t2.id = t3.id
+        ObjectLongHashMap<QualifiedName> numRows = new ObjectLongHashMap<>();
+        numRows.put(T3.T1, 1L);
+        numRows.put(T3.T2, 100L);
+        numRows.put(T3.T3, 50L);
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.getOrderedRelationNames(
+            Arrays.asList(T3.T1, T3.T2, T3.T3),
+            ImmutableSet.of(),
+            ImmutableSet.of(ImmutableSet.of(T3.T2, T3.T3)),
+            numRows::get
+        );
+        assertThat(qualifiedNames, contains(T3.T2, T3.T3, T3.T1));
+    }
+
+    @Test
+    public void testOrderByJoinConditionsIfNumberOfRowsIsUnknown() {
+        Collection<QualifiedName> qualifiedNames = JoinOrdering.getOrderedRelationNames(
+            Arrays.asList(T3.T1, T3.T2, T3.T3, T3.T4),
+            ImmutableSet.of(ImmutableSet.of(T3.T1, T3.T2), ImmutableSet.of(T3.T2, T3.T3)),
+            ImmutableSet.of(ImmutableSet.of(T3.T3, T3.T4)),
+            name -> name.equals(T3.T4) ? -1L : 10L
+        );
+        assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3, T3.T4));
+    }
 }
@@ -40,6 +40,7 @@ import io.crate.planner.TableStats;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.node.dql.QueryThenFetch;
 import io.crate.planner.node.dql.join.Join;
+import io.crate.planner.node.dql.join.JoinType;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.testing.T3;
@@ -50,7 +51,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static io.crate.testing.TestingHelpers.getFunctions;
 import static io.crate.testing.TestingHelpers.isSQL;
@@ -194,6 +197,80 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             is("[IC{1, long}, IC{2, long}, IC{0, long}]"));
     }
 
+    @Test
+    public void testHashJoin_OuterJoinTypeIsInvertedWhenTablesSwitch() {
+        MultiSourceSelect mss = e.normalize("select users.name, locations.id " +
+                                            "from users " +
+                                            "left join locations on users.id = locations.id");
+
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(TableDefinitions.USER_TABLE_IDENT, new TableStats.Stats(10, 0));
+        rowCountByTable.put(TableDefinitions.TEST_DOC_LOCATIONS_TABLE_IDENT, new TableStats.Stats(100, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.LEFT));
+
+        Join join = buildJoin(operator);
+        assertThat(join.joinPhase(), instanceOf(HashJoinPhase.class));
+        assertThat(join.joinPhase().joinType(), is(JoinType.RIGHT));
+        assertThat(join.joinPhase().leftMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG));
+        assertThat(join.joinPhase().rightMergePhase().inputTypes(), Matchers.contains(DataTypes.LONG, DataTypes.LONG));
+    }
+
+    @Test
+    public void testHashJoin_InnerJoinsAreOrderedByNumberOfRows() {
+        MultiSourceSelect mss = e.normalize("select * " +
+                                            "from t1 inner join t2 on t1.a = t2.b " +
+                                            "inner join t3 on t3.c = t2.b");
+
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(T3.T1_INFO.ident(), new TableStats.Stats(10_000, 0));
+        rowCountByTable.put(T3.T2_INFO.ident(), new TableStats.Stats(100, 0));
+        rowCountByTable.put(T3.T3_INFO.ident(), new TableStats.Stats(10, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).concreteRelation.getQualifiedName(), is(T3.T1));
+        LogicalPlan leftPlan = ((HashJoin) operator).lhs;
+        assertThat(leftPlan, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) leftPlan).concreteRelation.getQualifiedName(), is(T3.T3));
+    }
+
+    @Test
+    public void testHashJoin_OuterJoinsAreNotOrderedByNumberOfRows() {
+        MultiSourceSelect mss = e.normalize("select * " +
+                                            "from t1 left join t2 on t1.a = t2.b " +
+                                            "left join t3 on t3.c = t2.b");
+
+        TableStats tableStats = new TableStats();
+        ObjectObjectHashMap<RelationName, TableStats.Stats> rowCountByTable = new ObjectObjectHashMap<>();
+        rowCountByTable.put(T3.T1_INFO.ident(), new TableStats.Stats(10_000, 0));
+        rowCountByTable.put(T3.T2_INFO.ident(), new TableStats.Stats(100, 0));
+        rowCountByTable.put(T3.T3_INFO.ident(), new TableStats.Stats(10, 0));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).concreteRelation.getQualifiedName(), is(T3.T3));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.LEFT));
+    }
+
+    @Test
+    public void testHashJoin_BroadcastIsOnlyCheaperIfOneSideIsSmall() {
+        List<String> twoNodes = Arrays.asList("n1", "n2");
+        assertThat(HashJoin.isBroadcastCheaper(1_000, 100_000, twoNodes), is(true));
+        assertThat(HashJoin.isBroadcastCheaper(100_000, 100_000, twoNodes), is(false));
+        assertThat(HashJoin.isBroadcastCheaper(1_000, 2_000, Arrays.asList("n1", "n2", "n3", "n4")), is(false));
+        // unknown sizes
+        assertThat(HashJoin.isBroadcastCheaper(-1, 100_000, twoNodes), is(false));
+        assertThat(HashJoin.isBroadcastCheaper(1_000, 100_000, Collections.emptyList()), is(false));
+    }
+
     @Test
     public void testMultipleHashJoins() {
         MultiSourceSelect mss = e.normalize("select * " +
@@ -215,7 +292,7 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
     public void testMixedHashJoinNestedLoop() {
         MultiSourceSelect mss = e.normalize("select * " +
                                             "from t1 inner join t2 on t1.a = t2.b " +
-                                            "left join t3 on t3.c = t2.b");
+                                            "left join t3 on t3.c > t2.b");
 
         LogicalPlan operator = createLogicalPlan(mss, new TableStats());
         assertThat(operator, instanceOf(NestedLoopJoin.class));
@@ -25,7 +25,6 @@ package io.crate.planner.operators;
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.QueryClause;
 import io.crate.analyze.relations.QueriedRelation;
-import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.SelectSymbol;
 import io.crate.expression.symbol.Symbol;
@@ -81,10 +80,11 @@ public class LogicalPlannerTest extends CrateDummyClusterServiceUnitTest {
     }
 
     @Test
-    public void testPartitionedWindowPlansAreNotSupported() {
-        expectedException.expect(UnsupportedFeatureException.class);
-        expectedException.expectMessage("Window partitions or custom frame definitions are not supported");
-        plan("select avg(x) OVER(PARTITION BY a) from t1");
+    public void testPartitionedWindowFunction() {
+        LogicalPlan plan = plan("select avg(x) OVER(PARTITION BY a ORDER BY x ROWS BETWEEN 1 PRECEDING AND 1 FOLLOWING) from t1");
+        assertThat(plan, isPlan("FetchOrEval[avg(x)]\n" +
+                                "WindowAgg[avg(x)]\n" +
+                                "Collect[doc.t1 | [x, a] | All]\n"));
     }
 
     @Test
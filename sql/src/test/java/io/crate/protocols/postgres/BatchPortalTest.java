@@ -23,6 +23,7 @@
 package io.crate.protocols.postgres;
 
 import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.ParseCache;
 import io.crate.action.sql.Session;
 import io.crate.action.sql.SessionContext;
 import io.crate.analyze.AnalyzedStatement;
@@ -80,6 +81,7 @@ public class BatchPortalTest extends CrateDummyClusterServiceUnitTest {
         Session session = new Session(
             sqlExecutor.analyzer,
             planner,
+            new ParseCache(10),
             new JobsLogs(() -> false),
             false,
             executor,
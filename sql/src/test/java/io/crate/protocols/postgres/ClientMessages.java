@@ -152,4 +152,15 @@ class ClientMessages {
         buffer.writeByte('X');
         buffer.writeInt(4);
     }
+
+    static void sendCopyData(ByteBuf buffer, byte[] data) {
+        buffer.writeByte('d');
+        buffer.writeInt(4 + data.length);
+        buffer.writeBytes(data);
+    }
+
+    static void sendCopyDone(ByteBuf buffer) {
+        buffer.writeByte('c');
+        buffer.writeInt(4);
+    }
 }
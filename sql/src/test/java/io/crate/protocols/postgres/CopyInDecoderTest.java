@@ -0,0 +1,185 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class CopyInDecoderTest extends CrateUnitTest {
+
+    private static final List<String> COLUMNS = Arrays.asList("id", "name");
+    private static final PGType[] TYPES = new PGType[] { PGTypes.get(DataTypes.INTEGER), PGTypes.get(DataTypes.STRING) };
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private CopyInDecoder decoder;
+
+    @After
+    public void closeDecoder() {
+        if (decoder != null) {
+            decoder.close();
+        }
+    }
+
+    private static CopyOptions options(String withClause) {
+        CopyFromStdin copyFrom = (CopyFromStdin) SqlParser.createStatement("copy t from stdin " + withClause);
+        return CopyOptions.of(copyFrom.genericProperties(), true);
+    }
+
+    private void decode(String withClause, String... chunks) {
+        decoder = CopyInDecoder.create(options(withClause), COLUMNS, TYPES);
+        for (String chunk : chunks) {
+            decoder.decode(Unpooled.wrappedBuffer(chunk.getBytes(StandardCharsets.UTF_8)), rows::add);
+        }
+        decoder.finish(rows::add);
+    }
+
+    @Test
+    public void testTextFormatWithEscapesAndNull() {
+        decode("", "1\tfoo\n2\t\\N\n3\ta\\tb\\\\c\\nd\\x41\\101\n");
+        assertThat(rows.size(), is(3));
+        assertThat(Arrays.asList(rows.get(0)), contains(1, "foo"));
+        assertThat(Arrays.asList(rows.get(1)), contains(2, null));
+        assertThat(Arrays.asList(rows.get(2)), contains(3, "a\tb\\c\ndAA"));
+    }
+
+    @Test
+    public void testRowsSplitAcrossCopyDataMessages() {
+        decode("", "1\tf", "oo\n2", "\tb", "ar\r\n", "3\tbaz");
+        assertThat(rows.size(), is(3));
+        assertThat(Arrays.asList(rows.get(0)), contains(1, "foo"));
+        assertThat(Arrays.asList(rows.get(1)), contains(2, "bar"));
+        assertThat(Arrays.asList(rows.get(2)), contains(3, "baz"));
+    }
+
+    @Test
+    public void testEndOfDataMarkerStopsDecoding() {
+        decode("", "1\tfoo\n\\.\n2\tignored\n");
+        assertThat(rows.size(), is(1));
+    }
+
+    @Test
+    public void testTextFormatWithCustomDelimiterAndNull() {
+        decode("with (delimiter='|', \"null\"='NULL')", "1|NULL\n2|a\\|b\n");
+        assertThat(Arrays.asList(rows.get(0)), contains(1, null));
+        assertThat(Arrays.asList(rows.get(1)), contains(2, "a|b"));
+    }
+
+    @Test
+    public void testCsvFormat() {
+        decode("with (format='csv', header=true)",
+            "id,name\n",
+            "1,\"foo, \"\"bar\"\"\"\n",
+            "2,\n",
+            "3,\"\"\n",
+            "4,\"multi\n",
+            "line\"\n");
+        assertThat(rows.size(), is(4));
+        assertThat(Arrays.asList(rows.get(0)), contains(1, "foo, \"bar\""));
+        assertThat(Arrays.asList(rows.get(1)), contains(2, null));
+        assertThat(Arrays.asList(rows.get(2)), contains(3, ""));
+        assertThat(Arrays.asList(rows.get(3)), contains(4, "multi\nline"));
+    }
+
+    @Test
+    public void testCsvFormatWithEscape() {
+        decode("with (format='csv', \"escape\"='\\')", "1,\"a\\\"b\\\\c\\d\"");
+        assertThat(Arrays.asList(rows.get(0)), contains(1, "a\"b\\c\\d"));
+    }
+
+    @Test
+    public void testBinaryFormat() {
+        ByteBuf data = Unpooled.buffer();
+        data.writeBytes("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1));
+        data.writeInt(0);
+        data.writeInt(0);
+        data.writeShort(2);
+        TYPES[0].writeAsBinary(data, 10);
+        TYPES[1].writeAsBinary(data, "foo");
+        data.writeShort(2);
+        TYPES[0].writeAsBinary(data, 20);
+        data.writeInt(-1);
+        data.writeShort(-1);
+
+        decoder = CopyInDecoder.create(options("with (format='binary')"), COLUMNS, TYPES);
+        // feed the data byte by byte to exercise incomplete headers and tuples
+        while (data.isReadable()) {
+            decoder.decode(data.readSlice(1), rows::add);
+        }
+        decoder.finish(rows::add);
+        data.release();
+        assertThat(rows.size(), is(2));
+        assertThat(Arrays.asList(rows.get(0)), contains(10, "foo"));
+        assertThat(Arrays.asList(rows.get(1)), contains(20, null));
+    }
+
+    @Test
+    public void testExtraColumnIsRejected() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY line 2: extra data after last expected column");
+        decode("", "1\tfoo\n2\tbar\tbaz\n");
+    }
+
+    @Test
+    public void testMissingColumnIsRejected() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY line 1: missing data for column \"name\"");
+        decode("", "1\n");
+    }
+
+    @Test
+    public void testInvalidValueIsRejected() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY line 1: invalid value for column \"id\"");
+        decode("with (format='csv')", "foo,bar\n");
+    }
+
+    @Test
+    public void testUnsupportedFormat() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY format \"json\" not supported, supported formats are: text, csv, binary");
+        options("with (format='json')");
+    }
+
+    @Test
+    public void testCsvOptionIsRejectedForTextFormat() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY option \"header\" is not supported by the chosen format");
+        options("with (header=true)");
+    }
+}
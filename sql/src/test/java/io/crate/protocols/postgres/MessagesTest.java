@@ -25,6 +25,8 @@ package io.crate.protocols.postgres;
 import io.crate.data.Buckets;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
 import io.netty.buffer.ByteBuf;
@@ -35,8 +37,6 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.Collections;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static org.hamcrest.core.Is.is;
@@ -72,8 +72,9 @@ public class MessagesTest extends CrateUnitTest {
                         return Buckets.materialize(this);
                     }
                 },
-                Collections.singletonList(DataTypes.INTEGER),
-                null
+                new PGType[] { PGTypes.get(DataTypes.INTEGER) },
+                null,
+                0
             );
             fail("sendDataRow should raise an exception");
         } catch (Exception ignored) {
@@ -87,7 +88,9 @@ public class MessagesTest extends CrateUnitTest {
         Messages.sendDataRow(
             channel,
             new RowN($(10, null)),
-            Arrays.asList(DataTypes.INTEGER, DataTypes.STRING), null
+            new PGType[] { PGTypes.get(DataTypes.INTEGER), PGTypes.get(DataTypes.STRING) },
+            null,
+            0
         );
         channel.flush();
         ByteBuf buffer = channel.readOutbound();
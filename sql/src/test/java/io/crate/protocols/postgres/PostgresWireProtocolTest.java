@@ -23,18 +23,25 @@
 package io.crate.protocols.postgres;
 
 import io.crate.Version;
+import io.crate.action.sql.ResultReceiver;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
+import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.auth.AlwaysOKNullAuthentication;
 import io.crate.auth.Authentication;
 import io.crate.auth.AuthenticationMethod;
 import io.crate.auth.user.User;
 import io.crate.auth.user.UserManager;
 import io.crate.concurrent.CompletableFutures;
+import io.crate.data.Row1;
+import io.crate.data.RowN;
 import io.crate.exceptions.JobKilledException;
 import io.crate.execution.engine.collect.stats.JobsLogs;
+import io.crate.expression.symbol.Field;
+import io.crate.metadata.ColumnIdent;
 import io.crate.planner.DependencyCarrier;
 import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.parser.SqlParser;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.DummyUserManager;
 import io.crate.testing.SQLExecutor;
@@ -64,8 +71,11 @@ import java.util.concurrent.TimeUnit;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isOneOf;
 import static org.mockito.Matchers.anyChar;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -465,6 +475,154 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
         readReadyForQueryMessage(channel);
     }
 
+    @Test
+    public void testCopyFromStdinInsertsRowsInBulks() {
+        Session session = mock(Session.class);
+        PostgresWireProtocol ctx = startupWithSession(session);
+        when(session.getStatement("")).thenReturn(SqlParser.createStatement("copy t (id, name) from stdin with (bulk_size=2)"));
+        Session.DescribeResult describeResult = mock(Session.DescribeResult.class);
+        when(describeResult.getFields()).thenReturn(Arrays.asList(
+            new Field(mock(AnalyzedRelation.class), new ColumnIdent("id"), DataTypes.INTEGER),
+            new Field(mock(AnalyzedRelation.class), new ColumnIdent("name"), DataTypes.STRING)));
+        when(session.describe(anyChar(), anyString())).thenReturn(describeResult);
+        List<Object> boundParams = new ArrayList<>();
+        doAnswer(invocation -> boundParams.add(invocation.getArgument(2)))
+            .when(session).bind(anyString(), anyString(), any(), any());
+        doAnswer(invocation -> {
+            ResultReceiver resultReceiver = invocation.getArgument(2);
+            resultReceiver.setNextRow(new Row1(1L));
+            resultReceiver.allFinished(false);
+            return null;
+        }).when(session).execute(anyString(), anyInt(), any());
+        when(session.sync()).thenReturn(CompletableFuture.completedFuture(null));
+
+        sendSimpleQuery(ctx, "copy t (id, name) from stdin with (bulk_size=2)");
+        // CopyInResponse: 'G' | int32 len | int8 format | int16 numCols | int16 format per column
+        assertThat(readOutboundBytes(channel), is(new byte[]{'G', 0, 0, 0, 11, 0, 0, 2, 0, 0, 0, 0}));
+
+        writeCopyData("1\tfoo\n2\tb");
+        writeCopyData("ar\n3\t\\N\n");
+        ByteBuf copyDone = Unpooled.buffer();
+        ClientMessages.sendCopyDone(copyDone);
+        channel.writeInbound(copyDone);
+        channel.runPendingTasks();
+
+        assertThat(boundParams, is(Arrays.asList(
+            Arrays.asList(1, "foo"),
+            Arrays.asList(2, "bar"),
+            Arrays.asList(3, null))));
+        verify(session, times(2)).sync();
+        assertThat(readOutboundBytes(channel), is(new byte[]{'C', 0, 0, 0, 11, 'C', 'O', 'P', 'Y', ' ', '3', 0}));
+        readReadyForQueryMessage(channel);
+    }
+
+    @Test
+    public void testCopyFromStdinWithSubscriptColumnInsertsIntoTheSubscript() {
+        Session session = mock(Session.class);
+        PostgresWireProtocol ctx = startupWithSession(session);
+        when(session.getStatement("")).thenReturn(SqlParser.createStatement("copy t (o['x']) from stdin"));
+        Session.DescribeResult describeResult = mock(Session.DescribeResult.class);
+        when(describeResult.getFields()).thenReturn(Collections.singletonList(
+            new Field(mock(AnalyzedRelation.class), new ColumnIdent("o", "x"), DataTypes.INTEGER)));
+        when(session.describe(anyChar(), anyString())).thenReturn(describeResult);
+        List<String> parsedStatements = new ArrayList<>();
+        doAnswer(invocation -> parsedStatements.add(invocation.getArgument(1)))
+            .when(session).parse(anyString(), anyString(), any());
+
+        sendSimpleQuery(ctx, "copy t (o['x']) from stdin");
+
+        assertThat(parsedStatements, is(Arrays.asList(
+            "copy t (o['x']) from stdin",
+            "SELECT \"o\"['x'] FROM \"t\" LIMIT 0",
+            "INSERT INTO \"t\" (\"o\"['x']) VALUES ($1)")));
+    }
+
+    @Test
+    public void testCopyToStdoutSendsRowsAsCopyData() {
+        Session session = mock(Session.class);
+        PostgresWireProtocol ctx = startupWithSession(session);
+        when(session.getStatement("")).thenReturn(SqlParser.createStatement("copy t to stdout"));
+        Session.DescribeResult describeResult = mock(Session.DescribeResult.class);
+        when(describeResult.getFields()).thenReturn(Arrays.asList(
+            new Field(mock(AnalyzedRelation.class), new ColumnIdent("id"), DataTypes.INTEGER),
+            new Field(mock(AnalyzedRelation.class), new ColumnIdent("name"), DataTypes.STRING)));
+        when(session.describe(anyChar(), anyString())).thenReturn(describeResult);
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            ResultReceiver resultReceiver = invocation.getArgument(2);
+            resultReceiver.setNextRow(new RowN(new Object[]{1, "foo	bar"}));
+            resultReceiver.setNextRow(new RowN(new Object[]{2, null}));
+            resultReceiver.allFinished(false);
+            resultReceiver.completionFuture().whenComplete((r, t) -> completion.complete(null));
+            return null;
+        }).when(session).execute(anyString(), anyInt(), any());
+        doReturn(completion).when(session).sync();
+
+        sendSimpleQuery(ctx, "copy t to stdout");
+        // CopyOutResponse: 'H' | int32 len | int8 format | int16 numCols | int16 format per column
+        assertThat(readOutboundBytes(channel), is(new byte[]{'H', 0, 0, 0, 11, 0, 0, 2, 0, 0, 0, 0}));
+        assertThat(readOutboundBytes(channel), is(copyData("1\tfoo\\tbar\n")));
+        assertThat(readOutboundBytes(channel), is(copyData("2\t\\N\n")));
+        assertThat(readOutboundBytes(channel), is(new byte[]{'c', 0, 0, 0, 4}));
+        assertThat(readOutboundBytes(channel), is(new byte[]{'C', 0, 0, 0, 11, 'C', 'O', 'P', 'Y', ' ', '2', 0}));
+        readReadyForQueryMessage(channel);
+    }
+
+    private PostgresWireProtocol startupWithSession(Session session) {
+        SQLOperations sqlOperations = Mockito.mock(SQLOperations.class);
+        when(sqlOperations.createSession(any(String.class), any(User.class))).thenReturn(session);
+        PostgresWireProtocol ctx =
+            new PostgresWireProtocol(
+                sqlOperations,
+                new AlwaysOKNullAuthentication(),
+                null);
+        channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
+        sendStartupMessage(channel);
+        readAuthenticationOK(channel);
+        skipParameterMessages(channel);
+        readReadyForQueryMessage(channel);
+        return ctx;
+    }
+
+    private void sendSimpleQuery(PostgresWireProtocol ctx, String statement) {
+        ByteBuf query = Unpooled.buffer();
+        try {
+            Messages.writeCString(query, statement.getBytes(StandardCharsets.UTF_8));
+            ctx.handleSimpleQuery(query, channel);
+        } finally {
+            query.release();
+        }
+    }
+
+    private void writeCopyData(String data) {
+        ByteBuf buffer = Unpooled.buffer();
+        ClientMessages.sendCopyData(buffer, data.getBytes(StandardCharsets.UTF_8));
+        channel.writeInbound(buffer);
+    }
+
+    private static byte[] copyData(String data) {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            ClientMessages.sendCopyData(buffer, data.getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            return bytes;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static byte[] readOutboundBytes(EmbeddedChannel channel) {
+        ByteBuf response = channel.readOutbound();
+        try {
+            byte[] bytes = new byte[response.readableBytes()];
+            response.readBytes(bytes);
+            return bytes;
+        } finally {
+            response.release();
+        }
+    }
+
     private void submitQueriesThroughSimpleQueryMode(String statements, @Nullable Throwable failure) {
         SQLOperations sqlOperations = Mockito.mock(SQLOperations.class);
         Session session = mock(Session.class);
@@ -53,4 +53,12 @@ public class JsonTypeTest extends BasePGTypeTest<Map<String, Object>> {
         };
         assertBytesReadBinary(bytes, map, 20);
     }
+
+    @Test
+    public void testReadJsonbValue() throws Exception {
+        byte[] bytes = new byte[]{
+            1, 123, 34, 102, 111, 111, 34, 58, 34, 98, 97, 114, 34, 44, 34, 120, 34, 58, 49, 48, 125
+        };
+        assertBytesReadBinary(bytes, map, 21);
+    }
 }
@@ -23,6 +23,7 @@
 package io.crate.protocols.postgres.types;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.ArrayType;
 import io.crate.types.DataType;
@@ -111,7 +112,15 @@ public class PGTypesTest extends CrateUnitTest {
             new Entry(new ArrayType(DataTypes.INTEGER), new Integer[]{null, null}),
             new Entry(new ArrayType(DataTypes.INTEGER), new Integer[][]{new Integer[]{10, null, 20}, new Integer[]{1, 2, 3}}),
             new Entry(new SetType(DataTypes.STRING), new Object[]{"test"}),
-            new Entry(new SetType(DataTypes.INTEGER), new Integer[]{10, null, 20})
+            new Entry(new SetType(DataTypes.INTEGER), new Integer[]{10, null, 20}),
+            new Entry(new ArrayType(DataTypes.STRING), new Object[]{"a \"quoted\" \\ string", null}),
+            new Entry(new ArrayType(DataTypes.IP), new Object[]{"192.168.1.1", "10.0.0.1"}),
+            new Entry(new ArrayType(DataTypes.TIMESTAMP), new Object[]{DataTypes.TIMESTAMP.value(-999999999999L), null}),
+            new Entry(new ArrayType(DataTypes.DOUBLE), new Double[]{1.5, -0.25}),
+            new Entry(new ArrayType(DataTypes.BOOLEAN), new Boolean[]{true, false}),
+            new Entry(DataTypes.GEO_POINT, new Double[]{9.74, 47.4}),
+            new Entry(new ArrayType(DataTypes.GEO_POINT), new Double[][]{{1.0, 2.0}, {3.0, 4.0}, {5.0, 6.0}}),
+            new Entry(DataTypes.OBJECT, ImmutableMap.of("x", 10, "y", ImmutableList.of("a", "b")))
         )) {
 
             PGType pgType = PGTypes.get(entry.type);
@@ -52,6 +52,18 @@ public class TimestampTypeTest extends BasePGTypeTest<Long> {
         }
     }
 
+    @Test
+    public void testReadBinaryTruncatesMicrosTowardsThePast() {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            // 1999-12-31 23:59:59.999500 (500 microseconds before the last millisecond of 1999)
+            buffer.writeLong(-500L);
+            assertThat(pgType.readBinaryValue(buffer, 8), is(946684799999L));
+        } finally {
+            buffer.release();
+        }
+    }
+
     @Test
     public void testEncodeAsUTF8Text() {
         assertThat(new String(TimestampType.INSTANCE.encodeAsUTF8Text(1467072000000L), StandardCharsets.UTF_8),
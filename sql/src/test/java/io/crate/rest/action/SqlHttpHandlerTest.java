@@ -22,17 +22,54 @@
 
 package io.crate.rest.action;
 
+import com.google.common.collect.ImmutableList;
+import io.crate.action.sql.ResultReceiver;
 import io.crate.action.sql.SQLOperations;
+import io.crate.action.sql.Session;
+import io.crate.action.sql.SessionContext;
 import io.crate.auth.AuthSettings;
 import io.crate.auth.user.User;
+import io.crate.data.RowN;
+import io.crate.expression.symbol.Field;
+import io.crate.metadata.ColumnIdent;
+import io.crate.testing.DummyRelation;
+import io.crate.types.DataTypes;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.apache.logging.log4j.LogManager;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.http.netty4.cors.Netty4CorsConfigBuilder;
+import org.elasticsearch.http.netty4.pipelining.HttpPipeliningHandler;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class SqlHttpHandlerTest {
 
@@ -85,5 +122,86 @@ public class SqlHttpHandlerTest {
         User user = handler.userFromAuthHeader("Basic QWxhZGRpbjpPcGVuU2VzYW1l");
         assertThat(user.name(), is("Aladdin"));
     }
+
+    @Test
+    public void testResponseFormatIsNegotiatedUsingAcceptHeader() {
+        assertThat(ResponseFormat.fromAcceptHeader(null), is(ResponseFormat.JSON));
+        assertThat(ResponseFormat.fromAcceptHeader("*/*"), is(ResponseFormat.JSON));
+        assertThat(ResponseFormat.fromAcceptHeader("application/json"), is(ResponseFormat.JSON));
+        assertThat(ResponseFormat.fromAcceptHeader("application/cbor"), is(ResponseFormat.CBOR));
+        assertThat(ResponseFormat.fromAcceptHeader("text/html, application/smile;q=0.9"), is(ResponseFormat.SMILE));
+        assertThat(ResponseFormat.fromAcceptHeader("Application/X-NDJSON"), is(ResponseFormat.NDJSON));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResultIsStreamedPageByPageIfNdJsonIsAccepted() {
+        List<Field> fields = ImmutableList.of(
+            new Field(new DummyRelation(), ColumnIdent.fromPath("name"), DataTypes.STRING),
+            new Field(new DummyRelation(), ColumnIdent.fromPath("position"), DataTypes.INTEGER)
+        );
+        Session session = mock(Session.class);
+        Session.DescribeResult describeResult = mock(Session.DescribeResult.class);
+        when(describeResult.getFields()).thenReturn(fields);
+        when(session.describe(eq('P'), anyString())).thenReturn(describeResult);
+        when(session.sessionContext()).thenReturn(SessionContext.systemSessionContext());
+        doReturn(CompletableFuture.completedFuture(null)).when(session).sync();
+        SQLOperations sqlOperations = mock(SQLOperations.class);
+        when(sqlOperations.createSession(any(), any(), any(), anyInt())).thenReturn(session);
+
+        SqlHttpHandler handler = new SqlHttpHandler(
+            Settings.EMPTY,
+            sqlOperations,
+            (s) -> new NoopCircuitBreaker("dummy"),
+            userName -> User.CRATE_USER,
+            Netty4CorsConfigBuilder.forAnyOrigin().build()
+        );
+        EmbeddedChannel channel = new EmbeddedChannel(
+            new StreamedResponseHandler(),
+            new HttpPipeliningHandler(LogManager.getLogger(SqlHttpHandlerTest.class), 10_000),
+            handler
+        );
+        DefaultFullHttpRequest request = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1,
+            HttpMethod.POST,
+            "/_sql",
+            Unpooled.copiedBuffer("{\"stmt\": \"select name, position from locations\"}", StandardCharsets.UTF_8));
+        request.headers().add(HttpHeaderNames.ACCEPT, "application/x-ndjson");
+        channel.writeInbound(request);
+
+        ArgumentCaptor<ResultReceiver> receiverCaptor = ArgumentCaptor.forClass(ResultReceiver.class);
+        verify(session).execute(eq("_crate_http_stream_0"), eq(SqlHttpHandler.STREAM_PAGE_SIZE), receiverCaptor.capture());
+        ResultReceiver<?> receiver = receiverCaptor.getValue();
+
+        receiver.setNextRow(new RowN(new Object[]{"North West Ripple", 1}));
+        receiver.setNextRow(new RowN(new Object[]{"Arkintoofle Minor", 3}));
+        receiver.batchFinished();
+
+        HttpResponse head = channel.readOutbound();
+        assertThat(head, not(instanceOf(FullHttpResponse.class)));
+        assertThat(head.headers().get(HttpHeaderNames.CONTENT_TYPE), is("application/x-ndjson"));
+        assertThat(head.headers().get(HttpHeaderNames.TRANSFER_ENCODING), is("chunked"));
+        HttpContent chunk = channel.readOutbound();
+        assertThat(chunk.content().toString(StandardCharsets.UTF_8), is(
+            "{\"cols\":[\"name\",\"position\"]}\n" +
+            "[\"North West Ripple\",1]\n" +
+            "[\"Arkintoofle Minor\",3]\n"));
+        chunk.release();
+
+        // the next page is only requested once the previous one has been written
+        verify(session, times(2)).execute(eq("_crate_http_stream_0"), eq(SqlHttpHandler.STREAM_PAGE_SIZE), eq(receiver));
+
+        receiver.setNextRow(new RowN(new Object[]{"Outer Eastern Rim", 2}));
+        receiver.allFinished(false);
+
+        LastHttpContent last = channel.readOutbound();
+        assertThat(last.content().toString(StandardCharsets.UTF_8), startsWith(
+            "[\"Outer Eastern Rim\",2]\n" +
+            "{\"rowcount\":3,\"duration\":"));
+        last.release();
+
+        channel.runPendingTasks();
+        verify(session).close((byte) 'P', "_crate_http_stream_0");
+    }
 }
 
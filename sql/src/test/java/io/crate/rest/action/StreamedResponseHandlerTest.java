@@ -0,0 +1,64 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.test.integration.CrateUnitTest;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StreamedResponseHandlerTest extends CrateUnitTest {
+
+    @Test
+    public void testFullResponsesAreHeldBackUntilStreamIsFinished() {
+        EmbeddedChannel channel = new EmbeddedChannel(new StreamedResponseHandler());
+
+        channel.write(new StreamedResponseHandler.StreamStart(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        FullHttpResponse nextResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        channel.write(nextResponse);
+        channel.write(new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[] { 1 })));
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+
+        HttpResponse head = channel.readOutbound();
+        assertThat(head, not(instanceOf(FullHttpResponse.class)));
+        assertThat(head.status(), is(HttpResponseStatus.OK));
+        HttpContent chunk = channel.readOutbound();
+        assertThat(chunk, not(instanceOf(LastHttpContent.class)));
+        chunk.release();
+        assertThat(channel.readOutbound(), sameInstance(LastHttpContent.EMPTY_LAST_CONTENT));
+        assertThat(channel.readOutbound(), sameInstance(nextResponse));
+    }
+}